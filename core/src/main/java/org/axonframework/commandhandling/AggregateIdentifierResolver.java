@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+/**
+ * Interface towards a mechanism that resolves the identifier of the aggregate that a command targets. Command buses
+ * may use this identifier to process commands targeting the same aggregate in order.
+ *
+ * @author Allard Buijze
+ * @see AsyncCommandBus
+ * @since 1.0
+ */
+public interface AggregateIdentifierResolver {
+
+    /**
+     * Returns the identifier of the aggregate targeted by the given <code>command</code>, or <code>null</code> if the
+     * command does not target a specific aggregate.
+     *
+     * @param command The command to resolve the target aggregate identifier for
+     * @return the identifier of the targeted aggregate, or <code>null</code>
+     */
+    Object resolveAggregateIdentifier(Object command);
+}
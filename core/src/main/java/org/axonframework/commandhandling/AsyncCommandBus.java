@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import org.axonframework.commandhandling.annotation.AnnotationAggregateIdentifierResolver;
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Implementation of the CommandBus that handles commands asynchronously, using the threads of an {@link Executor}.
+ * Both <code>dispatch</code> methods return as soon as the command has been scheduled. The result of processing is
+ * reported to the {@link CommandCallback}, if one is given.
+ * <p/>
+ * Commands targeting the same aggregate are processed sequentially, in the order they were dispatched. The target
+ * aggregate of a command is found using an {@link AggregateIdentifierResolver}, which defaults to an {@link
+ * AnnotationAggregateIdentifierResolver}. Each aggregate identifier is assigned to one of a fixed number of lanes,
+ * based on its hash code. A lane occupies at most one thread of the executor at a time, so commands for the same
+ * aggregate never contend for its lock. Commands in different lanes, and commands that do not target a specific
+ * aggregate, are processed in parallel.
+ * <p/>
+ * Unlike the {@link SimpleCommandBus}, {@link #dispatch(Object)} does not rethrow exceptions raised while handling
+ * the command, as the caller has already returned. They are logged instead. Use {@link #dispatch(Object,
+ * CommandCallback)} to be notified of the result.
+ * <p/>
+ * The executor should not reject tasks. To give each lane a dedicated thread, provide an executor with at least as
+ * many threads as there are lanes, plus any threads needed for commands that do not target a specific aggregate. If
+ * the executor rejects a task, the exception is rethrown to the dispatching thread. Commands that were waiting in the
+ * same lane fail with that exception, which is reported to their callbacks.
+ * <p/>
+ * Apart from the statistics provided by the {@link SimpleCommandBus}, this class exposes the saturation of its lanes
+ * through JMX.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AsyncCommandBus extends SimpleCommandBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncCommandBus.class);
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final Executor executor;
+    private final CommandLane[] lanes;
+    private final AsyncCommandBusStatistics statistics;
+    private volatile AggregateIdentifierResolver aggregateIdentifierResolver =
+            new AnnotationAggregateIdentifierResolver();
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Initializes the AsyncCommandBus to process commands using the given <code>executor</code>, in
+     * <code>laneCount</code> lanes. Management information is registered as mbeans.
+     *
+     * @param executor  The executor providing the threads to process commands in
+     * @param laneCount The number of lanes to process commands targeting an aggregate in
+     */
+    public AsyncCommandBus(Executor executor, int laneCount) {
+        this(executor, laneCount, true);
+    }
+
+    /**
+     * Initializes the AsyncCommandBus to process commands using the given <code>executor</code>, in
+     * <code>laneCount</code> lanes, and makes the registration of mbeans for management information optional.
+     *
+     * @param executor       The executor providing the threads to process commands in
+     * @param laneCount      The number of lanes to process commands targeting an aggregate in
+     * @param registerMBeans true to register the mbeans, false for not registering them.
+     */
+    public AsyncCommandBus(Executor executor, int laneCount, boolean registerMBeans) {
+        super(registerMBeans);
+        Assert.notNull(executor, "The executor may not be null");
+        Assert.isTrue(laneCount > 0, "The number of lanes must be positive");
+        this.executor = executor;
+        this.lanes = new CommandLane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new CommandLane();
+        }
+        this.statistics = new AsyncCommandBusStatistics(this);
+        if (registerMBeans) {
+            JmxConfiguration.getInstance().registerMBean(statistics, getClass(), "lanes");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The command is handled asynchronously. Any exception raised while handling the command is logged, and not
+     * rethrown.
+     */
+    @Override
+    public void dispatch(final Object command) {
+        final CommandHandler<?> handler = findCommandHandlerFor(command);
+        schedule(command, new CommandTask(command) {
+            @Override
+            protected void execute() {
+                try {
+                    doDispatch(command, handler);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable throwable) {
+                    onFailure(throwable);
+                }
+            }
+
+            @Override
+            protected void onFailure(Throwable cause) {
+                logger.error(format("Processing of a [%s] resulted in an exception: ",
+                                    command.getClass().getSimpleName()),
+                             cause);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The command is handled asynchronously. The callback is invoked by the thread processing the command.
+     */
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public <R> void dispatch(final Object command, final CommandCallback<R> callback) {
+        final CommandHandler<?> handler = findCommandHandlerFor(command);
+        schedule(command, new CommandTask(command) {
+            @Override
+            protected void execute() {
+                Object result;
+                try {
+                    result = doDispatch(command, handler);
+                } catch (Throwable throwable) {
+                    callback.onFailure(throwable);
+                    return;
+                }
+                callback.onSuccess((R) result);
+            }
+
+            @Override
+            protected void onFailure(Throwable cause) {
+                callback.onFailure(cause);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The batch is handled asynchronously. It is split into one batch for each lane targeted by its commands, which
+     * is processed in that lane, in order with the other commands of the lane. Commands that do not target a specific
+     * aggregate are added to the batch of the first command that does, so they keep their order relative to that
+     * command. A batch in which no command targets a specific aggregate is processed directly by the executor.
+     * <p/>
+     * As a consequence, the changes of commands in different lanes are stored separately. The callback is invoked by
+     * the threads processing the batches. If the executor rejects a batch, its commands are reported as failed.
+     */
+    @Override
+    public void dispatchBatch(List<?> commands, BatchCallback callback) {
+        for (Object command : commands) {
+            findCommandHandlerFor(command);
+        }
+        int[] commandLanes = new int[commands.size()];
+        int firstLane = -1;
+        for (int i = 0; i < commandLanes.length; i++) {
+            Object aggregateIdentifier = aggregateIdentifierResolver.resolveAggregateIdentifier(commands.get(i));
+            commandLanes[i] = aggregateIdentifier == null ? -1 : laneOf(aggregateIdentifier);
+            if (firstLane < 0) {
+                firstLane = commandLanes[i];
+            }
+        }
+        Map<Integer, List<Object>> laneBatches = new LinkedHashMap<Integer, List<Object>>();
+        for (int i = 0; i < commandLanes.length; i++) {
+            Integer lane = commandLanes[i] < 0 ? firstLane : commandLanes[i];
+            List<Object> laneBatch = laneBatches.get(lane);
+            if (laneBatch == null) {
+                laneBatch = new ArrayList<Object>();
+                laneBatches.put(lane, laneBatch);
+            }
+            laneBatch.add(commands.get(i));
+        }
+        for (Map.Entry<Integer, List<Object>> laneBatch : laneBatches.entrySet()) {
+            CommandTask task = new BatchTask(laneBatch.getValue(), callback);
+            statistics.recordScheduledCommand();
+            try {
+                if (laneBatch.getKey() < 0) {
+                    executeDirectly(task);
+                } else {
+                    lanes[laneBatch.getKey()].schedule(task);
+                }
+            } catch (RuntimeException e) {
+                // the batches of other lanes may already have been scheduled
+                task.onFailure(e);
+            }
+        }
+    }
+
+    private void schedule(Object command, CommandTask task) {
+        Object aggregateIdentifier = aggregateIdentifierResolver.resolveAggregateIdentifier(command);
+        statistics.recordScheduledCommand();
+        if (aggregateIdentifier == null) {
+            executeDirectly(task);
+        } else {
+            lanes[laneOf(aggregateIdentifier)].schedule(task);
+        }
+    }
+
+    private void executeDirectly(CommandTask task) {
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            statistics.recordRejectedCommand();
+            throw e;
+        }
+    }
+
+    private int laneOf(Object aggregateIdentifier) {
+        return (aggregateIdentifier.hashCode() & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * Sets the resolver that finds the aggregate targeted by commands. Defaults to an {@link
+     * AnnotationAggregateIdentifierResolver}.
+     *
+     * @param aggregateIdentifierResolver The resolver finding the target aggregate of commands
+     */
+    public void setAggregateIdentifierResolver(AggregateIdentifierResolver aggregateIdentifierResolver) {
+        Assert.notNull(aggregateIdentifierResolver, "The aggregate identifier resolver may not be null");
+        this.aggregateIdentifierResolver = aggregateIdentifierResolver;
+    }
+
+    /**
+     * Sets the maximum number of commands a lane processes before it releases its thread to the executor, allowing
+     * other lanes to be processed. Defaults to 50.
+     *
+     * @param batchSize The maximum number of commands processed by a lane in a single run
+     */
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "The batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the number of lanes that process commands targeting an aggregate.
+     *
+     * @return the number of lanes
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    int getBusyLaneCount() {
+        int busyLanes = 0;
+        for (CommandLane lane : lanes) {
+            if (lane.scheduled.get()) {
+                busyLanes++;
+            }
+        }
+        return busyLanes;
+    }
+
+    int[] getLaneQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queueDepth.get();
+        }
+        return depths;
+    }
+
+    /**
+     * A command waiting to be processed, which keeps the statistics up to date.
+     */
+    private abstract class CommandTask implements Runnable {
+
+        private final String description;
+
+        protected CommandTask(Object command) {
+            this("a [" + command.getClass().getSimpleName() + "]");
+        }
+
+        protected CommandTask(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public void run() {
+            statistics.recordStartedCommand();
+            try {
+                execute();
+            } finally {
+                statistics.recordProcessedCommand();
+            }
+        }
+
+        /**
+         * Reports that the command will not be handled, because the executor rejected the lane it was waiting in.
+         *
+         * @param cause The exception raised by the executor
+         */
+        private void reject(Throwable cause) {
+            statistics.recordRejectedCommand();
+            onFailure(cause);
+        }
+
+        /**
+         * Handles the command, and reports the result.
+         */
+        protected abstract void execute();
+
+        /**
+         * Reports the given <code>cause</code> as the result of the command.
+         *
+         * @param cause The exception that prevented the command from being handled
+         */
+        protected abstract void onFailure(Throwable cause);
+
+        @Override
+        public String toString() {
+            return "CommandTask for " + description;
+        }
+    }
+
+    /**
+     * A batch of commands to be handled in a single lane.
+     */
+    private final class BatchTask extends CommandTask {
+
+        private final List<Object> batch;
+        private final BatchCallback callback;
+
+        private BatchTask(List<Object> batch, BatchCallback callback) {
+            super("a batch of " + batch.size() + " commands");
+            this.batch = batch;
+            this.callback = callback;
+        }
+
+        @Override
+        protected void execute() {
+            AsyncCommandBus.super.dispatchBatch(batch, callback);
+        }
+
+        @Override
+        protected void onFailure(Throwable cause) {
+            for (Object command : batch) {
+                callback.onFailure(command, cause);
+            }
+        }
+    }
+
+    /**
+     * Processes the commands assigned to it sequentially. A lane only occupies a thread of the executor while it has
+     * commands waiting.
+     */
+    private final class CommandLane implements Runnable {
+
+        private final Queue<CommandTask> tasks = new ConcurrentLinkedQueue<CommandTask>();
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private void schedule(CommandTask task) {
+            tasks.add(task);
+            queueDepth.incrementAndGet();
+            if (scheduled.compareAndSet(false, true)) {
+                start(task);
+            }
+        }
+
+        /**
+         * Hands this lane to the executor. If the executor rejects it, the waiting commands are failed, as no thread
+         * would process them, and the lane is released so it can be started again. The exception is rethrown if the
+         * given <code>newTask</code> was among the failed commands.
+         *
+         * @param newTask The command that caused the lane to start, or <code>null</code> if there is none
+         */
+        private void start(CommandTask newTask) {
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                boolean newTaskRemoved = newTask != null && tasks.remove(newTask);
+                if (newTaskRemoved) {
+                    queueDepth.decrementAndGet();
+                    statistics.recordRejectedCommand();
+                }
+                CommandTask task;
+                while ((task = tasks.poll()) != null) {
+                    queueDepth.decrementAndGet();
+                    task.reject(e);
+                }
+                scheduled.set(false);
+                // commands may have been added while the waiting ones were failed
+                if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    start(null);
+                }
+                if (newTaskRemoved) {
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int processed = 0;
+            try {
+                CommandTask task;
+                while (processed < batchSize && (task = tasks.poll()) != null) {
+                    queueDepth.decrementAndGet();
+                    processed++;
+                    task.run();
+                }
+            } finally {
+                scheduled.set(false);
+                // commands may have been added after the last poll, or the batch size was reached
+                if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    start(null);
+                }
+            }
+        }
+    }
+}
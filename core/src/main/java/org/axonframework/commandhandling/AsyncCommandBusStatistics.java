@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.StandardMBean;
+
+/**
+ * Statistics object to store information about the saturation of an <code>AsyncCommandBus</code>. It keeps track of
+ * the number of waiting, active and processed commands, and reports the state of the lanes of the command bus.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class AsyncCommandBusStatistics extends StandardMBean implements AsyncCommandBusStatisticsMXBean {
+
+    private final AsyncCommandBus commandBus;
+    private final AtomicLong pendingCommands = new AtomicLong(0);
+    private final AtomicLong pendingHighWaterMark = new AtomicLong(0);
+    private final AtomicLong activeCommands = new AtomicLong(0);
+    private final AtomicLong processedCommands = new AtomicLong(0);
+
+    /**
+     * Creates an instance of this statistics MBean for the given <code>commandBus</code>.
+     *
+     * @param commandBus The command bus to report the lanes of
+     */
+    public AsyncCommandBusStatistics(AsyncCommandBus commandBus) {
+        super(AsyncCommandBusStatisticsMXBean.class, true);
+        this.commandBus = commandBus;
+    }
+
+    @Override
+    public int getLaneCount() {
+        return commandBus.getLaneCount();
+    }
+
+    @Override
+    public int getBusyLaneCount() {
+        return commandBus.getBusyLaneCount();
+    }
+
+    @Override
+    public int[] getLaneQueueDepths() {
+        return commandBus.getLaneQueueDepths();
+    }
+
+    @Override
+    public long getPendingCommandCount() {
+        return pendingCommands.get();
+    }
+
+    @Override
+    public long getPendingCommandHighWaterMark() {
+        return pendingHighWaterMark.get();
+    }
+
+    @Override
+    public long getActiveCommandCount() {
+        return activeCommands.get();
+    }
+
+    @Override
+    public long getProcessedCommandCount() {
+        return processedCommands.get();
+    }
+
+    @Override
+    public void resetStatistics() {
+        processedCommands.set(0);
+        pendingHighWaterMark.set(pendingCommands.get());
+    }
+
+    /**
+     * Indicate a command has been scheduled for processing.
+     */
+    void recordScheduledCommand() {
+        long pending = pendingCommands.incrementAndGet();
+        long highWaterMark = pendingHighWaterMark.get();
+        while (pending > highWaterMark && !pendingHighWaterMark.compareAndSet(highWaterMark, pending)) {
+            highWaterMark = pendingHighWaterMark.get();
+        }
+    }
+
+    /**
+     * Indicate a command will not be processed, because the executor rejected it.
+     */
+    void recordRejectedCommand() {
+        pendingCommands.decrementAndGet();
+    }
+
+    /**
+     * Indicate processing of a command has started.
+     */
+    void recordStartedCommand() {
+        pendingCommands.decrementAndGet();
+        activeCommands.incrementAndGet();
+    }
+
+    /**
+     * Indicate processing of a command has finished, successfully or not.
+     */
+    void recordProcessedCommand() {
+        activeCommands.decrementAndGet();
+        processedCommands.incrementAndGet();
+    }
+}
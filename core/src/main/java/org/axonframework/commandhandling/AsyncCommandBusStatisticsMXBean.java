@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+/**
+ * Management interface for the AsyncCommandBus monitor, exposing how saturated the bus is.
+ * <p/>
+ * As required by the JMX specification. In combination with the implementation, this interface specifies and delivers
+ * the actual JMX bean.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface AsyncCommandBusStatisticsMXBean {
+
+    /**
+     * Returns the number of lanes processing commands that target an aggregate.
+     *
+     * @return the number of lanes
+     */
+    int getLaneCount();
+
+    /**
+     * Returns the number of lanes that currently have commands waiting or being processed.
+     *
+     * @return the number of busy lanes
+     */
+    int getBusyLaneCount();
+
+    /**
+     * Returns the number of commands waiting in each of the lanes.
+     *
+     * @return the queue depth of each of the lanes
+     */
+    int[] getLaneQueueDepths();
+
+    /**
+     * Returns the number of commands that have been dispatched, but of which processing has not started yet.
+     *
+     * @return the number of waiting commands
+     */
+    long getPendingCommandCount();
+
+    /**
+     * Returns the highest number of commands waiting at the same time, since the last reset.
+     *
+     * @return the high water mark of the number of waiting commands
+     */
+    long getPendingCommandHighWaterMark();
+
+    /**
+     * Returns the number of commands currently being processed.
+     *
+     * @return the number of commands in progress
+     */
+    long getActiveCommandCount();
+
+    /**
+     * Returns the number of commands that have been processed, successfully or not, since the last reset.
+     *
+     * @return the number of processed commands
+     */
+    long getProcessedCommandCount();
+
+    /**
+     * Resets the processed command counter, and resets the high water mark to the current number of waiting commands.
+     */
+    void resetStatistics();
+}
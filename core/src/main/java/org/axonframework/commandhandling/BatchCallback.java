@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import java.util.List;
+
+/**
+ * Interface describing a callback that is invoked for each command of a batch dispatched using {@link
+ * BatchingCommandBus#dispatchBatch(List, BatchCallback)}. Depending on the outcome of the execution of a command, either the
+ * {@link #onSuccess(Object, Object)} or the {@link #onFailure(Object, Throwable)} is called for it.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface BatchCallback {
+
+    /**
+     * Invoked when the given <code>command</code> was handled successfully, and the changes it made have been
+     * committed.
+     *
+     * @param command The command that was handled
+     * @param result  The result of the command handling execution, if any.
+     */
+    void onSuccess(Object command, Object result);
+
+    /**
+     * Invoked when the handling of the given <code>command</code> resulted in an error.
+     *
+     * @param command The command that failed
+     * @param cause   The exception raised during command handling
+     */
+    void onFailure(Object command, Throwable cause);
+}
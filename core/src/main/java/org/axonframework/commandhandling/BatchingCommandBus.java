@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling;
+
+import java.util.List;
+
+/**
+ * CommandBus that is able to handle several commands as a batch. Handling commands as a batch allows implementations
+ * to store the changes of all commands of the batch together, instead of storing the changes of each command
+ * separately.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface BatchingCommandBus extends CommandBus {
+
+    /**
+     * Dispatch the given <code>commands</code> to the CommandHandlers subscribed to their types, handling them as a
+     * batch. For each command, one of the callback methods is called, depending on the result of its processing.
+     * <p/>
+     * Implementations may handle the commands of a batch in a single UnitOfWork, so that the changes of all commands
+     * are stored together. When a command fails, the other commands of the batch must not fail because of it. To
+     * achieve that, implementations may need to handle commands more than once. Therefore, command handlers should
+     * not have side effects that are not managed by the UnitOfWork.
+     *
+     * @param commands The Commands to dispatch
+     * @param callback The callback to invoke when the processing of each command is complete
+     * @throws NoHandlerForCommandException when no command handler is registered for one of the given
+     *                                      <code>commands</code>. In that case, none of the commands is handled.
+     */
+    void dispatchBatch(List<?> commands, BatchCallback callback);
+}
@@ -26,7 +26,7 @@ import java.util.Iterator;
  * @author Allard Buijze
  * @since 0.5
  */
-class DefaultInterceptorChain implements InterceptorChain {
+public class DefaultInterceptorChain implements InterceptorChain {
 
     private final Object command;
     private final CommandHandler handler;
@@ -23,6 +23,7 @@ import org.axonframework.unitofwork.UnitOfWorkFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +42,7 @@ import static java.lang.String.format;
  * @author Allard Buijze
  * @since 0.5
  */
-public class SimpleCommandBus implements CommandBus {
+public class SimpleCommandBus implements BatchingCommandBus {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleCommandBus.class);
 
@@ -71,7 +72,7 @@ public class SimpleCommandBus implements CommandBus {
     @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
     @Override
     public void dispatch(Object command) {
-        CommandHandler commandHandler = findCommandHandlerFor(command);
+        CommandHandler<?> commandHandler = findCommandHandlerFor(command);
         try {
             doDispatch(command, commandHandler);
         } catch (Error e) {
@@ -85,7 +86,7 @@ public class SimpleCommandBus implements CommandBus {
     @SuppressWarnings({"unchecked"})
     @Override
     public <R> void dispatch(Object command, final CommandCallback<R> callback) {
-        CommandHandler handler = findCommandHandlerFor(command);
+        CommandHandler<?> handler = findCommandHandlerFor(command);
         try {
             Object result = doDispatch(command, handler);
             callback.onSuccess((R) result);
@@ -94,8 +95,66 @@ public class SimpleCommandBus implements CommandBus {
         }
     }
 
-    private CommandHandler findCommandHandlerFor(Object command) {
-        final CommandHandler handler = subscriptions.get(command.getClass());
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The commands are handled in a single UnitOfWork, in the order given. As a result, each aggregate is saved only
+     * once, with the events of all commands of the batch. If a command fails, or if the UnitOfWork cannot be
+     * committed, the batch is rolled back and split in two halves, which are handled again separately. This is
+     * repeated until the failing commands are handled on their own. The callback is invoked after the commands have
+     * been committed or have definitively failed.
+     */
+    @Override
+    public void dispatchBatch(List<?> commands, BatchCallback callback) {
+        List<BatchEntry> batch = new ArrayList<BatchEntry>(commands.size());
+        for (Object command : commands) {
+            batch.add(new BatchEntry(command, findCommandHandlerFor(command)));
+            statistics.recordReceivedCommand();
+        }
+        dispatchBatchEntries(batch, callback);
+    }
+
+    private void dispatchBatchEntries(List<BatchEntry> batch, BatchCallback callback) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
+        try {
+            for (BatchEntry entry : batch) {
+                InterceptorChain chain = new DefaultInterceptorChain(entry.command, unitOfWork, entry.handler,
+                                                                     interceptors);
+                entry.result = chain.proceed();
+            }
+            unitOfWork.commit();
+        } catch (Throwable throwable) {
+            if (unitOfWork.isStarted()) {
+                unitOfWork.rollback(throwable);
+            }
+            if (batch.size() == 1) {
+                callback.onFailure(batch.get(0).command, throwable);
+            } else {
+                // retry both halves, so that failing commands do not prevent the others from being committed
+                int half = batch.size() / 2;
+                dispatchBatchEntries(batch.subList(0, half), callback);
+                dispatchBatchEntries(batch.subList(half, batch.size()), callback);
+            }
+            return;
+        }
+        for (BatchEntry entry : batch) {
+            callback.onSuccess(entry.command, entry.result);
+        }
+    }
+
+    /**
+     * Returns the handler subscribed to the type of the given <code>command</code>.
+     *
+     * @param command The command to find the handler for
+     * @return the handler subscribed to the type of command
+     *
+     * @throws NoHandlerForCommandException when no command handler is registered for the given <code>command</code>
+     */
+    protected CommandHandler<?> findCommandHandlerFor(Object command) {
+        final CommandHandler<?> handler = subscriptions.get(command.getClass());
         if (handler == null) {
             throw new NoHandlerForCommandException(format("No handler was subscribed to commands of type [%s]",
                     command.getClass().getSimpleName()));
@@ -103,7 +162,18 @@ public class SimpleCommandBus implements CommandBus {
         return handler;
     }
 
-    private Object doDispatch(Object command, CommandHandler commandHandler) throws Throwable {
+    /**
+     * Handles the given <code>command</code> using the given <code>commandHandler</code> in a new UnitOfWork, passing
+     * the command through the configured interceptors. The UnitOfWork is committed if handling succeeds, and rolled
+     * back otherwise. The command is handled in the calling thread.
+     *
+     * @param command        The command to handle
+     * @param commandHandler The handler to handle the command with
+     * @return the result of the command handler
+     *
+     * @throws Throwable any exception thrown while handling the command or committing the UnitOfWork
+     */
+    protected Object doDispatch(Object command, CommandHandler<?> commandHandler) throws Throwable {
         statistics.recordReceivedCommand();
         UnitOfWork unitOfWork = unitOfWorkFactory.createUnitOfWork();
         InterceptorChain chain = new DefaultInterceptorChain(command, unitOfWork, commandHandler, interceptors);
@@ -163,7 +233,7 @@ public class SimpleCommandBus implements CommandBus {
     @SuppressWarnings({"unchecked"})
     public void setSubscriptions(Map<?, ?> handlers) {
         for (Map.Entry<?, ?> entry : handlers.entrySet()) {
-            subscribe((Class<?>) entry.getKey(), (CommandHandler) entry.getValue());
+            subscribe((Class<Object>) entry.getKey(), (CommandHandler<Object>) entry.getValue());
         }
     }
 
@@ -176,4 +246,19 @@ public class SimpleCommandBus implements CommandBus {
     public void setUnitOfWorkFactory(UnitOfWorkFactory unitOfWorkFactory) {
         this.unitOfWorkFactory = unitOfWorkFactory;
     }
+
+    /**
+     * A command of a batch, with the handler to handle it and the result of its last execution.
+     */
+    private static final class BatchEntry {
+
+        private final Object command;
+        private final CommandHandler<?> handler;
+        private Object result;
+
+        private BatchEntry(Object command, CommandHandler<?> handler) {
+            this.command = command;
+            this.handler = handler;
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.annotation;
+
+import org.axonframework.commandhandling.AggregateIdentifierResolver;
+import org.axonframework.util.AxonConfigurationException;
+import org.axonframework.util.MethodAccessibilityCallback;
+import org.axonframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.security.AccessController.doPrivileged;
+
+/**
+ * AggregateIdentifierResolver that reads the target aggregate identifier from the field or method of a command
+ * annotated with {@link TargetAggregateIdentifier}. The annotated member is looked up once per command type.
+ * Commands without such a member do not target a specific aggregate.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AnnotationAggregateIdentifierResolver implements AggregateIdentifierResolver {
+
+    private static final Object NO_MEMBER = new Object();
+
+    private final ConcurrentMap<Class<?>, Object> identifierMembers = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws AxonConfigurationException if the annotated method is not a getter, or threw an exception
+     */
+    @Override
+    public Object resolveAggregateIdentifier(Object command) {
+        Object member = identifierMemberOf(command.getClass());
+        if (member == NO_MEMBER) {
+            return null;
+        } else if (member instanceof Field) {
+            return ReflectionUtils.getFieldValue((Field) member, command);
+        }
+        Method method = (Method) member;
+        try {
+            return method.invoke(command);
+        } catch (IllegalAccessException e) {
+            throw new AxonConfigurationException(String.format(
+                    "Unable to access the target aggregate identifier on [%s].",
+                    command.getClass().getSimpleName()), e);
+        } catch (InvocationTargetException e) {
+            throw new AxonConfigurationException(String.format(
+                    "An error occurred while reading the target aggregate identifier from [%s].",
+                    command.getClass().getSimpleName()), e);
+        }
+    }
+
+    private Object identifierMemberOf(Class<?> commandType) {
+        Object member = identifierMembers.get(commandType);
+        if (member == null) {
+            member = findIdentifierMember(commandType);
+            identifierMembers.putIfAbsent(commandType, member);
+        }
+        return member;
+    }
+
+    private Object findIdentifierMember(Class<?> commandType) {
+        for (Field field : ReflectionUtils.fieldsOf(commandType)) {
+            if (field.isAnnotationPresent(TargetAggregateIdentifier.class)) {
+                ReflectionUtils.ensureAccessible(field);
+                return field;
+            }
+        }
+        for (Method method : ReflectionUtils.methodsOf(commandType)) {
+            if (method.isAnnotationPresent(TargetAggregateIdentifier.class)) {
+                if (method.getParameterTypes().length != 0) {
+                    throw new AxonConfigurationException(String.format(
+                            "Method [%s] on [%s] is annotated with @TargetAggregateIdentifier, but has parameters.",
+                            method.getName(), commandType.getSimpleName()));
+                }
+                if (!method.isAccessible()) {
+                    doPrivileged(new MethodAccessibilityCallback(method));
+                }
+                return method;
+            }
+        }
+        return NO_MEMBER;
+    }
+}
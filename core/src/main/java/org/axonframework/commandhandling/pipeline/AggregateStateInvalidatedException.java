@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.pipeline;
+
+import org.axonframework.util.AxonTransientException;
+
+/**
+ * Exception indicating that a command was handled against an in-memory aggregate whose earlier changes could not be
+ * stored. The changes made by the command have been discarded. As the aggregate is reloaded from the event store
+ * before it handles the next command, dispatching the command again may succeed.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AggregateStateInvalidatedException extends AxonTransientException {
+
+    private static final long serialVersionUID = -2934521478396128462L;
+
+    /**
+     * Initializes the exception using the given <code>message</code> and <code>cause</code>.
+     *
+     * @param message The message describing the exception
+     * @param cause   The exception that prevented earlier changes to the aggregate from being stored
+     */
+    public AggregateStateInvalidatedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.pipeline;
+
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A slot in the ring buffer of the {@link PipelinedCommandBus}. The entry carries a command through the stages of the
+ * pipeline: it is filled by the dispatching thread, receives the result and the resulting events from the handling
+ * stage, and may be marked as failed by the persisting stage. Entries are reused once the publishing stage has
+ * reported their result.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+final class CommandHandlingEntry {
+
+    private final List<AggregateChange> changes = new ArrayList<AggregateChange>();
+    private Object command;
+    private CommandHandler<?> handler;
+    private CommandCallback<?> callback;
+    private int lane;
+    private Object result;
+    private Throwable failure;
+
+    /**
+     * Prepares this entry for the handling of the given <code>command</code>.
+     *
+     * @param newCommand  The command to handle
+     * @param newHandler  The handler to handle the command with
+     * @param newCallback The callback to report the result to. May be <code>null</code>.
+     * @param newLane     The lane of the handling stage that should handle the command
+     */
+    void reset(Object newCommand, CommandHandler<?> newHandler, CommandCallback<?> newCallback, int newLane) {
+        this.command = newCommand;
+        this.handler = newHandler;
+        this.callback = newCallback;
+        this.lane = newLane;
+        this.result = null;
+        this.failure = null;
+        this.changes.clear();
+    }
+
+    /**
+     * Releases all references held by this entry, allowing them to be garbage collected while the entry waits to be
+     * reused.
+     */
+    void clear() {
+        reset(null, null, null, 0);
+    }
+
+    Object getCommand() {
+        return command;
+    }
+
+    CommandHandler<?> getHandler() {
+        return handler;
+    }
+
+    CommandCallback<?> getCallback() {
+        return callback;
+    }
+
+    int getLane() {
+        return lane;
+    }
+
+    Object getResult() {
+        return result;
+    }
+
+    void setResult(Object result) {
+        this.result = result;
+    }
+
+    Throwable getFailure() {
+        return failure;
+    }
+
+    boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Marks this entry as failed. Any events registered with this entry are discarded. If this entry was already
+     * marked as failed, the original cause is kept.
+     *
+     * @param cause The cause of the failure
+     */
+    void markFailed(Throwable cause) {
+        if (failure == null) {
+            this.failure = cause;
+        }
+        changes.clear();
+    }
+
+    /**
+     * Registers the events applied to the aggregate with given <code>aggregateIdentifier</code> while handling the
+     * command.
+     *
+     * @param aggregateIdentifier The identifier of the aggregate the events were applied to
+     * @param generation          The generation of the in-memory aggregate instance that applied the events
+     * @param events              The events applied to the aggregate
+     */
+    void addChange(AggregateIdentifier aggregateIdentifier, long generation, List<DomainEvent> events) {
+        changes.add(new AggregateChange(aggregateIdentifier, generation, events));
+    }
+
+    List<AggregateChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * The events applied to a single aggregate while handling the command of an entry.
+     */
+    static final class AggregateChange {
+
+        private final AggregateIdentifier aggregateIdentifier;
+        private final long generation;
+        private final List<DomainEvent> events;
+
+        private AggregateChange(AggregateIdentifier aggregateIdentifier, long generation, List<DomainEvent> events) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.generation = generation;
+            this.events = events;
+        }
+
+        AggregateIdentifier getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+
+        List<DomainEvent> getEvents() {
+            return events;
+        }
+    }
+}
@@ -0,0 +1,847 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.pipeline;
+
+import org.axonframework.commandhandling.AggregateIdentifierResolver;
+import org.axonframework.commandhandling.BatchCallback;
+import org.axonframework.commandhandling.BatchingCommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandHandlerInterceptor;
+import org.axonframework.commandhandling.DefaultInterceptorChain;
+import org.axonframework.commandhandling.InterceptorChain;
+import org.axonframework.commandhandling.NoHandlerForCommandException;
+import org.axonframework.commandhandling.annotation.AnnotationAggregateIdentifierResolver;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventsourcing.AggregateFactory;
+import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.repository.AggregateNotFoundException;
+import org.axonframework.repository.ConflictingAggregateVersionException;
+import org.axonframework.repository.Repository;
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
+import org.axonframework.unitofwork.SaveAggregateCallback;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import static java.lang.String.format;
+
+/**
+ * CommandBus implementation that keeps the aggregates of a single type in memory, and processes commands in a pipeline
+ * of three stages, connected by a preallocated ring buffer: <ol><li>the handling stage invokes the command handlers
+ * against the in-memory aggregates;<li>the persisting stage appends the resulting events to the {@link EventStore}, in
+ * batches;<li>the publishing stage publishes the stored events on the {@link EventBus} and reports the result of each
+ * command to its {@link CommandCallback}.</ol>
+ * <p/>
+ * The handling stage consists of a configurable number of threads. Each aggregate is assigned to exactly one of them,
+ * based on the hash code of its identifier, and is only ever accessed by that thread. That means aggregates are never
+ * locked. The target aggregate of a command is found using an {@link AggregateIdentifierResolver}, which defaults to
+ * an {@link AnnotationAggregateIdentifierResolver}. Commands that do not target a specific aggregate, such as commands
+ * creating a new aggregate, are spread over all handling threads.
+ * <p/>
+ * Command handlers must access aggregates through the repository returned by {@link #getRepository()}. An aggregate
+ * is read from the event store the first time it is loaded, after all events of earlier commands have been stored.
+ * Aggregates may only be loaded by a command that targets them. When a command fails, the aggregates it loaded are
+ * discarded, and reloaded from the event store when they are needed again. The same happens when the events of an
+ * aggregate cannot be stored, in which case all commands that have been handled against the invalid state of the
+ * aggregate fail with an {@link AggregateStateInvalidatedException}. To keep the changes of a command atomic, a
+ * command should not apply events to more than one aggregate.
+ * <p/>
+ * Dispatching a command returns as soon as the command is placed in the ring buffer. When the ring buffer is full,
+ * the dispatching thread waits until the publishing stage has released a slot. Command handlers, event listeners and
+ * callbacks dispatching commands on this bus from one of its own stages are never made to wait, as that stage would
+ * then wait for itself. When the ring buffer is full, their commands are rejected instead.
+ * <p/>
+ * All stages run on the executor provided in the constructor. That executor must be able to run all stages
+ * concurrently, as each stage occupies a thread for as long as the command bus is running: one for each handling
+ * thread, one for the persisting stage and one for the publishing stage. The command bus must be started using {@link
+ * #start()} before commands can be dispatched. When running in a Spring context, this is done automatically.
+ *
+ * @param <T> The type of aggregate the commands of this bus are handled against
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class PipelinedCommandBus<T extends EventSourcedAggregateRoot> implements BatchingCommandBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedCommandBus.class);
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final int DEFAULT_PERSIST_BATCH_SIZE = 100;
+    private static final int SPIN_TRIES = 200;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 10000L;
+
+    private final ConcurrentMap<Class<?>, CommandHandler<?>> subscriptions =
+            new ConcurrentHashMap<Class<?>, CommandHandler<?>>();
+    private final CommandHandlingEntry[] entries;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong(-1);
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong persistedSequence = new AtomicLong(-1);
+    private final AtomicLong publishedSequence = new AtomicLong(-1);
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicInteger activeDispatchers = new AtomicInteger();
+    private final AtomicLong[] dispatchedSequences;
+    private final AtomicLong[] handledSequences;
+    private final AtomicLong[] persistedSequences;
+    private final HandlerStage[] handlerStages;
+    private final ThreadLocal<HandlerStage> currentStage = new ThreadLocal<HandlerStage>();
+    private final ThreadLocal<Boolean> publishingThread = new ThreadLocal<Boolean>();
+    private final AggregateFactory<T> aggregateFactory;
+    private final EventStore eventStore;
+    private final EventBus eventBus;
+    private final Executor executor;
+    private final Repository<T> repository = new PipelineRepository();
+    private volatile Iterable<? extends CommandHandlerInterceptor> interceptors = Collections.emptyList();
+    private volatile AggregateIdentifierResolver aggregateIdentifierResolver =
+            new AnnotationAggregateIdentifierResolver();
+    private volatile int persistBatchSize = DEFAULT_PERSIST_BATCH_SIZE;
+    private volatile boolean started;
+    private volatile boolean stopped;
+    private volatile boolean running;
+    private volatile CountDownLatch stagesStopped;
+
+    /**
+     * Initializes a PipelinedCommandBus with a buffer of 4096 commands and a single handling thread. Aggregates are
+     * created using the given <code>aggregateFactory</code> and read from the given <code>eventStore</code>. The
+     * resulting events are stored in the <code>eventStore</code> and published on the <code>eventBus</code>.
+     *
+     * @param aggregateFactory The factory creating the aggregates commands are handled against
+     * @param eventStore       The event store to read aggregates from and to store events in
+     * @param eventBus         The event bus to publish stored events on
+     * @param executor         The executor that runs the stages of the pipeline
+     */
+    public PipelinedCommandBus(AggregateFactory<T> aggregateFactory, EventStore eventStore, EventBus eventBus,
+                               Executor executor) {
+        this(aggregateFactory, eventStore, eventBus, executor, DEFAULT_BUFFER_SIZE, 1);
+    }
+
+    /**
+     * Initializes a PipelinedCommandBus with a buffer of the given <code>bufferSize</code>, handling commands using
+     * the given number of <code>handlerThreadCount</code> threads. Aggregates are created using the given
+     * <code>aggregateFactory</code> and read from the given <code>eventStore</code>. The resulting events are stored
+     * in the <code>eventStore</code> and published on the <code>eventBus</code>.
+     *
+     * @param aggregateFactory   The factory creating the aggregates commands are handled against
+     * @param eventStore         The event store to read aggregates from and to store events in
+     * @param eventBus           The event bus to publish stored events on
+     * @param executor           The executor that runs the stages of the pipeline
+     * @param bufferSize         The number of commands the buffer can hold. Must be a power of 2.
+     * @param handlerThreadCount The number of threads handling commands
+     */
+    @SuppressWarnings({"unchecked"})
+    public PipelinedCommandBus(AggregateFactory<T> aggregateFactory, EventStore eventStore, EventBus eventBus,
+                               Executor executor, int bufferSize, int handlerThreadCount) {
+        Assert.notNull(aggregateFactory, "The aggregate factory may not be null");
+        Assert.notNull(eventStore, "The event store may not be null");
+        Assert.notNull(eventBus, "The event bus may not be null");
+        Assert.notNull(executor, "The executor may not be null");
+        Assert.isTrue(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "The buffer size must be a power of 2");
+        Assert.isTrue(handlerThreadCount > 0, "The number of handler threads must be positive");
+        this.aggregateFactory = aggregateFactory;
+        this.eventStore = eventStore;
+        this.eventBus = eventBus;
+        this.executor = executor;
+        this.entries = new CommandHandlingEntry[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = new CommandHandlingEntry();
+        }
+        this.mask = bufferSize - 1;
+        // HandlerStage is an inner class of a generic type, so the array must be created using a wildcard type
+        this.handlerStages = (HandlerStage[]) new PipelinedCommandBus<?>.HandlerStage[handlerThreadCount];
+        this.handledSequences = new AtomicLong[handlerThreadCount];
+        for (int i = 0; i < handlerThreadCount; i++) {
+            handlerStages[i] = new HandlerStage(i);
+            handledSequences[i] = handlerStages[i].sequence;
+        }
+        this.dispatchedSequences = new AtomicLong[]{cursor};
+        this.persistedSequences = new AtomicLong[]{persistedSequence};
+    }
+
+    /**
+     * Starts the stages of the pipeline. Commands dispatched before the command bus is started are rejected.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        running = true;
+        stagesStopped = new CountDownLatch(handlerStages.length + 2);
+        for (HandlerStage stage : handlerStages) {
+            executor.execute(stage);
+        }
+        executor.execute(new PersistStage());
+        executor.execute(new PublishStage());
+        started = true;
+        logger.info("PipelinedCommandBus started with {} handler threads", handlerStages.length);
+    }
+
+    /**
+     * Stops the command bus. Commands that have already been dispatched, including those that are being dispatched
+     * concurrently, are processed before the stages stop. This method waits until all stages have stopped.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the stages to stop
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        if (started) {
+            // dispatchers that got past the check for stopped must be able to place their command in the buffer
+            while (activeDispatchers.get() > 0 || publishedSequence.get() < claimSequence.get()) {
+                LockSupport.parkNanos(SLEEP_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            running = false;
+            stagesStopped.await();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The command is handled asynchronously. Any exception is logged.
+     *
+     * @throws IllegalStateException if the command bus has not been started, or has been stopped
+     */
+    @Override
+    public void dispatch(Object command) {
+        dispatch(command, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The command is handled asynchronously. The callback is invoked by the publishing stage, after the events
+     * resulting from the command have been stored and published.
+     * <p/>
+     * When the ring buffer is full, this method waits until a slot is released. When called from the handling or
+     * publishing stage of this bus, the command is rejected instead, as that stage would be waiting for itself.
+     *
+     * @throws IllegalStateException if the command bus has not been started, or has been stopped, or if the ring
+     *                               buffer is full and the command is dispatched from a stage of this bus
+     */
+    @Override
+    public <R> void dispatch(Object command, CommandCallback<R> callback) {
+        activeDispatchers.incrementAndGet();
+        try {
+            Assert.state(started && !stopped, "The PipelinedCommandBus is not running");
+            CommandHandler<?> handler = findCommandHandlerFor(command);
+            Object aggregateIdentifier = aggregateIdentifierResolver.resolveAggregateIdentifier(command);
+            long sequence = isPipelineThread() ? tryClaimNextSequence() : claimNextSequence();
+            int lane = aggregateIdentifier == null
+                    ? (int) (sequence % handlerStages.length)
+                    : laneOf(aggregateIdentifier);
+            entryAt(sequence).reset(command, handler, callback, lane);
+            long expected = sequence - 1;
+            while (cursor.get() != expected) {
+                assertRunning();
+                Thread.yield();
+            }
+            cursor.set(sequence);
+        } finally {
+            activeDispatchers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting until the slot of that sequence has been released by the publishing stage.
+     */
+    private long claimNextSequence() {
+        long sequence = claimSequence.incrementAndGet();
+        long wrapPoint = sequence - entries.length;
+        while (wrapPoint > publishedSequence.get()) {
+            // stop() waits for active dispatchers, so this only fails when the stages stopped unexpectedly. Later
+            // sequences cannot have been placed in the buffer either, so abandoning this sequence is safe.
+            assertRunning();
+            LockSupport.parkNanos(1L);
+        }
+        return sequence;
+    }
+
+    /**
+     * Claims the next sequence if its slot has been released by the publishing stage, without waiting.
+     */
+    private long tryClaimNextSequence() {
+        long current;
+        long sequence;
+        do {
+            current = claimSequence.get();
+            sequence = current + 1;
+            Assert.state(sequence - entries.length <= publishedSequence.get(),
+                         "The PipelinedCommandBus is full. Commands dispatched from its own stages are rejected, "
+                                 + "as waiting for capacity would prevent that stage from ever releasing any.");
+        } while (!claimSequence.compareAndSet(current, sequence));
+        return sequence;
+    }
+
+    /**
+     * Indicates whether the current thread runs the handling or publishing stage of this command bus. These threads
+     * may not wait for capacity, as releasing capacity depends on them.
+     */
+    private boolean isPipelineThread() {
+        return currentStage.get() != null || publishingThread.get() != null;
+    }
+
+    private void assertRunning() {
+        Assert.state(running, "The PipelinedCommandBus stopped before the command could be dispatched");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Each command is handled in its own UnitOfWork, against the in-memory aggregates. There is no need to handle the
+     * commands in a single UnitOfWork, as the persisting stage already appends the events of consecutive commands in
+     * batches, and a failing command never affects the other commands. The callback is invoked by the publishing
+     * stage.
+     *
+     * @throws IllegalStateException if the command bus has not been started, or has been stopped
+     */
+    @Override
+    public void dispatchBatch(List<?> commands, final BatchCallback callback) {
+        for (Object command : commands) {
+            findCommandHandlerFor(command);
+        }
+        for (final Object command : commands) {
+            dispatch(command, new CommandCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    callback.onSuccess(command, result);
+                }
+
+                @Override
+                public void onFailure(Throwable cause) {
+                    callback.onFailure(command, cause);
+                }
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <C> void subscribe(Class<C> commandType, CommandHandler<? super C> handler) {
+        subscriptions.put(commandType, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <C> void unsubscribe(Class<C> commandType, CommandHandler<? super C> handler) {
+        subscriptions.remove(commandType, handler);
+    }
+
+    /**
+     * Convenience method that allows you to register command handlers using a Dependency Injection framework. The
+     * parameter of this method is a <code>Map&lt;Class&lt;T&gt;, CommandHandler&lt;? super T&gt;&gt;</code>. The key
+     * represents the type of command to register the handler for, the value is the actual handler.
+     *
+     * @param handlers The handlers to subscribe in the form of a Map of Class - CommandHandler entries.
+     */
+    @SuppressWarnings({"unchecked"})
+    public void setSubscriptions(Map<?, ?> handlers) {
+        for (Map.Entry<?, ?> entry : handlers.entrySet()) {
+            subscribe((Class<Object>) entry.getKey(), (CommandHandler<Object>) entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the repository through which command handlers must access the aggregates of this command bus. The
+     * repository can only be used by the threads of the handling stage.
+     *
+     * @return the repository providing the in-memory aggregates
+     */
+    public Repository<T> getRepository() {
+        return repository;
+    }
+
+    /**
+     * Registers the given list of interceptors to the command bus. All incoming commands will pass through the
+     * interceptors at the given order before the command is passed to the handler for processing. Interceptors are
+     * invoked by the threads of the handling stage.
+     *
+     * @param interceptors The interceptors to invoke when commands are handled
+     */
+    public void setInterceptors(List<? extends CommandHandlerInterceptor> interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * Sets the resolver that finds the aggregate targeted by commands. Defaults to an {@link
+     * AnnotationAggregateIdentifierResolver}.
+     *
+     * @param aggregateIdentifierResolver The resolver finding the target aggregate of commands
+     */
+    public void setAggregateIdentifierResolver(AggregateIdentifierResolver aggregateIdentifierResolver) {
+        Assert.notNull(aggregateIdentifierResolver, "The aggregate identifier resolver may not be null");
+        this.aggregateIdentifierResolver = aggregateIdentifierResolver;
+    }
+
+    /**
+     * Sets the maximum number of commands whose events are stored in a single batch. Events applied to the same
+     * aggregate within a batch are appended to the event store in a single call. Defaults to 100.
+     *
+     * @param persistBatchSize The maximum number of commands to store the events of in a single batch
+     */
+    public void setPersistBatchSize(int persistBatchSize) {
+        Assert.isTrue(persistBatchSize > 0, "The batch size must be positive");
+        this.persistBatchSize = persistBatchSize;
+    }
+
+    /**
+     * Returns the number of commands that can be dispatched before the dispatching thread needs to wait for the
+     * pipeline.
+     *
+     * @return the remaining capacity of the ring buffer
+     */
+    public long getRemainingCapacity() {
+        return entries.length - (claimSequence.get() - publishedSequence.get());
+    }
+
+    private CommandHandler<?> findCommandHandlerFor(Object command) {
+        CommandHandler<?> handler = subscriptions.get(command.getClass());
+        if (handler == null) {
+            throw new NoHandlerForCommandException(format("No handler was subscribed to commands of type [%s]",
+                                                          command.getClass().getSimpleName()));
+        }
+        return handler;
+    }
+
+    private CommandHandlingEntry entryAt(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+    private int laneOf(Object aggregateIdentifier) {
+        // identifiers are equal when their String representations are equal, regardless of their type
+        String key = aggregateIdentifier instanceof AggregateIdentifier
+                ? ((AggregateIdentifier) aggregateIdentifier).asString()
+                : aggregateIdentifier.toString();
+        return (key.hashCode() & Integer.MAX_VALUE) % handlerStages.length;
+    }
+
+    /**
+     * Waits until all given <code>dependencies</code> have reached the given <code>sequence</code>, or until the
+     * command bus stops running.
+     */
+    private long waitFor(long sequence, AtomicLong[] dependencies) {
+        int counter = SPIN_TRIES + YIELD_TRIES;
+        long available;
+        while ((available = minimumSequence(dependencies)) < sequence && running) {
+            if (counter > YIELD_TRIES) {
+                counter--;
+            } else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        }
+        return available;
+    }
+
+    private static long minimumSequence(AtomicLong[] sequences) {
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * A thread of the handling stage. It handles the commands assigned to its lane, and holds the aggregates assigned
+     * to that lane.
+     */
+    private final class HandlerStage implements Runnable {
+
+        private final int index;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Map<AggregateIdentifier, CachedAggregate> aggregates =
+                new HashMap<AggregateIdentifier, CachedAggregate>();
+        private final Queue<AggregateIdentifier> invalidations = new ConcurrentLinkedQueue<AggregateIdentifier>();
+        private final List<CachedAggregate> touchedAggregates = new ArrayList<CachedAggregate>();
+        private long currentSequence;
+        private CommandHandlingEntry currentEntry;
+
+        private HandlerStage(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            currentStage.set(this);
+            try {
+                long next = sequence.get() + 1;
+                while (running) {
+                    long available = waitFor(next, dispatchedSequences);
+                    while (next <= available) {
+                        CommandHandlingEntry entry = entryAt(next);
+                        if (entry.getLane() == index) {
+                            handle(entry, next);
+                        }
+                        sequence.set(next);
+                        next++;
+                    }
+                }
+            } finally {
+                currentStage.remove();
+                stagesStopped.countDown();
+            }
+        }
+
+        private void handle(CommandHandlingEntry entry, long entrySequence) {
+            AggregateIdentifier invalidated;
+            while ((invalidated = invalidations.poll()) != null) {
+                aggregates.remove(invalidated);
+            }
+            currentSequence = entrySequence;
+            currentEntry = entry;
+            UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+            try {
+                InterceptorChain chain = new DefaultInterceptorChain(entry.getCommand(), unitOfWork,
+                                                                     entry.getHandler(), interceptors);
+                entry.setResult(chain.proceed());
+                unitOfWork.commit();
+            } catch (Throwable throwable) {
+                if (unitOfWork.isStarted()) {
+                    unitOfWork.rollback(throwable);
+                }
+                entry.markFailed(throwable);
+                // the state of the aggregates is unknown, they are reloaded from the event store when needed
+                for (CachedAggregate touched : touchedAggregates) {
+                    if (aggregates.get(touched.identifier) == touched) {
+                        aggregates.remove(touched.identifier);
+                    }
+                }
+            } finally {
+                currentEntry = null;
+                touchedAggregates.clear();
+            }
+        }
+
+        private T load(AggregateIdentifier aggregateIdentifier, Long expectedVersion) {
+            if (laneOf(aggregateIdentifier) != index) {
+                throw new IllegalStateException(format(
+                        "Aggregate [%s] cannot be loaded by this command. Only the aggregate identified by the "
+                                + "command can be loaded.", aggregateIdentifier));
+            }
+            CachedAggregate cached = aggregates.get(aggregateIdentifier);
+            if (cached == null) {
+                cached = new CachedAggregate(aggregateIdentifier, readAggregate(aggregateIdentifier),
+                                             generations.incrementAndGet());
+                aggregates.put(aggregateIdentifier, cached);
+            }
+            T aggregate = cached.aggregate;
+            if (expectedVersion != null && aggregate.getVersion() != null
+                    && aggregate.getVersion() > expectedVersion) {
+                throw new ConflictingAggregateVersionException(
+                        format("Aggregate with identifier [%s] contains conflicting changes. "
+                                       + "Expected version [%s], but was [%s]",
+                               aggregateIdentifier,
+                               expectedVersion,
+                               aggregate.getVersion()));
+            }
+            touchedAggregates.add(cached);
+            return CurrentUnitOfWork.get().registerAggregate(aggregate, cached);
+        }
+
+        private void add(T aggregate) {
+            AggregateIdentifier aggregateIdentifier = aggregate.getIdentifier();
+            CachedAggregate cached = new CachedAggregate(aggregateIdentifier, aggregate,
+                                                         generations.incrementAndGet());
+            // an aggregate assigned to another lane is read from the event store when that lane needs it
+            if (laneOf(aggregateIdentifier) == index) {
+                aggregates.put(aggregateIdentifier, cached);
+            }
+            touchedAggregates.add(cached);
+            CurrentUnitOfWork.get().registerAggregate(aggregate, cached);
+        }
+
+        private T readAggregate(AggregateIdentifier aggregateIdentifier) {
+            // the events of earlier commands must be stored before the aggregate can be read
+            waitFor(currentSequence - 1, persistedSequences);
+            DomainEventStream events;
+            try {
+                events = eventStore.readEvents(aggregateFactory.getTypeIdentifier(), aggregateIdentifier);
+            } catch (EventStreamNotFoundException e) {
+                throw new AggregateNotFoundException("The aggregate was not found", e);
+            }
+            T aggregate = aggregateFactory.createAggregate(aggregateIdentifier, events.peek());
+            aggregate.initializeState(events);
+            return aggregate;
+        }
+
+        private void invalidate(AggregateIdentifier aggregateIdentifier) {
+            invalidations.add(aggregateIdentifier);
+        }
+    }
+
+    /**
+     * An aggregate held by a thread of the handling stage. Each instance read from the event store gets a new
+     * generation, which allows the persisting stage to recognize events applied to an invalidated instance.
+     */
+    private final class CachedAggregate implements SaveAggregateCallback<T> {
+
+        private final AggregateIdentifier identifier;
+        private final T aggregate;
+        private final long generation;
+
+        private CachedAggregate(AggregateIdentifier identifier, T aggregate, long generation) {
+            this.identifier = identifier;
+            this.aggregate = aggregate;
+            this.generation = generation;
+        }
+
+        @Override
+        public void save(T aggregateRoot) {
+            List<DomainEvent> events = new ArrayList<DomainEvent>(aggregateRoot.getUncommittedEventCount());
+            DomainEventStream uncommittedEvents = aggregateRoot.getUncommittedEvents();
+            while (uncommittedEvents.hasNext()) {
+                events.add(uncommittedEvents.next());
+            }
+            aggregateRoot.commitEvents();
+            if (!events.isEmpty()) {
+                currentStage.get().currentEntry.addChange(identifier, generation, events);
+            }
+        }
+    }
+
+    /**
+     * The persisting stage. It appends the events of handled commands to the event store in batches. When the events
+     * of an aggregate cannot be stored, the aggregate is invalidated.
+     */
+    private final class PersistStage implements Runnable {
+
+        private final Map<AggregateIdentifier, Invalidation> invalidatedAggregates =
+                new HashMap<AggregateIdentifier, Invalidation>();
+
+        @Override
+        public void run() {
+            try {
+                long next = persistedSequence.get() + 1;
+                while (running) {
+                    long available = waitFor(next, handledSequences);
+                    while (next <= available) {
+                        long last = Math.min(available, next + persistBatchSize - 1);
+                        persist(next, last);
+                        persistedSequence.set(last);
+                        next = last + 1;
+                    }
+                }
+            } finally {
+                stagesStopped.countDown();
+            }
+        }
+
+        private void persist(long first, long last) {
+            Map<AggregateIdentifier, PendingAppend> appends = new LinkedHashMap<AggregateIdentifier, PendingAppend>();
+            for (long s = first; s <= last; s++) {
+                CommandHandlingEntry entry = entryAt(s);
+                if (!entry.isFailed() && !isInvalidated(entry)) {
+                    for (CommandHandlingEntry.AggregateChange change : entry.getChanges()) {
+                        PendingAppend append = appends.get(change.getAggregateIdentifier());
+                        if (append == null) {
+                            append = new PendingAppend();
+                            appends.put(change.getAggregateIdentifier(), append);
+                        }
+                        append.add(entry, change);
+                    }
+                }
+            }
+            for (Map.Entry<AggregateIdentifier, PendingAppend> pending : appends.entrySet()) {
+                PendingAppend append = pending.getValue();
+                try {
+                    eventStore.appendEvents(aggregateFactory.getTypeIdentifier(),
+                                            new SimpleDomainEventStream(append.events));
+                } catch (RuntimeException e) {
+                    AggregateIdentifier aggregateIdentifier = pending.getKey();
+                    logger.warn(format("Events of aggregate [%s] could not be stored. The aggregate is invalidated.",
+                                       aggregateIdentifier), e);
+                    invalidatedAggregates.put(aggregateIdentifier, new Invalidation(append.lastGeneration, e));
+                    handlerStages[laneOf(aggregateIdentifier)].invalidate(aggregateIdentifier);
+                    for (CommandHandlingEntry entry : append.entries) {
+                        entry.markFailed(e);
+                    }
+                }
+            }
+        }
+
+        private boolean isInvalidated(CommandHandlingEntry entry) {
+            for (CommandHandlingEntry.AggregateChange change : entry.getChanges()) {
+                Invalidation invalidation = invalidatedAggregates.get(change.getAggregateIdentifier());
+                if (invalidation != null) {
+                    if (change.getGeneration() > invalidation.generation) {
+                        // the aggregate has been reloaded, no more changes to the invalid instance will follow
+                        invalidatedAggregates.remove(change.getAggregateIdentifier());
+                    } else {
+                        entry.markFailed(new AggregateStateInvalidatedException(
+                                format("Earlier changes to aggregate [%s] could not be stored.",
+                                       change.getAggregateIdentifier()),
+                                invalidation.cause));
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The events of a single aggregate to append to the event store, and the entries they originate from.
+     */
+    private static final class PendingAppend {
+
+        private final List<DomainEvent> events = new ArrayList<DomainEvent>();
+        private final List<CommandHandlingEntry> entries = new ArrayList<CommandHandlingEntry>();
+        private long lastGeneration;
+
+        private void add(CommandHandlingEntry entry, CommandHandlingEntry.AggregateChange change) {
+            events.addAll(change.getEvents());
+            entries.add(entry);
+            lastGeneration = Math.max(lastGeneration, change.getGeneration());
+        }
+    }
+
+    /**
+     * Records that the instances of an aggregate up to a given generation contain changes that could not be stored.
+     */
+    private static final class Invalidation {
+
+        private final long generation;
+        private final Throwable cause;
+
+        private Invalidation(long generation, Throwable cause) {
+            this.generation = generation;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * The publishing stage. It publishes the stored events in the order the commands were dispatched, and reports the
+     * result of each command to its callback.
+     */
+    private final class PublishStage implements Runnable {
+
+        @Override
+        public void run() {
+            publishingThread.set(Boolean.TRUE);
+            try {
+                long next = publishedSequence.get() + 1;
+                while (running) {
+                    long available = waitFor(next, persistedSequences);
+                    while (next <= available) {
+                        CommandHandlingEntry entry = entryAt(next);
+                        publish(entry);
+                        entry.clear();
+                        publishedSequence.set(next);
+                        next++;
+                    }
+                }
+            } finally {
+                publishingThread.remove();
+                stagesStopped.countDown();
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void publish(CommandHandlingEntry entry) {
+            if (!entry.isFailed()) {
+                try {
+                    for (CommandHandlingEntry.AggregateChange change : entry.getChanges()) {
+                        for (DomainEvent event : change.getEvents()) {
+                            eventBus.publish(event);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    entry.markFailed(e);
+                }
+            }
+            CommandCallback<Object> callback = (CommandCallback<Object>) entry.getCallback();
+            try {
+                if (callback == null) {
+                    if (entry.isFailed()) {
+                        logger.error(format("Processing of a [%s] resulted in an exception: ",
+                                            entry.getCommand().getClass().getSimpleName()),
+                                     entry.getFailure());
+                    }
+                } else if (entry.isFailed()) {
+                    callback.onFailure(entry.getFailure());
+                } else {
+                    callback.onSuccess(entry.getResult());
+                }
+            } catch (RuntimeException e) {
+                logger.error("A command callback threw an exception. It is ignored.", e);
+            }
+        }
+    }
+
+    /**
+     * Repository providing the aggregates held by the thread of the handling stage that handles the current command.
+     */
+    private final class PipelineRepository implements Repository<T> {
+
+        @Override
+        public T load(AggregateIdentifier aggregateIdentifier, Long expectedVersion) {
+            return handlerStage().load(aggregateIdentifier, expectedVersion);
+        }
+
+        @Override
+        public T load(AggregateIdentifier aggregateIdentifier) {
+            return load(aggregateIdentifier, null);
+        }
+
+        @Override
+        public void add(T aggregate) {
+            handlerStage().add(aggregate);
+        }
+
+        private HandlerStage handlerStage() {
+            HandlerStage stage = currentStage.get();
+            Assert.state(stage != null && stage.currentEntry != null,
+                         "The repository of a PipelinedCommandBus can only be used while it handles a command");
+            return stage;
+        }
+    }
+}
@@ -102,6 +102,7 @@ public abstract class DomainEvent extends EventBase {
             throw new IllegalStateException("Sequence number may not be applied more than once.");
         }
         this.sequenceNumber = sequenceNumber;
+        clearSerializedForms();
     }
 
     /**
@@ -115,6 +116,7 @@ public abstract class DomainEvent extends EventBase {
             throw new IllegalStateException("An aggregateIdentifier can not be applied more than once.");
         }
         this.aggregateIdentifier = aggregateIdentifier;
+        clearSerializedForms();
     }
 
     /**
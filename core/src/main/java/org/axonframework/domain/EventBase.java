@@ -33,6 +33,7 @@ public abstract class EventBase implements Event {
 
     private final MutableEventMetaData metaData;
     private long eventRevision;
+    private transient volatile SerializedForm serializedForms;
 
     /**
      * Initialize a new event. This constructor will set the event identifier to a random UUID and the timestamp to the
@@ -138,4 +139,72 @@ public abstract class EventBase implements Event {
     public long getEventRevision() {
         return eventRevision;
     }
+
+    /**
+     * Returns the serialized form of this event that was previously registered for the given <code>serializer</code>
+     * using {@link #cacheSerializedForm(Object, byte[])}, or <code>null</code> if no such form is known.
+     * <p/>
+     * The serialized forms are held in a transient field. They are never serialized along with the event and are lost
+     * when the event is deserialized. Callers must not modify the returned array.
+     *
+     * @param serializer The serializer that produced the serialized form
+     * @return the cached serialized form, or <code>null</code> if none is available
+     */
+    public byte[] getCachedSerializedForm(Object serializer) {
+        SerializedForm forms = serializedForms;
+        if (forms != null && forms.metaDataVersion != metaData.getModificationCount()) {
+            serializedForms = null;
+            return null;
+        }
+        for (SerializedForm form = forms; form != null; form = form.next) {
+            if (form.serializer == serializer) {
+                return form.bytes;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers the given <code>serializedForm</code> as the representation of this event produced by the given
+     * <code>serializer</code>. Serializers are matched on identity. Caching is best effort: when two threads register a
+     * form concurrently, one of them may be lost.
+     * <p/>
+     * The cache is cleared whenever the meta data of this event is modified, either through {@link
+     * #addMetaData(String, java.io.Serializable)} or directly on the {@link MutableEventMetaData} instance (as the
+     * auditing infrastructure does), and when a domain event is assigned its aggregate identifier or sequence number.
+     *
+     * @param serializer     The serializer that produced the serialized form
+     * @param serializedForm The bytes produced by the serializer. Must not be modified after registration
+     */
+    public void cacheSerializedForm(Object serializer, byte[] serializedForm) {
+        int metaDataVersion = metaData.getModificationCount();
+        SerializedForm forms = serializedForms;
+        if (forms != null && forms.metaDataVersion != metaDataVersion) {
+            forms = null;
+        }
+        serializedForms = new SerializedForm(serializer, serializedForm, metaDataVersion, forms);
+    }
+
+    /**
+     * Discards all serialized forms cached for this event. Must be called by subclasses in this package whenever
+     * state that is part of the serialized form is changed.
+     */
+    void clearSerializedForms() {
+        serializedForms = null;
+    }
+
+    private static final class SerializedForm {
+
+        private final Object serializer;
+        private final byte[] bytes;
+        private final int metaDataVersion;
+        private final SerializedForm next;
+
+        private SerializedForm(Object serializer, byte[] bytes, int metaDataVersion, SerializedForm next) {
+            this.serializer = serializer;
+            this.bytes = bytes;
+            this.metaDataVersion = metaDataVersion;
+            this.next = next;
+        }
+    }
 }
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Implementation of EventMetaData that allows values to be set, as well as read.
@@ -35,8 +36,11 @@ public class MutableEventMetaData implements Serializable, EventMetaData {
     private static final long serialVersionUID = 6364748679487434079L;
     private static final String IDENTIFIER_KEY = "_identifier";
     private static final String TIMESTAMP_KEY = "_timestamp";
+    private static final AtomicIntegerFieldUpdater<MutableEventMetaData> MODIFICATION_COUNT_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(MutableEventMetaData.class, "modificationCount");
 
     private final Map<String, Serializable> values = new HashMap<String, Serializable>();
+    private transient volatile int modificationCount;
 
     /**
      * Create a meta-data instance with the given <code>timestamp</code> and <code>eventIdentifier</code> as initial
@@ -58,6 +62,17 @@ public class MutableEventMetaData implements Serializable, EventMetaData {
      */
     public void put(String key, Serializable value) {
         values.put(key, value);
+        MODIFICATION_COUNT_UPDATER.incrementAndGet(this);
+    }
+
+    /**
+     * Returns the number of modifications made to this meta data instance since it was created or deserialized. Used
+     * by {@link EventBase} to detect that a cached serialized form of an event has become stale.
+     *
+     * @return the number of modifications made to this instance
+     */
+    int getModificationCount() {
+        return modificationCount;
     }
 
     @Override
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import javax.management.StandardMBean;
+
+/**
+ * Controller that adapts the maximum size of event processing transactions to the time it takes to process them.
+ * After each transaction, the sizer compares the latency of that transaction with a latency target: <ul> <li>If the
+ * transaction took longer than the target, the size is reduced to the number of events that could have been processed
+ * within the target;<li>If the transaction was full and took less than three quarters of the target, the size is
+ * increased, at most doubling it;<li>If the transaction failed, the size is halved.</ul>
+ * <p/>
+ * As a result, a large backlog of events is processed in large transactions, as long as these transactions commit
+ * within the latency target. Transactions never exceed the number of events waiting, so small transactions are
+ * committed when events arrive at a low rate.
+ * <p/>
+ * A single sizer may be shared by all schedulers of an {@link AsynchronousExecutionWrapper}, see {@link
+ * AsynchronousExecutionWrapper#setTransactionSizer(AdaptiveTransactionSizer)}. Note that a {@link TransactionManager}
+ * may still override the transaction size in <code>beforeTransaction</code>.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AdaptiveTransactionSizer implements AdaptiveTransactionSizerMXBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveTransactionSizer.class);
+
+    private static final int DEFAULT_INITIAL_SIZE = 50;
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final double GROWTH_THRESHOLD = 0.75;
+    private static final double SMOOTHING_FACTOR = 0.2;
+
+    private final int minTransactionSize;
+    private final int maxTransactionSize;
+    private volatile long targetLatencyNanos;
+    private volatile int currentTransactionSize;
+
+    // guarded by this
+    private long transactionCount;
+    private long increaseCount;
+    private long decreaseCount;
+    private int lastEventCount;
+    private long lastLatencyNanos;
+    private double averageEventsPerSecond;
+    private Decision lastDecision = Decision.NONE;
+    private int previousTransactionSize;
+
+    /**
+     * Initializes a sizer that aims to process each transaction within the given <code>targetLatencyMillis</code>.
+     * Transaction sizes range from 1 to 10000 events, starting at 50.
+     *
+     * @param targetLatencyMillis The latency target in milliseconds
+     */
+    public AdaptiveTransactionSizer(long targetLatencyMillis) {
+        this(targetLatencyMillis, 1, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Initializes a sizer that aims to process each transaction within the given <code>targetLatencyMillis</code>,
+     * using transaction sizes between <code>minTransactionSize</code> and <code>maxTransactionSize</code>.
+     *
+     * @param targetLatencyMillis The latency target in milliseconds
+     * @param minTransactionSize  The minimum number of events in a transaction
+     * @param maxTransactionSize  The maximum number of events in a transaction
+     */
+    public AdaptiveTransactionSizer(long targetLatencyMillis, int minTransactionSize, int maxTransactionSize) {
+        Assert.isTrue(minTransactionSize > 0, "The minimum transaction size must be positive");
+        Assert.isTrue(maxTransactionSize >= minTransactionSize,
+                      "The maximum transaction size may not be smaller than the minimum transaction size");
+        setTargetLatencyMillis(targetLatencyMillis);
+        this.minTransactionSize = minTransactionSize;
+        this.maxTransactionSize = maxTransactionSize;
+        this.currentTransactionSize = bounded(DEFAULT_INITIAL_SIZE);
+        this.previousTransactionSize = currentTransactionSize;
+    }
+
+    /**
+     * Records the outcome of a transaction and adapts the transaction size accordingly.
+     *
+     * @param eventCount    The number of events processed in the transaction
+     * @param latencyNanos  The time it took to process and commit the transaction, in nanoseconds
+     * @param successful    Whether the transaction was committed successfully
+     */
+    public synchronized void recordTransaction(int eventCount, long latencyNanos, boolean successful) {
+        transactionCount++;
+        lastEventCount = eventCount;
+        lastLatencyNanos = latencyNanos;
+        if (eventCount > 0 && latencyNanos > 0) {
+            double eventsPerSecond = eventCount * (double) TimeUnit.SECONDS.toNanos(1) / latencyNanos;
+            averageEventsPerSecond = transactionCount == 1
+                    ? eventsPerSecond
+                    : averageEventsPerSecond + SMOOTHING_FACTOR * (eventsPerSecond - averageEventsPerSecond);
+        }
+
+        int current = currentTransactionSize;
+        long target = targetLatencyNanos;
+        int newSize = current;
+        Decision decision;
+        if (!successful) {
+            decision = Decision.FAILURE;
+            newSize = bounded(current / 2);
+        } else if (latencyNanos > target) {
+            decision = Decision.TOO_SLOW;
+            newSize = bounded(Math.min(current - 1, sizeWithinTarget(eventCount, latencyNanos, target)));
+        } else if (eventCount >= current && latencyNanos < target * GROWTH_THRESHOLD) {
+            decision = Decision.FAST_ENOUGH;
+            long growth = Math.min((long) current * 2, sizeWithinTarget(eventCount, latencyNanos, target));
+            newSize = bounded(Math.max(current + 1, growth));
+        } else {
+            decision = Decision.WITHIN_TARGET;
+        }
+
+        if (newSize > current) {
+            increaseCount++;
+        } else if (newSize < current) {
+            decreaseCount++;
+        }
+        if (newSize != current && logger.isDebugEnabled()) {
+            logger.debug("Changing transaction size from {} to {}: {} events took {} ms.",
+                         new Object[]{current, newSize, eventCount, TimeUnit.NANOSECONDS.toMillis(latencyNanos)});
+        }
+        lastDecision = decision;
+        previousTransactionSize = current;
+        currentTransactionSize = newSize;
+    }
+
+    private long sizeWithinTarget(int eventCount, long latencyNanos, long target) {
+        if (latencyNanos <= 0) {
+            return maxTransactionSize;
+        }
+        return Math.max(eventCount, 1) * target / latencyNanos;
+    }
+
+    private int bounded(long size) {
+        return (int) Math.max(minTransactionSize, Math.min(maxTransactionSize, size));
+    }
+
+    /**
+     * Registers this sizer as an MBean with the {@link JmxConfiguration}. The given <code>name</code> must be unique
+     * among the registered sizers.
+     *
+     * @param name The name under which to register the MBean
+     */
+    public void registerMBean(String name) {
+        JmxConfiguration.getInstance().registerMBean(
+                new StandardMBean(this, AdaptiveTransactionSizerMXBean.class, true),
+                AdaptiveTransactionSizer.class, name);
+    }
+
+    @Override
+    public int getCurrentTransactionSize() {
+        return currentTransactionSize;
+    }
+
+    @Override
+    public long getTargetLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos);
+    }
+
+    @Override
+    public void setTargetLatencyMillis(long targetLatencyMillis) {
+        Assert.isTrue(targetLatencyMillis > 0, "The latency target must be positive");
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    @Override
+    public int getMinTransactionSize() {
+        return minTransactionSize;
+    }
+
+    @Override
+    public int getMaxTransactionSize() {
+        return maxTransactionSize;
+    }
+
+    @Override
+    public synchronized double getLastTransactionLatencyMillis() {
+        return lastLatencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized int getLastTransactionEventCount() {
+        return lastEventCount;
+    }
+
+    @Override
+    public synchronized double getAverageEventsPerSecond() {
+        return averageEventsPerSecond;
+    }
+
+    @Override
+    public synchronized long getTransactionCount() {
+        return transactionCount;
+    }
+
+    @Override
+    public synchronized long getIncreaseCount() {
+        return increaseCount;
+    }
+
+    @Override
+    public synchronized long getDecreaseCount() {
+        return decreaseCount;
+    }
+
+    @Override
+    public synchronized String getLastDecision() {
+        if (lastDecision == Decision.NONE) {
+            return "No transactions measured yet";
+        }
+        return String.format("%s: %s events took %.1f ms (target %s ms). Transaction size %s -> %s",
+                             lastDecision, lastEventCount, getLastTransactionLatencyMillis(),
+                             getTargetLatencyMillis(), previousTransactionSize, currentTransactionSize);
+    }
+
+    private enum Decision {
+        NONE, FAILURE, TOO_SLOW, FAST_ENOUGH, WITHIN_TARGET
+    }
+}
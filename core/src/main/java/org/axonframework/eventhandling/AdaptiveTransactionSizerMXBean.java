@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Management interface of the {@link AdaptiveTransactionSizer}.
+ * <p/>
+ * Management interface as required by the JMX specification. It exposes the current transaction size and the
+ * measurements on which the sizer based its last decision, and allows the latency target to be changed at runtime.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface AdaptiveTransactionSizerMXBean {
+
+    /**
+     * Returns the maximum number of events the next transaction may contain.
+     *
+     * @return the current transaction size
+     */
+    int getCurrentTransactionSize();
+
+    /**
+     * Returns the latency, in milliseconds, the sizer aims for when processing a transaction.
+     *
+     * @return the latency target in milliseconds
+     */
+    long getTargetLatencyMillis();
+
+    /**
+     * Changes the latency, in milliseconds, the sizer aims for when processing a transaction.
+     *
+     * @param targetLatencyMillis the latency target in milliseconds
+     */
+    void setTargetLatencyMillis(long targetLatencyMillis);
+
+    /**
+     * Returns the lower bound of the transaction size.
+     *
+     * @return the minimum transaction size
+     */
+    int getMinTransactionSize();
+
+    /**
+     * Returns the upper bound of the transaction size.
+     *
+     * @return the maximum transaction size
+     */
+    int getMaxTransactionSize();
+
+    /**
+     * Returns the time, in milliseconds, it took to process the last transaction.
+     *
+     * @return the latency of the last transaction in milliseconds
+     */
+    double getLastTransactionLatencyMillis();
+
+    /**
+     * Returns the number of events in the last transaction.
+     *
+     * @return the number of events in the last transaction
+     */
+    int getLastTransactionEventCount();
+
+    /**
+     * Returns the moving average of the number of events processed per second within transactions.
+     *
+     * @return the average number of events per second
+     */
+    double getAverageEventsPerSecond();
+
+    /**
+     * Returns the number of transactions measured by the sizer.
+     *
+     * @return the number of measured transactions
+     */
+    long getTransactionCount();
+
+    /**
+     * Returns the number of times the transaction size was increased.
+     *
+     * @return the number of increases
+     */
+    long getIncreaseCount();
+
+    /**
+     * Returns the number of times the transaction size was decreased.
+     *
+     * @return the number of decreases
+     */
+    long getDecreaseCount();
+
+    /**
+     * Returns a description of the last decision made by the sizer, including the measurements it was based on.
+     *
+     * @return a description of the last decision
+     */
+    String getLastDecision();
+}
@@ -17,12 +17,24 @@
 package org.axonframework.eventhandling;
 
 import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.deadletter.DeadLetterStore;
+import org.axonframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 /**
  * The AsynchronousEventHandlerWrapper can wrap any event listener to give it asynchronous behavior. The wrapper will
  * schedule all incoming events for processing, making the calling thread return immediately.
+ * <p/>
+ * If the wrapped event listener is a {@link BatchEventListener}, all events processed in a single transaction are
+ * passed to it in a single invocation.
+ * <p/>
+ * When a {@link #setRetryBackoff(ExponentialBackoff) retry backoff} and a {@link #setDeadLetterStore(DeadLetterStore)
+ * dead letter store} are configured, events that still fail after the maximum number of attempts are stored in the
+ * dead letter store. Subsequent events with the same sequence identifier are stored as well, until the dead letters of
+ * that sequence have been {@link #replayDeadLetters() replayed}.
  *
  * @author Allard Buijze
  * @since 0.3
@@ -30,6 +42,8 @@ import java.util.concurrent.Executor;
 public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrapper<Event> implements EventListenerProxy {
 
     private final EventListener eventListener;
+    private final SequencingPolicy<? super Event> sequencingPolicy;
+    private volatile DeadLetterStore deadLetterStore;
 
     /**
      * Initialize the AsynchronousEventHandlerWrapper for the given <code>eventListener</code> using the given
@@ -46,6 +60,29 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
                                            Executor executor) {
         super(executor, transactionManager, sequencingPolicy);
         this.eventListener = eventListener;
+        this.sequencingPolicy = sequencingPolicy;
+    }
+
+    /**
+     * Initialize the AsynchronousEventHandlerWrapper for the given <code>eventListener</code> using the given
+     * <code>executor</code> and <code>transactionManager</code>. Events with a sequence identifier are processed in a
+     * fixed number of lanes, each holding at most <code>laneCapacity</code> events.
+     *
+     * @param eventListener      The event listener this instance manages
+     * @param transactionManager The transaction manager that will manage underlying transactions for this event
+     * @param sequencingPolicy   The sequencing policy for concurrent execution of events
+     * @param executor           The executor that processes the events
+     * @param laneCount          The number of lanes processing events with a sequence identifier
+     * @param laneCapacity       The maximum number of events waiting in each lane
+     * @see AsynchronousExecutionWrapper#AsynchronousExecutionWrapper(java.util.concurrent.Executor,
+     *      TransactionManager, SequencingPolicy, int, int)
+     */
+    public AsynchronousEventHandlerWrapper(EventListener eventListener, TransactionManager transactionManager,
+                                           SequencingPolicy<? super Event> sequencingPolicy,
+                                           Executor executor, int laneCount, int laneCapacity) {
+        super(executor, transactionManager, sequencingPolicy, laneCount, laneCapacity);
+        this.eventListener = eventListener;
+        this.sequencingPolicy = sequencingPolicy;
     }
 
     /**
@@ -65,6 +102,7 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
                                            Executor executor) {
         super(executor, sequencingPolicy);
         this.eventListener = eventListener;
+        this.sequencingPolicy = sequencingPolicy;
     }
 
     /**
@@ -77,6 +115,34 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
         schedule(event);
     }
 
+    /**
+     * Sets the store in which events are stored when processing still fails after the maximum number of attempts
+     * defined by the {@link #setRetryBackoff(ExponentialBackoff) retry backoff}. Without a retry backoff, failed
+     * events are retried forever, and never end up in the dead letter store.
+     * <p/>
+     * Events are stored using the sequence identifier provided by the sequencing policy. Events without a sequence
+     * identifier are stored using their event identifier.
+     *
+     * @param deadLetterStore The store for events that could not be processed
+     */
+    public void setDeadLetterStore(DeadLetterStore deadLetterStore) {
+        this.deadLetterStore = deadLetterStore;
+    }
+
+    /**
+     * Passes the events in the dead letter store to the event listener. Events are removed from the store when they
+     * have been processed successfully. Events are passed to the event listener in the calling thread, without
+     * involving the transaction manager.
+     *
+     * @return the number of events processed successfully
+     *
+     * @throws IllegalStateException if no dead letter store has been configured
+     */
+    public int replayDeadLetters() {
+        Assert.state(deadLetterStore != null, "No dead letter store has been configured");
+        return deadLetterStore.replay(eventListener);
+    }
+
     @Override
     public Object getTarget() {
         return eventListener;
@@ -84,6 +150,66 @@ public class AsynchronousEventHandlerWrapper extends AsynchronousExecutionWrappe
 
     @Override
     protected void doHandle(Event event) {
-        eventListener.handle(event);
+        if (!parkIfSequenceIsDeadLettered(event)) {
+            eventListener.handle(event);
+        }
+    }
+
+    @Override
+    protected void doHandleBatch(List<Event> events) {
+        List<Event> eventsToHandle = events;
+        if (deadLetterStore != null) {
+            eventsToHandle = new ArrayList<Event>(events.size());
+            for (Event event : events) {
+                if (!parkIfSequenceIsDeadLettered(event)) {
+                    eventsToHandle.add(event);
+                }
+            }
+            if (eventsToHandle.isEmpty()) {
+                return;
+            }
+        }
+        ((BatchEventListener) eventListener).handleBatch(eventsToHandle);
+    }
+
+    @Override
+    protected void onRetriesExhausted(List<Event> events, Exception cause) {
+        final DeadLetterStore store = deadLetterStore;
+        if (store == null) {
+            super.onRetriesExhausted(events, cause);
+            return;
+        }
+        for (Event event : events) {
+            store.store(deadLetterKeyFor(event), event, cause);
+        }
+    }
+
+    private boolean parkIfSequenceIsDeadLettered(Event event) {
+        final DeadLetterStore store = deadLetterStore;
+        if (store == null) {
+            return false;
+        }
+        String key = deadLetterKeyFor(event);
+        // dead letter stores synchronize on themselves, which prevents a replay between the check and the store
+        synchronized (store) {
+            if (!store.contains(key)) {
+                return false;
+            }
+            store.store(key, event, null);
+        }
+        return true;
+    }
+
+    private String deadLetterKeyFor(Event event) {
+        Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(event);
+        if (sequenceIdentifier == null) {
+            return event.getEventIdentifier().toString();
+        }
+        return sequenceIdentifier.toString();
+    }
+
+    @Override
+    protected boolean isBatchProcessing() {
+        return eventListener instanceof BatchEventListener;
     }
 }
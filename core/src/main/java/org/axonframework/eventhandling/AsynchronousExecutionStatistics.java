@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import java.util.List;
+import javax.management.StandardMBean;
+
+/**
+ * Statistics object exposing information about the queues of an {@link AsynchronousExecutionWrapper}.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class AsynchronousExecutionStatistics extends StandardMBean implements AsynchronousExecutionStatisticsMXBean {
+
+    private final AsynchronousExecutionWrapper<?> wrapper;
+
+    /**
+     * Creates the statistics MBean for the given <code>wrapper</code>.
+     *
+     * @param wrapper The wrapper to provide statistics for
+     */
+    AsynchronousExecutionStatistics(AsynchronousExecutionWrapper<?> wrapper) {
+        super(AsynchronousExecutionStatisticsMXBean.class, true);
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return wrapper.queueCapacity().getCapacity();
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return wrapper.getOverflowPolicy().name();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return wrapper.queueCapacity().getQueuedCount();
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return wrapper.queueCapacity().getHighWaterMark();
+    }
+
+    @Override
+    public void resetHighWaterMark() {
+        wrapper.queueCapacity().resetHighWaterMark();
+    }
+
+    @Override
+    public long getDroppedTaskCount() {
+        return wrapper.getDroppedTaskCount();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return wrapper.getRejectedTaskCount();
+    }
+
+    @Override
+    public long getSpilledTaskCount() {
+        return wrapper.getSpilledTaskCount();
+    }
+
+    @Override
+    public long getTasksOnDisk() {
+        return wrapper.getTasksOnDisk();
+    }
+
+    @Override
+    public int[] getLaneQueueDepths() {
+        List<LaneStatistics> lanes = wrapper.getLaneStatistics();
+        int[] depths = new int[lanes.size()];
+        for (int i = 0; i < depths.length; i++) {
+            depths[i] = lanes.get(i).getQueueDepth();
+        }
+        return depths;
+    }
+
+    @Override
+    public int[] getLaneHighWaterMarks() {
+        List<LaneStatistics> lanes = wrapper.getLaneStatistics();
+        int[] marks = new int[lanes.size()];
+        for (int i = 0; i < marks.length; i++) {
+            marks[i] = lanes.get(i).getHighWaterMark();
+        }
+        return marks;
+    }
+}
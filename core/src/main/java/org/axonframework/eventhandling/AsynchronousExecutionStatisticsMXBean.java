@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Management interface for the queues of an {@link AsynchronousExecutionWrapper}.
+ * <p/>
+ * Management interface as required by the JMX specification. In combination with the implementation, this interface
+ * specifies and delivers the actual JMX bean.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface AsynchronousExecutionStatisticsMXBean {
+
+    /**
+     * Returns the maximum number of tasks that may be queued in memory.
+     *
+     * @return the maximum number of queued tasks
+     */
+    int getQueueCapacity();
+
+    /**
+     * Returns the name of the policy applied when the maximum number of queued tasks has been reached.
+     *
+     * @return the name of the overflow policy
+     */
+    String getOverflowPolicy();
+
+    /**
+     * Returns the number of tasks currently queued in memory. Queued tasks are only counted when the queue capacity is
+     * limited. Otherwise, this method returns 0.
+     *
+     * @return the number of queued tasks
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the highest number of tasks queued in memory at the same time, since the last reset. Like the queue
+     * depth, this is only tracked when the queue capacity is limited.
+     *
+     * @return the high water mark of the queue depth
+     */
+    int getHighWaterMark();
+
+    /**
+     * Resets the high water mark to the current queue depth.
+     */
+    void resetHighWaterMark();
+
+    /**
+     * Returns the number of tasks discarded because the maximum number of queued tasks was reached.
+     *
+     * @return the number of discarded tasks
+     */
+    long getDroppedTaskCount();
+
+    /**
+     * Returns the number of tasks rejected because the maximum number of queued tasks was reached.
+     *
+     * @return the number of rejected tasks
+     */
+    long getRejectedTaskCount();
+
+    /**
+     * Returns the total number of tasks that have been stored on disk because the maximum number of queued tasks was
+     * reached.
+     *
+     * @return the number of spilled tasks
+     */
+    long getSpilledTaskCount();
+
+    /**
+     * Returns the number of tasks currently stored on disk.
+     *
+     * @return the number of tasks on disk
+     */
+    long getTasksOnDisk();
+
+    /**
+     * Returns the number of tasks queued in each of the processing lanes. Returns an empty array if no processing
+     * lanes are used.
+     *
+     * @return the queue depth of each of the lanes
+     */
+    int[] getLaneQueueDepths();
+
+    /**
+     * Returns the highest number of tasks queued in each of the processing lanes. Returns an empty array if no
+     * processing lanes are used.
+     *
+     * @return the high water mark of each of the lanes
+     */
+    int[] getLaneHighWaterMarks();
+}
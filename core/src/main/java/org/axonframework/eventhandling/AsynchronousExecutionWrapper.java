@@ -16,20 +16,51 @@
 
 package org.axonframework.eventhandling;
 
+import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.util.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
+import java.io.File;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstract implementation that schedules tasks for execution. This implementation allows for certain tasks to be
  * executed sequentially, while other (groups of) tasks are processed in parallel.
+ * <p/>
+ * By default, a scheduler is created for each sequence identifier that has tasks waiting, and discarded as soon as
+ * all tasks for that identifier have been processed. When sequence identifiers are short-lived, for example when using
+ * a {@link SequentialPerAggregatePolicy} with many aggregates, the creation of these schedulers becomes a bottleneck.
+ * In that case, a fixed number of processing lanes can be configured instead. Each sequence identifier is assigned to
+ * a lane based on its hash code, and each lane processes its tasks sequentially from a bounded queue. Tasks without a
+ * sequence identifier are always processed with full concurrency.
+ * <p/>
+ * The total number of tasks waiting to be processed can be limited using {@link #setQueueCapacity(int)}. The {@link
+ * OverflowPolicy} defines what happens to tasks scheduled while that limit has been reached. By default, the number
+ * of waiting tasks is unlimited, and waiting tasks are not counted. Queue statistics can be exposed through JMX using
+ * {@link #registerMBean(String)}.
+ * <p/>
+ * Tasks scheduled by a thread that is processing tasks of the same wrapper, for example when an event listener
+ * publishes an event on the event bus it is subscribed to, never wait for capacity. With the {@link
+ * OverflowPolicy#BLOCK_PUBLISHER} policy, such tasks are queued even if the limit has been reached, as the processing
+ * thread would otherwise wait for itself to release capacity. When the processing lane of such a task is full, the
+ * task is rejected with an {@link EventQueueFullException} instead. Threads processing tasks of other wrappers are
+ * treated like any other publisher.
  *
  * @param <T> The type of object defining the task
  * @author Allard Buijze
@@ -42,8 +73,29 @@ public abstract class AsynchronousExecutionWrapper<T> {
     private final ConcurrentMap<Object, EventProcessingScheduler<T>> transactions =
             new ConcurrentHashMap<Object, EventProcessingScheduler<T>>();
     private final SequencingPolicy<? super T> sequencingPolicy;
-    private final BlockingQueue<T> concurrentEventQueue = new LinkedBlockingQueue<T>();
+    private final Queue<T> concurrentEventQueue = new CapacityReleasingQueue(new LinkedBlockingQueue<QueuedTask<T>>());
     private final TransactionManager transactionManager;
+    private final List<ProcessingLane> lanes;
+    private final QueueCapacity queueCapacity = new QueueCapacity(Integer.MAX_VALUE);
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK_PUBLISHER;
+    private final AtomicLong droppedTaskCount = new AtomicLong(0);
+    private final AtomicLong rejectedTaskCount = new AtomicLong(0);
+    private final AtomicLong spilledTaskCount = new AtomicLong(0);
+    // the queued tasks that may be discarded by the DROP_OLDEST policy, oldest first
+    private final Queue<QueuedTask<T>> dropCandidates = new ConcurrentLinkedQueue<QueuedTask<T>>();
+    private final AtomicInteger dropCandidateCount = new AtomicInteger(0);
+    private final AtomicBoolean purgingDropCandidates = new AtomicBoolean(false);
+    private volatile boolean tasksScheduled;
+    // marks the threads that are processing tasks of this instance
+    private final ThreadLocal<Boolean> processingThread = new ThreadLocal<Boolean>();
+    private final Object spillLock = new Object();
+    private final AtomicBoolean drainerRunning = new AtomicBoolean(false);
+    private final Runnable spillDrainer = new SpillDrainer();
+    private volatile boolean spilling;
+    private DiskSpillQueue<T> spillQueue;
+    private File spillDirectory = new File(System.getProperty("java.io.tmpdir"));
+    private volatile AdaptiveTransactionSizer transactionSizer;
+    private volatile ExponentialBackoff retryBackoff;
 
     /**
      * Initialize the AsynchronousExecutionWrapper using the given <code>executor</code> and
@@ -59,6 +111,41 @@ public abstract class AsynchronousExecutionWrapper<T> {
         this.executor = executor;
         this.transactionManager = transactionManager;
         this.sequencingPolicy = sequencingPolicy;
+        this.lanes = Collections.emptyList();
+    }
+
+    /**
+     * Initialize the AsynchronousExecutionWrapper using the given <code>executor</code> and
+     * <code>transactionManager</code>, processing tasks with a sequence identifier in <code>laneCount</code> lanes.
+     * Each lane holds at most <code>laneCapacity</code> tasks. When a lane is full, scheduling a task for that lane
+     * blocks until capacity becomes available.
+     * <p/>
+     * Each lane occupies at most one thread of the executor at a time. To give each lane a dedicated thread, provide
+     * an executor with at least <code>laneCount</code> threads, plus any threads needed for concurrent processing of
+     * tasks without a sequence identifier.
+     * <p/>
+     * Threads processing tasks never wait for capacity in a lane. If a task handler schedules a task for a full lane,
+     * an {@link EventQueueFullException} is thrown.
+     *
+     * @param executor           The executor that processes the tasks
+     * @param transactionManager The transaction manager that will manage underlying transactions for this task
+     * @param sequencingPolicy   The sequencing policy for concurrent execution of tasks
+     * @param laneCount          The number of lanes processing tasks with a sequence identifier
+     * @param laneCapacity       The maximum number of tasks waiting in each lane
+     */
+    public AsynchronousExecutionWrapper(Executor executor, TransactionManager transactionManager,
+                                        SequencingPolicy<? super T> sequencingPolicy, int laneCount,
+                                        int laneCapacity) {
+        Assert.isTrue(laneCount > 0, "The number of lanes must be positive");
+        Assert.isTrue(laneCapacity > 0, "The capacity of a lane must be positive");
+        this.executor = executor;
+        this.transactionManager = transactionManager;
+        this.sequencingPolicy = sequencingPolicy;
+        List<ProcessingLane> processingLanes = new ArrayList<ProcessingLane>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            processingLanes.add(new ProcessingLane(i, laneCapacity));
+        }
+        this.lanes = Collections.unmodifiableList(processingLanes);
     }
 
     /**
@@ -82,13 +169,62 @@ public abstract class AsynchronousExecutionWrapper<T> {
      */
     protected abstract void doHandle(T task);
 
+    /**
+     * Does the actual processing of all tasks in a transaction. This method is only invoked if {@link
+     * #isBatchProcessing()} returns <code>true</code>. The default implementation passes each task to {@link
+     * #doHandle(Object)}.
+     *
+     * @param tasks The tasks to handle, in the order they were scheduled
+     * @see EventProcessingScheduler#doHandleBatch(java.util.List)
+     */
+    protected void doHandleBatch(List<T> tasks) {
+        for (T task : tasks) {
+            doHandle(task);
+        }
+    }
+
+    /**
+     * Indicates whether the tasks in a transaction should be handled in a single call to {@link
+     * #doHandleBatch(java.util.List)}. Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> if tasks should be handled as a batch, otherwise <code>false</code>
+     */
+    protected boolean isBatchProcessing() {
+        return false;
+    }
+
+    /**
+     * Invoked when the processing of the given <code>tasks</code> failed as many times as allowed by the {@link
+     * #setRetryBackoff(ExponentialBackoff) retry backoff}. The tasks are not retried. The default implementation does
+     * nothing, meaning the tasks are discarded.
+     *
+     * @param tasks The tasks that are no longer retried
+     * @param cause The exception that caused the last attempt to fail
+     * @see EventProcessingScheduler#onRetriesExhausted(java.util.List, Exception)
+     */
+    protected void onRetriesExhausted(List<T> tasks, Exception cause) {
+    }
+
     /**
      * Schedules this task for execution when all pre-conditions have been met.
+     * <p/>
+     * If the maximum number of queued tasks has been reached, the configured {@link OverflowPolicy} is applied.
      *
      * @param task The task to schedule for processing.
+     * @throws EventQueueFullException if the queue is full and the overflow policy is {@link
+     *                                 OverflowPolicy#FAIL_FAST}, or if a task could not be written to disk
      */
     protected void schedule(T task) {
+        if (!tasksScheduled) {
+            tasksScheduled = true;
+        }
         final Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(task);
+        if (!queueCapacity.isBounded() || reserveCapacity(task)) {
+            doSchedule(task, sequenceIdentifier);
+        }
+    }
+
+    private void doSchedule(T task, Object sequenceIdentifier) {
         if (sequenceIdentifier == null) {
             logger.debug("Scheduling task of type [{}] for full concurrent processing",
                          task.getClass().getSimpleName());
@@ -99,8 +235,274 @@ public abstract class AsynchronousExecutionWrapper<T> {
             logger.debug("Scheduling task of type [{}] for sequential processing in group [{}]",
                          task.getClass().getSimpleName(),
                          sequenceIdentifier.toString());
-            assignEventToScheduler(task, sequenceIdentifier);
+            if (lanes.isEmpty()) {
+                assignEventToScheduler(task, sequenceIdentifier);
+            } else {
+                laneFor(sequenceIdentifier).schedule(task);
+            }
+        }
+    }
+
+    private ProcessingLane laneFor(Object sequenceIdentifier) {
+        return lanes.get((sequenceIdentifier.hashCode() & Integer.MAX_VALUE) % lanes.size());
+    }
+
+    /**
+     * Reserves queue capacity for the given <code>task</code>, applying the overflow policy if no capacity is
+     * available. Returns <code>false</code> if the task should not be scheduled in memory, because it has been
+     * dropped or spilled to disk.
+     */
+    private boolean reserveCapacity(T task) {
+        switch (overflowPolicy) {
+            case FAIL_FAST:
+                if (!queueCapacity.tryReserve()) {
+                    rejectedTaskCount.incrementAndGet();
+                    throw new EventQueueFullException(String.format(
+                            "Task of type [%s] rejected. The maximum of %s queued tasks has been reached.",
+                            task.getClass().getSimpleName(), queueCapacity.getCapacity()));
+                }
+                return true;
+            case DROP_OLDEST:
+                while (!queueCapacity.tryReserve()) {
+                    T discardedTask = discardOldestTask();
+                    if (discardedTask == null) {
+                        logDroppedTask(task);
+                        return false;
+                    }
+                    logDroppedTask(discardedTask);
+                }
+                return true;
+            case SPILL_TO_DISK:
+                return !spillIfNecessary(task);
+            default:
+                if (!queueCapacity.tryReserve()) {
+                    if (isProcessingThread()) {
+                        // this thread would wait for capacity that only it can release
+                        logger.debug("The maximum of {} queued tasks has been reached. Task scheduled by a processing "
+                                             + "thread is queued anyway.", queueCapacity.getCapacity());
+                        queueCapacity.forceReserve();
+                    } else {
+                        queueCapacity.reserve();
+                    }
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Indicates whether the current thread is processing tasks of this AsynchronousExecutionWrapper. Such threads must
+     * not wait for capacity to become available, as that capacity may only be released by the thread itself. Threads
+     * processing tasks of other wrappers wait like any other publisher.
+     */
+    private boolean isProcessingThread() {
+        return processingThread.get() != null;
+    }
+
+    /**
+     * Discards the task that has been waiting the longest, regardless of the queue it is waiting in. Returns
+     * <code>null</code> if no task can be discarded.
+     */
+    private T discardOldestTask() {
+        QueuedTask<T> candidate;
+        while ((candidate = dropCandidates.poll()) != null) {
+            dropCandidateCount.decrementAndGet();
+            if (candidate.claim()) {
+                queueCapacity.release();
+                return candidate.getTask();
+            }
+        }
+        return null;
+    }
+
+    private void registerDropCandidate(QueuedTask<T> queuedTask) {
+        dropCandidates.offer(queuedTask);
+        // tasks that have been processed are only removed from the head of the queue. Purge them if they pile up
+        // behind a task that is waiting for a long time.
+        if (dropCandidateCount.incrementAndGet() > 2L * queueCapacity.getCapacity()
+                && purgingDropCandidates.compareAndSet(false, true)) {
+            try {
+                int remaining = 0;
+                Iterator<QueuedTask<T>> iterator = dropCandidates.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().isClaimed()) {
+                        iterator.remove();
+                    } else {
+                        remaining++;
+                    }
+                }
+                dropCandidateCount.set(remaining);
+            } finally {
+                purgingDropCandidates.set(false);
+            }
+        }
+    }
+
+    private void logDroppedTask(T task) {
+        droppedTaskCount.incrementAndGet();
+        logger.warn("Discarded task of type [{}]. The maximum of {} queued tasks has been reached.",
+                    task.getClass().getSimpleName(), queueCapacity.getCapacity());
+    }
+
+    /**
+     * Writes the given <code>task</code> to disk if no capacity is available, or if earlier tasks are still waiting
+     * on disk. Returns <code>true</code> if the task was written to disk.
+     */
+    private boolean spillIfNecessary(T task) {
+        if (!spilling && queueCapacity.tryReserve()) {
+            return false;
+        }
+        synchronized (spillLock) {
+            if (!spilling) {
+                if (queueCapacity.tryReserve()) {
+                    return false;
+                }
+                if (spillQueue == null) {
+                    spillQueue = new DiskSpillQueue<T>(spillDirectory);
+                }
+                logger.warn("The maximum of {} queued tasks has been reached. Tasks are written to disk.",
+                            queueCapacity.getCapacity());
+                spilling = true;
+            }
+            spillQueue.add(task);
+            spilledTaskCount.incrementAndGet();
+        }
+        // capacity may have become available while the task was written
+        drainSpilledTasks();
+        return true;
+    }
+
+    private void drainSpilledTasks() {
+        if (spilling && drainerRunning.compareAndSet(false, true)) {
+            executor.execute(spillDrainer);
+        }
+    }
+
+    /**
+     * Sets the maximum number of tasks that may be waiting to be processed. This includes tasks waiting in processing
+     * lanes, but not tasks written to disk by the {@link OverflowPolicy#SPILL_TO_DISK} policy. Defaults to no limit,
+     * indicated by <code>Integer.MAX_VALUE</code>. Without a limit, waiting tasks are not counted.
+     * <p/>
+     * The capacity may be changed at runtime. When reduced below the number of tasks currently queued, the overflow
+     * policy is applied until enough tasks have been processed. Once tasks have been scheduled, the capacity can only
+     * be changed between limited values.
+     *
+     * @param capacity The maximum number of queued tasks
+     * @throws IllegalStateException if tasks have been scheduled, and the capacity is changed from limited to
+     *                               unlimited or vice versa
+     */
+    public void setQueueCapacity(int capacity) {
+        Assert.isTrue(capacity > 0, "The queue capacity must be positive");
+        Assert.state(!tasksScheduled || queueCapacity.isBounded() == (capacity != Integer.MAX_VALUE),
+                     "The queue capacity cannot be changed from limited to unlimited or vice versa once tasks have "
+                             + "been scheduled");
+        queueCapacity.setCapacity(capacity);
+    }
+
+    /**
+     * Sets the policy that defines what happens to tasks scheduled while the maximum number of queued tasks has been
+     * reached. Defaults to {@link OverflowPolicy#BLOCK_PUBLISHER}.
+     *
+     * @param overflowPolicy The policy to apply when the queue is full
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        Assert.notNull(overflowPolicy, "The overflow policy may not be null");
+        this.overflowPolicy = overflowPolicy;
+        if (overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+            dropCandidates.clear();
+            dropCandidateCount.set(0);
+        }
+    }
+
+    /**
+     * Sets the directory in which tasks are stored when the {@link OverflowPolicy#SPILL_TO_DISK} policy is used.
+     * Defaults to the directory defined by the <code>java.io.tmpdir</code> system property.
+     *
+     * @param spillDirectory The directory to store spilled tasks in
+     */
+    public void setSpillDirectory(File spillDirectory) {
+        synchronized (spillLock) {
+            Assert.state(spillQueue == null, "The spill directory cannot be changed once tasks have been spilled");
+            this.spillDirectory = spillDirectory;
+        }
+    }
+
+    /**
+     * Sets the sizer that adapts the maximum size of transactions to the time it takes to process them. The sizer is
+     * shared by all schedulers of this instance. By default, each transaction contains all tasks queued at the moment
+     * processing starts.
+     *
+     * @param transactionSizer The sizer defining the maximum size of transactions
+     */
+    public void setTransactionSizer(AdaptiveTransactionSizer transactionSizer) {
+        this.transactionSizer = transactionSizer;
+    }
+
+    /**
+     * Sets the backoff that defines the interval between retries of failed transactions, and the maximum number of
+     * attempts. Tasks for which all attempts failed are passed to {@link #onRetriesExhausted(java.util.List,
+     * Exception)}. By default, failed transactions are retried forever, using the retry interval set by the
+     * transaction manager.
+     *
+     * @param retryBackoff The backoff defining retry intervals and the maximum number of attempts
+     * @see EventProcessingScheduler#setRetryBackoff(ExponentialBackoff)
+     */
+    public void setRetryBackoff(ExponentialBackoff retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Registers an MBean with the {@link JmxConfiguration} that exposes the queue depth, high water mark and overflow
+     * statistics of this instance. The given <code>name</code> must be unique among the instances of this class.
+     *
+     * @param name The name under which to register the MBean
+     */
+    public void registerMBean(String name) {
+        JmxConfiguration.getInstance().registerMBean(new AsynchronousExecutionStatistics(this), getClass(), name);
+    }
+
+    /**
+     * Returns the policy applied to tasks scheduled while the maximum number of queued tasks has been reached.
+     *
+     * @return the overflow policy of this instance
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    QueueCapacity queueCapacity() {
+        return queueCapacity;
+    }
+
+    long getDroppedTaskCount() {
+        return droppedTaskCount.get();
+    }
+
+    long getRejectedTaskCount() {
+        return rejectedTaskCount.get();
+    }
+
+    long getSpilledTaskCount() {
+        return spilledTaskCount.get();
+    }
+
+    long getTasksOnDisk() {
+        synchronized (spillLock) {
+            return spillQueue == null ? 0 : spillQueue.size();
+        }
+    }
+
+    /**
+     * Returns the statistics of each of the processing lanes of this instance. Returns an empty list if this instance
+     * does not use processing lanes.
+     *
+     * @return the statistics of the processing lanes
+     */
+    public List<LaneStatistics> getLaneStatistics() {
+        List<LaneStatistics> statistics = new ArrayList<LaneStatistics>(lanes.size());
+        for (ProcessingLane lane : lanes) {
+            statistics.add(lane.statistics());
         }
+        return statistics;
     }
 
     private void assignEventToScheduler(T task, Object sequenceIdentifier) {
@@ -129,12 +531,13 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected EventProcessingScheduler<T> newProcessingScheduler(
             EventProcessingScheduler.ShutdownCallback shutDownCallback) {
         logger.debug("Initializing new processing scheduler.");
-        return newProcessingScheduler(shutDownCallback, new LinkedList<T>());
+        return newProcessingScheduler(shutDownCallback,
+                                      new CapacityReleasingQueue(new ConcurrentLinkedQueue<QueuedTask<T>>()));
     }
 
     /**
      * Creates a new scheduler instance schedules tasks on the executor service for the managed EventListener. The
-     * Scheduler must get tasks from the given <code>taskQueue</code>.
+     * Scheduler must get tasks from the given <code>taskQueue</code>, which must be thread safe.
      *
      * @param shutDownCallback The callback that needs to be notified when the scheduler stops processing.
      * @param taskQueue        The queue from which this scheduler should store and get tasks
@@ -143,12 +546,41 @@ public abstract class AsynchronousExecutionWrapper<T> {
     protected EventProcessingScheduler<T> newProcessingScheduler(
             EventProcessingScheduler.ShutdownCallback shutDownCallback,
             Queue<T> taskQueue) {
-        return new EventProcessingScheduler<T>(transactionManager, taskQueue, executor, shutDownCallback) {
+        EventProcessingScheduler<T> scheduler = new EventProcessingScheduler<T>(transactionManager, taskQueue, executor,
+                                                                                shutDownCallback) {
+            @Override
+            public void run() {
+                processingThread.set(Boolean.TRUE);
+                try {
+                    super.run();
+                } finally {
+                    processingThread.remove();
+                }
+            }
+
             @Override
             protected void doHandle(T task) {
                 AsynchronousExecutionWrapper.this.doHandle(task);
             }
+
+            @Override
+            protected void doHandleBatch(List<T> tasks) {
+                AsynchronousExecutionWrapper.this.doHandleBatch(tasks);
+            }
+
+            @Override
+            protected boolean isBatchProcessing() {
+                return AsynchronousExecutionWrapper.this.isBatchProcessing();
+            }
+
+            @Override
+            protected void onRetriesExhausted(List<T> tasks, Exception cause) {
+                AsynchronousExecutionWrapper.this.onRetriesExhausted(tasks, cause);
+            }
         };
+        scheduler.setTransactionSizer(transactionSizer);
+        scheduler.setRetryBackoff(retryBackoff);
+        return scheduler;
     }
 
     private static class NoActionCallback implements EventProcessingScheduler.ShutdownCallback {
@@ -157,7 +589,7 @@ public abstract class AsynchronousExecutionWrapper<T> {
          * {@inheritDoc}
          */
         @Override
-        public void afterShutdown(EventProcessingScheduler scheduler) {
+        public void afterShutdown(EventProcessingScheduler<?> scheduler) {
         }
     }
 
@@ -173,9 +605,200 @@ public abstract class AsynchronousExecutionWrapper<T> {
          * {@inheritDoc}
          */
         @Override
-        public void afterShutdown(EventProcessingScheduler scheduler) {
+        public void afterShutdown(EventProcessingScheduler<?> scheduler) {
             logger.debug("Cleaning up processing scheduler for sequence [{}]", sequenceIdentifier.toString());
             transactions.remove(sequenceIdentifier, scheduler);
         }
     }
+
+    /**
+     * A long-lived lane that sequentially processes the tasks assigned to it. A scheduler is only created when tasks
+     * arrive in an idle lane.
+     */
+    private final class ProcessingLane implements EventProcessingScheduler.ShutdownCallback {
+
+        private final int index;
+        private final BoundedTaskQueue<QueuedTask<T>> queue;
+        private final Queue<T> releasingQueue;
+        private final AtomicReference<EventProcessingScheduler<T>> scheduler =
+                new AtomicReference<EventProcessingScheduler<T>>();
+
+        private ProcessingLane(int index, int capacity) {
+            this.index = index;
+            this.queue = new BoundedTaskQueue<QueuedTask<T>>(capacity);
+            this.releasingQueue = new CapacityReleasingQueue(queue);
+        }
+
+        private void schedule(T task) {
+            if (!isProcessingThread()) {
+                queue.awaitCapacity();
+            } else if (!queue.tryReserveCapacity()) {
+                // this thread may be the one that needs to release capacity in this lane
+                throw new EventQueueFullException(String.format(
+                        "Task of type [%s] rejected. Processing lane [%s] is full, and the task was scheduled by a "
+                                + "thread processing tasks, which must not wait for capacity.",
+                        task.getClass().getSimpleName(), index));
+            }
+            boolean taskScheduled = false;
+            while (!taskScheduled) {
+                EventProcessingScheduler<T> currentScheduler = scheduler.get();
+                if (currentScheduler == null) {
+                    scheduler.compareAndSet(null, newProcessingScheduler(this, releasingQueue));
+                } else {
+                    taskScheduled = currentScheduler.scheduleEvent(task);
+                    if (!taskScheduled) {
+                        scheduler.compareAndSet(currentScheduler, null);
+                    }
+                }
+            }
+        }
+
+        private LaneStatistics statistics() {
+            return queue.statistics(index);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings({"unchecked"})
+        @Override
+        public void afterShutdown(EventProcessingScheduler<?> processingScheduler) {
+            logger.debug("Processing lane [{}] is idle", index);
+            scheduler.compareAndSet((EventProcessingScheduler<T>) processingScheduler, null);
+        }
+    }
+
+    /**
+     * Queue that releases the reserved queue capacity for each task taken from it. Tasks discarded by the {@link
+     * OverflowPolicy#DROP_OLDEST} policy remain in the underlying queue until they are skipped by the processing
+     * thread. They are counted by {@link #size()} and {@link #isEmpty()}.
+     */
+    private final class CapacityReleasingQueue extends AbstractQueue<T> {
+
+        private final Queue<QueuedTask<T>> delegate;
+
+        private CapacityReleasingQueue(Queue<QueuedTask<T>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean offer(T task) {
+            QueuedTask<T> queuedTask = new QueuedTask<T>(task);
+            if (overflowPolicy == OverflowPolicy.DROP_OLDEST && queueCapacity.isBounded()) {
+                registerDropCandidate(queuedTask);
+            }
+            return delegate.offer(queuedTask);
+        }
+
+        @Override
+        public T poll() {
+            QueuedTask<T> queuedTask;
+            while ((queuedTask = delegate.poll()) != null) {
+                if (queuedTask.claim()) {
+                    if (queueCapacity.isBounded()) {
+                        queueCapacity.release();
+                        drainSpilledTasks();
+                    }
+                    return queuedTask.getTask();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public T peek() {
+            Iterator<T> iterator = iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            List<T> tasks = new ArrayList<T>();
+            for (QueuedTask<T> queuedTask : delegate) {
+                if (!queuedTask.isClaimed()) {
+                    tasks.add(queuedTask.getTask());
+                }
+            }
+            return Collections.unmodifiableList(tasks).iterator();
+        }
+    }
+
+    /**
+     * A task waiting in one of the queues. Each task is claimed exactly once: either by the thread processing it, or
+     * by the {@link OverflowPolicy#DROP_OLDEST} policy discarding it.
+     *
+     * @param <T> The type of object defining the task
+     */
+    private static final class QueuedTask<T> {
+
+        @SuppressWarnings({"unchecked"})
+        private static final AtomicIntegerFieldUpdater<QueuedTask<?>> CLAIMED_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater((Class<QueuedTask<?>>) (Class<?>) QueuedTask.class, "claimed");
+
+        private final T task;
+        private volatile int claimed;
+
+        private QueuedTask(T task) {
+            this.task = task;
+        }
+
+        private boolean claim() {
+            return CLAIMED_UPDATER.compareAndSet(this, 0, 1);
+        }
+
+        private boolean isClaimed() {
+            return claimed != 0;
+        }
+
+        private T getTask() {
+            return task;
+        }
+    }
+
+    /**
+     * Moves tasks that have been written to disk back into memory, as long as queue capacity is available.
+     */
+    private final class SpillDrainer implements Runnable {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            do {
+                while (queueCapacity.tryReserve()) {
+                    T task = null;
+                    try {
+                        synchronized (spillLock) {
+                            task = spillQueue.poll();
+                            if (task == null) {
+                                spilling = false;
+                            }
+                        }
+                    } finally {
+                        if (task == null) {
+                            queueCapacity.release();
+                            drainerRunning.set(false);
+                        }
+                    }
+                    if (task == null) {
+                        return;
+                    }
+                    doSchedule(task, sequencingPolicy.getSequenceIdentifierFor(task));
+                }
+                drainerRunning.set(false);
+                // capacity may have been released after the last attempt to reserve it
+            } while (queueCapacity.hasAvailableCapacity() && drainerRunning.compareAndSet(false, true));
+        }
+    }
 }
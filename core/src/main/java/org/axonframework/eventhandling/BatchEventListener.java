@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+import java.util.List;
+
+/**
+ * EventListener that is able to handle a batch of events at once. When wrapped in an {@link
+ * AsynchronousEventHandlerWrapper}, all events processed within a single transaction are passed to {@link
+ * #handleBatch(java.util.List)}, between the calls to {@link TransactionManager#beforeTransaction(TransactionStatus)}
+ * and {@link TransactionManager#afterTransaction(TransactionStatus)}. This allows implementations to update their
+ * data sources using bulk operations.
+ * <p/>
+ * The number of events in a batch is limited by the {@link TransactionStatus#setMaxTransactionSize(int) maximum
+ * transaction size}, which may be set in <code>beforeTransaction</code>. When a batch fails, the {@link RetryPolicy}
+ * applies to the batch as a whole: both {@link RetryPolicy#RETRY_TRANSACTION} and {@link
+ * RetryPolicy#RETRY_LAST_EVENT} retry the entire batch, while {@link RetryPolicy#SKIP_FAILED_EVENT} skips it.
+ * <p/>
+ * Event buses that dispatch events synchronously will still invoke {@link #handle(org.axonframework.domain.Event)} for
+ * each event.
+ *
+ * @author Allard Buijze
+ * @see org.axonframework.eventhandling.annotation.BatchEventHandler
+ * @since 1.0
+ */
+public interface BatchEventListener extends EventListener {
+
+    /**
+     * Process the given batch of events. The events are provided in the order in which they were published. The given
+     * list cannot be modified.
+     *
+     * @param events the events to handle
+     */
+    void handleBatch(List<Event> events);
+}
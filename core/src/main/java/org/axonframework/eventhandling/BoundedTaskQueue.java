@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue of tasks, used by the processing lanes of the {@link AsynchronousExecutionWrapper}. Next to the tasks
+ * themselves, the queue keeps track of the time each task was added, which allows it to report the time tasks spend
+ * waiting in the queue.
+ * <p/>
+ * Producers must call {@link #awaitCapacity()} before adding a task to the queue. Each task taken from the queue
+ * releases capacity for another task. This allows producers to wait for capacity without holding any locks of the
+ * scheduler that processes the tasks in this queue.
+ * <p/>
+ * Any number of threads may add and take tasks concurrently, without requiring any locks. Normally, tasks are only
+ * taken by the thread processing them. Other threads only take tasks to discard them.
+ *
+ * @param <T> The type of task in the queue
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class BoundedTaskQueue<T> extends AbstractQueue<T> {
+
+    private final Semaphore capacity;
+    private final AtomicReferenceArray<T> tasks;
+    private final AtomicLongArray enqueueTimes;
+    private final int size;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong processedCount = new AtomicLong(0);
+    private final AtomicLong totalLatency = new AtomicLong(0);
+    private final AtomicLong maxLatency = new AtomicLong(0);
+    private final AtomicInteger highWaterMark = new AtomicInteger(0);
+
+    /**
+     * Initializes a queue that holds at most <code>capacity</code> tasks.
+     *
+     * @param capacity The maximum number of tasks in the queue
+     */
+    BoundedTaskQueue(int capacity) {
+        this.size = capacity;
+        this.tasks = new AtomicReferenceArray<T>(capacity);
+        this.enqueueTimes = new AtomicLongArray(capacity);
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * Waits until the queue has capacity for another task, and reserves that capacity. The next call to {@link
+     * #offer(Object)} is guaranteed to succeed.
+     */
+    void awaitCapacity() {
+        capacity.acquireUninterruptibly();
+    }
+
+    /**
+     * Reserves capacity for another task, if available. If this method returns <code>true</code>, the next call to
+     * {@link #offer(Object)} is guaranteed to succeed.
+     *
+     * @return <code>true</code> if capacity was reserved, otherwise <code>false</code>
+     */
+    boolean tryReserveCapacity() {
+        return capacity.tryAcquire();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The caller must have reserved capacity using {@link #awaitCapacity()} or {@link #tryReserveCapacity()}.
+     */
+    @Override
+    public boolean offer(T task) {
+        if (task == null) {
+            throw new NullPointerException("Null tasks are not supported");
+        }
+        long sequence = tail.getAndIncrement();
+        int index = indexOf(sequence);
+        enqueueTimes.set(index, System.nanoTime());
+        tasks.set(index, task);
+        updateHighWaterMark((int) (sequence + 1 - head.get()));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Returns <code>null</code> if the next task has not been completely added yet.
+     */
+    @Override
+    public T poll() {
+        long current;
+        int index;
+        T task;
+        do {
+            current = head.get();
+            index = indexOf(current);
+            task = tasks.get(index);
+            if (task == null) {
+                return null;
+            }
+        } while (!head.compareAndSet(current, current + 1));
+        long latency = System.nanoTime() - enqueueTimes.get(index);
+        tasks.set(index, null);
+        processedCount.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        long max;
+        while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency)) {
+            // retry until the maximum latency is at least the latency of this task
+        }
+        capacity.release();
+        return task;
+    }
+
+    private void updateHighWaterMark(int depth) {
+        int mark;
+        while (depth > (mark = highWaterMark.get()) && !highWaterMark.compareAndSet(mark, depth)) {
+            // retry until the high water mark is at least the given depth
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T peek() {
+        return tasks.get(indexOf(head.get()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The size includes tasks that are in the process of being added.
+     */
+    @Override
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The iterator iterates over a copy of the tasks in this queue.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<T> snapshot = new ArrayList<T>();
+        long last = tail.get();
+        for (long sequence = head.get(); sequence < last; sequence++) {
+            T task = tasks.get(indexOf(sequence));
+            if (task != null) {
+                snapshot.add(task);
+            }
+        }
+        return snapshot.iterator();
+    }
+
+    /**
+     * Returns the statistics of this queue, for the lane with given <code>laneIndex</code>.
+     *
+     * @param laneIndex The index of the lane this queue belongs to
+     * @return a snapshot of the statistics of this queue
+     */
+    LaneStatistics statistics(int laneIndex) {
+        long processed = processedCount.get();
+        return new LaneStatistics(laneIndex, size(), highWaterMark.get(), size, processed,
+                                  processed == 0 ? 0 : totalLatency.get() / processed, maxLatency.get());
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % size);
+    }
+}
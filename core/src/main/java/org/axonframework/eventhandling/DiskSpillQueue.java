@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.util.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * First-in-first-out queue of tasks that stores its tasks in a file. Tasks are stored using Java serialization. The
+ * file is created when the first task is added, and removed as soon as the last task has been taken from the queue.
+ * <p/>
+ * This queue is not thread safe. Callers must make sure it is accessed by a single thread at a time.
+ *
+ * @param <T> The type of task in the queue
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class DiskSpillQueue<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskSpillQueue.class);
+
+    private final File directory;
+    private File file;
+    private DataOutputStream output;
+    private DataInputStream input;
+    private long size;
+
+    /**
+     * Initializes a queue that creates its file in the given <code>directory</code>.
+     *
+     * @param directory The directory to store the tasks in
+     */
+    DiskSpillQueue(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Adds the given <code>task</code> to the end of the queue.
+     *
+     * @param task The task to add
+     * @throws EventQueueFullException if the task could not be written to disk
+     */
+    void add(T task) {
+        byte[] bytes = serialize(task);
+        try {
+            if (file == null) {
+                open();
+            }
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            size++;
+        } catch (IOException e) {
+            throw new EventQueueFullException("Unable to write a task to the spill file", e);
+        }
+    }
+
+    /**
+     * Removes the first task from the queue and returns it. Returns <code>null</code> if the queue is empty.
+     *
+     * @return the first task in the queue, or <code>null</code> if the queue is empty
+     */
+    @SuppressWarnings({"unchecked"})
+    T poll() {
+        if (size == 0) {
+            return null;
+        }
+        try {
+            output.flush();
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            size--;
+            if (size == 0) {
+                close();
+            }
+            return (T) deserialize(bytes);
+        } catch (IOException e) {
+            throw new EventQueueFullException("Unable to read a task from the spill file", e);
+        }
+    }
+
+    /**
+     * Returns the number of tasks in this queue.
+     *
+     * @return the number of tasks in this queue
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Closes the file used by this queue and removes it. Any tasks in the queue are lost.
+     */
+    void close() {
+        if (file == null) {
+            return;
+        }
+        closeQuietly(output);
+        closeQuietly(input);
+        if (!file.delete()) {
+            logger.warn("Unable to delete spill file [{}]", file.getAbsolutePath());
+        }
+        file = null;
+        output = null;
+        input = null;
+        size = 0;
+    }
+
+    private void open() throws IOException {
+        file = File.createTempFile("axon-spill-", ".dat", directory);
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        input = new DataInputStream(new FileInputStream(file));
+        logger.info("Created spill file [{}]", file.getAbsolutePath());
+    }
+
+    private byte[] serialize(T task) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(task);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException(String.format(
+                    "Unable to serialize a task of type [%s]. Tasks must be serializable to be spilled to disk.",
+                    task.getClass().getName()), e);
+        }
+    }
+
+    private Object deserialize(byte[] bytes) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return in.readObject();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize a task from the spill file", e);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Unable to deserialize a task from the spill file", e);
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.info("Unable to close a stream of spill file [{}]", file.getAbsolutePath());
+        }
+    }
+}
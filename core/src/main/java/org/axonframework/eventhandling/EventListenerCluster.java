@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * A group of event listeners that share a single executor, sequencing policy and transaction. The cluster is
+ * subscribed to an event bus as a single listener, and schedules each event once, regardless of the number of members.
+ * All events processed in a transaction are dispatched to all members that handle them, one member after the other. As
+ * a result, the cost of scheduling and tracking sequences of events scales with the number of clusters, instead of the
+ * number of listeners.
+ * <p/>
+ * Listeners join the cluster using {@link #subscribe(EventListener)}. When the cluster is passed as event bus to an
+ * {@link org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter AnnotationEventListenerAdapter},
+ * the annotated listener joins the cluster when the adapter subscribes. Events are only scheduled if at least one
+ * member can handle them, see {@link SelectiveEventListener}.
+ * <p/>
+ * Members implementing {@link TransactionManager} are notified of the start and end of each transaction, after the
+ * transaction manager of the cluster. Since members share a transaction, they also share the {@link
+ * TransactionStatus}. If several members set a retry policy, the policy set last applies. When a member fails to
+ * handle an event, the transaction is retried for all members.
+ * <p/>
+ * Members implementing {@link BatchEventListener} receive all events of a transaction that they handle in a single
+ * invocation.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class EventListenerCluster extends AsynchronousEventHandlerWrapper implements EventBus {
+
+    private final ClusterMembers members;
+
+    /**
+     * Initializes an EventListenerCluster that processes events using the given <code>executor</code>. Members are not
+     * notified of transactions, unless they implement {@link TransactionManager}.
+     *
+     * @param sequencingPolicy The sequencing policy for concurrent execution of events
+     * @param executor         The executor that processes the events
+     */
+    public EventListenerCluster(SequencingPolicy<? super Event> sequencingPolicy, Executor executor) {
+        this(new NoTransactionManager(), sequencingPolicy, executor);
+    }
+
+    /**
+     * Initializes an EventListenerCluster that processes events using the given <code>executor</code>. The given
+     * <code>transactionManager</code> is notified of each transaction before the members are.
+     *
+     * @param transactionManager The transaction manager that will manage underlying transactions for this cluster
+     * @param sequencingPolicy   The sequencing policy for concurrent execution of events
+     * @param executor           The executor that processes the events
+     */
+    public EventListenerCluster(TransactionManager transactionManager,
+                                SequencingPolicy<? super Event> sequencingPolicy, Executor executor) {
+        this(new ClusterMembers(transactionManager), sequencingPolicy, executor);
+    }
+
+    private EventListenerCluster(ClusterMembers members, SequencingPolicy<? super Event> sequencingPolicy,
+                                 Executor executor) {
+        super(members, members, sequencingPolicy, executor);
+        this.members = members;
+    }
+
+    /**
+     * Schedules the given <code>event</code> for processing by the members of this cluster. If no member can handle
+     * the event, it is ignored.
+     *
+     * @param event The event to schedule
+     */
+    @Override
+    public void handle(Event event) {
+        if (!members.listenersFor(event.getClass()).isEmpty()) {
+            super.handle(event);
+        }
+    }
+
+    /**
+     * Schedules the given <code>event</code> for processing by the members of this cluster. Equivalent to {@link
+     * #handle(org.axonframework.domain.Event)}.
+     *
+     * @param event The event to schedule
+     */
+    @Override
+    public void publish(Event event) {
+        handle(event);
+    }
+
+    /**
+     * Adds the given <code>eventListener</code> to this cluster. The listener should not handle events asynchronously
+     * itself.
+     *
+     * @param eventListener The listener to add to the cluster
+     */
+    @Override
+    public void subscribe(EventListener eventListener) {
+        members.add(eventListener);
+    }
+
+    /**
+     * Removes the given <code>eventListener</code> from this cluster.
+     *
+     * @param eventListener The listener to remove from the cluster
+     */
+    @Override
+    public void unsubscribe(EventListener eventListener) {
+        members.remove(eventListener);
+    }
+
+    /**
+     * Returns a read-only view on the members of this cluster.
+     *
+     * @return the members of this cluster
+     */
+    public List<EventListener> getMembers() {
+        return members.getListeners();
+    }
+
+    /**
+     * Dispatches events to the members of the cluster, and notifies members of transactions. Keeps track of the
+     * members that handle each type of event, which is reset each time a member joins or leaves the cluster.
+     */
+    private static final class ClusterMembers implements BatchEventListener, TransactionManager {
+
+        private final TransactionManager clusterTransactionManager;
+        private final CopyOnWriteArrayList<EventListener> listeners = new CopyOnWriteArrayList<EventListener>();
+        private volatile ConcurrentMap<Class<? extends Event>, List<EventListener>> routes =
+                new ConcurrentHashMap<Class<? extends Event>, List<EventListener>>();
+
+        private ClusterMembers(TransactionManager clusterTransactionManager) {
+            this.clusterTransactionManager = clusterTransactionManager;
+        }
+
+        private synchronized void add(EventListener listener) {
+            if (listeners.addIfAbsent(listener)) {
+                routes = new ConcurrentHashMap<Class<? extends Event>, List<EventListener>>();
+            }
+        }
+
+        private synchronized void remove(EventListener listener) {
+            if (listeners.remove(listener)) {
+                routes = new ConcurrentHashMap<Class<? extends Event>, List<EventListener>>();
+            }
+        }
+
+        private List<EventListener> getListeners() {
+            return Collections.unmodifiableList(listeners);
+        }
+
+        private List<EventListener> listenersFor(Class<? extends Event> eventType) {
+            ConcurrentMap<Class<? extends Event>, List<EventListener>> currentRoutes = routes;
+            List<EventListener> route = currentRoutes.get(eventType);
+            if (route == null) {
+                route = new ArrayList<EventListener>();
+                for (EventListener listener : listeners) {
+                    if (!(listener instanceof SelectiveEventListener)
+                            || ((SelectiveEventListener) listener).canHandle(eventType)) {
+                        route.add(listener);
+                    }
+                }
+                currentRoutes.put(eventType, route);
+            }
+            return route;
+        }
+
+        @Override
+        public void handle(Event event) {
+            for (EventListener listener : listenersFor(event.getClass())) {
+                listener.handle(event);
+            }
+        }
+
+        @Override
+        public void handleBatch(List<Event> events) {
+            Map<EventListener, List<Event>> eventsPerListener = new HashMap<EventListener, List<Event>>();
+            for (Event event : events) {
+                for (EventListener listener : listenersFor(event.getClass())) {
+                    List<Event> handledEvents = eventsPerListener.get(listener);
+                    if (handledEvents == null) {
+                        handledEvents = new ArrayList<Event>();
+                        eventsPerListener.put(listener, handledEvents);
+                    }
+                    handledEvents.add(event);
+                }
+            }
+            for (EventListener listener : listeners) {
+                List<Event> handledEvents = eventsPerListener.get(listener);
+                if (handledEvents == null) {
+                    continue;
+                }
+                if (listener instanceof BatchEventListener) {
+                    ((BatchEventListener) listener).handleBatch(handledEvents);
+                } else {
+                    for (Event event : handledEvents) {
+                        listener.handle(event);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            clusterTransactionManager.beforeTransaction(transactionStatus);
+            for (EventListener listener : listeners) {
+                if (listener instanceof TransactionManager) {
+                    ((TransactionManager) listener).beforeTransaction(transactionStatus);
+                }
+            }
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+            for (EventListener listener : listeners) {
+                if (listener instanceof TransactionManager) {
+                    ((TransactionManager) listener).afterTransaction(transactionStatus);
+                }
+            }
+            clusterTransactionManager.afterTransaction(transactionStatus);
+        }
+    }
+}
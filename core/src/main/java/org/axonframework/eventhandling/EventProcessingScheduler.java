@@ -19,18 +19,32 @@ package org.axonframework.eventhandling;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 
 /**
  * Scheduler that keeps track of (Event processing) tasks that need to be executed sequentially.
+ * <p/>
+ * Events are handed over from the publishing threads to the processing thread without locking. Any number of threads
+ * may schedule events concurrently, while at most one thread processes them. The scheduler is scheduled for execution
+ * when the first event arrives, and remains scheduled until it has processed all events. At that point, it stops
+ * accepting events and notifies its {@link ShutdownCallback}.
+ * <p/>
+ * By default, the events in a transaction are handed to {@link #doHandle(Object)} one at a time. Subclasses that
+ * return <code>true</code> from {@link #isBatchProcessing()} receive all events of a transaction in a single call to
+ * {@link #doHandleBatch(java.util.List)} instead. In that case, retry policies apply to the batch as a whole.
  *
  * @param <T> The type of class representing the processing instruction for the event.
  * @author Allard Buijze
@@ -39,22 +53,31 @@ import static org.axonframework.eventhandling.YieldPolicy.DO_NOT_YIELD;
 public abstract class EventProcessingScheduler<T> implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(EventProcessingScheduler.class);
+    private static final int CLOSED = -1;
+    private static final int CLOSING = -2;
 
     private final ShutdownCallback shutDownCallback;
     private final TransactionManager transactionManager;
     private final Executor executor;
-    // guarded by "this"
     private final Queue<T> eventQueue;
+    // only accessed by the processing thread
     private final List<T> currentBatch = new LinkedList<T>();
-    // guarded by "this"
-    private boolean isScheduled = false;
-    private volatile boolean cleanedUp;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    // the number of threads adding an event to the queue, CLOSING while the processing thread checks whether it may
+    // shut down, or CLOSED if the scheduler no longer accepts events
+    private final AtomicInteger admissions = new AtomicInteger(0);
     private volatile long retryAfter;
     private volatile boolean transactionStarted;
+    private volatile AdaptiveTransactionSizer transactionSizer;
+    private volatile ExponentialBackoff retryBackoff;
+    private int failedAttempts;
+    // events for which retries were exhausted, waiting to be handed over to onRetriesExhausted
+    private List<T> exhaustedEvents;
+    private Exception exhaustionCause;
 
     /**
-     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded queue to schedule
-     * events.
+     * Initialize a scheduler using the given <code>executor</code>. This scheduler uses an unbounded, non-blocking
+     * queue to schedule events.
      *
      * @param transactionManager The transaction manager that manages underlying transactions
      * @param executor           The executor service that will process the events
@@ -62,7 +85,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      */
     public EventProcessingScheduler(TransactionManager transactionManager, Executor executor,
                                     ShutdownCallback shutDownCallback) {
-        this(transactionManager, new LinkedList<T>(), executor, shutDownCallback);
+        this(transactionManager, new ConcurrentLinkedQueue<T>(), executor, shutDownCallback);
     }
 
     /**
@@ -83,38 +106,107 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         this.executor = executor;
     }
 
+    /**
+     * Sets the sizer that defines the maximum size of each transaction, and measures the time it takes to process
+     * them. By default, the maximum size of a transaction is the number of events queued when processing starts.
+     *
+     * @param transactionSizer The sizer that defines the maximum size of each transaction
+     */
+    public void setTransactionSizer(AdaptiveTransactionSizer transactionSizer) {
+        this.transactionSizer = transactionSizer;
+    }
+
+    /**
+     * Sets the backoff that defines the interval between retries of a failed transaction, and the maximum number of
+     * attempts. When set, the retry interval requested by the transaction manager is ignored for retried
+     * transactions. When the maximum number of attempts is reached, the events that caused the failure are passed to
+     * {@link #onRetriesExhausted(java.util.List, Exception)} and processing continues with the next event. If handing
+     * over the events fails, it is retried before any other events are processed.
+     * <p/>
+     * By default, the retry interval of the transaction status is used, and failed transactions are retried forever.
+     *
+     * @param retryBackoff The backoff defining retry intervals and the maximum number of attempts
+     */
+    public void setRetryBackoff(ExponentialBackoff retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
     /**
      * Schedules an event for processing. Will schedule a new invoker task if none is currently active.
      * <p/>
      * If the current scheduler is in the process of being shut down, this method will return false.
      * <p/>
-     * This method is thread safe
+     * This method is thread safe, and does not block, unless the queue of this scheduler blocks.
      *
      * @param event the event to schedule
      * @return true if the event was scheduled successfully, false if this scheduler is not available to process events
      *
      * @throws IllegalStateException if the queue in this scheduler does not have the capacity to add this event
      */
-    public synchronized boolean scheduleEvent(T event) {
-        if (cleanedUp) {
+    public boolean scheduleEvent(T event) {
+        if (!enterAdmission()) {
             // this scheduler has been shut down; accept no more events
             return false;
         }
-        // add the event to the queue which this scheduler processes
-        eventQueue.add(event);
+        try {
+            // add the event to the queue which this scheduler processes
+            eventQueue.add(event);
+        } finally {
+            admissions.decrementAndGet();
+        }
         scheduleIfNecessary();
         return true;
     }
 
     /**
-     * Returns the next event in the queue, if available. If returns false if no further events are available for
-     * processing. In that case, it will also set the scheduled status to false.
+     * Registers the current thread as a thread adding an event to the queue, unless this scheduler no longer accepts
+     * events. While the processing thread checks whether it may shut down, this method waits for the outcome of that
+     * check, so that events are only refused by a scheduler that actually shuts down.
+     *
+     * @return true if the thread may add an event to the queue, false if this scheduler has been shut down
+     */
+    private boolean enterAdmission() {
+        int current;
+        do {
+            current = admissions.get();
+            if (current == CLOSED) {
+                return false;
+            }
+            if (current == CLOSING) {
+                Thread.yield();
+            }
+        } while (current == CLOSING || !admissions.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Prevents any further events from being scheduled, provided that no events are waiting. This only succeeds when
+     * no thread is in the process of adding an event to the queue. While checking the queue, threads trying to
+     * schedule an event wait. If events are found, the scheduler keeps accepting events and must continue processing.
+     *
+     * @return true if this scheduler no longer accepts events, false if events are waiting or being added
+     */
+    private boolean closeAdmissionIfIdle() {
+        if (!admissions.compareAndSet(0, CLOSING)) {
+            return admissions.get() == CLOSED;
+        }
+        if (!eventQueue.isEmpty()) {
+            admissions.set(0);
+            return false;
+        }
+        admissions.set(CLOSED);
+        return true;
+    }
+
+    /**
+     * Returns the next event in the queue, if available. If returns null if no further events are available for
+     * processing.
      * <p/>
-     * This method is thread safe
+     * This method may only be called by the processing thread.
      *
      * @return the next DomainEvent for processing, of null if none is available
      */
-    private synchronized T nextEvent() {
+    private T nextEvent() {
         T e = eventQueue.poll();
         if (e != null) {
             currentBatch.add(e);
@@ -126,12 +218,16 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      * Tries to yield to other threads by rescheduling processing of any further queued events. If rescheduling fails,
      * this call returns false, indicating that processing should continue in the current thread.
      * <p/>
-     * This method is thread safe
+     * When no more events are queued, the scheduler is shut down. As events may be added while shutting down, the
+     * scheduler only stops accepting events when the queue is still empty once no thread is adding events. Otherwise,
+     * it keeps accepting events and reschedules itself.
+     * <p/>
+     * This method may only be called by the processing thread.
      *
      * @return true if yielding succeeded, false otherwise.
      */
-    private synchronized boolean yield() {
-        if (eventQueue.size() > 0 || currentBatch.size() > 0) {
+    private boolean yield() {
+        if (!eventQueue.isEmpty() || !currentBatch.isEmpty() || exhaustedEvents != null || !closeAdmissionIfIdle()) {
             try {
                 if (retryAfter <= System.currentTimeMillis()) {
                     executor.execute(this);
@@ -167,12 +263,12 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
 
     /**
      * Will look at the current scheduling status and schedule an EventHandlerInvokerTask if none is already active.
+     * Once scheduled, the scheduler remains scheduled until it is shut down.
      * <p/>
      * This method is thread safe
      */
-    private synchronized void scheduleIfNecessary() {
-        if (!isScheduled) {
-            isScheduled = true;
+    private void scheduleIfNecessary() {
+        if (scheduled.compareAndSet(false, true)) {
             executor.execute(this);
         }
     }
@@ -182,7 +278,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      *
      * @return the number of events currently queued for processing.
      */
-    private synchronized int queuedEventCount() {
+    private int queuedEventCount() {
         return eventQueue.size();
     }
 
@@ -209,7 +305,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
              * - or
              *   - yielding failed because the executor rejected the execution
              */
-            mayContinue = (!inRetryMode && queuedEventCount() > 0 && DO_NOT_YIELD.equals(status.getYieldPolicy()))
+            mayContinue = (!inRetryMode && !eventQueue.isEmpty() && DO_NOT_YIELD.equals(status.getYieldPolicy()))
                     || !yield();
             status.resetTransactionStatus();
         }
@@ -233,6 +329,15 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
     }
 
     private void processOrRetryBatch(TransactionStatus status) {
+        if (exhaustedEvents != null && !handOverExhaustedEvents(status)) {
+            return;
+        }
+        final AdaptiveTransactionSizer sizer = transactionSizer;
+        long transactionStart = 0;
+        if (sizer != null) {
+            status.setMaxTransactionSize(sizer.getCurrentTransactionSize());
+            transactionStart = System.nanoTime();
+        }
         try {
             this.transactionStarted = false;
             if (currentBatch.isEmpty()) {
@@ -240,24 +345,40 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
             } else {
                 logger.warn("Retrying {} events from the previous failed transaction.", currentBatch.size());
                 retryEventBatch(status);
-                logger.warn("Continuing regular processing of events.");
-                handleEventBatch(status);
+                if (!isBatchProcessing()) {
+                    logger.warn("Continuing regular processing of events.");
+                    handleEventBatch(status);
+                }
             }
             if (transactionStarted) {
                 transactionManager.afterTransaction(status);
+                if (sizer != null) {
+                    sizer.recordTransaction(status.getEventsProcessedInTransaction(),
+                                            System.nanoTime() - transactionStart, true);
+                }
             }
             currentBatch.clear();
+            failedAttempts = 0;
         } catch (Exception e) {
             // the batch failed.
+            if (sizer != null) {
+                sizer.recordTransaction(status.getEventsProcessedInTransaction(),
+                                        System.nanoTime() - transactionStart, false);
+            }
             prepareBatchRetry(status, e);
         }
     }
 
-    private synchronized void prepareBatchRetry(TransactionStatus status, Exception e) {
+    private void prepareBatchRetry(TransactionStatus status, Exception e) {
         status.markFailed(e);
         tryAfterTransactionCall(status);
         switch (status.getRetryPolicy()) {
             case RETRY_LAST_EVENT:
+                if (isBatchProcessing()) {
+                    // the batch is handled as a whole, so the batch is the last "event"
+                    logger.warn("Transactional event processing batch failed. Rescheduling batch for retry.", e);
+                    break;
+                }
                 markLastEventForRetry();
                 logger.warn("Transactional event processing batch failed. Rescheduling last event for retry.", e);
                 break;
@@ -273,9 +394,72 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
                             queuedEventCount());
                 break;
         }
+        if (status.getRetryPolicy() == RetryPolicy.SKIP_FAILED_EVENT) {
+            failedAttempts = 0;
+        } else {
+            applyRetryBackoff(status, e);
+        }
         this.retryAfter = System.currentTimeMillis() + status.getRetryInterval();
     }
 
+    private void applyRetryBackoff(TransactionStatus status, Exception e) {
+        final ExponentialBackoff backoff = retryBackoff;
+        if (backoff == null) {
+            return;
+        }
+        failedAttempts++;
+        if (!backoff.isExhausted(failedAttempts)) {
+            status.setRetryInterval(backoff.intervalFor(failedAttempts));
+            return;
+        }
+        List<T> failedEvents = new ArrayList<T>();
+        if (isBatchProcessing()) {
+            failedEvents.addAll(currentBatch);
+            currentBatch.clear();
+        } else if (!currentBatch.isEmpty()) {
+            // the last event in the transaction is the one that caused the failure
+            failedEvents.add(currentBatch.remove(currentBatch.size() - 1));
+        }
+        logger.error("Giving up on {} event(s) after {} failed attempts.", failedEvents.size(), failedAttempts);
+        failedAttempts = 0;
+        status.setRetryInterval(0);
+        // the events are handed over in a transaction of their own, before processing continues
+        exhaustedEvents = failedEvents;
+        exhaustionCause = e;
+    }
+
+    /**
+     * Passes the events for which retries were exhausted to {@link #onRetriesExhausted(java.util.List, Exception)},
+     * inside a transaction of the transaction manager. If that transaction fails, the events are kept and handed over
+     * again after the maximum retry interval, before any other events are processed.
+     *
+     * @param status The status of the current transaction
+     * @return <code>true</code> if the events have been handed over, otherwise <code>false</code>
+     */
+    private boolean handOverExhaustedEvents(TransactionStatus status) {
+        try {
+            transactionManager.beforeTransaction(status);
+            transactionStarted = true;
+            onRetriesExhausted(exhaustedEvents, exhaustionCause);
+            transactionManager.afterTransaction(status);
+            transactionStarted = false;
+        } catch (Exception e) {
+            logger.error("An exception occurred while handing over events for which retries were exhausted. "
+                                 + "Rescheduling them for hand-over.", e);
+            status.markFailed(e);
+            tryAfterTransactionCall(status);
+            // the events must not get lost, regardless of the policy set by the transaction manager
+            status.setRetryPolicy(RetryPolicy.RETRY_TRANSACTION);
+            ExponentialBackoff backoff = retryBackoff;
+            status.setRetryInterval(backoff == null ? 0 : backoff.intervalFor(backoff.getMaxAttempts()));
+            this.retryAfter = System.currentTimeMillis() + status.getRetryInterval();
+            return false;
+        }
+        exhaustedEvents = null;
+        exhaustionCause = null;
+        return true;
+    }
+
     private void tryAfterTransactionCall(TransactionStatus status) {
         try {
             transactionManager.afterTransaction(status);
@@ -294,6 +478,11 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
     }
 
     private void retryEventBatch(TransactionStatus status) {
+        if (isBatchProcessing()) {
+            startTransactionIfNecessary(status);
+            handleCurrentBatch(status);
+            return;
+        }
         for (T event : this.currentBatch) {
             startTransactionIfNecessary(status);
             doHandle(event);
@@ -310,7 +499,54 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
      */
     protected abstract void doHandle(T event);
 
+    /**
+     * Does the actual processing of all events in a transaction. This method is only invoked if {@link
+     * #isBatchProcessing()} returns <code>true</code>. The given list contains at least one event, and at most the
+     * {@link TransactionStatus#getMaxTransactionSize() maximum transaction size} set in <code>beforeTransaction</code>.
+     * <p/>
+     * The default implementation passes each event to {@link #doHandle(Object)}.
+     *
+     * @param events The events to handle, in the order they were scheduled
+     */
+    protected void doHandleBatch(List<T> events) {
+        for (T event : events) {
+            doHandle(event);
+        }
+    }
+
+    /**
+     * Invoked when a transaction failed as many times as allowed by the {@link #setRetryBackoff(ExponentialBackoff)
+     * retry backoff}. The given events are not retried. In batch processing mode, these are all events of the failed
+     * transaction. Otherwise, it is the last event handled in the transaction, which is the one that caused the
+     * failure. Other events of the transaction are retried as defined by the retry policy.
+     * <p/>
+     * This method is invoked in a transaction of its own, started and committed by the transaction manager, before
+     * any other events are processed. If this method (or the transaction) fails, the events are kept and handed over
+     * again after the maximum retry interval of the backoff.
+     * <p/>
+     * The default implementation does nothing, meaning the events are discarded.
+     *
+     * @param events The events that are no longer retried
+     * @param cause  The exception that caused the last attempt to fail
+     */
+    protected void onRetriesExhausted(List<T> events, Exception cause) {
+    }
+
+    /**
+     * Indicates whether the events in a transaction should be handled in a single call to {@link
+     * #doHandleBatch(java.util.List)}. Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> if events should be handled as a batch, otherwise <code>false</code>
+     */
+    protected boolean isBatchProcessing() {
+        return false;
+    }
+
     private void handleEventBatch(TransactionStatus status) {
+        if (isBatchProcessing()) {
+            collectAndHandleBatch(status);
+            return;
+        }
         T event;
         while (!status.isTransactionSizeReached() && (event = nextEvent()) != null) {
             startTransactionIfNecessary(status);
@@ -319,6 +555,25 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
+    private void collectAndHandleBatch(TransactionStatus status) {
+        if (nextEvent() == null) {
+            return;
+        }
+        // the transaction is started first, as beforeTransaction may change the maximum transaction size
+        startTransactionIfNecessary(status);
+        while (currentBatch.size() < status.getMaxTransactionSize() && nextEvent() != null) {
+            // keep collecting events until the transaction is full or the queue is empty
+        }
+        handleCurrentBatch(status);
+    }
+
+    private void handleCurrentBatch(TransactionStatus status) {
+        doHandleBatch(Collections.unmodifiableList(new ArrayList<T>(currentBatch)));
+        for (int i = 0; i < currentBatch.size(); i++) {
+            status.recordEventProcessed();
+        }
+    }
+
     private void startTransactionIfNecessary(TransactionStatus status) {
         if (!transactionStarted) {
             transactionManager.beforeTransaction(status);
@@ -326,9 +581,7 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
         }
     }
 
-    private synchronized void cleanUp() {
-        isScheduled = false;
-        cleanedUp = true;
+    private void cleanUp() {
         shutDownCallback.afterShutdown(this);
     }
 
@@ -344,6 +597,6 @@ public abstract class EventProcessingScheduler<T> implements Runnable {
          *
          * @param scheduler the scheduler that completed processing.
          */
-        void afterShutdown(EventProcessingScheduler scheduler);
+        void afterShutdown(EventProcessingScheduler<?> scheduler);
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.util.AxonException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception indicating that more than one event listener failed to handle a published event. The first failure is
+ * available as the cause of this exception. All failures are available through {@link #getFailures()}.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class EventPublicationFailedException extends AxonException {
+
+    private static final long serialVersionUID = -4683468218423862379L;
+
+    private final List<RuntimeException> failures;
+
+    /**
+     * Initializes the exception using the given <code>message</code> and <code>failures</code>. The given list must
+     * contain at least one failure.
+     *
+     * @param message  The message describing the exception
+     * @param failures The exceptions thrown by the event listeners
+     */
+    public EventPublicationFailedException(String message, List<RuntimeException> failures) {
+        super(message, failures.get(0));
+        this.failures = Collections.unmodifiableList(new ArrayList<RuntimeException>(failures));
+    }
+
+    /**
+     * Returns the exceptions thrown by the event listeners, in the order they were caught.
+     *
+     * @return the exceptions thrown by the event listeners
+     */
+    public List<RuntimeException> getFailures() {
+        return failures;
+    }
+}
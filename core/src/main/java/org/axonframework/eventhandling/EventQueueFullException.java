@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.util.AxonTransientException;
+
+/**
+ * Exception indicating that an event could not be scheduled for asynchronous processing, because the maximum number
+ * of queued events has been reached. Retrying at a later moment may resolve the problem.
+ *
+ * @author Allard Buijze
+ * @see OverflowPolicy#FAIL_FAST
+ * @since 1.0
+ */
+public class EventQueueFullException extends AxonTransientException {
+
+    private static final long serialVersionUID = 5471280325361742911L;
+
+    /**
+     * Initialize an EventQueueFullException with the given <code>message</code>.
+     *
+     * @param message The message describing the exception
+     */
+    public EventQueueFullException(String message) {
+        super(message);
+    }
+
+    /**
+     * Initialize an EventQueueFullException with the given <code>message</code> and <code>cause</code>.
+     *
+     * @param message The message describing the exception
+     * @param cause   The cause of this exception
+     */
+    public EventQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.util.Assert;
+
+import java.util.Random;
+
+/**
+ * Defines the intervals between retries of failed transactions, and the maximum number of attempts. The interval
+ * starts at the initial interval, and is multiplied by the multiplier after each failed attempt, up to the maximum
+ * interval. Each interval is randomly spread by the jitter factor, to prevent many schedulers from retrying at the same
+ * moment.
+ * <p/>
+ * When the maximum number of attempts is reached, the scheduler gives up on the event that caused the failure, see
+ * {@link EventProcessingScheduler#onRetriesExhausted(java.util.List, Exception)}.
+ * <p/>
+ * This class is thread safe.
+ *
+ * @author Allard Buijze
+ * @see EventProcessingScheduler#setRetryBackoff(ExponentialBackoff)
+ * @since 1.0
+ */
+public class ExponentialBackoff {
+
+    private static final long DEFAULT_MAX_INTERVAL = 300000;
+    private static final double DEFAULT_MULTIPLIER = 2;
+    private static final double DEFAULT_JITTER = 0.2;
+
+    private final long initialIntervalMillis;
+    private final long maxIntervalMillis;
+    private final double multiplier;
+    private final double jitterFactor;
+    private final int maxAttempts;
+    private final Random random = new Random();
+
+    /**
+     * Initializes an ExponentialBackoff that starts with the given <code>initialIntervalMillis</code>, doubling it
+     * after each failed attempt up to a maximum of 5 minutes, with a jitter of 20%. After <code>maxAttempts</code>
+     * failed attempts, the scheduler gives up.
+     *
+     * @param initialIntervalMillis The interval before the first retry, in milliseconds
+     * @param maxAttempts           The maximum number of attempts, including the first
+     */
+    public ExponentialBackoff(long initialIntervalMillis, int maxAttempts) {
+        this(initialIntervalMillis, Math.max(initialIntervalMillis, DEFAULT_MAX_INTERVAL), DEFAULT_MULTIPLIER,
+             DEFAULT_JITTER, maxAttempts);
+    }
+
+    /**
+     * Initializes an ExponentialBackoff using the given parameters.
+     *
+     * @param initialIntervalMillis The interval before the first retry, in milliseconds
+     * @param maxIntervalMillis     The maximum interval between retries, in milliseconds
+     * @param multiplier            The factor to multiply the interval with after each failed attempt
+     * @param jitterFactor          The fraction (between 0 and 1) by which each interval is randomly increased or
+     *                              decreased
+     * @param maxAttempts           The maximum number of attempts, including the first. Use
+     *                              <code>Integer.MAX_VALUE</code> to retry forever.
+     */
+    public ExponentialBackoff(long initialIntervalMillis, long maxIntervalMillis, double multiplier,
+                              double jitterFactor, int maxAttempts) {
+        Assert.isTrue(initialIntervalMillis >= 0, "The initial interval may not be negative");
+        Assert.isTrue(maxIntervalMillis >= initialIntervalMillis,
+                      "The maximum interval may not be smaller than the initial interval");
+        Assert.isTrue(multiplier >= 1, "The multiplier must be at least 1");
+        Assert.isTrue(jitterFactor >= 0 && jitterFactor <= 1, "The jitter factor must be between 0 and 1");
+        Assert.isTrue(maxAttempts > 0, "The maximum number of attempts must be positive");
+        this.initialIntervalMillis = initialIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.multiplier = multiplier;
+        this.jitterFactor = jitterFactor;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the number of milliseconds to wait before the next attempt, after the given number of
+     * <code>failedAttempts</code>.
+     *
+     * @param failedAttempts The number of attempts that failed so far
+     * @return the interval before the next attempt, in milliseconds
+     */
+    public long intervalFor(int failedAttempts) {
+        double interval = initialIntervalMillis * Math.pow(multiplier, Math.max(0, failedAttempts - 1));
+        interval = Math.min(interval, maxIntervalMillis);
+        if (jitterFactor > 0) {
+            double jitter;
+            synchronized (random) {
+                jitter = random.nextDouble();
+            }
+            interval += interval * jitterFactor * (2 * jitter - 1);
+        }
+        return Math.max(0, Math.round(interval));
+    }
+
+    /**
+     * Indicates whether the given number of <code>failedAttempts</code> has reached the maximum number of attempts.
+     *
+     * @param failedAttempts The number of attempts that failed so far
+     * @return <code>true</code> if no more attempts should be made, otherwise <code>false</code>
+     */
+    public boolean isExhausted(int failedAttempts) {
+        return failedAttempts >= maxAttempts;
+    }
+
+    /**
+     * Returns the maximum number of attempts, including the first.
+     *
+     * @return the maximum number of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Marker interface for event listeners that may handle an event concurrently with other event listeners. Such
+ * listeners must be thread safe, and may not depend on other listeners having handled the event first.
+ * <p/>
+ * The marker may be placed on the event listener itself, or on the target of an {@link EventListenerProxy}, such as a
+ * bean wrapped by the {@link org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter
+ * AnnotationEventListenerAdapter}.
+ *
+ * @author Allard Buijze
+ * @see SimpleEventBus#setForkJoinPool(java.util.concurrent.ForkJoinPool)
+ * @since 1.0
+ */
+public interface IndependentEventListener {
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Snapshot of the statistics of a single processing lane of an {@link AsynchronousExecutionWrapper}. The latency of a
+ * task is the time between scheduling the task and the moment processing of that task starts.
+ *
+ * @author Allard Buijze
+ * @see AsynchronousExecutionWrapper#getLaneStatistics()
+ * @since 1.0
+ */
+public class LaneStatistics {
+
+    private final int laneIndex;
+    private final int queueDepth;
+    private final int highWaterMark;
+    private final int capacity;
+    private final long processedCount;
+    private final long averageLatencyNanos;
+    private final long maxLatencyNanos;
+
+    /**
+     * Initializes the statistics of a single lane.
+     *
+     * @param laneIndex           The index of the lane
+     * @param queueDepth          The number of tasks waiting in the lane's queue
+     * @param highWaterMark       The highest number of tasks that were waiting in the lane's queue at the same time
+     * @param capacity            The maximum number of tasks the lane's queue can hold
+     * @param processedCount      The number of tasks taken from the lane's queue
+     * @param averageLatencyNanos The average time tasks waited in the lane's queue, in nanoseconds
+     * @param maxLatencyNanos     The longest time a task waited in the lane's queue, in nanoseconds
+     */
+    public LaneStatistics(int laneIndex, int queueDepth, int highWaterMark, int capacity, long processedCount,
+                          long averageLatencyNanos, long maxLatencyNanos) {
+        this.laneIndex = laneIndex;
+        this.queueDepth = queueDepth;
+        this.highWaterMark = highWaterMark;
+        this.capacity = capacity;
+        this.processedCount = processedCount;
+        this.averageLatencyNanos = averageLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * Returns the index of the lane.
+     *
+     * @return the index of the lane
+     */
+    public int getLaneIndex() {
+        return laneIndex;
+    }
+
+    /**
+     * Returns the number of tasks waiting in the lane's queue.
+     *
+     * @return the number of tasks waiting in the lane's queue
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the highest number of tasks that were waiting in the lane's queue at the same time.
+     *
+     * @return the high water mark of the lane's queue
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the maximum number of tasks the lane's queue can hold.
+     *
+     * @return the capacity of the lane's queue
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of tasks taken from the lane's queue for processing.
+     *
+     * @return the number of processed tasks
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * Returns the average time tasks waited in the lane's queue before processing started, in nanoseconds.
+     *
+     * @return the average latency in nanoseconds
+     */
+    public long getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+
+    /**
+     * Returns the longest time a task waited in the lane's queue before processing started, in nanoseconds.
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Lane %s: %s/%s queued (high water mark %s), %s processed, "
+                                     + "average latency %s ns, max latency %s ns",
+                             laneIndex, queueDepth, capacity, highWaterMark, processedCount, averageLatencyNanos,
+                             maxLatencyNanos);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+/**
+ * Defines what an {@link AsynchronousExecutionWrapper} does when a task is scheduled while the maximum number of
+ * queued tasks has been reached.
+ *
+ * @author Allard Buijze
+ * @see AsynchronousExecutionWrapper#setQueueCapacity(int)
+ * @since 1.0
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The publishing thread waits until capacity becomes available. This slows down publishers to the speed of the
+     * event processing.
+     * <p/>
+     * Threads that are processing tasks of the same wrapper, such as an event listener that publishes events on the
+     * event bus it is subscribed to, do not wait. Their tasks are queued even if that exceeds the capacity, as waiting could
+     * deadlock the processing thread.
+     */
+    BLOCK_PUBLISHER,
+
+    /**
+     * The task that has been waiting the longest is discarded to make room for the new task, regardless of its
+     * sequence identifier. Tasks that are being processed are not discarded. If no task is waiting, the new task is
+     * discarded instead. Discarded tasks are logged and counted.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The task is rejected with an {@link EventQueueFullException}. The publisher may retry at a later moment.
+     */
+    FAIL_FAST,
+
+    /**
+     * The task is written to a file on disk. As long as tasks are stored on disk, new tasks are stored on disk as
+     * well, to preserve their order. Tasks are moved from disk to memory as soon as capacity becomes available. Tasks
+     * must be {@link java.io.Serializable} to use this policy.
+     */
+    SPILL_TO_DISK
+}
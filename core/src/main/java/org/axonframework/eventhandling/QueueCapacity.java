@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the number of tasks queued by an {@link AsynchronousExecutionWrapper}, and limits that number to a
+ * configurable capacity. Capacity is reserved before a task is added to a queue, and released when the task is taken
+ * from the queue. When the capacity is <code>Integer.MAX_VALUE</code>, the capacity is considered unlimited and the
+ * AsynchronousExecutionWrapper does not reserve or release any capacity.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class QueueCapacity {
+
+    private final AdjustableSemaphore permits;
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicInteger highWaterMark = new AtomicInteger(0);
+    private volatile int capacity;
+
+    /**
+     * Initializes a QueueCapacity that allows at most <code>capacity</code> queued tasks.
+     *
+     * @param capacity The maximum number of queued tasks
+     */
+    QueueCapacity(int capacity) {
+        this.capacity = capacity;
+        this.permits = new AdjustableSemaphore(capacity);
+    }
+
+    /**
+     * Changes the maximum number of queued tasks. If more tasks are queued than the new capacity allows, new tasks
+     * can only be queued after enough queued tasks have been taken.
+     *
+     * @param newCapacity The new maximum number of queued tasks
+     */
+    synchronized void setCapacity(int newCapacity) {
+        int delta = newCapacity - capacity;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        capacity = newCapacity;
+    }
+
+    /**
+     * Reserves capacity for a single task, if available.
+     *
+     * @return <code>true</code> if capacity was reserved, otherwise <code>false</code>
+     */
+    boolean tryReserve() {
+        if (permits.tryAcquire()) {
+            recordQueued();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reserves capacity for a single task, waiting until capacity becomes available.
+     */
+    void reserve() {
+        permits.acquireUninterruptibly();
+        recordQueued();
+    }
+
+    /**
+     * Reserves capacity for a single task, even if that exceeds the capacity. The excess is compensated for by tasks
+     * taken from the queue, before capacity becomes available for other tasks.
+     */
+    void forceReserve() {
+        if (!permits.tryAcquire()) {
+            permits.reducePermits(1);
+        }
+        recordQueued();
+    }
+
+    /**
+     * Releases the capacity reserved for a single task.
+     */
+    void release() {
+        queued.decrementAndGet();
+        permits.release();
+    }
+
+    private void recordQueued() {
+        int current = queued.incrementAndGet();
+        int mark;
+        while (current > (mark = highWaterMark.get()) && !highWaterMark.compareAndSet(mark, current)) {
+            // retry until the high water mark is at least the current number of queued tasks
+        }
+    }
+
+    /**
+     * Indicates whether capacity is currently available for at least one task.
+     *
+     * @return <code>true</code> if capacity is available, otherwise <code>false</code>
+     */
+    boolean hasAvailableCapacity() {
+        return permits.availablePermits() > 0;
+    }
+
+    /**
+     * Returns the maximum number of queued tasks.
+     *
+     * @return the maximum number of queued tasks
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Indicates whether the number of queued tasks is limited, and should be tracked.
+     *
+     * @return <code>false</code> if the capacity is <code>Integer.MAX_VALUE</code>, otherwise <code>true</code>
+     */
+    boolean isBounded() {
+        return capacity != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of tasks currently queued.
+     *
+     * @return the number of tasks currently queued
+     */
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the highest number of tasks that were queued at the same time since the last reset.
+     *
+     * @return the highest number of simultaneously queued tasks
+     */
+    int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Resets the high water mark to the number of tasks currently queued.
+     */
+    void resetHighWaterMark() {
+        highWaterMark.set(queued.get());
+    }
+
+    /**
+     * Semaphore that allows the number of permits to be reduced.
+     */
+    private static final class AdjustableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = -2894386127452357417L;
+
+        private AdjustableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+
+/**
+ * EventListener that can tell in advance which types of events it is able to handle. Event buses may use this
+ * information to avoid dispatching events to listeners that would ignore them anyway.
+ * <p/>
+ * Implementations must return a consistent answer for each event type for as long as they are subscribed to an event
+ * bus, as event buses may cache the outcome.
+ *
+ * @author Allard Buijze
+ * @see SimpleEventBus
+ * @since 1.0
+ */
+public interface SelectiveEventListener extends EventListener {
+
+    /**
+     * Indicates whether this listener is able to handle events of the given <code>eventType</code>. When
+     * <code>false</code> is returned, the listener would not do anything when an event of that type is passed to
+     * {@link #handle(org.axonframework.domain.Event)}.
+     *
+     * @param eventType The type of event
+     * @return <code>true</code> if this listener handles events of the given type, otherwise <code>false</code>
+     */
+    boolean canHandle(Class<? extends Event> eventType);
+}
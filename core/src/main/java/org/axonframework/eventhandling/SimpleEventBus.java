@@ -16,19 +16,47 @@
 
 package org.axonframework.eventhandling;
 
+import org.axonframework.domain.AggregateRoot;
 import org.axonframework.domain.Event;
 import org.axonframework.monitoring.jmx.JmxConfiguration;
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.SaveAggregateCallback;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.axonframework.unitofwork.UnitOfWorkListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Implementation of the {@link EventBus} that directly forwards all published events (in the callers' thread) to all
  * subscribed listeners.
  * <p/>
  * Listeners are expected to implement asynchronous handling themselves.
+ * <p/>
+ * For each type of event, the event bus keeps track of the listeners that need to receive it. Listeners that implement
+ * {@link SelectiveEventListener}, such as the {@link org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter
+ * AnnotationEventListenerAdapter}, only receive the events they declare to handle. All other listeners receive every
+ * event. This routing information is cleared each time a listener subscribes or unsubscribes.
+ * <p/>
+ * By default, listeners are invoked one after the other. When a {@link #setForkJoinPool(ForkJoinPool) fork join pool}
+ * is configured, listeners marked as {@link IndependentEventListener} are invoked concurrently in that pool, while the
+ * other listeners are invoked in the publishing thread. In that case, the publishing thread waits until all listeners
+ * have handled the event. The {@link TransactionStatus} of the publishing thread is available to listeners marked as
+ * independent. Since Units of Work are not thread safe, these listeners get a read-only view of the {@link
+ * CurrentUnitOfWork current Unit of Work} of the publishing thread, regardless of the thread they run in. Calls that
+ * would modify the Unit of Work, such as registering aggregates, throw an {@link IllegalStateException}.
  *
  * @author Allard Buijze
  * @see AsynchronousEventHandlerWrapper
@@ -39,6 +67,8 @@ public class SimpleEventBus implements EventBus {
     private static final Logger logger = LoggerFactory.getLogger(SimpleEventBus.class);
     private final Set<EventListener> listeners = new CopyOnWriteArraySet<EventListener>();
     private volatile SimpleEventBusStatistics statistics = new SimpleEventBusStatistics();
+    private volatile RoutingTable routingTable = new RoutingTable(listeners);
+    private volatile ForkJoinPool forkJoinPool;
 
     /**
      * Initializes the SimpleEventBus and registers the mbeans for management information.
@@ -64,6 +94,7 @@ public class SimpleEventBus implements EventBus {
     @Override
     public void unsubscribe(EventListener eventListener) {
         if (listeners.remove(eventListener)) {
+            resetRoutingTable();
             Object listener = getActualListenerFrom(eventListener);
             statistics.recordUnregisteredListener(listener.getClass().getSimpleName());
             logger.debug("EventListener {} unsubscribed successfully", eventListener.getClass().getSimpleName());
@@ -79,6 +110,7 @@ public class SimpleEventBus implements EventBus {
     @Override
     public void subscribe(EventListener eventListener) {
         if (listeners.add(eventListener)) {
+            resetRoutingTable();
             Object listener = getActualListenerFrom(eventListener);
             statistics.listenerRegistered(listener.getClass().getSimpleName());
             logger.debug("EventListener [{}] subscribed successfully", eventListener.getClass().getSimpleName());
@@ -88,7 +120,26 @@ public class SimpleEventBus implements EventBus {
         }
     }
 
-    private Object getActualListenerFrom(EventListener eventListener) {
+    /**
+     * Sets the pool in which listeners marked as {@link IndependentEventListener} handle events concurrently. The
+     * other listeners are invoked in the publishing thread. Set to <code>null</code> (the default) to invoke all
+     * listeners one after the other in the publishing thread.
+     * <p/>
+     * When a pool is configured, all listeners receive the event, even if one of them fails. If a single listener
+     * fails, its exception is rethrown once all listeners have handled the event. If several listeners fail, an
+     * {@link EventPublicationFailedException} containing all failures is thrown.
+     *
+     * @param forkJoinPool The pool to invoke independent listeners in
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    private synchronized void resetRoutingTable() {
+        routingTable = new RoutingTable(listeners);
+    }
+
+    private static Object getActualListenerFrom(EventListener eventListener) {
         Object listener = eventListener;
         while (listener instanceof EventListenerProxy) {
             listener = ((EventListenerProxy) listener).getTarget();
@@ -103,11 +154,226 @@ public class SimpleEventBus implements EventBus {
     public void publish(Event event) {
         statistics.recordPublishedEvent();
 
-        for (EventListener listener : listeners) {
-            logger.debug("Dispatching Event [{}] to EventListener [{}]",
-                    event.getClass().getSimpleName(),
-                    listener.getClass().getSimpleName());
-            listener.handle(event);
+        final ForkJoinPool pool = forkJoinPool;
+        Route route = routingTable.routeFor(event.getClass());
+        if (pool == null || route.independentListeners.size() < 2) {
+            for (EventListener listener : route.allListeners) {
+                dispatch(event, listener);
+            }
+        } else {
+            publishInParallel(event, route, pool);
+        }
+    }
+
+    private void publishInParallel(Event event, Route route, ForkJoinPool pool) {
+        Queue<RuntimeException> failures = new ConcurrentLinkedQueue<RuntimeException>();
+        FanOutTask fanOut = new FanOutTask(event, route.independentListeners,
+                                           CurrentUnitOfWork.isStarted()
+                                                   ? new ReadOnlyUnitOfWork(CurrentUnitOfWork.get()) : null,
+                                           TransactionStatus.current(), failures);
+        boolean inPool = Thread.currentThread() instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) Thread.currentThread()).getPool() == pool;
+        if (inPool) {
+            fanOut.fork();
+        } else {
+            pool.execute(fanOut);
+        }
+        for (EventListener listener : route.otherListeners) {
+            try {
+                dispatch(event, listener);
+            } catch (RuntimeException e) {
+                failures.add(e);
+            }
+        }
+        fanOut.join();
+        if (failures.size() == 1) {
+            throw failures.peek();
+        } else if (!failures.isEmpty()) {
+            throw new EventPublicationFailedException(
+                    String.format("%s event listeners failed to handle event [%s]",
+                                  failures.size(), event.getClass().getSimpleName()),
+                    new ArrayList<RuntimeException>(failures));
+        }
+    }
+
+    private static void dispatch(Event event, EventListener listener) {
+        logger.debug("Dispatching Event [{}] to EventListener [{}]",
+                event.getClass().getSimpleName(),
+                listener.getClass().getSimpleName());
+        listener.handle(event);
+    }
+
+    /**
+     * The listeners to invoke for a type of event. Independent listeners are listed separately for concurrent
+     * invocation.
+     */
+    private static final class Route {
+
+        private final List<EventListener> allListeners = new ArrayList<EventListener>();
+        private final List<EventListener> independentListeners = new ArrayList<EventListener>();
+        private final List<EventListener> otherListeners = new ArrayList<EventListener>();
+
+        private void add(EventListener listener) {
+            allListeners.add(listener);
+            if (listener instanceof IndependentEventListener
+                    || getActualListenerFrom(listener) instanceof IndependentEventListener) {
+                independentListeners.add(listener);
+            } else {
+                otherListeners.add(listener);
+            }
+        }
+    }
+
+    /**
+     * Task that invokes a range of listeners, splitting the range until each task invokes a single listener. Each task
+     * binds the TransactionStatus and a read-only view of the Unit of Work of the publishing thread to the thread that
+     * runs it.
+     */
+    private static final class FanOutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 4963291842384618723L;
+
+        private final Event event;
+        private final List<EventListener> listeners;
+        private final UnitOfWork unitOfWork;
+        private final TransactionStatus transactionStatus;
+        private final Queue<RuntimeException> failures;
+
+        private FanOutTask(Event event, List<EventListener> listeners, UnitOfWork unitOfWork,
+                           TransactionStatus transactionStatus, Queue<RuntimeException> failures) {
+            this.event = event;
+            this.listeners = listeners;
+            this.unitOfWork = unitOfWork;
+            this.transactionStatus = transactionStatus;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (listeners.size() > 1) {
+                int middle = listeners.size() / 2;
+                ForkJoinTask.invokeAll(
+                        new FanOutTask(event, listeners.subList(0, middle), unitOfWork, transactionStatus, failures),
+                        new FanOutTask(event, listeners.subList(middle, listeners.size()), unitOfWork,
+                                       transactionStatus, failures));
+            } else if (!listeners.isEmpty()) {
+                invokeWithContext(listeners.get(0));
+            }
+        }
+
+        private void invokeWithContext(final EventListener listener) {
+            TransactionStatus previousStatus = TransactionStatus.current();
+            TransactionStatus.set(transactionStatus);
+            try {
+                Runnable invocation = new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch(event, listener);
+                    }
+                };
+                if (unitOfWork == null) {
+                    invocation.run();
+                } else {
+                    // also bound when the publishing thread runs the task, so listeners see the same view everywhere
+                    CurrentUnitOfWork.runWith(unitOfWork, invocation);
+                }
+            } catch (RuntimeException e) {
+                failures.add(e);
+            } finally {
+                if (previousStatus == null) {
+                    TransactionStatus.clear();
+                } else {
+                    TransactionStatus.set(previousStatus);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read-only view of the Unit of Work of the publishing thread, bound to listeners that handle an event
+     * concurrently. The Unit of Work is not thread safe, so these listeners may not modify it.
+     */
+    private static final class ReadOnlyUnitOfWork implements UnitOfWork {
+
+        private final UnitOfWork delegate;
+
+        private ReadOnlyUnitOfWork(UnitOfWork delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void commit() {
+            throw readOnly();
+        }
+
+        @Override
+        public void rollback() {
+            throw readOnly();
+        }
+
+        @Override
+        public void rollback(Throwable cause) {
+            throw readOnly();
+        }
+
+        @Override
+        public void start() {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean isStarted() {
+            return delegate.isStarted();
+        }
+
+        @Override
+        public void registerListener(UnitOfWorkListener listener) {
+            throw readOnly();
+        }
+
+        @Override
+        public <T extends AggregateRoot> T registerAggregate(T aggregateRoot,
+                                                             SaveAggregateCallback<T> saveAggregateCallback) {
+            throw readOnly();
+        }
+
+        @Override
+        public void publishEvent(Event event, EventBus eventBus) {
+            throw readOnly();
+        }
+
+        private static IllegalStateException readOnly() {
+            return new IllegalStateException("The Unit of Work of the publishing thread cannot be modified by event "
+                                                     + "listeners handling the event concurrently.");
+        }
+    }
+
+    /**
+     * Snapshot of the subscribed listeners, which lazily calculates the listeners to invoke for each type of event.
+     */
+    private static final class RoutingTable {
+
+        private final List<EventListener> listeners;
+        private final ConcurrentMap<Class<? extends Event>, Route> routes =
+                new ConcurrentHashMap<Class<? extends Event>, Route>();
+
+        private RoutingTable(Set<EventListener> listeners) {
+            this.listeners = new ArrayList<EventListener>(listeners);
+        }
+
+        private Route routeFor(Class<? extends Event> eventType) {
+            Route route = routes.get(eventType);
+            if (route == null) {
+                route = new Route();
+                for (EventListener listener : listeners) {
+                    if (!(listener instanceof SelectiveEventListener)
+                            || ((SelectiveEventListener) listener).canHandle(eventType)) {
+                        route.add(listener);
+                    }
+                }
+                routes.put(eventType, route);
+            }
+            return route;
         }
     }
 }
@@ -21,14 +21,14 @@ import org.axonframework.eventhandling.EventListener;
 import org.axonframework.eventhandling.TransactionStatus;
 import org.axonframework.eventhandling.UnsupportedHandlerMethodException;
 import org.axonframework.util.AbstractHandlerInvoker;
-import org.axonframework.util.AxonConfigurationException;
-import org.axonframework.util.ReflectionUtils;
+import org.axonframework.util.Handler;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Utility class that supports invocation of specific handler methods for a given event. See {@link EventHandler} for
@@ -40,6 +40,11 @@ import java.util.Iterator;
  */
 public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
 
+    private static final Set<Class<?>> VALIDATED_TYPES =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Class<?>, Boolean>()));
+
+    private final TransactionCallbacks transactionCallbacks;
+
     /**
      * Initialize an event handler invoker that invokes handlers on the given <code>target</code>.
      *
@@ -47,7 +52,11 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
      */
     public AnnotationEventHandlerInvoker(Object target) {
         super(target, EventHandler.class);
-        validateEventHandlerMethods(target);
+        if (!VALIDATED_TYPES.contains(getTargetType())) {
+            validateEventHandlerMethods();
+            VALIDATED_TYPES.add(getTargetType());
+        }
+        this.transactionCallbacks = TransactionCallbacks.forType(getTargetType());
     }
 
     /**
@@ -72,6 +81,16 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
         }
     }
 
+    /**
+     * Indicates whether the target has an event handler method for events of the given <code>eventType</code>.
+     *
+     * @param eventType The type of event
+     * @return <code>true</code> if the target handles events of the given type, otherwise <code>false</code>
+     */
+    public boolean hasHandlerFor(Class<? extends Event> eventType) {
+        return findHandlerMethod(eventType) != null;
+    }
+
     /**
      * Invoke the "BeforeTransaction" method on the target. This is the method annotated with {@link
      * org.axonframework.eventhandling.annotation.BeforeTransaction}
@@ -79,7 +98,7 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
      * @param transactionStatus The status of the transaction to pass as parameter to the method call
      */
     public void invokeBeforeTransaction(TransactionStatus transactionStatus) {
-        invokeTransactionMethod(BeforeTransaction.class, transactionStatus);
+        transactionCallbacks.invokeBeforeTransaction(getTarget(), transactionStatus);
     }
 
     /**
@@ -89,42 +108,12 @@ public class AnnotationEventHandlerInvoker extends AbstractHandlerInvoker {
      * @param transactionStatus The status of the transaction to pass as parameter to the method call
      */
     public void invokeAfterTransaction(TransactionStatus transactionStatus) {
-        invokeTransactionMethod(AfterTransaction.class, transactionStatus);
-    }
-
-    private void invokeTransactionMethod(Class<? extends Annotation> annotation,
-                                         TransactionStatus transactionStatus) {
-        Iterator<Method> iterator = ReflectionUtils.methodsOf(getTargetType()).iterator();
-        boolean found = false;
-        while (!found && iterator.hasNext()) {
-            Method m = iterator.next();
-            if (m.isAnnotationPresent(annotation)
-                    && (m.getParameterTypes().length == 0
-                    || m.getParameterTypes()[0].equals(TransactionStatus.class))) {
-                try {
-                    found = true;
-                    try {
-                        if (m.getParameterTypes().length == 1) {
-                            m.invoke(getTarget(), transactionStatus);
-                        } else {
-                            m.invoke(getTarget());
-                        }
-                    } catch (InvocationTargetException e) {
-                        throw new TransactionMethodExecutionException(String.format(
-                                "An error occurred while invoking [%s] on [%s].",
-                                m.getName(),
-                                getTargetType().getSimpleName()), e);
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new AxonConfigurationException("Should be Illegal to access this method", e);
-                }
-            }
-        }
+        transactionCallbacks.invokeAfterTransaction(getTarget(), transactionStatus);
     }
 
-    private void validateEventHandlerMethods(Object target) {
-        for (Method m : ReflectionUtils.methodsOf(target.getClass())) {
-            validate(m);
+    private void validateEventHandlerMethods() {
+        for (Handler handler : getHandlers().getHandlers()) {
+            validate(handler.getMethod());
         }
     }
 
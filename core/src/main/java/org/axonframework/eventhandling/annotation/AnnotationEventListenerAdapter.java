@@ -20,17 +20,15 @@ import org.axonframework.domain.Event;
 import org.axonframework.eventhandling.*;
 import org.axonframework.eventhandling.TransactionManager;
 import org.axonframework.util.AxonConfigurationException;
-import org.axonframework.util.FieldAccessibilityCallback;
-import org.axonframework.util.ReflectionUtils;
 import org.axonframework.util.Subscribable;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 
-import static java.security.AccessController.doPrivileged;
 import static org.axonframework.util.ReflectionUtils.findAnnotation;
 
 /**
@@ -39,19 +37,28 @@ import static org.axonframework.util.ReflectionUtils.findAnnotation;
  * <p/>
  * If the event listener has the {@link AsynchronousEventListener} annotation, it is also configured to handle events
  * asynchronously. In that case, event processing is handed over to the given {@link java.util.concurrent.Executor}.
+ * Asynchronous event listeners with {@link BatchEventHandler} annotated methods receive all events of a transaction in
+ * a single invocation of those methods.
+ * <p/>
+ * When the given event bus is an {@link EventListenerCluster}, the event listener joins the cluster, which takes care
+ * of asynchronous processing. In that case, no executor is needed, and the settings of the {@link
+ * AsynchronousEventListener} annotation are ignored.
  *
  * @author Allard Buijze
  * @see EventListener
  * @see org.axonframework.eventhandling.AsynchronousEventHandlerWrapper
  * @since 0.1
  */
-public class AnnotationEventListenerAdapter implements Subscribable, EventListenerProxy, TransactionManager {
+public class AnnotationEventListenerAdapter
+        implements Subscribable, EventListenerProxy, SelectiveEventListener, TransactionManager {
 
     private final EventListener targetEventListener;
     private final Executor executor;
     private final TransactionManager transactionManager;
     private final EventBus eventBus;
     private final Object annotatedEventListener;
+    private final AnnotationEventHandlerInvoker eventHandlerInvoker;
+    private final BatchEventHandlerInvoker batchEventHandlerInvoker;
 
     /**
      * Initialize the AnnotationEventListenerAdapter for the given <code>annotatedEventListener</code>. When the adapter
@@ -75,12 +82,20 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
      */
     public AnnotationEventListenerAdapter(Object annotatedEventListener, Executor executor, EventBus eventBus) {
         this.annotatedEventListener = annotatedEventListener;
-        EventListener adapter = new TargetEventListener(new AnnotationEventHandlerInvoker(annotatedEventListener));
+        this.eventHandlerInvoker = new AnnotationEventHandlerInvoker(annotatedEventListener);
+        this.batchEventHandlerInvoker = new BatchEventHandlerInvoker(annotatedEventListener);
+        EventListener adapter;
+        if (batchEventHandlerInvoker.hasHandlers()) {
+            adapter = new BatchTargetEventListener(eventHandlerInvoker, batchEventHandlerInvoker);
+        } else {
+            adapter = new TargetEventListener(eventHandlerInvoker);
+        }
         this.transactionManager = createTransactionManagerFor(annotatedEventListener);
         this.executor = executor;
         this.eventBus = eventBus;
 
-        if (findAnnotation(annotatedEventListener.getClass(), AsynchronousEventListener.class) != null) {
+        if (findAnnotation(annotatedEventListener.getClass(), AsynchronousEventListener.class) != null
+                && !(eventBus instanceof EventListenerCluster)) {
             if (executor == null) {
                 throw new IllegalArgumentException(
                         "The annotatedEventListener is Asynchronous, but no executor is provided.");
@@ -98,6 +113,17 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
         targetEventListener.handle(event);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This adapter handles all events for which the annotated event listener has an {@link EventHandler} or {@link
+     * BatchEventHandler} annotated method.
+     */
+    @Override
+    public boolean canHandle(Class<? extends Event> eventType) {
+        return eventHandlerInvoker.hasHandlerFor(eventType) || batchEventHandlerInvoker.hasHandlerFor(eventType);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -148,44 +174,35 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
     }
 
     private TransactionManager findTransactionManagerInField(Object bean) {
-        TransactionManager tm = null;
-        for (Field f : ReflectionUtils.fieldsOf(bean.getClass())) {
-            try {
-                if (f.isAnnotationPresent(org.axonframework.eventhandling.annotation.TransactionManager.class)) {
-                    doPrivileged(new FieldAccessibilityCallback(f));
-
-                    if (TransactionManager.class.isAssignableFrom(f.getType())) {
-                        tm = (TransactionManager) f.get(bean);
-                    } else {
-                        tm = new AnnotationTransactionManager(f.get(bean));
-                    }
-                }
-            } catch (IllegalAccessException e) {
-                throw new AxonConfigurationException("Field should be accessible.", e);
+        Field field = TransactionCallbacks.forType(bean.getClass()).getTransactionManagerField();
+        if (field == null) {
+            return null;
+        }
+        try {
+            if (TransactionManager.class.isAssignableFrom(field.getType())) {
+                return (TransactionManager) field.get(bean);
             }
+            return new AnnotationTransactionManager(field.get(bean));
+        } catch (IllegalAccessException e) {
+            throw new AxonConfigurationException("Field should be accessible.", e);
         }
-        return tm;
     }
 
     private boolean hasTransactionalMethods(Object bean) {
-//        HasTransactionMethodCallback hasTransactionMethodCallback = new HasTransactionMethodCallback();
-        boolean found = false;
-        for (Method method : ReflectionUtils.methodsOf(bean.getClass())) {
-            if (method.isAnnotationPresent(BeforeTransaction.class)
-                    || method.isAnnotationPresent(AfterTransaction.class)) {
-                found = true;
-            }
-        }
-        return found;
+        return TransactionCallbacks.forType(bean.getClass()).hasTransactionMethods();
     }
 
     private AsynchronousEventHandlerWrapper createAsynchronousWrapperForBean(Object bean,
                                                                              EventListener adapter) {
 
-        return new AsynchronousEventHandlerWrapper(adapter,
-                                                   transactionManager,
-                                                   getSequencingPolicyFor(bean),
-                                                   executor);
+        AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(adapter,
+                                                                                     transactionManager,
+                                                                                     getSequencingPolicyFor(bean),
+                                                                                     executor);
+        AsynchronousEventListener annotation = findAnnotation(bean.getClass(), AsynchronousEventListener.class);
+        wrapper.setQueueCapacity(annotation.queueCapacity());
+        wrapper.setOverflowPolicy(annotation.overflowPolicy());
+        return wrapper;
     }
 
     private SequencingPolicy getSequencingPolicyFor(Object listener) {
@@ -231,4 +248,35 @@ public class AnnotationEventListenerAdapter implements Subscribable, EventListen
             eventHandlerInvoker.invokeEventHandlerMethod(event);
         }
     }
+
+    private static final class BatchTargetEventListener implements BatchEventListener {
+
+        private final AnnotationEventHandlerInvoker eventHandlerInvoker;
+        private final BatchEventHandlerInvoker batchEventHandlerInvoker;
+
+        public BatchTargetEventListener(AnnotationEventHandlerInvoker eventHandlerInvoker,
+                                        BatchEventHandlerInvoker batchEventHandlerInvoker) {
+            this.eventHandlerInvoker = eventHandlerInvoker;
+            this.batchEventHandlerInvoker = batchEventHandlerInvoker;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handle(Event event) {
+            handleBatch(Collections.singletonList(event));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void handleBatch(List<Event> events) {
+            for (Event event : events) {
+                eventHandlerInvoker.invokeEventHandlerMethod(event);
+            }
+            batchEventHandlerInvoker.invokeBatchEventHandlerMethods(events, TransactionStatus.current());
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package org.axonframework.eventhandling.annotation;
 
 import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.OverflowPolicy;
 import org.axonframework.eventhandling.SequencingPolicy;
 import org.axonframework.eventhandling.SequentialPolicy;
 
@@ -35,6 +36,9 @@ import java.lang.annotation.Target;
  * This annotation allows the configuration of any {@link #sequencingPolicyClass() arbitrary class}, as long as it
  * implements the {@link org.axonframework.eventhandling.SequencingPolicy} interface. It also needs to have (at least) a
  * no-arg constructor.
+ * <p/>
+ * The number of events waiting to be processed by this listener can be limited using {@link #queueCapacity()}. The
+ * {@link #overflowPolicy()} defines what happens to events published while that limit has been reached.
  *
  * @author Allard Buijze
  * @since 0.3
@@ -49,4 +53,16 @@ public @interface AsynchronousEventListener {
      * org.axonframework.eventhandling.SequencingPolicy} and provide an accessible no-arg constructor.
      */
     Class<? extends SequencingPolicy<? super Event>> sequencingPolicyClass() default SequentialPolicy.class;
+
+    /**
+     * Defines the maximum number of events waiting to be processed by this listener. Defaults to
+     * <code>Integer.MAX_VALUE</code>, which effectively means no limit.
+     */
+    int queueCapacity() default Integer.MAX_VALUE;
+
+    /**
+     * Defines what happens to events published while the maximum number of waiting events has been reached. Defaults
+     * to {@link OverflowPolicy#BLOCK_PUBLISHER}.
+     */
+    OverflowPolicy overflowPolicy() default OverflowPolicy.BLOCK_PUBLISHER;
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to be placed on methods that handle a batch of events at once.
+ * <p/>
+ * Annotated methods must comply to a few simple rules: <ul> <li>The method must accept 1 or 2 parameters <li>The first
+ * parameter must be a <code>java.util.List</code> (or <code>Collection</code>). Its type parameter defines the type of
+ * events the method accepts, for example <code>List&lt;ContactCreatedEvent&gt;</code>. If the type parameter is
+ * omitted, the method accepts all events. <li>If specified, the second parameter must be of type {@link
+ * org.axonframework.eventhandling.TransactionStatus}<li>Return values are ignored</ul>
+ * <p/>
+ * When the event listener is asynchronous (see {@link AsynchronousEventListener}), each batch handler method is
+ * invoked once per transaction, with all events of that transaction it accepts, in the order they were published.
+ * Methods are not invoked when the transaction contains no events they accept. Batch handler methods are invoked after
+ * the {@link EventHandler} annotated methods have been invoked for each of the events in the transaction.
+ * <p/>
+ * When events are dispatched synchronously, batch handler methods are invoked with a list containing a single event.
+ *
+ * @author Allard Buijze
+ * @see org.axonframework.eventhandling.BatchEventListener
+ * @see AnnotationEventListenerAdapter
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BatchEventHandler {
+
+}
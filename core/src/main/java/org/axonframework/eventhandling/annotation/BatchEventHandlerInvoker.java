@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling.annotation;
+
+import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.eventhandling.UnsupportedHandlerMethodException;
+import org.axonframework.util.MethodAccessibilityCallback;
+import org.axonframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.security.AccessController.doPrivileged;
+
+/**
+ * Utility class that invokes the {@link BatchEventHandler} annotated methods of a target for a batch of events.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class BatchEventHandlerInvoker {
+
+    private final Object target;
+    private final List<BatchHandler> handlers = new ArrayList<BatchHandler>();
+
+    /**
+     * Initialize a batch event handler invoker that invokes the batch handlers on the given <code>target</code>.
+     *
+     * @param target the bean on which to invoke batch event handlers
+     */
+    BatchEventHandlerInvoker(Object target) {
+        this.target = target;
+        for (Method method : ReflectionUtils.methodsOf(target.getClass())) {
+            if (method.isAnnotationPresent(BatchEventHandler.class)) {
+                handlers.add(new BatchHandler(method, resolveEventType(method)));
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the target has any batch event handler methods.
+     *
+     * @return <code>true</code> if the target has batch event handler methods, otherwise <code>false</code>
+     */
+    boolean hasHandlers() {
+        return !handlers.isEmpty();
+    }
+
+    /**
+     * Indicates whether any of the batch event handler methods accepts events of the given <code>eventType</code>.
+     *
+     * @param eventType The type of event
+     * @return <code>true</code> if events of the given type are handled, otherwise <code>false</code>
+     */
+    boolean hasHandlerFor(Class<? extends Event> eventType) {
+        for (BatchHandler handler : handlers) {
+            if (handler.eventType.isAssignableFrom(eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Invokes each of the batch event handler methods with the events in the given <code>batch</code> it accepts.
+     *
+     * @param batch             The events to handle
+     * @param transactionStatus The status of the current transaction
+     */
+    void invokeBatchEventHandlerMethods(List<? extends Event> batch, TransactionStatus transactionStatus) {
+        for (BatchHandler handler : handlers) {
+            List<Event> events = new ArrayList<Event>(batch.size());
+            for (Event event : batch) {
+                if (handler.eventType.isInstance(event)) {
+                    events.add(event);
+                }
+            }
+            if (!events.isEmpty()) {
+                handler.invoke(Collections.unmodifiableList(events), transactionStatus);
+            }
+        }
+    }
+
+    private Class<?> resolveEventType(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length < 1 || parameterTypes.length > 2) {
+            throw new UnsupportedHandlerMethodException(String.format(
+                    "Event Handling class %s contains method %s that has no or more than two parameters. "
+                            + "Either remove @BatchEventHandler annotation or provide to one or two parameters.",
+                    method.getDeclaringClass().getSimpleName(),
+                    method.getName()),
+                                                        method);
+        }
+        if (!parameterTypes[0].isAssignableFrom(List.class)) {
+            throw new UnsupportedHandlerMethodException(String.format(
+                    "Event Handling class %s contains method %s that has an invalid parameter. "
+                            + "The first parameter of a @BatchEventHandler method must be a List.",
+                    method.getDeclaringClass().getSimpleName(),
+                    method.getName()),
+                                                        method);
+        }
+        if (parameterTypes.length == 2 && !TransactionStatus.class.equals(parameterTypes[1])) {
+            throw new UnsupportedHandlerMethodException(String.format(
+                    "Event Handling class %s contains method %s that has an invalid parameter. "
+                            + "The (optional) second parameter must be of type: %s",
+                    method.getDeclaringClass().getSimpleName(),
+                    method.getName(),
+                    TransactionStatus.class.getName()),
+                                                        method);
+        }
+        Class<?> eventType = Event.class;
+        Type listType = method.getGenericParameterTypes()[0];
+        if (listType instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) listType).getActualTypeArguments()[0];
+            if (elementType instanceof WildcardType) {
+                elementType = ((WildcardType) elementType).getUpperBounds()[0];
+            }
+            if (elementType instanceof Class) {
+                eventType = (Class<?>) elementType;
+            }
+        }
+        if (!Event.class.isAssignableFrom(eventType) && !eventType.isAssignableFrom(Event.class)) {
+            throw new UnsupportedHandlerMethodException(String.format(
+                    "Event Handling class %s contains method %s that has an invalid parameter. "
+                            + "The elements of the list must extend from Event",
+                    method.getDeclaringClass().getSimpleName(),
+                    method.getName()),
+                                                        method);
+        }
+        return eventType;
+    }
+
+    private final class BatchHandler {
+
+        private final Method method;
+        private final Class<?> eventType;
+
+        private BatchHandler(Method method, Class<?> eventType) {
+            this.method = method;
+            this.eventType = eventType;
+            doPrivileged(new MethodAccessibilityCallback(method));
+        }
+
+        private void invoke(List<Event> events, TransactionStatus transactionStatus) {
+            try {
+                if (method.getParameterTypes().length == 2) {
+                    method.invoke(target, events, transactionStatus);
+                } else {
+                    method.invoke(target, events);
+                }
+            } catch (IllegalAccessException e) {
+                throw new UnsupportedOperationException(String.format(
+                        "An error occurred when handling a batch of %s events in [%s]",
+                        events.size(), method.getName()), e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new EventHandlerInvocationException(String.format(
+                        "An error occurred when handling a batch of %s events in [%s]",
+                        events.size(), method.getName()), e);
+            }
+        }
+    }
+}
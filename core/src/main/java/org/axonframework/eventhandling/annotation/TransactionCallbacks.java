@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.annotation;
+
+import net.sf.cglib.reflect.FastMethod;
+import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.util.AxonConfigurationException;
+import org.axonframework.util.ClassValueCache;
+import org.axonframework.util.FastMethodUtils;
+import org.axonframework.util.FieldAccessibilityCallback;
+import org.axonframework.util.MethodAccessibilityCallback;
+import org.axonframework.util.ReflectionUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static java.security.AccessController.doPrivileged;
+
+/**
+ * Describes the transaction related members of an event listener class: the methods annotated with {@link
+ * BeforeTransaction} and {@link AfterTransaction}, and the field annotated with {@link TransactionManager}. These
+ * members are resolved once per class, so that invoking a transaction callback does not require the class to be
+ * scanned.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+final class TransactionCallbacks {
+
+    private static final ClassValueCache<TransactionCallbacks> CALLBACKS = new ClassValueCache<TransactionCallbacks>() {
+        @Override
+        protected TransactionCallbacks computeValue(Class<?> type) {
+            return new TransactionCallbacks(type);
+        }
+    };
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private final Class<?> targetType;
+    private final boolean hasTransactionMethods;
+    private final CallbackMethod beforeTransaction;
+    private final CallbackMethod afterTransaction;
+    private final Field transactionManagerField;
+
+    private TransactionCallbacks(Class<?> targetType) {
+        this.targetType = targetType;
+        boolean found = false;
+        for (Method method : ReflectionUtils.methodsOf(targetType)) {
+            if (method.isAnnotationPresent(BeforeTransaction.class)
+                    || method.isAnnotationPresent(AfterTransaction.class)) {
+                found = true;
+            }
+        }
+        this.hasTransactionMethods = found;
+        this.beforeTransaction = findCallbackMethod(targetType, BeforeTransaction.class);
+        this.afterTransaction = findCallbackMethod(targetType, AfterTransaction.class);
+        Field managerField = null;
+        for (Field field : ReflectionUtils.fieldsOf(targetType)) {
+            if (field.isAnnotationPresent(TransactionManager.class)) {
+                managerField = field;
+            }
+        }
+        if (managerField != null) {
+            doPrivileged(new FieldAccessibilityCallback(managerField));
+        }
+        this.transactionManagerField = managerField;
+    }
+
+    /**
+     * Returns the transaction callbacks declared by the given <code>targetType</code>. The type is only inspected the
+     * first time this method is invoked for it.
+     *
+     * @param targetType The type declaring the transaction callbacks
+     * @return the transaction callbacks of the given type
+     */
+    public static TransactionCallbacks forType(Class<?> targetType) {
+        return CALLBACKS.get(targetType);
+    }
+
+    /**
+     * Indicates whether the target type declares any method annotated with {@link BeforeTransaction} or {@link
+     * AfterTransaction}.
+     *
+     * @return <code>true</code> if the target type has transaction methods, otherwise <code>false</code>
+     */
+    public boolean hasTransactionMethods() {
+        return hasTransactionMethods;
+    }
+
+    /**
+     * Returns the field annotated with {@link TransactionManager}, if any. The returned field is accessible.
+     *
+     * @return the field containing the transaction manager, or <code>null</code> if no such field exists
+     */
+    public Field getTransactionManagerField() {
+        return transactionManagerField;
+    }
+
+    /**
+     * Invokes the {@link BeforeTransaction} method on the given <code>target</code>, if one is declared.
+     *
+     * @param target            The instance to invoke the method on
+     * @param transactionStatus The status of the transaction to pass as parameter to the method call
+     */
+    public void invokeBeforeTransaction(Object target, TransactionStatus transactionStatus) {
+        if (beforeTransaction != null) {
+            beforeTransaction.invoke(target, transactionStatus);
+        }
+    }
+
+    /**
+     * Invokes the {@link AfterTransaction} method on the given <code>target</code>, if one is declared.
+     *
+     * @param target            The instance to invoke the method on
+     * @param transactionStatus The status of the transaction to pass as parameter to the method call
+     */
+    public void invokeAfterTransaction(Object target, TransactionStatus transactionStatus) {
+        if (afterTransaction != null) {
+            afterTransaction.invoke(target, transactionStatus);
+        }
+    }
+
+    private CallbackMethod findCallbackMethod(Class<?> type, Class<? extends Annotation> annotation) {
+        for (Method m : ReflectionUtils.methodsOf(type)) {
+            if (m.isAnnotationPresent(annotation)
+                    && (m.getParameterTypes().length == 0
+                    || m.getParameterTypes()[0].equals(TransactionStatus.class))) {
+                return new CallbackMethod(m);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A transaction callback method, invoked using a generated invoker when possible.
+     */
+    private final class CallbackMethod {
+
+        private final Method method;
+        private final boolean statusParameter;
+        private final FastMethod fastMethod;
+
+        private CallbackMethod(Method method) {
+            this.method = method;
+            this.statusParameter = method.getParameterTypes().length == 1;
+            this.fastMethod = FastMethodUtils.createFastMethod(method);
+            if (fastMethod == null && !method.isAccessible()) {
+                doPrivileged(new MethodAccessibilityCallback(method));
+            }
+        }
+
+        private void invoke(Object target, TransactionStatus transactionStatus) {
+            Object[] parameters = statusParameter ? new Object[]{transactionStatus} : NO_PARAMETERS;
+            try {
+                if (fastMethod != null) {
+                    fastMethod.invoke(target, parameters);
+                } else {
+                    method.invoke(target, parameters);
+                }
+            } catch (InvocationTargetException e) {
+                throw new TransactionMethodExecutionException(String.format(
+                        "An error occurred while invoking [%s] on [%s].",
+                        method.getName(),
+                        targetType.getSimpleName()), e);
+            } catch (IllegalAccessException e) {
+                throw new AxonConfigurationException("Should be Illegal to access this method", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.eventhandling.EventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Abstract implementation of the DeadLetterStore that implements replaying of dead letters. Implementations are
+ * expected to synchronize modifying operations on the store instance, which ensures that no events are stored for a
+ * sequence while it is being replayed.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public abstract class AbstractDeadLetterStore implements DeadLetterStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractDeadLetterStore.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int replay(EventListener eventListener) {
+        int replayed = 0;
+        for (String sequenceIdentifier : sequenceIdentifiers()) {
+            List<DeadLetter> deadLetters = deadLettersFor(sequenceIdentifier);
+            int handled = 0;
+            for (DeadLetter deadLetter : deadLetters) {
+                try {
+                    eventListener.handle(deadLetter.getEvent());
+                    handled++;
+                } catch (RuntimeException e) {
+                    logger.warn(String.format("Replay of sequence [%s] failed. %s events remain in the store.",
+                                              sequenceIdentifier,
+                                              deadLetters.size() - handled), e);
+                    break;
+                }
+            }
+            removeFirst(sequenceIdentifier, handled);
+            replayed += handled;
+        }
+        return replayed;
+    }
+
+    /**
+     * Returns the identifiers of all sequences that contain dead letters. The returned set is a copy, which is not
+     * affected by subsequent modifications of the store.
+     *
+     * @return the identifiers of the sequences containing dead letters
+     */
+    protected abstract Set<String> sequenceIdentifiers();
+
+    /**
+     * Removes the first <code>count</code> dead letters from the sequence with given <code>sequenceIdentifier</code>.
+     *
+     * @param sequenceIdentifier The identifier of the sequence
+     * @param count              The number of dead letters to remove
+     */
+    protected abstract void removeFirst(String sequenceIdentifier, int count);
+}
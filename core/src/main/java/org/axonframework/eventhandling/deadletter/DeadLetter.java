@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.Event;
+import org.joda.time.DateTime;
+
+import java.io.Serializable;
+
+/**
+ * An event that could not be processed, together with a description of the cause of the failure.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class DeadLetter implements Serializable {
+
+    private static final long serialVersionUID = -6385743157418325418L;
+
+    private final String sequenceIdentifier;
+    private final Event event;
+    private final String cause;
+    private final DateTime storedAt;
+
+    /**
+     * Initializes a DeadLetter for the given <code>event</code>.
+     *
+     * @param sequenceIdentifier The identifier of the sequence the event belongs to
+     * @param event              The event that could not be processed
+     * @param cause              The exception that caused processing to fail, or <code>null</code> if the event was
+     *                           stored because an earlier event of the same sequence was stored
+     */
+    public DeadLetter(String sequenceIdentifier, Event event, Throwable cause) {
+        this(sequenceIdentifier, event, describe(cause), new DateTime());
+    }
+
+    /**
+     * Initializes a DeadLetter using previously stored values.
+     *
+     * @param sequenceIdentifier The identifier of the sequence the event belongs to
+     * @param event              The event that could not be processed
+     * @param cause              The description of the cause of the failure
+     * @param storedAt           The time at which the event was stored
+     */
+    public DeadLetter(String sequenceIdentifier, Event event, String cause, DateTime storedAt) {
+        this.sequenceIdentifier = sequenceIdentifier;
+        this.event = event;
+        this.cause = cause;
+        this.storedAt = storedAt;
+    }
+
+    private static String describe(Throwable cause) {
+        if (cause == null) {
+            return "An earlier event in the same sequence could not be processed";
+        }
+        return cause.getClass().getName() + ": " + cause.getMessage();
+    }
+
+    /**
+     * Returns the identifier of the sequence the event belongs to.
+     *
+     * @return the identifier of the sequence the event belongs to
+     */
+    public String getSequenceIdentifier() {
+        return sequenceIdentifier;
+    }
+
+    /**
+     * Returns the event that could not be processed.
+     *
+     * @return the event that could not be processed
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns a description of the cause of the failure.
+     *
+     * @return a description of the cause of the failure
+     */
+    public String getCause() {
+        return cause;
+    }
+
+    /**
+     * Returns the time at which the event was stored.
+     *
+     * @return the time at which the event was stored
+     */
+    public DateTime getStoredAt() {
+        return storedAt;
+    }
+}
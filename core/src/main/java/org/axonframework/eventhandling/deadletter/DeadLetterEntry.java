@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.Event;
+import org.axonframework.util.SerializationException;
+import org.joda.time.DateTime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import javax.persistence.Basic;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+
+/**
+ * Java Persistence Entity allowing dead letters to be stored in a relational database. The event is serialized using
+ * Java serialization.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+@Entity
+public class DeadLetterEntry {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+    @Basic
+    private String sequenceIdentifier;
+    @Basic
+    private String timeStamp;
+    @Lob
+    private String cause;
+    @Lob
+    private byte[] serializedEvent;
+
+    /**
+     * Constructs a new DeadLetterEntry for the given <code>deadLetter</code>.
+     *
+     * @param deadLetter The dead letter to store
+     */
+    public DeadLetterEntry(DeadLetter deadLetter) {
+        this.sequenceIdentifier = deadLetter.getSequenceIdentifier();
+        this.timeStamp = deadLetter.getStoredAt().toString();
+        this.cause = deadLetter.getCause();
+        this.serializedEvent = serialize(deadLetter.getEvent());
+    }
+
+    /**
+     * Constructor required by JPA. Do not use.
+     *
+     * @see #DeadLetterEntry(DeadLetter)
+     */
+    protected DeadLetterEntry() {
+        // required by JPA
+    }
+
+    /**
+     * Returns the dead letter stored in this entry.
+     *
+     * @return the dead letter stored in this entry
+     */
+    public DeadLetter getDeadLetter() {
+        return new DeadLetter(sequenceIdentifier, deserialize(serializedEvent), cause, new DateTime(timeStamp));
+    }
+
+    /**
+     * Returns the identifier of the sequence the dead letter belongs to.
+     *
+     * @return the identifier of the sequence the dead letter belongs to
+     */
+    public String getSequenceIdentifier() {
+        return sequenceIdentifier;
+    }
+
+    private static byte[] serialize(Event event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(event);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to serialize event for the dead letter store", e);
+        }
+    }
+
+    private static Event deserialize(byte[] serializedEvent) {
+        try {
+            return (Event) new ObjectInputStream(new ByteArrayInputStream(serializedEvent)).readObject();
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize event from the dead letter store", e);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Unable to deserialize event from the dead letter store", e);
+        }
+    }
+}
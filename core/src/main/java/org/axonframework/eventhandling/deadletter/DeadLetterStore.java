@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.EventListener;
+
+import java.util.List;
+
+/**
+ * Interface describing a store for events that could not be processed by an event listener, even after retrying.
+ * Events are stored per sequence identifier, in the order they are stored. While a sequence contains dead letters, new
+ * events with that sequence identifier should be stored as well, to preserve the order in which events of a sequence
+ * are processed.
+ * <p/>
+ * Once the cause of the failure has been resolved, the events can be replayed using {@link #replay(EventListener)}.
+ *
+ * @author Allard Buijze
+ * @see org.axonframework.eventhandling.AsynchronousEventHandlerWrapper#setDeadLetterStore(DeadLetterStore)
+ * @since 1.0
+ */
+public interface DeadLetterStore {
+
+    /**
+     * Stores the given <code>event</code> at the end of the sequence with given <code>sequenceIdentifier</code>.
+     *
+     * @param sequenceIdentifier The identifier of the sequence the event belongs to
+     * @param event              The event that could not be processed
+     * @param cause              The exception that caused processing to fail. May be <code>null</code> if the event
+     *                           is stored because an earlier event of the same sequence is stored.
+     */
+    void store(String sequenceIdentifier, Event event, Throwable cause);
+
+    /**
+     * Indicates whether the sequence with given <code>sequenceIdentifier</code> contains any dead letters.
+     *
+     * @param sequenceIdentifier The identifier of the sequence
+     * @return <code>true</code> if the sequence contains dead letters, otherwise <code>false</code>
+     */
+    boolean contains(String sequenceIdentifier);
+
+    /**
+     * Returns the dead letters of the sequence with given <code>sequenceIdentifier</code>, in the order they were
+     * stored. Returns an empty list if the sequence contains no dead letters.
+     *
+     * @param sequenceIdentifier The identifier of the sequence
+     * @return the dead letters of the sequence
+     */
+    List<DeadLetter> deadLettersFor(String sequenceIdentifier);
+
+    /**
+     * Returns the total number of dead letters in this store.
+     *
+     * @return the number of dead letters in this store
+     */
+    int size();
+
+    /**
+     * Passes all dead letters to the given <code>eventListener</code>, in the order they were stored in each
+     * sequence. Each dead letter is removed as soon as the listener has processed it. When the listener fails to
+     * process an event, the remaining events of that sequence stay in the store, and replay continues with the next
+     * sequence.
+     *
+     * @param eventListener The listener to pass the events to
+     * @return the number of events that have been processed successfully
+     */
+    int replay(EventListener eventListener);
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.apache.commons.io.IOUtils;
+import org.axonframework.domain.Event;
+import org.axonframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DeadLetterStore implementation that stores dead letters in files on the file system. Each sequence is stored in a
+ * separate file in the base directory, containing the serialized dead letters in the order they were stored. Events
+ * are serialized using Java serialization.
+ * <p/>
+ * The number of dead letters per sequence is kept in memory, and is read from the base directory when this store is
+ * created. Only a single instance should use a base directory at any time.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class FileSystemDeadLetterStore extends AbstractDeadLetterStore {
+
+    private static final String FILE_EXTENSION = ".dlq";
+    private static final String ENCODING = "UTF-8";
+
+    private final File baseDir;
+    private final Map<String, Integer> sequenceSizes = new HashMap<String, Integer>();
+
+    /**
+     * Initializes a FileSystemDeadLetterStore that stores dead letters in the given <code>baseDir</code>. The
+     * directory is created if it does not exist.
+     *
+     * @param baseDir The directory to store dead letters in
+     */
+    public FileSystemDeadLetterStore(File baseDir) {
+        Assert.isTrue(baseDir.isDirectory() || baseDir.mkdirs(), "The base directory could not be created");
+        this.baseDir = baseDir;
+        File[] files = baseDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.endsWith(FILE_EXTENSION)) {
+                    String sequenceIdentifier = decode(fileName.substring(0, fileName.length()
+                            - FILE_EXTENSION.length()));
+                    sequenceSizes.put(sequenceIdentifier, readFile(file).size());
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void store(String sequenceIdentifier, Event event, Throwable cause) {
+        DeadLetter deadLetter = new DeadLetter(sequenceIdentifier, event, cause);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(fileFor(sequenceIdentifier), true)));
+            writeDeadLetter(out, deadLetter);
+            out.flush();
+        } catch (IOException e) {
+            throw new DeadLetterStoreException("Unable to store event in the dead letter store", e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        Integer size = sequenceSizes.get(sequenceIdentifier);
+        sequenceSizes.put(sequenceIdentifier, size == null ? 1 : size + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean contains(String sequenceIdentifier) {
+        return sequenceSizes.containsKey(sequenceIdentifier);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<DeadLetter> deadLettersFor(String sequenceIdentifier) {
+        if (!sequenceSizes.containsKey(sequenceIdentifier)) {
+            return Collections.emptyList();
+        }
+        return readFile(fileFor(sequenceIdentifier));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int size() {
+        int size = 0;
+        for (Integer sequenceSize : sequenceSizes.values()) {
+            size += sequenceSize;
+        }
+        return size;
+    }
+
+    @Override
+    protected synchronized Set<String> sequenceIdentifiers() {
+        return new HashSet<String>(sequenceSizes.keySet());
+    }
+
+    @Override
+    protected synchronized void removeFirst(String sequenceIdentifier, int count) {
+        if (count <= 0) {
+            return;
+        }
+        File file = fileFor(sequenceIdentifier);
+        List<DeadLetter> deadLetters = readFile(file);
+        List<DeadLetter> remaining = new ArrayList<DeadLetter>(
+                deadLetters.subList(Math.min(count, deadLetters.size()), deadLetters.size()));
+        if (remaining.isEmpty()) {
+            if (!file.delete()) {
+                throw new DeadLetterStoreException("Unable to delete file: " + file.getAbsolutePath());
+            }
+            sequenceSizes.remove(sequenceIdentifier);
+            return;
+        }
+        File tempFile = new File(baseDir, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            for (DeadLetter deadLetter : remaining) {
+                writeDeadLetter(out, deadLetter);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new DeadLetterStoreException("Unable to remove events from the dead letter store", e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        if (!file.delete() || !tempFile.renameTo(file)) {
+            throw new DeadLetterStoreException("Unable to replace file: " + file.getAbsolutePath());
+        }
+        sequenceSizes.put(sequenceIdentifier, remaining.size());
+    }
+
+    private void writeDeadLetter(DataOutputStream out, DeadLetter deadLetter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(deadLetter);
+        objectOut.close();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private List<DeadLetter> readFile(File file) {
+        List<DeadLetter> deadLetters = new ArrayList<DeadLetter>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                deadLetters.add((DeadLetter) new ObjectInputStream(new ByteArrayInputStream(data)).readObject());
+            }
+        } catch (IOException e) {
+            throw new DeadLetterStoreException("Unable to read file: " + file.getAbsolutePath(), e);
+        } catch (ClassNotFoundException e) {
+            throw new DeadLetterStoreException("Unable to deserialize events in file: " + file.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return deadLetters;
+    }
+
+    private File fileFor(String sequenceIdentifier) {
+        try {
+            return new File(baseDir, URLEncoder.encode(sequenceIdentifier, ENCODING) + FILE_EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("The system does not support " + ENCODING, e);
+        }
+    }
+
+    private String decode(String fileName) {
+        try {
+            return URLDecoder.decode(fileName, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("The system does not support " + ENCODING, e);
+        }
+    }
+}
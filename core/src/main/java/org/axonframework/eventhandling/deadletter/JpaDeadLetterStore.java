@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * JPA implementation of the DeadLetterStore. It uses an {@link EntityManager} to persist dead letters in a backing
+ * store. The backing store is the only source of truth: the identifiers of sequences that may contain dead letters
+ * are kept in memory only to avoid queries for sequences that are known to be empty. They are loaded by {@link
+ * #initialize()}.
+ * <p/>
+ * Modifications are executed in the transaction of the calling thread. After each modification, {@link
+ * javax.persistence.EntityManager#flush()} is invoked to ensure the store contains the last modifications. See {@link
+ * #setUseExplicitFlush(boolean)}. When that transaction is rolled back, the modification is undone without leaving
+ * stale state in this store.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class JpaDeadLetterStore extends AbstractDeadLetterStore {
+
+    private EntityManager entityManager;
+    // may contain sequences without dead letters (e.g. after a rollback), but never misses a sequence that has them
+    private final Set<String> candidateSequences = new HashSet<String>();
+    private volatile boolean useExplicitFlush = true;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void store(String sequenceIdentifier, Event event, Throwable cause) {
+        candidateSequences.add(sequenceIdentifier);
+        entityManager.persist(new DeadLetterEntry(new DeadLetter(sequenceIdentifier, event, cause)));
+        if (useExplicitFlush) {
+            entityManager.flush();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean contains(String sequenceIdentifier) {
+        if (!candidateSequences.contains(sequenceIdentifier)) {
+            return false;
+        }
+        Number count = (Number) entityManager.createQuery("SELECT COUNT(e) FROM DeadLetterEntry e "
+                                                                  + "WHERE e.sequenceIdentifier = :sequenceIdentifier")
+                                             .setParameter("sequenceIdentifier", sequenceIdentifier)
+                                             .getSingleResult();
+        if (count.intValue() == 0) {
+            candidateSequences.remove(sequenceIdentifier);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<DeadLetter> deadLettersFor(String sequenceIdentifier) {
+        if (!candidateSequences.contains(sequenceIdentifier)) {
+            return Collections.emptyList();
+        }
+        List<DeadLetter> deadLetters = new ArrayList<DeadLetter>();
+        for (DeadLetterEntry entry : loadEntries(sequenceIdentifier)) {
+            deadLetters.add(entry.getDeadLetter());
+        }
+        return deadLetters;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int size() {
+        Number count = (Number) entityManager.createQuery("SELECT COUNT(e) FROM DeadLetterEntry e")
+                                             .getSingleResult();
+        return count.intValue();
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    protected synchronized Set<String> sequenceIdentifiers() {
+        return new HashSet<String>(entityManager.createQuery(
+                "SELECT DISTINCT e.sequenceIdentifier FROM DeadLetterEntry e").getResultList());
+    }
+
+    @Override
+    protected synchronized void removeFirst(String sequenceIdentifier, int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<DeadLetterEntry> entries = loadEntries(sequenceIdentifier);
+        int removed = Math.min(count, entries.size());
+        for (DeadLetterEntry entry : entries.subList(0, removed)) {
+            entityManager.remove(entry);
+        }
+        if (useExplicitFlush) {
+            entityManager.flush();
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private List<DeadLetterEntry> loadEntries(String sequenceIdentifier) {
+        return entityManager.createQuery("SELECT e FROM DeadLetterEntry e "
+                                                 + "WHERE e.sequenceIdentifier = :sequenceIdentifier "
+                                                 + "ORDER BY e.id ASC")
+                            .setParameter("sequenceIdentifier", sequenceIdentifier)
+                            .getResultList();
+    }
+
+    /**
+     * Initializes the store by loading the identifiers of the sequences that have dead letters in the backing store.
+     * Failure to initialize properly might result in events being processed while earlier events of the same sequence
+     * are still in the store.
+     */
+    @SuppressWarnings({"unchecked"})
+    @PostConstruct
+    public synchronized void initialize() {
+        List<String> sequenceIdentifiers = entityManager.createQuery(
+                "SELECT DISTINCT e.sequenceIdentifier FROM DeadLetterEntry e").getResultList();
+        candidateSequences.clear();
+        candidateSequences.addAll(sequenceIdentifiers);
+    }
+
+    /**
+     * Sets the EntityManager that takes care of the actual storage of the dead letters.
+     *
+     * @param entityManager the EntityManager that takes care of the actual storage of the dead letters
+     */
+    @PersistenceContext
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Sets whether or not to do an explicit {@link javax.persistence.EntityManager#flush()} after each data modifying
+     * operation on the backing storage. Default to <code>true</code>
+     *
+     * @param useExplicitFlush <code>true</code> to force flush, <code>false</code> otherwise.
+     */
+    public void setUseExplicitFlush(boolean useExplicitFlush) {
+        this.useExplicitFlush = useExplicitFlush;
+    }
+}
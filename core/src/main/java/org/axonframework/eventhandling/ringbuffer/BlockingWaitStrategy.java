@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * WaitStrategy that blocks consumers until events are published. This strategy uses the least amount of CPU, at the
+ * cost of a higher latency, since publishers need to signal waiting consumers.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition eventsPublished = lock.newCondition();
+    private volatile int waitingConsumers;
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, SequenceBarrier barrier) throws InterruptedException {
+        long available = cursor.get();
+        if (available < sequence) {
+            lock.lock();
+            try {
+                waitingConsumers++;
+                while ((available = cursor.get()) < sequence && !barrier.isAlerted()) {
+                    eventsPublished.await();
+                }
+            } finally {
+                waitingConsumers--;
+                lock.unlock();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        if (waitingConsumers != 0) {
+            lock.lock();
+            try {
+                eventsPublished.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
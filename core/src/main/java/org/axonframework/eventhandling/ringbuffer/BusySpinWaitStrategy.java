@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WaitStrategy that keeps checking for published events in a tight loop. This strategy offers the lowest latency, but
+ * occupies an entire CPU for each consumer. It should only be used when there are more processors available than
+ * consumers.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, SequenceBarrier barrier) throws InterruptedException {
+        long available;
+        while ((available = cursor.get()) < sequence && !barrier.isAlerted()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
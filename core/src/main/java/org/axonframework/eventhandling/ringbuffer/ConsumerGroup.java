@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A group of event listeners that process the events published on a {@link RingBufferEventBus} using a fixed number
+ * of consumers. Each consumer reads all events from the ring buffer, in the order they were published, but only
+ * processes the events assigned to it. Events are assigned to consumers based on the sequence identifier provided by
+ * the group's {@link SequencingPolicy}: events with the same sequence identifier are always processed by the same
+ * consumer, one after the other. Events without a sequence identifier are distributed over all consumers.
+ * <p/>
+ * Each consumer invokes all listeners of the group for the events assigned to it. Exceptions thrown by listeners are
+ * logged, and do not prevent other listeners from receiving the event.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class ConsumerGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerGroup.class);
+
+    private final String name;
+    private final SequencingPolicy<? super Event> sequencingPolicy;
+    private final Set<EventListener> listeners = new CopyOnWriteArraySet<EventListener>();
+    private final Consumer[] consumers;
+
+    /**
+     * Initializes a consumer group with the given <code>name</code>, using the given number of consumers.
+     *
+     * @param name             The name of the group
+     * @param consumerCount    The number of consumers (and threads) processing the events
+     * @param sequencingPolicy The policy that defines which events must be processed sequentially
+     */
+    ConsumerGroup(String name, int consumerCount, SequencingPolicy<? super Event> sequencingPolicy) {
+        this.name = name;
+        this.sequencingPolicy = sequencingPolicy;
+        this.consumers = new Consumer[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            consumers[i] = new Consumer(i);
+        }
+    }
+
+    /**
+     * Subscribes the given <code>eventListener</code> to this group.
+     *
+     * @param eventListener The listener to subscribe
+     */
+    public void subscribe(EventListener eventListener) {
+        listeners.add(eventListener);
+    }
+
+    /**
+     * Unsubscribes the given <code>eventListener</code> from this group.
+     *
+     * @param eventListener The listener to unsubscribe
+     * @return <code>true</code> if the listener was subscribed to this group, otherwise <code>false</code>
+     */
+    public boolean unsubscribe(EventListener eventListener) {
+        return listeners.remove(eventListener);
+    }
+
+    /**
+     * Returns the name of this group.
+     *
+     * @return the name of this group
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the sequence of the last event that has been processed by all consumers of this group.
+     *
+     * @return the sequence of the last event processed by this group
+     */
+    public long getSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Returns the sequences that represent the progress of each of the consumers of this group.
+     *
+     * @return the sequences of the consumers of this group
+     */
+    AtomicLong[] getConsumerSequences() {
+        AtomicLong[] sequences = new AtomicLong[consumers.length];
+        for (int i = 0; i < consumers.length; i++) {
+            sequences[i] = consumers[i].sequence;
+        }
+        return sequences;
+    }
+
+    /**
+     * Starts the consumers of this group. Consumers start reading at the event following the given
+     * <code>cursor</code>.
+     *
+     * @param ringBuffer       The event bus to read events from
+     * @param cursor           The sequence of the last event published before the consumers start
+     * @param consumersStopped The latch to count down when a consumer stops
+     */
+    void start(RingBufferEventBus ringBuffer, long cursor, CountDownLatch consumersStopped) {
+        for (Consumer consumer : consumers) {
+            consumer.sequence.set(cursor);
+            ringBuffer.execute(consumer.newTask(ringBuffer, consumersStopped));
+        }
+    }
+
+    int getConsumerCount() {
+        return consumers.length;
+    }
+
+    private boolean isAssignedTo(int consumer, Event event, long sequence) {
+        if (consumers.length == 1) {
+            return true;
+        }
+        Object sequenceIdentifier = sequencingPolicy.getSequenceIdentifierFor(event);
+        if (sequenceIdentifier == null) {
+            return sequence % consumers.length == consumer;
+        }
+        return (sequenceIdentifier.hashCode() & Integer.MAX_VALUE) % consumers.length == consumer;
+    }
+
+    private void dispatch(Event event) {
+        for (EventListener listener : listeners) {
+            try {
+                listener.handle(event);
+            } catch (RuntimeException e) {
+                logger.error(String.format("EventListener [%s] in consumer group [%s] failed to handle event [%s]",
+                                           listener.getClass().getSimpleName(),
+                                           name,
+                                           event.getClass().getSimpleName()), e);
+            }
+        }
+    }
+
+    /**
+     * A single consumer of the group. Keeps track of the sequence of the last event it has processed.
+     */
+    private final class Consumer {
+
+        private final int index;
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private Consumer(int index) {
+            this.index = index;
+        }
+
+        private Runnable newTask(final RingBufferEventBus ringBuffer, final CountDownLatch consumersStopped) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        processEvents(ringBuffer);
+                    } finally {
+                        consumersStopped.countDown();
+                    }
+                }
+            };
+        }
+
+        private void processEvents(RingBufferEventBus ringBuffer) {
+            SequenceBarrier barrier = ringBuffer.getBarrier();
+            long next = sequence.get() + 1;
+            try {
+                while (!barrier.isAlerted() || next <= ringBuffer.getCursor()) {
+                    long available = barrier.waitFor(next);
+                    while (next <= available) {
+                        Event event = ringBuffer.eventAt(next);
+                        if (isAssignedTo(index, event, next)) {
+                            dispatch(event);
+                        }
+                        sequence.lazySet(next);
+                        next++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Consumer {} of group [{}] was interrupted. It stops processing events.", index, name);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
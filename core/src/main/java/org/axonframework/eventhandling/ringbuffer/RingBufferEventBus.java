@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import org.axonframework.domain.Event;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.axonframework.eventhandling.SequentialPolicy;
+import org.axonframework.util.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * EventBus implementation that publishes events on a preallocated ring buffer, from which they are processed
+ * asynchronously by one or more {@link ConsumerGroup consumer groups}. Publishing an event does not allocate any
+ * objects: the publisher claims the next sequence, stores the event in the corresponding slot and advances the
+ * cursor.
+ * <p/>
+ * Each consumer group reads all events in the order they were published. When a group uses more than one consumer,
+ * its {@link SequencingPolicy} defines which events must be handled sequentially. Listeners subscribed using {@link
+ * #subscribe(org.axonframework.eventhandling.EventListener)} are part of the default group, which uses a single
+ * consumer. Additional groups must be created using {@link #createConsumerGroup(String, int, SequencingPolicy)} before
+ * the event bus is started.
+ * <p/>
+ * A slot in the ring buffer is only reused when all consumers have processed the event in it. When the ring buffer is
+ * full, {@link #publish(org.axonframework.domain.Event)} waits until capacity becomes available. Use {@link
+ * #tryPublish(org.axonframework.domain.Event)} or {@link #getRemainingCapacity()} to avoid blocking the publishing
+ * thread. Listeners that publish events on the bus they are subscribed to are never made to wait, as they would wait for
+ * themselves. When the buffer is full, their events are rejected instead.
+ * <p/>
+ * Processed events are not removed from the ring buffer. Each slot keeps a reference to the last event stored in it
+ * until it is reused, so up to <code>bufferSize</code> events remain reachable while the bus is running. The buffer is
+ * cleared when the bus is stopped.
+ * <p/>
+ * The consumers run on the executor provided in the constructor. That executor must be able to run all consumers
+ * concurrently, as each consumer occupies a thread for as long as the event bus is running. The way consumers wait
+ * for new events is defined by the {@link WaitStrategy}.
+ * <p/>
+ * The event bus must be started using {@link #start()} before events can be published. When running in a Spring
+ * context, this is done automatically.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class RingBufferEventBus implements EventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferEventBus.class);
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final Event[] entries;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong(-1);
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final WaitStrategy waitStrategy;
+    private final SequenceBarrier barrier;
+    private final Executor executor;
+    private final List<ConsumerGroup> consumerGroups = new CopyOnWriteArrayList<ConsumerGroup>();
+    private final ConsumerGroup defaultGroup;
+    // marks the threads that are running consumers of this instance
+    private final ThreadLocal<Boolean> consumerThread = new ThreadLocal<Boolean>();
+    private volatile AtomicLong[] gatingSequences = new AtomicLong[0];
+    private volatile long cachedGatingSequence = -1;
+    private volatile boolean started;
+    private volatile boolean stopped;
+    private volatile CountDownLatch consumersStopped;
+
+    /**
+     * Initializes a RingBufferEventBus with a buffer of 1024 events, using a {@link BlockingWaitStrategy}. Consumers
+     * run on the given <code>executor</code>.
+     *
+     * @param executor The executor that runs the consumers
+     */
+    public RingBufferEventBus(Executor executor) {
+        this(executor, DEFAULT_BUFFER_SIZE, new BlockingWaitStrategy());
+    }
+
+    /**
+     * Initializes a RingBufferEventBus with a buffer of the given <code>bufferSize</code>, using the given
+     * <code>waitStrategy</code>. Consumers run on the given <code>executor</code>.
+     *
+     * @param executor     The executor that runs the consumers
+     * @param bufferSize   The number of events the buffer can hold. Must be a power of 2.
+     * @param waitStrategy The strategy consumers use to wait for events
+     */
+    public RingBufferEventBus(Executor executor, int bufferSize, WaitStrategy waitStrategy) {
+        Assert.isTrue(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "The buffer size must be a power of 2");
+        this.executor = executor;
+        this.entries = new Event[bufferSize];
+        this.mask = bufferSize - 1;
+        this.waitStrategy = waitStrategy;
+        this.barrier = new SequenceBarrier(cursor, waitStrategy);
+        this.defaultGroup = createConsumerGroup("default", 1, new SequentialPolicy());
+    }
+
+    /**
+     * Creates a new consumer group, which processes the events on this bus using the given number of consumers. The
+     * group must be created before the event bus is started.
+     *
+     * @param name             The name of the group, used for logging
+     * @param consumerCount    The number of consumers processing events for this group
+     * @param sequencingPolicy The policy defining which events must be processed sequentially
+     * @return the consumer group, to which listeners can be subscribed
+     */
+    public ConsumerGroup createConsumerGroup(String name, int consumerCount,
+                                             SequencingPolicy<? super Event> sequencingPolicy) {
+        Assert.state(!started, "Consumer groups must be created before the event bus is started");
+        Assert.isTrue(consumerCount > 0, "A consumer group needs at least one consumer");
+        ConsumerGroup group = new ConsumerGroup(name, consumerCount, sequencingPolicy);
+        consumerGroups.add(group);
+        return group;
+    }
+
+    /**
+     * Starts the consumers of all consumer groups. Events published before the bus is started are rejected.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        List<AtomicLong> sequences = new ArrayList<AtomicLong>();
+        int consumerCount = 0;
+        for (ConsumerGroup group : consumerGroups) {
+            consumerCount += group.getConsumerCount();
+        }
+        consumersStopped = new CountDownLatch(consumerCount);
+        long startSequence = cursor.get();
+        for (ConsumerGroup group : consumerGroups) {
+            group.start(this, startSequence, consumersStopped);
+            for (AtomicLong sequence : group.getConsumerSequences()) {
+                sequences.add(sequence);
+            }
+        }
+        gatingSequences = sequences.toArray(new AtomicLong[sequences.size()]);
+        started = true;
+        logger.info("RingBufferEventBus started with {} consumer groups", consumerGroups.size());
+    }
+
+    /**
+     * Stops the event bus. Events that have already been published are processed before the consumers stop. This
+     * method waits until all consumers have stopped. Publishers waiting for capacity are released with an exception.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the consumers to stop
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        if (started) {
+            barrier.alert();
+            consumersStopped.await();
+            Arrays.fill(entries, null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * If the ring buffer is full, this method waits until the slowest consumer has processed the event in the next
+     * slot. When called by a consumer of this bus, the event is rejected instead, as that consumer would be waiting for
+     * itself.
+     *
+     * @throws IllegalStateException if the event bus has not been started, has been stopped (also while waiting for
+     *                               capacity), or if the ring buffer is full and the event is published by one of the
+     *                               consumers of this bus
+     */
+    @Override
+    public void publish(Event event) {
+        assertRunning();
+        if (consumerThread.get() != null) {
+            Assert.state(tryPublish(event), "The RingBufferEventBus is full. Events published by its own consumers "
+                    + "are rejected, as waiting for capacity would prevent the consumer from ever making progress.");
+            return;
+        }
+        long sequence = claimSequence.incrementAndGet();
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long minimumSequence;
+            while (wrapPoint > (minimumSequence = minimumGatingSequence())) {
+                // publishers of later sequences cannot get past this loop before this one does, so abandoning the
+                // claimed sequence does not block them
+                assertRunning();
+                LockSupport.parkNanos(1L);
+            }
+            cachedGatingSequence = minimumSequence;
+        }
+        entries[(int) (sequence & mask)] = event;
+        commit(sequence);
+    }
+
+    /**
+     * Publishes the given <code>event</code>, unless the ring buffer is full.
+     *
+     * @param event The event to publish
+     * @return <code>true</code> if the event was published, or <code>false</code> if the ring buffer is full
+     *
+     * @throws IllegalStateException if the event bus has not been started, or has been stopped
+     */
+    public boolean tryPublish(Event event) {
+        assertRunning();
+        long current;
+        long sequence;
+        do {
+            current = claimSequence.get();
+            sequence = current + 1;
+            if (sequence - entries.length > minimumGatingSequence()) {
+                return false;
+            }
+        } while (!claimSequence.compareAndSet(current, sequence));
+        entries[(int) (sequence & mask)] = event;
+        commit(sequence);
+        return true;
+    }
+
+    /**
+     * Makes the event with given <code>sequence</code> available to consumers. Since publishers may claim sequences
+     * concurrently, the cursor is advanced in order of the claimed sequences.
+     */
+    private void commit(long sequence) {
+        long expected = sequence - 1;
+        while (cursor.get() != expected) {
+            Thread.yield();
+        }
+        cursor.set(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    private void assertRunning() {
+        Assert.state(started && !stopped, "The RingBufferEventBus is not running");
+    }
+
+    private long minimumGatingSequence() {
+        long minimum = cursor.get();
+        for (AtomicLong sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The listener is subscribed to the default consumer group.
+     */
+    @Override
+    public void subscribe(EventListener eventListener) {
+        defaultGroup.subscribe(eventListener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The listener is unsubscribed from all consumer groups.
+     */
+    @Override
+    public void unsubscribe(EventListener eventListener) {
+        for (ConsumerGroup group : consumerGroups) {
+            group.unsubscribe(eventListener);
+        }
+    }
+
+    /**
+     * Returns the number of events that can be published before publishers need to wait for consumers.
+     *
+     * @return the remaining capacity of the ring buffer
+     */
+    public long getRemainingCapacity() {
+        return entries.length - (claimSequence.get() - minimumGatingSequence());
+    }
+
+    /**
+     * Returns the sequence of the last event published on this bus.
+     *
+     * @return the sequence of the last published event
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Returns the default consumer group, to which listeners are subscribed by {@link #subscribe(EventListener)}.
+     *
+     * @return the default consumer group
+     */
+    public ConsumerGroup getDefaultConsumerGroup() {
+        return defaultGroup;
+    }
+
+    SequenceBarrier getBarrier() {
+        return barrier;
+    }
+
+    Event eventAt(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+    void execute(final Runnable consumer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                consumerThread.set(Boolean.TRUE);
+                try {
+                    consumer.run();
+                } finally {
+                    consumerThread.remove();
+                }
+            }
+        });
+    }
+}
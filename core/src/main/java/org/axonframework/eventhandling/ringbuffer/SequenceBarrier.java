@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Barrier that consumers of the {@link RingBufferEventBus} use to wait for published events. The barrier can be
+ * alerted, which causes waiting consumers to return, for example when the event bus is stopped.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public final class SequenceBarrier {
+
+    private final AtomicLong cursor;
+    private final WaitStrategy waitStrategy;
+    private volatile boolean alerted;
+
+    /**
+     * Initializes a barrier that waits for the given <code>cursor</code> using the given <code>waitStrategy</code>.
+     *
+     * @param cursor       The sequence of the last published event
+     * @param waitStrategy The strategy to wait with
+     */
+    SequenceBarrier(AtomicLong cursor, WaitStrategy waitStrategy) {
+        this.cursor = cursor;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Waits until the event with given <code>sequence</code> is available, or the barrier is alerted.
+     *
+     * @param sequence The sequence to wait for
+     * @return the sequence of the last published event
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    long waitFor(long sequence) throws InterruptedException {
+        long available = cursor.get();
+        if (available >= sequence) {
+            return available;
+        }
+        return waitStrategy.waitFor(sequence, cursor, this);
+    }
+
+    /**
+     * Indicates whether this barrier has been alerted. Wait strategies must return as soon as possible when the
+     * barrier they wait for is alerted.
+     *
+     * @return <code>true</code> if the barrier has been alerted, otherwise <code>false</code>
+     */
+    public boolean isAlerted() {
+        return alerted;
+    }
+
+    /**
+     * Alerts this barrier, causing all consumers waiting on it to return.
+     */
+    void alert() {
+        alerted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+}
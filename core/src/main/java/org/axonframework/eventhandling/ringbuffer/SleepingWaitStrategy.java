@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WaitStrategy that spins, then yields, and eventually parks the thread for a short period of time until events are
+ * published. This strategy uses little CPU while idle, without requiring publishers to signal consumers.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class SleepingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 200;
+    private static final int YIELD_TRIES = 100;
+    private static final long DEFAULT_SLEEP_NANOS = 100000L;
+
+    private final long sleepNanos;
+
+    /**
+     * Initializes the strategy to park the waiting thread for 100 microseconds at a time.
+     */
+    public SleepingWaitStrategy() {
+        this(DEFAULT_SLEEP_NANOS);
+    }
+
+    /**
+     * Initializes the strategy to park the waiting thread for the given number of <code>sleepNanos</code> at a time.
+     *
+     * @param sleepNanos The number of nanoseconds to park the thread for
+     */
+    public SleepingWaitStrategy(long sleepNanos) {
+        this.sleepNanos = sleepNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, SequenceBarrier barrier) throws InterruptedException {
+        int counter = SPIN_TRIES + YIELD_TRIES;
+        long available;
+        while ((available = cursor.get()) < sequence && !barrier.isAlerted()) {
+            if (counter > YIELD_TRIES) {
+                counter--;
+            } else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(sleepNanos);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
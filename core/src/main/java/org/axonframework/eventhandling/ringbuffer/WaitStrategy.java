@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Strategy describing how the consumers of a {@link RingBufferEventBus} wait for events to become available. The
+ * strategies differ in the latency between publication and processing of an event, and in the amount of CPU they use
+ * while there are no events to process.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until the event with the given <code>sequence</code> has been published, or the given
+     * <code>barrier</code> has been alerted. Returns the highest published sequence, which may be higher than the
+     * requested sequence. If the barrier was alerted, the returned sequence may be lower than the requested sequence.
+     *
+     * @param sequence The sequence of the event to wait for
+     * @param cursor   The sequence of the last published event
+     * @param barrier  The barrier on behalf of which the consumer is waiting
+     * @return the sequence of the last published event
+     *
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    long waitFor(long sequence, AtomicLong cursor, SequenceBarrier barrier) throws InterruptedException;
+
+    /**
+     * Notifies any consumers that are blocked waiting for events that the cursor has moved, or that the barrier has
+     * been alerted.
+     */
+    void signalAllWhenBlocking();
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WaitStrategy that spins for a while, and then yields the thread until events are published. This strategy offers a
+ * low latency without consuming an entire CPU while idle, provided that there are fewer consumers than available
+ * processors.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(long sequence, AtomicLong cursor, SequenceBarrier barrier) throws InterruptedException {
+        int counter = SPIN_TRIES;
+        long available;
+        while ((available = cursor.get()) < sequence && !barrier.isAlerted()) {
+            if (counter == 0) {
+                Thread.yield();
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else {
+                counter--;
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+    }
+}
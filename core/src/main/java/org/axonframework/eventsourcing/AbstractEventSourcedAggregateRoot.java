@@ -22,7 +22,6 @@ import org.axonframework.domain.AggregateIdentifier;
 import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.util.Assert;
-import org.axonframework.util.ReflectionUtils;
 
 import javax.persistence.MappedSuperclass;
 import java.util.Collection;
@@ -128,7 +127,7 @@ public abstract class AbstractEventSourcedAggregateRoot extends AbstractAggregat
      * Returns a list of event sourced entities directly referenced by the aggregate root.
      * <p/>
      * The default implementation uses reflection to find references to {@link AbstractEventSourcedEntity}
-     * implementations.
+     * implementations. The fields that could contain entities are resolved only once per class.
      * <p/>
      * It will look for entities: <ul><li> directly referenced in a field;<li> inside fields containing an {@link
      * Iterable};<li>inside both they keys and the values of fields containing a {@link java.util.Map}</ul>
@@ -142,7 +141,7 @@ public abstract class AbstractEventSourcedAggregateRoot extends AbstractAggregat
      * @return
      */
     protected Collection<AbstractEventSourcedEntity> getChildEntities() {
-        return ReflectionUtils.findFieldValuesOfType(this, AbstractEventSourcedEntity.class);
+        return ChildEntityAccessor.forType(getClass()).childEntitiesOf(this);
     }
 
     /**
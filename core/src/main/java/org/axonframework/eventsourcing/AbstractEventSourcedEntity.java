@@ -17,7 +17,6 @@
 package org.axonframework.eventsourcing;
 
 import org.axonframework.domain.DomainEvent;
-import org.axonframework.util.ReflectionUtils;
 
 import java.util.Collection;
 
@@ -40,7 +39,7 @@ public abstract class AbstractEventSourcedEntity {
      * Returns a list of event sourced entities directly referenced by this entity.
      * <p/>
      * The default implementation uses reflection to find references to <code>AbstractEventSourcedEntity</code>
-     * implementations.
+     * implementations. The fields that could contain entities are resolved only once per class.
      * <p/>
      * It will look for them in the following locations: <ul><li> directly referenced in a field;<li> inside fields
      * containing an {@link Iterable};<li>inside both they keys and the values of fields containing a {@link
@@ -49,7 +48,7 @@ public abstract class AbstractEventSourcedEntity {
      * @return a list of event sourced entities contained in this aggregate
      */
     protected Collection<AbstractEventSourcedEntity> getChildEntities() {
-        return ReflectionUtils.findFieldValuesOfType(this, AbstractEventSourcedEntity.class);
+        return ChildEntityAccessor.forType(getClass()).childEntitiesOf(this);
     }
 
     /**
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.IncompatibleSnapshotException;
+import org.axonframework.eventstore.XStreamEventSerializer;
+import org.axonframework.util.SerializationException;
+import org.axonframework.util.io.BinaryObjectCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * EventSerializer that uses a compact binary format for {@link AggregateSnapshot} events. All other events are
+ * (de)serialized by a delegate serializer, which defaults to the {@link XStreamEventSerializer}. Configure it as the
+ * snapshot serializer of an event store (e.g. {@link org.axonframework.eventstore.jpa.JpaEventStore#setSnapshotSerializer(org.axonframework.eventstore.EventSerializer)})
+ * to have snapshots stored in the binary format, while regular events are stored using the event serializer.
+ * <p/>
+ * The aggregate is written field by field. The fields of each class are resolved once and cached. Primitive fields are
+ * written without any type information. The names of the fields of a class are written once per snapshot, and are used
+ * to match fields when the snapshot is read. Common types, such as Strings, UUIDs, Joda DateTimes and the standard
+ * collection types, are encoded natively. Other objects are written field by field, unless they define custom
+ * serialization methods, in which case Java serialization is used. See {@link BinaryObjectCodec} for the details of
+ * the encoding.
+ * <p/>
+ * Each snapshot contains a hash of the structure of the aggregate class, including the classes it refers to in its
+ * fields. When the structure of the aggregate has changed since a snapshot was taken, an {@link
+ * IncompatibleSnapshotException} is thrown when it is read. The event stores will then ignore the snapshot and replay
+ * all events of the aggregate instead. Schema validation can be disabled using {@link #setSchemaValidation(boolean)}.
+ * <p/>
+ * Serialized events that were not created by this serializer, such as snapshots stored before this serializer was
+ * configured, are passed to the delegate serializer.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class AggregateSnapshotSerializer implements EventSerializer {
+
+    /**
+     * The first byte of each snapshot serialized in the binary format.
+     */
+    static final byte MARKER = (byte) 0xFA;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final EventSerializer delegate;
+    private final BinaryObjectCodec codec = new SnapshotCodec();
+    private final ConcurrentMap<Class<?>, Long> schemaHashes = new ConcurrentHashMap<Class<?>, Long>();
+    private volatile boolean schemaValidation = true;
+
+    /**
+     * Initializes an AggregateSnapshotSerializer that uses an {@link XStreamEventSerializer} for all events other than
+     * {@link AggregateSnapshot AggregateSnapshots}.
+     */
+    public AggregateSnapshotSerializer() {
+        this(new XStreamEventSerializer());
+    }
+
+    /**
+     * Initializes an AggregateSnapshotSerializer that uses the given <code>delegate</code> for all events other than
+     * {@link AggregateSnapshot AggregateSnapshots}, and to read snapshots that are not in the binary format.
+     *
+     * @param delegate The serializer for events that are not AggregateSnapshots
+     */
+    public AggregateSnapshotSerializer(EventSerializer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public byte[] serialize(DomainEvent event) {
+        if (!(event instanceof AggregateSnapshot)) {
+            return delegate.serialize(event);
+        }
+        Class<?> aggregateType = ((AggregateSnapshot<?>) event).getAggregate().getClass();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeByte(MARKER);
+            out.writeByte(FORMAT_VERSION);
+            BinaryObjectCodec.ObjectWriter writer = codec.newWriter(out);
+            writer.writeString(aggregateType.getName());
+            out.writeLong(schemaValidation ? schemaHashOf(aggregateType) : 0L);
+            writer.writeValue(event);
+            out.flush();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred while trying to serialize a snapshot", e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IncompatibleSnapshotException if the aggregate class has changed since the snapshot was taken
+     */
+    @Override
+    public DomainEvent deserialize(byte[] serializedEvent) {
+        if (serializedEvent.length == 0 || serializedEvent[0] != MARKER) {
+            return delegate.deserialize(serializedEvent);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(serializedEvent, 1,
+                                                                              serializedEvent.length - 1));
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IncompatibleSnapshotException(String.format(
+                        "Unsupported snapshot format version: [%s]", version));
+            }
+            BinaryObjectCodec.ObjectReader reader = codec.newReader(in);
+            String aggregateTypeName = reader.readString();
+            long schemaHash = in.readLong();
+            Class<?> aggregateType;
+            try {
+                aggregateType = reader.loadClass(aggregateTypeName);
+            } catch (ClassNotFoundException e) {
+                throw new IncompatibleSnapshotException(String.format(
+                        "The aggregate type [%s] of the snapshot no longer exists", aggregateTypeName), e);
+            }
+            if (schemaValidation && schemaHash != 0L && schemaHash != schemaHashOf(aggregateType)) {
+                throw new IncompatibleSnapshotException(String.format(
+                        "The structure of aggregate type [%s] has changed since the snapshot was taken",
+                        aggregateTypeName));
+            }
+            return (DomainEvent) reader.readValue();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred while trying to deserialize a snapshot", e);
+        } catch (ClassNotFoundException e) {
+            throw new IncompatibleSnapshotException(
+                    "A class referred to by the snapshot no longer exists", e);
+        }
+    }
+
+    /**
+     * Indicates whether snapshots should contain a hash of the structure of the aggregate, and whether that hash should
+     * be validated when a snapshot is read. Defaults to <code>true</code>.
+     * <p/>
+     * When disabled, fields are matched by name. Fields that no longer exist are ignored and new fields keep their
+     * default value.
+     *
+     * @param schemaValidation whether to validate the structure of the aggregate when reading snapshots
+     */
+    public void setSchemaValidation(boolean schemaValidation) {
+        this.schemaValidation = schemaValidation;
+    }
+
+    /**
+     * Returns the serializer used for events other than {@link AggregateSnapshot AggregateSnapshots}.
+     *
+     * @return the serializer used for events other than AggregateSnapshots
+     */
+    public EventSerializer getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns the hash of the structure of the given <code>aggregateType</code>. The hash covers the names and
+     * (generic) types of all serialized fields of the aggregate, and, recursively, of all non-JDK classes referred to by
+     * these fields.
+     *
+     * @param aggregateType The type of aggregate to calculate the hash for
+     * @return the hash of the structure of the aggregate type
+     */
+    long schemaHashOf(Class<?> aggregateType) {
+        Long hash = schemaHashes.get(aggregateType);
+        if (hash == null) {
+            StringBuilder schema = new StringBuilder();
+            describe(aggregateType, schema, new HashSet<Class<?>>());
+            long value = 0xcbf29ce484222325L;
+            for (int i = 0; i < schema.length(); i++) {
+                value ^= schema.charAt(i);
+                value *= 0x100000001b3L;
+            }
+            hash = value == 0L ? 1L : value;
+            schemaHashes.putIfAbsent(aggregateType, hash);
+        }
+        return hash;
+    }
+
+    private void describe(Class<?> type, StringBuilder schema, Set<Class<?>> describedTypes) {
+        if (type.isPrimitive() || BinaryObjectCodec.isJdkClass(type) || !describedTypes.add(type)) {
+            return;
+        }
+        schema.append(type.getName()).append('{');
+        if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                schema.append(((Enum<?>) constant).name()).append(';');
+            }
+        } else {
+            // the order of declared fields is not guaranteed to be the same on each JVM
+            List<String> fieldDescriptions = new ArrayList<String>();
+            for (Field field : codec.getSerializedFields(type)) {
+                fieldDescriptions.add(field.getName() + ':' + field.getGenericType() + ';');
+            }
+            Collections.sort(fieldDescriptions);
+            for (String fieldDescription : fieldDescriptions) {
+                schema.append(fieldDescription);
+            }
+        }
+        schema.append('}');
+        if (!type.isEnum()) {
+            for (Field field : codec.getSerializedFields(type)) {
+                describeType(field.getGenericType(), schema, describedTypes);
+            }
+        }
+    }
+
+    private void describeType(Type type, StringBuilder schema, Set<Class<?>> describedTypes) {
+        if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            describe(clazz.isArray() ? clazz.getComponentType() : clazz, schema, describedTypes);
+        } else if (type instanceof ParameterizedType) {
+            describeType(((ParameterizedType) type).getRawType(), schema, describedTypes);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                describeType(argument, schema, describedTypes);
+            }
+        } else if (type instanceof GenericArrayType) {
+            describeType(((GenericArrayType) type).getGenericComponentType(), schema, describedTypes);
+        }
+    }
+
+    /**
+     * Codec that reports values that no longer fit the field they were written for as an incompatible snapshot.
+     */
+    private static final class SnapshotCodec extends BinaryObjectCodec {
+
+        @Override
+        protected SerializationException incompatibleFieldValue(String message, Throwable cause) {
+            return new IncompatibleSnapshotException(message, cause);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.util.ClassValueCache;
+import org.axonframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides access to the event sourced entities referenced by instances of a specific class. The fields that could
+ * contain entities are resolved once per class. Fields that cannot contain entities, such as a field of type
+ * <code>String</code> or a <code>List&lt;String&gt;</code>, are never read.
+ * <p/>
+ * Entities are looked up in fields that: <ul><li>directly reference an entity;<li>contain an {@link Iterable};<li>
+ * contain a {@link Map}, in which case both keys and values are inspected</ul>
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+final class ChildEntityAccessor {
+
+    private static final ClassValueCache<ChildEntityAccessor> ACCESSORS = new ClassValueCache<ChildEntityAccessor>() {
+        @Override
+        protected ChildEntityAccessor computeValue(Class<?> type) {
+            return new ChildEntityAccessor(type);
+        }
+    };
+
+    private final Field[] entityFields;
+    private final Field[] iterableFields;
+    private final Field[] mapKeyFields;
+    private final Field[] mapValueFields;
+    private final boolean empty;
+
+    private ChildEntityAccessor(Class<?> type) {
+        List<Field> entities = new ArrayList<Field>();
+        List<Field> iterables = new ArrayList<Field>();
+        List<Field> mapKeys = new ArrayList<Field>();
+        List<Field> mapValues = new ArrayList<Field>();
+        for (Field field : ReflectionUtils.fieldsOf(type)) {
+            Class<?> fieldType = field.getType();
+            if (AbstractEventSourcedEntity.class.isAssignableFrom(fieldType)) {
+                entities.add(field);
+            } else if (Iterable.class.isAssignableFrom(fieldType)) {
+                if (mayContainEntity(typeArgument(field, 0))) {
+                    iterables.add(field);
+                }
+            } else if (Map.class.isAssignableFrom(fieldType)) {
+                if (mayContainEntity(typeArgument(field, 0))) {
+                    mapKeys.add(field);
+                }
+                if (mayContainEntity(typeArgument(field, 1))) {
+                    mapValues.add(field);
+                }
+            }
+        }
+        this.entityFields = accessible(entities);
+        this.iterableFields = accessible(iterables);
+        this.mapKeyFields = accessible(mapKeys);
+        this.mapValueFields = accessible(mapValues);
+        this.empty = entityFields.length == 0 && iterableFields.length == 0
+                && mapKeyFields.length == 0 && mapValueFields.length == 0;
+    }
+
+    /**
+     * Returns the accessor for instances of the given <code>type</code>. The type is only inspected the first time
+     * this method is invoked for it.
+     *
+     * @param type The type of instance to access child entities on
+     * @return the accessor for instances of given type
+     */
+    public static ChildEntityAccessor forType(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    /**
+     * Indicates whether instances of the inspected type can reference any entities at all.
+     *
+     * @return <code>true</code> if instances never reference an entity, otherwise <code>false</code>
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Returns the entities referenced by the given <code>instance</code>. Each entity is returned only once, even if
+     * it is referenced from several locations.
+     *
+     * @param instance The instance to find the child entities of
+     * @return the entities referenced by the given instance. Never <code>null</code>.
+     */
+    public Collection<AbstractEventSourcedEntity> childEntitiesOf(Object instance) {
+        if (empty) {
+            return Collections.emptyList();
+        }
+        if (entityFields.length == 1 && iterableFields.length == 0
+                && mapKeyFields.length == 0 && mapValueFields.length == 0) {
+            Object entity = valueOf(entityFields[0], instance);
+            if (entity == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList((AbstractEventSourcedEntity) entity);
+        }
+        Set<AbstractEventSourcedEntity> children = new HashSet<AbstractEventSourcedEntity>();
+        for (Field field : entityFields) {
+            Object entity = valueOf(field, instance);
+            if (entity != null) {
+                children.add((AbstractEventSourcedEntity) entity);
+            }
+        }
+        for (Field field : iterableFields) {
+            Iterable<?> iterable = (Iterable<?>) valueOf(field, instance);
+            if (iterable != null) {
+                addEntities(iterable, children);
+            }
+        }
+        for (Field field : mapKeyFields) {
+            Map<?, ?> map = (Map<?, ?>) valueOf(field, instance);
+            if (map != null) {
+                addEntities(map.keySet(), children);
+            }
+        }
+        for (Field field : mapValueFields) {
+            Map<?, ?> map = (Map<?, ?>) valueOf(field, instance);
+            if (map != null) {
+                addEntities(map.values(), children);
+            }
+        }
+        return children;
+    }
+
+    private static void addEntities(Iterable<?> candidates, Set<AbstractEventSourcedEntity> children) {
+        for (Object candidate : candidates) {
+            if (candidate instanceof AbstractEventSourcedEntity) {
+                children.add((AbstractEventSourcedEntity) candidate);
+            }
+        }
+    }
+
+    private static Object valueOf(Field field, Object instance) {
+        try {
+            return field.get(instance);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Unable to access field.", ex);
+        }
+    }
+
+    private static Field[] accessible(List<Field> fields) {
+        for (Field field : fields) {
+            ReflectionUtils.ensureAccessible(field);
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static Type typeArgument(Field field, int index) {
+        Type genericType = field.getGenericType();
+        if (genericType instanceof ParameterizedType && isPlatformType(field.getType())) {
+            Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+            if (arguments.length > index) {
+                return arguments[index];
+            }
+        }
+        // raw types and custom collection types may contain anything
+        return null;
+    }
+
+    private static boolean isPlatformType(Class<?> type) {
+        // the type parameters of the JDK collections are known to be the element, or the key and value types
+        String typeName = type.getName();
+        return typeName.startsWith("java.util.") || typeName.startsWith("java.lang.");
+    }
+
+    private static boolean mayContainEntity(Type elementType) {
+        if (elementType instanceof WildcardType) {
+            Type[] upperBounds = ((WildcardType) elementType).getUpperBounds();
+            return upperBounds.length == 0 || mayContainEntity(upperBounds[0]);
+        }
+        if (elementType instanceof ParameterizedType) {
+            return mayContainEntity(((ParameterizedType) elementType).getRawType());
+        }
+        if (elementType instanceof Class) {
+            Class<?> elementClass = (Class<?>) elementType;
+            return elementClass.isInterface()
+                    || elementClass.isAssignableFrom(AbstractEventSourcedEntity.class)
+                    || AbstractEventSourcedEntity.class.isAssignableFrom(elementClass);
+        }
+        // type variables, generic arrays and unknown element types
+        return true;
+    }
+}
@@ -32,7 +32,7 @@ import org.axonframework.eventsourcing.AbstractEventSourcedEntity;
  */
 public abstract class AbstractAnnotatedEntity extends AbstractEventSourcedEntity {
 
-    private final AnnotationEventHandlerInvoker eventHandlerInvoker = new AnnotationEventHandlerInvoker(this);
+    private transient AnnotationEventHandlerInvoker eventHandlerInvoker;
 
     /**
      * Calls the appropriate {@link org.axonframework.eventhandling.annotation.EventHandler} annotated handler with the
@@ -43,6 +43,9 @@ public abstract class AbstractAnnotatedEntity extends AbstractEventSourcedEntity
      */
     @Override
     protected void handle(DomainEvent event) {
+        if (eventHandlerInvoker == null) {
+            eventHandlerInvoker = new AnnotationEventHandlerInvoker(this);
+        }
         eventHandlerInvoker.invokeEventHandlerMethod(event);
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+
+/**
+ * EventSerializer decorator that makes sure each event is serialized only once by the delegate serializer. The
+ * serialized form is attached to the event instance (see {@link org.axonframework.domain.EventBase#getCachedSerializedForm(Object)}),
+ * keyed by the identity of the delegate serializer. When the event store, an integration adapter and an audit logger
+ * share the same serializer instance, the bytes produced when the event is stored are reused by all of them.
+ * <p/>
+ * Events that are deserialized by this serializer have their source bytes attached as well. That means an event read
+ * from the event store can be forwarded in serialized form without being serialized again.
+ * <p/>
+ * The same applies to snapshot events: configure this serializer as the snapshot serializer of each event store the
+ * snapshot is appended to, and the snapshot is serialized only once.
+ * <p/>
+ * Note that the byte arrays returned by this serializer may be shared between several consumers. They must never be
+ * modified.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class CachingEventSerializer implements EventSerializer {
+
+    private final EventSerializer delegate;
+
+    /**
+     * Initializes the CachingEventSerializer to cache the serialized forms produced by the given <code>delegate</code>.
+     *
+     * @param delegate The serializer that does the actual (de)serialization
+     */
+    public CachingEventSerializer(EventSerializer delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * If the given <code>event</code> has already been serialized by the delegate serializer, the cached bytes are
+     * returned.
+     */
+    @Override
+    public byte[] serialize(DomainEvent event) {
+        byte[] serializedForm = event.getCachedSerializedForm(delegate);
+        if (serializedForm == null) {
+            serializedForm = delegate.serialize(event);
+            event.cacheSerializedForm(delegate, serializedForm);
+        }
+        return serializedForm;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The given <code>serializedEvent</code> is attached to the returned event as its serialized form.
+     */
+    @Override
+    public DomainEvent deserialize(byte[] serializedEvent) {
+        DomainEvent event = delegate.deserialize(serializedEvent);
+        event.cacheSerializedForm(delegate, serializedEvent);
+        return event;
+    }
+
+    /**
+     * Returns the serializer that does the actual (de)serialization.
+     *
+     * @return the serializer that does the actual (de)serialization
+     */
+    public EventSerializer getDelegate() {
+        return delegate;
+    }
+}
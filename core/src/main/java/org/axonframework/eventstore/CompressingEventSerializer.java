@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.util.SerializationException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.PreDestroy;
+
+/**
+ * EventSerializer decorator that compresses the output of another serializer. Compression can use a {@link
+ * CompressionDictionary}, which dramatically improves the compression ratio of small events. Events of which the
+ * serialized form is smaller than the compression threshold (default 128 bytes) are not compressed.
+ * <p/>
+ * Each serialized event starts with a header that describes the codec used to create it: a marker byte, the codec
+ * and, if a dictionary was used, the version of the dictionary. Serialized events that do not start with the marker
+ * byte are passed to the delegate as-is. That means that event stores that contain uncompressed events can be read
+ * using this serializer, allowing compression to be introduced without migrating existing events. The marker byte is
+ * neither valid as the start of an UTF-8 encoded (XML) document, nor as the start of a Java serialization stream.
+ * <p/>
+ * When a new dictionary is introduced, the dictionaries that were previously used must remain available for reading
+ * (see {@link #setDictionaries(java.util.List)}).
+ * <p/>
+ * The zlib codecs used for (de)compression hold native memory. A limited number of them is pooled for reuse (see
+ * {@link #setMaxPooledCodecs(int)}). Call {@link #close()} when the serializer is no longer used to release them.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class CompressingEventSerializer implements EventSerializer {
+
+    /**
+     * The first byte of each event serialized by this serializer.
+     */
+    static final byte MARKER = (byte) 0xFB;
+
+    static final byte CODEC_NONE = 0;
+    static final byte CODEC_DEFLATE = 1;
+    static final byte CODEC_DEFLATE_DICTIONARY = 2;
+
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 128;
+    private static final int DEFAULT_MAX_EVENT_SIZE = 64 * 1024 * 1024;
+    // the best compression ratio the deflate format can achieve, with or without a dictionary
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private final EventSerializer delegate;
+    private final CompressionDictionary dictionary;
+    private final Map<Integer, CompressionDictionary> dictionaries = new ConcurrentHashMap<Integer, CompressionDictionary>();
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+    private final AtomicInteger pooledDeflaters = new AtomicInteger();
+    private final AtomicInteger pooledInflaters = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile int maxPooledCodecs = Runtime.getRuntime().availableProcessors();
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private volatile int maxEventSize = DEFAULT_MAX_EVENT_SIZE;
+
+    /**
+     * Initializes the CompressingEventSerializer to compress the output of the given <code>delegate</code> without a
+     * dictionary.
+     *
+     * @param delegate The serializer that does the actual (de)serialization
+     */
+    public CompressingEventSerializer(EventSerializer delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Initializes the CompressingEventSerializer to compress the output of the given <code>delegate</code> using the
+     * given <code>dictionary</code>. The dictionary is also registered for reading events. If <code>dictionary</code>
+     * is <code>null</code>, events are compressed without dictionary.
+     *
+     * @param delegate   The serializer that does the actual (de)serialization
+     * @param dictionary The dictionary to compress events with
+     */
+    public CompressingEventSerializer(EventSerializer delegate, CompressionDictionary dictionary) {
+        this.delegate = delegate;
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            dictionaries.put(dictionary.getVersion(), dictionary);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The output of the delegate is compressed if it exceeds the compression threshold, and compression actually
+     * reduces its size.
+     */
+    @Override
+    public byte[] serialize(DomainEvent event) {
+        byte[] serializedEvent = delegate.serialize(event);
+        if (serializedEvent.length >= compressionThreshold) {
+            byte[] compressed = compress(serializedEvent);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        byte[] result = new byte[serializedEvent.length + 2];
+        result[0] = MARKER;
+        result[1] = CODEC_NONE;
+        System.arraycopy(serializedEvent, 0, result, 2, serializedEvent.length);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Serialized events that were not created by a CompressingEventSerializer are passed to the delegate unchanged.
+     */
+    @Override
+    public DomainEvent deserialize(byte[] serializedEvent) {
+        if (serializedEvent.length < 2 || serializedEvent[0] != MARKER) {
+            return delegate.deserialize(serializedEvent);
+        }
+        switch (serializedEvent[1]) {
+            case CODEC_NONE:
+                return delegate.deserialize(Arrays.copyOfRange(serializedEvent, 2, serializedEvent.length));
+            case CODEC_DEFLATE:
+                return delegate.deserialize(decompress(serializedEvent, 2, null));
+            case CODEC_DEFLATE_DICTIONARY:
+                if (serializedEvent.length < 4) {
+                    throw new SerializationException("Unable to decompress event. The header is incomplete.");
+                }
+                int version = ((serializedEvent[2] & 0xFF) << 8) | (serializedEvent[3] & 0xFF);
+                CompressionDictionary eventDictionary = dictionaries.get(version);
+                if (eventDictionary == null) {
+                    throw new SerializationException(String.format(
+                            "Unable to decompress event. The compression dictionary with version [%s] is unknown.",
+                            version));
+                }
+                return delegate.deserialize(decompress(serializedEvent, 4, eventDictionary));
+            default:
+                throw new SerializationException(String.format(
+                        "Unable to decompress event. Codec [%s] is not supported.", serializedEvent[1]));
+        }
+    }
+
+    private byte[] compress(byte[] serializedEvent) {
+        int headerSize = dictionary == null ? 6 : 8;
+        byte[] buffer = new byte[serializedEvent.length];
+        Deflater deflater = acquireDeflater();
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary.contents());
+            }
+            deflater.setInput(serializedEvent);
+            deflater.finish();
+            int compressedSize = 0;
+            while (!deflater.finished() && compressedSize < buffer.length - headerSize) {
+                compressedSize += deflater.deflate(buffer, compressedSize, buffer.length - headerSize - compressedSize);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            byte[] result = new byte[compressedSize + headerSize];
+            result[0] = MARKER;
+            int offset = 2;
+            if (dictionary == null) {
+                result[1] = CODEC_DEFLATE;
+            } else {
+                result[1] = CODEC_DEFLATE_DICTIONARY;
+                result[offset++] = (byte) (dictionary.getVersion() >>> 8);
+                result[offset++] = (byte) dictionary.getVersion();
+            }
+            writeInt(result, offset, serializedEvent.length);
+            System.arraycopy(buffer, 0, result, offset + 4, compressedSize);
+            return result;
+        } finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    private byte[] decompress(byte[] serializedEvent, int offset, CompressionDictionary eventDictionary) {
+        if (serializedEvent.length < offset + 4) {
+            throw new SerializationException("Unable to decompress event. The header is incomplete.");
+        }
+        int uncompressedSize = readInt(serializedEvent, offset);
+        long compressedSize = serializedEvent.length - offset - 4;
+        if (uncompressedSize < 0 || uncompressedSize > maxEventSize
+                || uncompressedSize > compressedSize * MAX_DEFLATE_RATIO) {
+            throw new SerializationException(String.format(
+                    "Unable to decompress event. The stored event size [%s] is invalid for [%s] bytes of compressed "
+                            + "data, or exceeds the maximum event size [%s].",
+                    uncompressedSize, compressedSize, maxEventSize));
+        }
+        byte[] result = new byte[uncompressedSize];
+        Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(serializedEvent, offset + 4, serializedEvent.length - offset - 4);
+            int size = inflater.inflate(result);
+            if (inflater.needsDictionary()) {
+                if (eventDictionary == null) {
+                    throw new SerializationException("Unable to decompress event. It requires a dictionary.");
+                }
+                inflater.setDictionary(eventDictionary.contents());
+            }
+            while (!inflater.finished() && size < result.length) {
+                int inflated = inflater.inflate(result, size, result.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+            if (!inflater.finished() || size != result.length) {
+                throw new SerializationException("Unable to decompress event. The compressed data is corrupt.");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new SerializationException("Unable to decompress event. The compressed data is corrupt.", e);
+        } finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    private Deflater acquireDeflater() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(compressionLevel);
+        }
+        pooledDeflaters.decrementAndGet();
+        return deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        if (closed) {
+            deflater.end();
+        } else if (pooledDeflaters.incrementAndGet() > maxPooledCodecs) {
+            pooledDeflaters.decrementAndGet();
+            deflater.end();
+        } else {
+            deflater.reset();
+            deflaters.offer(deflater);
+            if (closed && deflaters.remove(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private Inflater acquireInflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            return new Inflater();
+        }
+        pooledInflaters.decrementAndGet();
+        return inflater;
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        if (closed) {
+            inflater.end();
+        } else if (pooledInflaters.incrementAndGet() > maxPooledCodecs) {
+            pooledInflaters.decrementAndGet();
+            inflater.end();
+        } else {
+            inflater.reset();
+            inflaters.offer(inflater);
+            if (closed && inflaters.remove(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Releases the native resources held by the pooled codecs. Codecs that are in use while this method is invoked
+     * are released as soon as the (de)serialization they are used for completes. The serializer remains usable after
+     * it has been closed, but does not pool codecs anymore.
+     */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+    private static void writeInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return ((source[offset] & 0xFF) << 24) | ((source[offset + 1] & 0xFF) << 16)
+                | ((source[offset + 2] & 0xFF) << 8) | (source[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Returns the serializer that does the actual (de)serialization.
+     *
+     * @return the serializer that does the actual (de)serialization
+     */
+    public EventSerializer getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Sets the minimum size (in bytes) of the output of the delegate serializer for compression to be applied. Smaller
+     * events are stored uncompressed. Defaults to 128 bytes.
+     *
+     * @param compressionThreshold the minimum size of events to compress
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Sets the compression level to use, between 0 (no compression) and 9 (best compression). Defaults to {@link
+     * Deflater#DEFAULT_COMPRESSION}. The compression level must be set before the first event is serialized.
+     *
+     * @param compressionLevel the compression level to use
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Sets the maximum number of Deflaters, and the maximum number of Inflaters, to keep for reuse. Codecs beyond this
+     * number are released after use. Defaults to the number of available processors.
+     *
+     * @param maxPooledCodecs the maximum number of codecs of each type to keep for reuse
+     */
+    public void setMaxPooledCodecs(int maxPooledCodecs) {
+        this.maxPooledCodecs = maxPooledCodecs;
+    }
+
+    /**
+     * Sets the maximum size (in bytes) of a decompressed event. Compressed events that claim to be larger are rejected
+     * with a {@link SerializationException} before any memory is allocated for them. Defaults to 64 megabytes.
+     *
+     * @param maxEventSize the maximum size of a decompressed event
+     */
+    public void setMaxEventSize(int maxEventSize) {
+        this.maxEventSize = maxEventSize;
+    }
+
+    /**
+     * Registers the dictionaries that have previously been used to compress events. These dictionaries are only used
+     * to read events. The dictionary provided in the constructor is always used for writing.
+     *
+     * @param previousDictionaries the dictionaries that have previously been used to compress events
+     */
+    public void setDictionaries(List<CompressionDictionary> previousDictionaries) {
+        for (CompressionDictionary previousDictionary : previousDictionaries) {
+            if (dictionary == null || previousDictionary.getVersion() != dictionary.getVersion()) {
+                dictionaries.put(previousDictionary.getVersion(), previousDictionary);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A preset dictionary for the {@link CompressingEventSerializer}. The dictionary contains byte sequences that are
+ * expected to occur frequently in serialized events, such as class names and field names. Compressing small events
+ * using a dictionary yields much better results than compressing them individually, since the compressor can refer to
+ * the dictionary for content it has not seen in the event itself.
+ * <p/>
+ * Each dictionary has a version, which is stored along with each compressed event. The exact same dictionary must be
+ * available when the event is read. Dictionaries must therefore never be changed once they are used. Instead, a new
+ * dictionary with a new version should be created.
+ * <p/>
+ * Dictionaries can be created from samples of serialized events using {@link #train(int, java.util.Collection, int)}.
+ * The result should be stored, for example in a file, so that it can be loaded using {@link
+ * #CompressionDictionary(int, byte[])}.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public final class CompressionDictionary {
+
+    /**
+     * The maximum size of a dictionary that is effectively used by the compression algorithm.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final int version;
+    private final byte[] bytes;
+
+    /**
+     * Initializes a dictionary with the given <code>version</code> and contents.
+     *
+     * @param version The version of the dictionary, between 0 and 65535
+     * @param bytes   The contents of the dictionary
+     */
+    public CompressionDictionary(int version, byte[] bytes) {
+        Assert.isTrue(version >= 0 && version <= 0xFFFF, "The dictionary version must be between 0 and 65535");
+        Assert.notNull(bytes, "The dictionary contents may not be null");
+        this.version = version;
+        this.bytes = bytes.clone();
+    }
+
+    /**
+     * Creates a dictionary from the given <code>samples</code> of serialized events. The dictionary is built from
+     * the XML tags (including attributes) and short text values that occur in most samples. The most valuable
+     * sequences are placed at the end of the dictionary, where the compression algorithm can refer to them most
+     * efficiently.
+     *
+     * @param version The version to assign to the dictionary
+     * @param samples Serialized events, representative for the events that will be compressed
+     * @param maxSize The maximum size of the dictionary in bytes. Values above {@link #MAX_DICTIONARY_SIZE} have no
+     *                effect.
+     * @return a dictionary created from the given samples
+     */
+    public static CompressionDictionary train(int version, Collection<byte[]> samples, int maxSize) {
+        final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+        for (byte[] sample : samples) {
+            for (String token : tokenize(new String(sample, UTF8))) {
+                Integer count = frequencies.get(token);
+                frequencies.put(token, count == null ? 1 : count + 1);
+            }
+        }
+        List<String> tokens = new ArrayList<String>(frequencies.keySet());
+        Collections.sort(tokens, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                long firstScore = (long) frequencies.get(first) * first.length();
+                long secondScore = (long) frequencies.get(second) * second.length();
+                return firstScore == secondScore ? first.compareTo(second) : (secondScore < firstScore ? -1 : 1);
+            }
+        });
+        int remaining = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+        List<byte[]> selected = new ArrayList<byte[]>();
+        for (String token : tokens) {
+            byte[] tokenBytes = token.getBytes(UTF8);
+            if (frequencies.get(token) > 1 && tokenBytes.length <= remaining) {
+                selected.add(0, tokenBytes);
+                remaining -= tokenBytes.length;
+            }
+        }
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        for (byte[] tokenBytes : selected) {
+            dictionary.write(tokenBytes, 0, tokenBytes.length);
+        }
+        return new CompressionDictionary(version, dictionary.toByteArray());
+    }
+
+    /**
+     * Splits the given XML into tags and short text values. Each distinct token is returned only once, so that tokens
+     * are counted by the number of samples they appear in.
+     */
+    private static Set<String> tokenize(String xml) {
+        Set<String> tokens = new HashSet<String>();
+        int position = 0;
+        while (position < xml.length()) {
+            int tagStart = xml.indexOf('<', position);
+            if (tagStart < 0) {
+                break;
+            }
+            if (tagStart > position && tagStart - position <= 64) {
+                tokens.add(xml.substring(position, tagStart));
+            }
+            int tagEnd = xml.indexOf('>', tagStart);
+            if (tagEnd < 0) {
+                break;
+            }
+            tokens.add(xml.substring(tagStart, tagEnd + 1));
+            position = tagEnd + 1;
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the version of this dictionary.
+     *
+     * @return the version of this dictionary
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the contents of this dictionary.
+     *
+     * @return the contents of this dictionary
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Returns the contents of this dictionary without copying them. Callers may not modify the returned array.
+     *
+     * @return the contents of this dictionary
+     */
+    byte[] contents() {
+        return bytes;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.util.SerializationException;
+
+/**
+ * Exception indicating that a stored snapshot event can no longer be used, typically because the structure of the
+ * aggregate has changed since the snapshot was taken. Event stores that encounter this exception while reading a
+ * snapshot ignore the snapshot and initialize the aggregate using all of its events instead.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class IncompatibleSnapshotException extends SerializationException {
+
+    private static final long serialVersionUID = -2793553284870217378L;
+
+    /**
+     * Initializes the exception using the given <code>message</code>.
+     *
+     * @param message The message describing the exception
+     */
+    public IncompatibleSnapshotException(String message) {
+        super(message);
+    }
+
+    /**
+     * Initializes the exception using the given <code>message</code> and <code>cause</code>.
+     *
+     * @param message The message describing the exception
+     * @param cause   The underlying cause of the exception
+     */
+    public IncompatibleSnapshotException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -179,6 +179,35 @@ public class XStreamEventSerializer implements EventSerializer {
         genericXStreamSerializer.addFieldAlias(alias, definedIn, fieldName);
     }
 
+    /**
+     * Registers a converter for the given <code>eventType</code> that is compiled once, instead of inspecting the
+     * event class using reflection for each event that is (de)serialized. The XML produced is identical to that of
+     * the default converter, so existing events remain readable.
+     * <p/>
+     * Aliases that apply to the event type must be registered before calling this method.
+     *
+     * @param eventType The concrete event type to register a compiled converter for
+     * @return <code>true</code> if a compiled converter was registered, <code>false</code> if the event type is
+     *         serialized using XStream's default mechanism
+     * @see GenericXStreamSerializer#registerCompiledConverter(Class)
+     */
+    public boolean registerCompiledConverter(Class<? extends DomainEvent> eventType) {
+        return genericXStreamSerializer.registerCompiledConverter(eventType);
+    }
+
+    /**
+     * Registers compiled converters for each of the given <code>eventTypes</code>. Aliases that apply to these event
+     * types must be registered before calling this method.
+     *
+     * @param eventTypes The concrete event types to register compiled converters for
+     * @see #registerCompiledConverter(Class)
+     */
+    public void setCompiledEventTypes(List<Class<? extends DomainEvent>> eventTypes) {
+        for (Class<? extends DomainEvent> eventType : eventTypes) {
+            registerCompiledConverter(eventType);
+        }
+    }
+
     /**
      * Returns a reference to the underlying {@link com.thoughtworks.xstream.XStream} instance, that does the actual
      * serialization.
@@ -25,19 +25,17 @@ import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.eventstore.EventStore;
 import org.axonframework.eventstore.EventStoreException;
 import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.eventstore.IncompatibleSnapshotException;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.SequenceInputStream;
 
 import static org.axonframework.eventstore.fs.EventSerializationUtils.*;
 
@@ -59,6 +57,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
     private static final Logger logger = LoggerFactory.getLogger(FileSystemEventStore.class);
 
     private final EventSerializer eventSerializer;
+    private EventSerializer snapshotSerializer;
     private EventFileResolver eventFileResolver;
 
     /**
@@ -66,7 +65,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
      * org.axonframework.eventstore.XStreamEventSerializer}
      */
     public FileSystemEventStore() {
-        this.eventSerializer = new XStreamEventSerializer();
+        this(new XStreamEventSerializer());
     }
 
     /**
@@ -77,6 +76,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
      */
     public FileSystemEventStore(EventSerializer eventSerializer) {
         this.eventSerializer = eventSerializer;
+        this.snapshotSerializer = eventSerializer;
     }
 
     /**
@@ -142,7 +142,7 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
         OutputStream fileOutputStream = null;
         try {
 
-            byte[] serializedEvent = eventSerializer.serialize(snapshotEvent);
+            byte[] serializedEvent = snapshotSerializer.serialize(snapshotEvent);
 
             long offset = calculateOffset(type, aggregateIdentifier, snapshotEvent.getSequenceNumber());
             long sequenceNumber = snapshotEvent.getSequenceNumber();
@@ -181,27 +181,27 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
 
     private DomainEventStream readEvents(String type, AggregateIdentifier identifier, InputStream eventFileInputStream)
             throws IOException {
-        SnapshotEventEntry snapshotEntry = readSnapshotEvent(type, identifier, eventFileInputStream);
-        InputStream is = eventFileInputStream;
-        if (snapshotEntry != null) {
-            String timeStamp = snapshotEntry.getTimeStamp();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            writeEventEntry(baos, snapshotEntry.getSequenceNumber(), timeStamp, snapshotEntry.getBytes());
-            is = new SequenceInputStream(new ByteArrayInputStream(baos.toByteArray()), eventFileInputStream);
-        }
-        return new BufferedReaderDomainEventStream(is, eventSerializer);
+        DomainEvent snapshotEvent = readSnapshotEvent(type, identifier, eventFileInputStream);
+        return new BufferedReaderDomainEventStream(snapshotEvent, eventFileInputStream, eventSerializer);
     }
 
-    private SnapshotEventEntry readSnapshotEvent(String type, AggregateIdentifier identifier,
-                                                 InputStream eventFileInputStream)
+    private DomainEvent readSnapshotEvent(String type, AggregateIdentifier identifier,
+                                          InputStream eventFileInputStream)
             throws IOException {
-        SnapshotEventEntry snapshotEvent = null;
+        DomainEvent snapshotEvent = null;
         if (eventFileResolver.snapshotFileExists(type, identifier)) {
             InputStream snapshotFileInputStream = eventFileResolver.openSnapshotFileForReading(type, identifier);
             try {
-                snapshotEvent = readLastSnapshotEntry(snapshotFileInputStream);
-                long actuallySkipped = eventFileInputStream.skip(snapshotEvent.getOffset());
-                if (actuallySkipped != snapshotEvent.getOffset()) {
+                SnapshotEventEntry snapshotEntry = readLastSnapshotEntry(snapshotFileInputStream);
+                try {
+                    snapshotEvent = snapshotSerializer.deserialize(snapshotEntry.getBytes());
+                } catch (IncompatibleSnapshotException e) {
+                    logger.warn("Ignoring the snapshot of aggregate [{}] of type [{}]: {}",
+                                new Object[]{identifier.asString(), type, e.getMessage()});
+                    return null;
+                }
+                long actuallySkipped = eventFileInputStream.skip(snapshotEntry.getOffset());
+                if (actuallySkipped != snapshotEntry.getOffset()) {
                     logger.warn(
                             "The skip operation did not actually skip the expected amount of bytes. "
                                     + "The event log of aggregate of type {} and identifier {} might be corrupt.",
@@ -224,6 +224,19 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
         eventFileResolver = new SimpleEventFileResolver(baseDir);
     }
 
+    /**
+     * Sets the serializer to (de)serialize snapshot events with. Defaults to the serializer used for regular events.
+     * <p/>
+     * Snapshots that the snapshot serializer reports as incompatible (see {@link IncompatibleSnapshotException}) are
+     * ignored. The aggregate is then initialized using all of its events.
+     *
+     * @param snapshotSerializer The serializer for snapshot events
+     * @see org.axonframework.eventsourcing.AggregateSnapshotSerializer
+     */
+    public void setSnapshotSerializer(EventSerializer snapshotSerializer) {
+        this.snapshotSerializer = snapshotSerializer;
+    }
+
     /**
      * Sets the event file resolver to use. This setter is an alternative to the {@link #setBaseDir(java.io.File)} one.
      *
@@ -255,13 +268,16 @@ public class FileSystemEventStore implements EventStore, SnapshotEventStore {
          * The reader will be closed when the last event has been read from it, or when an exception occurs while
          * reading or deserializing an event.
          *
+         * @param firstEvent  The event to return before the events in the input stream, such as a snapshot event.
+         *                    May be <code>null</code>.
          * @param inputStream The inputStream providing serialized DomainEvents
          * @param serializer  The serializer to deserialize the DomainEvents
          */
-        public BufferedReaderDomainEventStream(InputStream inputStream, EventSerializer serializer) {
+        public BufferedReaderDomainEventStream(DomainEvent firstEvent, InputStream inputStream,
+                                               EventSerializer serializer) {
             this.inputStream = new BufferedInputStream(inputStream);
             this.serializer = serializer;
-            this.next = doReadNext();
+            this.next = firstEvent != null ? firstEvent : doReadNext();
         }
 
         /**
@@ -23,6 +23,7 @@ import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.eventstore.EventStoreManagement;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.IncompatibleSnapshotException;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.axonframework.repository.ConcurrencyException;
@@ -43,6 +44,7 @@ import javax.sql.DataSource;
  * specific aggregate in the correct order.
  * <p/>
  * The serializer used to serialize the events is configurable. By default, the {@link XStreamEventSerializer} is used.
+ * Snapshot events may use a different serializer, see {@link #setSnapshotSerializer(EventSerializer)}.
  *
  * @author Allard Buijze
  * @since 0.5
@@ -54,6 +56,7 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
     private EntityManager entityManager;
 
     private final EventSerializer eventSerializer;
+    private EventSerializer snapshotSerializer;
     private static final int DEFAULT_BATCH_SIZE = 100;
     private int batchSize = DEFAULT_BATCH_SIZE;
 
@@ -74,6 +77,7 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
      */
     public JpaEventStore(EventSerializer eventSerializer) {
         this.eventSerializer = eventSerializer;
+        this.snapshotSerializer = eventSerializer;
     }
 
     /**
@@ -108,14 +112,21 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
     @Override
     public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
         long snapshotSequenceNumber = -1;
+        DomainEvent snapshotEvent = null;
         SnapshotEventEntry lastSnapshotEvent = loadLastSnapshotEvent(type, identifier);
         if (lastSnapshotEvent != null) {
-            snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            try {
+                snapshotEvent = lastSnapshotEvent.getDomainEvent(snapshotSerializer);
+                snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            } catch (IncompatibleSnapshotException e) {
+                logger.warn("Ignoring the snapshot of aggregate [{}] of type [{}]: {}",
+                            new Object[]{identifier.asString(), type, e.getMessage()});
+            }
         }
 
         List<DomainEvent> events = fetchBatch(type, identifier, snapshotSequenceNumber + 1);
-        if (lastSnapshotEvent != null) {
-            events.add(0, lastSnapshotEvent.getDomainEvent(eventSerializer));
+        if (snapshotEvent != null) {
+            events.add(0, snapshotEvent);
         }
         if (events.isEmpty()) {
             throw new EventStreamNotFoundException(type, identifier);
@@ -161,7 +172,7 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
 
     @Override
     public void appendSnapshotEvent(String type, DomainEvent snapshotEvent) {
-        entityManager.persist(new SnapshotEventEntry(type, snapshotEvent, eventSerializer));
+        entityManager.persist(new SnapshotEventEntry(type, snapshotEvent, snapshotSerializer));
     }
 
     @Override
@@ -225,6 +236,19 @@ public class JpaEventStore implements SnapshotEventStore, EventStoreManagement {
         this.persistenceExceptionResolver = persistenceExceptionResolver;
     }
 
+    /**
+     * Sets the serializer to (de)serialize snapshot events with. Defaults to the serializer used for regular events.
+     * <p/>
+     * Snapshots that the snapshot serializer reports as incompatible (see {@link IncompatibleSnapshotException}) are
+     * ignored. The aggregate is then initialized using all of its events.
+     *
+     * @param snapshotSerializer The serializer for snapshot events
+     * @see org.axonframework.eventsourcing.AggregateSnapshotSerializer
+     */
+    public void setSnapshotSerializer(EventSerializer snapshotSerializer) {
+        this.snapshotSerializer = snapshotSerializer;
+    }
+
     /**
      * Sets the number of events that should be read at each database access. When more than this number of events must
      * be read to rebuild an aggregate's state, the events are read in batches of this size. Defaults to 100.
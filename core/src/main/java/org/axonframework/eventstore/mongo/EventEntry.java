@@ -75,7 +75,7 @@ class EventEntry {
     private final long sequenceNumber;
     private final String timeStamp;
     private final String aggregateType;
-    private final String serializedEvent;
+    private final Object serializedEvent;
 
     /**
      * Constructor used to create a new event entry to store in Mongo
@@ -88,7 +88,7 @@ class EventEntry {
         this.aggregateType = aggregateType;
         this.aggregateIdentifier = event.getAggregateIdentifier().asString();
         this.sequenceNumber = event.getSequenceNumber();
-        this.serializedEvent = new String(eventSerializer.serialize(event));
+        this.serializedEvent = asStoredForm(eventSerializer.serialize(event));
         this.timeStamp = event.getTimestamp().toString();
     }
 
@@ -100,7 +100,7 @@ class EventEntry {
     EventEntry(DBObject dbObject) {
         this.aggregateIdentifier = (String) dbObject.get(AGGREGATE_IDENTIFIER_PROPERTY);
         this.sequenceNumber = (Long) dbObject.get(SEQUENCE_NUMBER_PROPERTY);
-        this.serializedEvent = (String) dbObject.get(SERIALIZED_EVENT_PROPERTY);
+        this.serializedEvent = dbObject.get(SERIALIZED_EVENT_PROPERTY);
         this.timeStamp = (String) dbObject.get(TIME_STAMP_PROPERTY);
         this.aggregateType = (String) dbObject.get(AGGREGATE_TYPE_PROPERTY);
     }
@@ -112,7 +112,35 @@ class EventEntry {
      * @return The actual DomainEvent
      */
     public DomainEvent getDomainEvent(EventSerializer eventSerializer) {
-        return eventSerializer.deserialize(serializedEvent.getBytes(UTF8));
+        return eventSerializer.deserialize(asBytes(serializedEvent));
+    }
+
+    /**
+     * Returns the form in which the given <code>serializedEvent</code> is stored in Mongo. XML documents are stored as
+     * Strings, to keep them readable. Other (e.g. binary or compressed) serialized forms are stored as binary data.
+     *
+     * @param serializedEvent The serialized form of an event
+     * @return the String or byte array to store in Mongo
+     */
+    static Object asStoredForm(byte[] serializedEvent) {
+        if (serializedEvent.length > 0 && serializedEvent[0] == '<') {
+            return new String(serializedEvent, UTF8);
+        }
+        return serializedEvent;
+    }
+
+    /**
+     * Returns the bytes of a serialized event as stored in Mongo. Both the String and the binary form are supported,
+     * meaning that a single collection may contain events in either form.
+     *
+     * @param storedForm The String or byte array read from Mongo
+     * @return the serialized event
+     */
+    static byte[] asBytes(Object storedForm) {
+        if (storedForm instanceof byte[]) {
+            return (byte[]) storedForm;
+        }
+        return ((String) storedForm).getBytes(UTF8);
     }
 
     /**
@@ -29,6 +29,7 @@ import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.eventstore.EventStoreManagement;
 import org.axonframework.eventstore.EventStreamNotFoundException;
 import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.IncompatibleSnapshotException;
 import org.axonframework.eventstore.SnapshotEventStore;
 import org.axonframework.eventstore.XStreamEventSerializer;
 import org.slf4j.Logger;
@@ -40,8 +41,6 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 
-import static org.axonframework.eventstore.mongo.EventEntry.UTF8;
-
 /**
  * Implementation of the <code>EventStore</code> based on a MongoDB instance or replica set. Sharding and pairing are
  * not explicitly supported.
@@ -60,6 +59,7 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
 
     private final MongoTemplate mongoTemplate;
     private final EventSerializer eventSerializer;
+    private EventSerializer snapshotSerializer;
     private final AtomicBoolean indexesAssured = new AtomicBoolean(false);
 
     /**
@@ -71,6 +71,7 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
      */
     public MongoEventStore(EventSerializer eventSerializer, Mongo mongo) {
         this.eventSerializer = eventSerializer;
+        this.snapshotSerializer = eventSerializer;
         this.mongoTemplate = new MongoTemplate(mongo);
     }
 
@@ -119,16 +120,23 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
         long start = new Date().getTime();
 
         long snapshotSequenceNumber = -1;
+        DomainEvent snapshotEvent = null;
         EventEntry lastSnapshotEvent = loadLastSnapshotEvent(type, identifier);
         if (lastSnapshotEvent != null) {
-            snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            try {
+                snapshotEvent = lastSnapshotEvent.getDomainEvent(snapshotSerializer);
+                snapshotSequenceNumber = lastSnapshotEvent.getSequenceNumber();
+            } catch (IncompatibleSnapshotException e) {
+                logger.warn("Ignoring the snapshot of aggregate [{}] of type [{}]: {}",
+                            new Object[]{identifier.asString(), type, e.getMessage()});
+            }
         }
 
         sb.append("snapshot : ").append(new Date().getTime() - start);
 
         List<DomainEvent> events = readEventSegmentInternal(type, identifier, snapshotSequenceNumber + 1);
-        if (lastSnapshotEvent != null) {
-            events.add(0, lastSnapshotEvent.getDomainEvent(eventSerializer));
+        if (snapshotEvent != null) {
+            events.add(0, snapshotEvent);
         }
 
         sb.append(", event : ").append(new Date().getTime() - start);
@@ -143,7 +151,7 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
 
     @Override
     public void appendSnapshotEvent(String type, DomainEvent snapshotEvent) {
-        EventEntry snapshotEventEntry = new EventEntry(type, snapshotEvent, eventSerializer);
+        EventEntry snapshotEventEntry = new EventEntry(type, snapshotEvent, snapshotSerializer);
         mongoTemplate.snapshotEventCollection().insert(snapshotEventEntry.asDBObject());
     }
 
@@ -172,8 +180,8 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
                                          .sort(new BasicDBObject(EventEntry.SEQUENCE_NUMBER_PROPERTY, "1"));
         List<DomainEvent> events = new ArrayList<DomainEvent>(dbCursor.size());
         while (dbCursor.hasNext()) {
-            String nextItem = (String) dbCursor.next().get(EventEntry.SERIALIZED_EVENT_PROPERTY);
-            DomainEvent deserialize = eventSerializer.deserialize(nextItem.getBytes(UTF8));
+            Object nextItem = dbCursor.next().get(EventEntry.SERIALIZED_EVENT_PROPERTY);
+            DomainEvent deserialize = eventSerializer.deserialize(EventEntry.asBytes(nextItem));
             events.add(deserialize);
         }
         return events;
@@ -246,4 +254,17 @@ public class MongoEventStore implements SnapshotEventStore, EventStoreManagement
     public void setSnapshotEventsCollectionName(String snapshotEventsCollectionName) {
         mongoTemplate.setSnapshotEventsCollectionName(snapshotEventsCollectionName);
     }
+
+    /**
+     * Sets the serializer to (de)serialize snapshot events with. Defaults to the serializer used for regular events.
+     * <p/>
+     * Snapshots that the snapshot serializer reports as incompatible (see {@link IncompatibleSnapshotException}) are
+     * ignored. The aggregate is then initialized using all of its events.
+     *
+     * @param snapshotSerializer The serializer for snapshot events
+     * @see org.axonframework.eventsourcing.AggregateSnapshotSerializer
+     */
+    public void setSnapshotSerializer(EventSerializer snapshotSerializer) {
+        this.snapshotSerializer = snapshotSerializer;
+    }
 }
@@ -78,6 +78,40 @@ public final class JmxConfiguration {
         }
     }
 
+    /**
+     * Attempts to register the given <code>mBean</code> as an MBean with the default MBeanServer, using the given
+     * <code>name</code> to distinguish it from other MBeans for the same type. If registration fails, no exceptions
+     * are thrown. Instead, failure is logged and silently accepted.
+     *
+     * @param mBean         The instance to register as MBean. Note that this instance needs to be MBean compliant.
+     *                      Otherwise, registration fails silently.
+     * @param monitoredType The type of object that the MBean represents. This type is used to construct the ObjectName
+     *                      of the MBean.
+     * @param name          The name of the monitored instance, used to construct the ObjectName of the MBean
+     */
+    public void registerMBean(Object mBean, Class<?> monitoredType, String name) {
+        if (enabled) {
+            try {
+                mBeanServer.registerMBean(mBean, objectNameFor(monitoredType, name));
+            } catch (InstanceAlreadyExistsException e) {
+                logger.warn("Object {} has already been registered as an MBean", mBean);
+            } catch (MBeanRegistrationException e) {
+                logger.error("An error occurred registering an MBean", e);
+            } catch (NotCompliantMBeanException e) {
+                logger.error("Non-compliant MBean registered.", e);
+            }
+        }
+    }
+
+    private ObjectName objectNameFor(Class<?> clazz, String name) {
+        try {
+            return new ObjectName("org.axonframework:type=" + clazz.getSimpleName() + ",name="
+                                          + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(String.format("[%s] cannot be used as the name of an MBean", name), e);
+        }
+    }
+
     private ObjectName objectNameFor(Class<?> clazz) {
         try {
             return new ObjectName("org.axonframework", "type", clazz.getSimpleName());
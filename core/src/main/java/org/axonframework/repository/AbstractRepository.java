@@ -22,7 +22,9 @@ import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.DomainEventStream;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
 import org.axonframework.unitofwork.SaveAggregateCallback;
+import org.axonframework.unitofwork.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,15 +63,27 @@ public abstract class AbstractRepository<T extends AggregateRoot> implements Rep
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * If the aggregate has already been loaded by this repository in the current {@link DefaultUnitOfWork}, that
+     * instance is returned instead of loading the aggregate again.
      *
      * @throws AggregateNotFoundException if aggregate with given id cannot be found
      * @throws RuntimeException           any exception thrown by implementing classes
      */
     @Override
     public T load(AggregateIdentifier aggregateIdentifier, Long expectedVersion) {
+        UnitOfWork unitOfWork = CurrentUnitOfWork.get();
+        if (unitOfWork instanceof DefaultUnitOfWork) {
+            T registeredAggregate = ((DefaultUnitOfWork) unitOfWork).getRegisteredAggregate(aggregateIdentifier,
+                                                                                            saveAggregateCallback);
+            if (registeredAggregate != null) {
+                validateOnLoad(registeredAggregate, expectedVersion);
+                return registeredAggregate;
+            }
+        }
         T aggregate = doLoad(aggregateIdentifier, expectedVersion);
         validateOnLoad(aggregate, expectedVersion);
-        return CurrentUnitOfWork.get().registerAggregate(aggregate, saveAggregateCallback);
+        return unitOfWork.registerAggregate(aggregate, saveAggregateCallback);
     }
 
     /**
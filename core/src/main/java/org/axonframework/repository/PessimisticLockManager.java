@@ -40,10 +40,8 @@ class PessimisticLockManager implements LockManager {
      */
     @Override
     public boolean validateLock(AggregateRoot aggregate) {
-        AggregateIdentifier aggregateIdentifier = aggregate.getIdentifier();
-
-        return isLockAvailableFor(aggregateIdentifier)
-                && lockFor(aggregateIdentifier).isHeldByCurrentThread();
+        DisposableLock lock = lockFor(aggregate.getIdentifier());
+        return lock != null && lock.isHeldByCurrentThread();
     }
 
     /**
@@ -55,11 +53,10 @@ class PessimisticLockManager implements LockManager {
     public void obtainLock(AggregateIdentifier aggregateIdentifier) {
         boolean lockObtained = false;
         while (!lockObtained) {
-            createLockIfAbsent(aggregateIdentifier);
-            DisposableLock lock = lockFor(aggregateIdentifier);
+            DisposableLock lock = createLockIfAbsent(aggregateIdentifier);
             lockObtained = lock.lock();
             if (!lockObtained) {
-                locks.remove(aggregateIdentifier, lock);
+                locks.remove(aggregateIdentifier.asString(), lock);
             }
         }
     }
@@ -78,14 +75,20 @@ class PessimisticLockManager implements LockManager {
         lock.unlock(aggregateIdentifier);
     }
 
-    private void createLockIfAbsent(AggregateIdentifier aggregateIdentifier) {
-        if (!locks.contains(aggregateIdentifier)) {
-            locks.putIfAbsent(aggregateIdentifier.asString(), new DisposableLock());
+    /**
+     * Returns the lock for the given aggregate, creating it if it does not exist. The returned lock may have been
+     * disposed of by the time it is locked, in which case a new lock needs to be created.
+     */
+    private DisposableLock createLockIfAbsent(AggregateIdentifier aggregateIdentifier) {
+        DisposableLock lock = lockFor(aggregateIdentifier);
+        if (lock == null) {
+            DisposableLock newLock = new DisposableLock();
+            lock = locks.putIfAbsent(aggregateIdentifier.asString(), newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
         }
-    }
-
-    private boolean isLockAvailableFor(AggregateIdentifier aggregateIdentifier) {
-        return locks.containsKey(aggregateIdentifier.asString());
+        return lock;
     }
 
     private DisposableLock lockFor(AggregateIdentifier aggregateIdentifier) {
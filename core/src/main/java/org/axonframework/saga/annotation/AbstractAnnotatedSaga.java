@@ -78,13 +78,29 @@ public abstract class AbstractAnnotatedSaga implements Saga, Serializable {
 
     private void doHandle(Event event) {
         if (isActive) {
-            eventHandlerInvoker.invokeSagaEventHandlerMethod(event);
-            if (eventHandlerInvoker.isEndingEvent(event)) {
+            SagaEventHandlerInvoker invoker = getEventHandlerInvoker();
+            invoker.invokeSagaEventHandlerMethod(event);
+            if (invoker.isEndingEvent(event)) {
                 end();
             }
         }
     }
 
+    /**
+     * Returns the invoker for this saga's event handlers. The invoker is created if this saga was deserialized by a
+     * mechanism that does not invoke the Java serialization methods.
+     *
+     * @return the invoker for this saga's event handlers
+     */
+    private SagaEventHandlerInvoker getEventHandlerInvoker() {
+        SagaEventHandlerInvoker invoker = eventHandlerInvoker;
+        if (invoker == null) {
+            invoker = new SagaEventHandlerInvoker(this);
+            eventHandlerInvoker = invoker;
+        }
+        return invoker;
+    }
+
     @Override
     public boolean isActive() {
         return isActive;
@@ -18,6 +18,7 @@ package org.axonframework.saga.annotation;
 
 import org.axonframework.domain.Event;
 import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.SelectiveEventListener;
 import org.axonframework.eventhandling.TransactionManager;
 import org.axonframework.saga.AbstractSagaManager;
 import org.axonframework.saga.AssociationValue;
@@ -26,23 +27,34 @@ import org.axonframework.saga.Saga;
 import org.axonframework.saga.SagaFactory;
 import org.axonframework.saga.SagaRepository;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 
 /**
  * Implementation of the SagaManager that uses annotations on the Sagas to describe the lifecycle management. Unlike
  * the
  * SimpleSagaManager, this implementation can manage several types of Saga in a single AnnotatedSagaManager.
+ * <p/>
+ * The types of Saga interested in a class of event are resolved once per event class. Events that none of the managed
+ * Saga types handle are ignored before any Saga lookup takes place. Event buses that support {@link
+ * SelectiveEventListener} will not even dispatch these events to the saga manager.
  *
  * @author Allard Buijze
  * @since 0.7
  */
-public class AnnotatedSagaManager extends AbstractSagaManager {
+public class AnnotatedSagaManager extends AbstractSagaManager implements SelectiveEventListener {
 
-    private final Set<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>> managedSagaTypes =
-            new HashSet<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>();
+    private final List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>> managedSagaTypes =
+            new ArrayList<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>();
+    private final ConcurrentMap<Class<?>, List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>>
+            sagaTypesByEvent =
+            new ConcurrentHashMap<Class<?>, List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>>();
 
     /**
      * Initialize the AnnotatedSagaManager using the given resources, and using a <code>GenericSagaFactory</code>.
@@ -97,15 +109,54 @@ public class AnnotatedSagaManager extends AbstractSagaManager {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Events that are not handled by any of the managed Saga types are ignored.
+     */
+    @Override
+    public void handle(Event event) {
+        if (!sagaTypesFor(event.getClass()).isEmpty()) {
+            super.handle(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canHandle(Class<? extends Event> eventType) {
+        return !sagaTypesFor(eventType).isEmpty();
+    }
+
     @Override
     protected Set<Saga> findSagas(Event event) {
         Set<Saga> sagasFound = new HashSet<Saga>();
-        for (SagaAnnotationInspector<? extends AbstractAnnotatedSaga> entry : managedSagaTypes) {
+        for (SagaAnnotationInspector<? extends AbstractAnnotatedSaga> entry : sagaTypesFor(event.getClass())) {
             sagasFound.addAll(findSagas(event, entry));
         }
         return sagasFound;
     }
 
+    private List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>> sagaTypesFor(
+            Class<? extends Event> eventType) {
+        List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>> sagaTypes = sagaTypesByEvent.get(eventType);
+        if (sagaTypes == null) {
+            List<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>> interested =
+                    new ArrayList<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>();
+            for (SagaAnnotationInspector<? extends AbstractAnnotatedSaga> inspector : managedSagaTypes) {
+                if (inspector.hasHandlerFor(eventType)) {
+                    interested.add(inspector);
+                }
+            }
+            sagaTypes = interested.isEmpty()
+                    ? Collections.<SagaAnnotationInspector<? extends AbstractAnnotatedSaga>>emptyList()
+                    : Collections.unmodifiableList(interested);
+            sagaTypesByEvent.putIfAbsent(eventType, sagaTypes);
+        }
+        return sagaTypes;
+    }
+
     private <T extends AbstractAnnotatedSaga> Set<T> findSagas(Event event, SagaAnnotationInspector<T> inspector) {
         HandlerConfiguration configuration = inspector.findHandlerConfiguration(event);
         if (!configuration.isHandlerAvailable()) {
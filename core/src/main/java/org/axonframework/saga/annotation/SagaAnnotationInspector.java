@@ -16,15 +16,19 @@
 
 package org.axonframework.saga.annotation;
 
+import net.sf.cglib.reflect.FastMethod;
 import org.axonframework.domain.Event;
 import org.axonframework.saga.AssociationValue;
 import org.axonframework.util.AbstractHandlerInspector;
 import org.axonframework.util.AxonConfigurationException;
+import org.axonframework.util.FastMethodUtils;
 import org.axonframework.util.Handler;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utility class that inspects annotation on a Saga instance and returns the relevant configuration for its Event
@@ -36,6 +40,10 @@ import java.util.Locale;
  */
 class SagaAnnotationInspector<T extends AbstractAnnotatedSaga> extends AbstractHandlerInspector {
 
+    private static final EventRoute NO_ROUTE = new EventRoute(SagaCreationPolicy.NONE, null, false, null, null);
+
+    private final ConcurrentMap<Class<?>, EventRoute> routes = new ConcurrentHashMap<Class<?>, EventRoute>();
+
     /**
      * Initialize the inspector.
      *
@@ -47,14 +55,43 @@ class SagaAnnotationInspector<T extends AbstractAnnotatedSaga> extends AbstractH
 
     /**
      * Find the configuration for the handler on the given <code>sagaType</code> for the given <code>event</code>.
+     * <p/>
+     * The handler, its annotations and the accessor of the association property are resolved once per event class.
+     * Subsequent invocations for events of the same class only read the association value from the event.
      *
      * @param event The Event to investigate the handler for
      * @return the configuration of the handler, as defined by the annotations.
      */
     public HandlerConfiguration findHandlerConfiguration(Event event) {
-        Handler handler = findHandlerMethod(event.getClass());
+        return routeFor(event.getClass()).configurationFor(event);
+    }
+
+    /**
+     * Indicates whether the saga type has a handler for events of the given <code>eventType</code>.
+     *
+     * @param eventType The type of event
+     * @return <code>true</code> if the saga handles events of the given type, otherwise <code>false</code>
+     */
+    public boolean hasHandlerFor(Class<? extends Event> eventType) {
+        return findHandlerMethod(eventType) != null;
+    }
+
+    private EventRoute routeFor(Class<? extends Event> eventType) {
+        EventRoute route = routes.get(eventType);
+        if (route == null) {
+            route = createRoute(eventType);
+            EventRoute existing = routes.putIfAbsent(eventType, route);
+            if (existing != null) {
+                route = existing;
+            }
+        }
+        return route;
+    }
+
+    private EventRoute createRoute(Class<? extends Event> eventType) {
+        Handler handler = findHandlerMethod(eventType);
         if (handler == null) {
-            return HandlerConfiguration.noHandler();
+            return NO_ROUTE;
         }
         Method handlerMethod = handler.getMethod();
         SagaEventHandler handlerAnnotation = handlerMethod.getAnnotation(SagaEventHandler.class);
@@ -64,12 +101,11 @@ class SagaAnnotationInspector<T extends AbstractAnnotatedSaga> extends AbstractH
         String associationKey = handlerAnnotation.keyName().isEmpty()
                 ? associationProperty
                 : handlerAnnotation.keyName();
-        Object associationValue = getPropertyValue(event, associationProperty);
-        AssociationValue association = new AssociationValue(associationKey, associationValue);
-        return new HandlerConfiguration(creationPolicy(startAnnotation),
-                                        handlerMethod,
-                                        endAnnotation != null,
-                                        association);
+        return new EventRoute(creationPolicy(startAnnotation),
+                              handlerMethod,
+                              endAnnotation != null,
+                              associationKey,
+                              findPropertyAccessor(eventType, associationProperty));
     }
 
     private SagaCreationPolicy creationPolicy(StartSaga startSaga) {
@@ -82,16 +118,11 @@ class SagaAnnotationInspector<T extends AbstractAnnotatedSaga> extends AbstractH
         }
     }
 
-    private Object getPropertyValue(Event event, String property) {
+    private PropertyAccessor findPropertyAccessor(Class<?> eventType, String property) {
         try {
-            Method m = event.getClass().getMethod("get" + capitalize(property));
-            return m.invoke(event);
+            return new PropertyAccessor(eventType.getMethod("get" + capitalize(property)));
         } catch (NoSuchMethodException e) {
             throw new AxonConfigurationException("", e);
-        } catch (InvocationTargetException e) {
-            throw new AxonConfigurationException("", e);
-        } catch (IllegalAccessException e) {
-            throw new AxonConfigurationException("", e);
         }
     }
 
@@ -108,4 +139,63 @@ class SagaAnnotationInspector<T extends AbstractAnnotatedSaga> extends AbstractH
     public Class<T> getSagaType() {
         return (Class<T>) super.getTargetType();
     }
+
+    /**
+     * The resolved handling of a specific class of event: the handler method with its settings, and the accessor of
+     * the association property on the event.
+     */
+    private static final class EventRoute {
+
+        private final SagaCreationPolicy creationPolicy;
+        private final Method handlerMethod;
+        private final boolean endSaga;
+        private final String associationKey;
+        private final PropertyAccessor associationProperty;
+
+        private EventRoute(SagaCreationPolicy creationPolicy, Method handlerMethod, boolean endSaga,
+                           String associationKey, PropertyAccessor associationProperty) {
+            this.creationPolicy = creationPolicy;
+            this.handlerMethod = handlerMethod;
+            this.endSaga = endSaga;
+            this.associationKey = associationKey;
+            this.associationProperty = associationProperty;
+        }
+
+        private HandlerConfiguration configurationFor(Event event) {
+            if (handlerMethod == null) {
+                return HandlerConfiguration.noHandler();
+            }
+            AssociationValue association = new AssociationValue(associationKey, associationProperty.valueOf(event));
+            return new HandlerConfiguration(creationPolicy, handlerMethod, endSaga, association);
+        }
+    }
+
+    /**
+     * Reads a property from an event, using a generated invoker of the getter when possible.
+     */
+    private static final class PropertyAccessor {
+
+        private static final Object[] NO_PARAMETERS = new Object[0];
+
+        private final Method getter;
+        private final FastMethod fastGetter;
+
+        private PropertyAccessor(Method getter) {
+            this.getter = getter;
+            this.fastGetter = FastMethodUtils.createFastMethod(getter);
+        }
+
+        private Object valueOf(Event event) {
+            try {
+                if (fastGetter != null) {
+                    return fastGetter.invoke(event, NO_PARAMETERS);
+                }
+                return getter.invoke(event);
+            } catch (InvocationTargetException e) {
+                throw new AxonConfigurationException("", e);
+            } catch (IllegalAccessException e) {
+                throw new AxonConfigurationException("", e);
+            }
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.Saga;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.axonframework.saga.annotation.AssociationValuesImpl;
+import org.axonframework.util.SerializationException;
+import org.axonframework.util.io.BinaryObjectCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * SagaSerializer implementation that uses a compact binary format. Compared to Java serialization, class descriptors
+ * are much smaller. Classes in the shared class dictionary are referenced using a small number instead of their name,
+ * and other classes are described only once per serialized saga, by name and field names. Axon's own saga classes, such
+ * as {@link AssociationValuesImpl} and {@link AssociationValue}, as well as the common collection types, are encoded
+ * without any class descriptor. See {@link BinaryObjectCodec} for the details of the encoding.
+ * <p/>
+ * The shared dictionary always contains a number of built-in classes. Additional classes can be registered using
+ * {@link #setRegisteredClasses(java.util.List)}. Since the position of a class in the dictionary is stored in the
+ * serialized form, registered classes may only be appended to the list. Removing or reordering classes makes previously
+ * serialized sagas unreadable.
+ * <p/>
+ * This serializer is also capable of reading sagas serialized by the {@link JavaSagaSerializer}. This allows existing
+ * repositories to switch to this serializer without migrating stored sagas.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class BinarySagaSerializer implements SagaSerializer {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte JAVA_SERIALIZATION_MAGIC = (byte) 0xAC;
+
+    private final JavaSagaSerializer javaSagaSerializer = new JavaSagaSerializer();
+    private final SagaCodec codec = new SagaCodec();
+
+    @Override
+    public byte[] serialize(Saga saga) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeByte(FORMAT_VERSION);
+            codec.newWriter(out).writeValue(saga);
+            out.flush();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred while trying to serialize a Saga for storage", e);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public Saga deserialize(byte[] serializedSaga) {
+        if (serializedSaga.length > 0 && serializedSaga[0] == JAVA_SERIALIZATION_MAGIC) {
+            return javaSagaSerializer.deserialize(serializedSaga);
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(serializedSaga));
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new SerializationException(String.format("Unsupported serialization format version: [%s]",
+                                                               version));
+            }
+            return (Saga) codec.newReader(in).readValue();
+        } catch (IOException e) {
+            throw new SerializationException("An exception occurred while trying to deserialize a stored Saga", e);
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("An exception occurred while trying to deserialize a stored Saga", e);
+        }
+    }
+
+    /**
+     * Sets the classes to add to the shared class dictionary, in addition to the built-in classes. Objects of classes in
+     * the dictionary are serialized without their class name.
+     * <p/>
+     * Note that the order of the classes in the given list is significant. New classes may only be added to the end of
+     * the list, otherwise previously serialized sagas can no longer be deserialized.
+     *
+     * @param registeredClasses The classes to add to the shared class dictionary
+     */
+    public void setRegisteredClasses(List<Class<?>> registeredClasses) {
+        codec.setRegisteredClasses(registeredClasses);
+    }
+
+    /**
+     * Codec that encodes the association values of sagas without any class descriptor. The serialization methods of
+     * {@link AbstractAnnotatedSaga} only restore transient state, so sagas are still encoded field by field.
+     */
+    private static final class SagaCodec extends BinaryObjectCodec {
+
+        private static final byte ASSOCIATION_VALUES = 0;
+        private static final byte ASSOCIATION_VALUE = 1;
+
+        @Override
+        protected boolean isCustomType(Class<?> type) {
+            return type == AssociationValuesImpl.class || type == AssociationValue.class;
+        }
+
+        @Override
+        protected void writeCustomValue(Object value, ObjectWriter writer) throws IOException {
+            if (value instanceof AssociationValuesImpl) {
+                AssociationValuesImpl associationValues = (AssociationValuesImpl) value;
+                writer.writeByte(ASSOCIATION_VALUES);
+                writer.writeNumber(associationValues.size());
+                for (AssociationValue associationValue : associationValues) {
+                    writer.writeValue(associationValue);
+                }
+            } else {
+                writer.writeByte(ASSOCIATION_VALUE);
+                writer.writeValue(((AssociationValue) value).getKey());
+                writer.writeValue(((AssociationValue) value).getValue());
+            }
+        }
+
+        @Override
+        protected Object readCustomValue(ObjectReader reader) throws IOException, ClassNotFoundException {
+            byte type = reader.readByte();
+            if (type == ASSOCIATION_VALUES) {
+                AssociationValuesImpl associationValues = new AssociationValuesImpl();
+                long size = reader.readNumber();
+                for (long i = 0; i < size; i++) {
+                    associationValues.add((AssociationValue) reader.readValue());
+                }
+                return associationValues;
+            } else if (type == ASSOCIATION_VALUE) {
+                String key = (String) reader.readValue();
+                return new AssociationValue(key, reader.readValue());
+            }
+            throw new SerializationException(String.format("Unknown value type [%s] in serialized Saga", type));
+        }
+
+        @Override
+        protected boolean hasSerializationMethods(Class<?> type) {
+            return type != AbstractAnnotatedSaga.class && super.hasSerializationMethods(type);
+        }
+    }
+}
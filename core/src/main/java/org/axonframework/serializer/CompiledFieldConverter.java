@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.serializer;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.SingleValueConverter;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.converters.reflection.ReflectionConverter;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.converters.reflection.SerializationMethodInvoker;
+import com.thoughtworks.xstream.core.util.HierarchicalStreams;
+import com.thoughtworks.xstream.io.ExtendedHierarchicalStreamWriterHelper;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+import org.axonframework.util.SerializationException;
+
+import java.io.Externalizable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.axonframework.util.ReflectionUtils.ensureAccessible;
+
+/**
+ * XStream converter for a single, concrete class that produces exactly the same XML as XStream's {@link
+ * ReflectionConverter}, but without inspecting the class on each invocation. The serializable fields, their aliases,
+ * default implementations and attribute converters are resolved once, when the converter is compiled. Marshalling and
+ * unmarshalling then reads and writes the (accessible) fields directly.
+ * <p/>
+ * Not all classes can be compiled. Classes with custom serialization methods (<code>writeObject</code>,
+ * <code>readObject</code> or <code>writeReplace</code>), Externalizable classes, classes with hidden fields, implicit
+ * collections, or classes that XStream does not handle using the ReflectionConverter, are left to XStream. See {@link
+ * #compile(com.thoughtworks.xstream.XStream, Class)}.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+class CompiledFieldConverter implements Converter {
+
+    private final Class<?> type;
+    private final ReflectionProvider reflectionProvider;
+    private final SerializationMethodInvoker serializationMethodInvoker = new SerializationMethodInvoker();
+    private final Mapper mapper;
+    private final String classAttributeName;
+    private final FieldLayout[] attributeFields;
+    private final FieldLayout[] elementFields;
+    private final Map<String, FieldLayout> fieldsByElementName = new HashMap<String, FieldLayout>();
+
+    /**
+     * Compiles a converter for the given <code>type</code>, using the configuration of the given <code>xStream</code>.
+     * All aliases and attribute definitions for the type must have been registered before compiling the converter.
+     * Returns <code>null</code> if the given type cannot be compiled. In that case, XStream should be left to serialize
+     * it.
+     *
+     * @param xStream The XStream instance the converter will be registered with
+     * @param type    The concrete type to compile a converter for
+     * @return a compiled converter for the given type, or <code>null</code> if the type is not supported
+     */
+    static CompiledFieldConverter compile(XStream xStream, final Class<?> type) {
+        if (!isCompilable(xStream, type)) {
+            return null;
+        }
+        final Mapper mapper = xStream.getMapper();
+        final ReflectionProvider reflectionProvider = xStream.getReflectionProvider();
+        final List<FieldLayout> attributes = new ArrayList<FieldLayout>();
+        final List<FieldLayout> elements = new ArrayList<FieldLayout>();
+        final Set<String> fieldNames = new HashSet<String>();
+        final boolean[] supported = new boolean[]{true};
+        Object prototype = reflectionProvider.newInstance(type);
+        reflectionProvider.visitSerializableFields(prototype, new ReflectionProvider.Visitor() {
+            @SuppressWarnings({"rawtypes"})
+            @Override
+            public void visit(String fieldName, Class fieldType, Class definedIn, Object value) {
+                if (!fieldNames.add(fieldName)
+                        || mapper.getImplicitCollectionDefForFieldName(definedIn, fieldName) != null) {
+                    supported[0] = false;
+                }
+                if (!mapper.shouldSerializeMember(definedIn, fieldName)) {
+                    return;
+                }
+                Field field = reflectionProvider.getField(definedIn, fieldName);
+                ensureAccessible(field);
+                SingleValueConverter attributeConverter = mapper.getConverterFromItemType(fieldName,
+                                                                                          fieldType,
+                                                                                          definedIn);
+                if (attributeConverter != null) {
+                    String attributeName = mapper.aliasForAttribute(mapper.serializedMember(definedIn, fieldName));
+                    attributes.add(new FieldLayout(field, attributeName, null, null, attributeConverter, null));
+                } else {
+                    Class<?> defaultType = mapper.defaultImplementationOf(fieldType);
+                    elements.add(new FieldLayout(field,
+                                                 mapper.serializedMember(type, fieldName),
+                                                 defaultType,
+                                                 mapper.serializedClass(defaultType),
+                                                 null,
+                                                 mapper.getLocalConverter(definedIn, fieldName)));
+                }
+            }
+        });
+        if (!supported[0]) {
+            return null;
+        }
+        return new CompiledFieldConverter(type, xStream, attributes, elements);
+    }
+
+    private static boolean isCompilable(XStream xStream, Class<?> type) {
+        if (type.isInterface() || type.isArray() || type.isPrimitive() || type.isEnum()
+                || Externalizable.class.isAssignableFrom(type)
+                || !(xStream.getConverterLookup().lookupConverterForType(type) instanceof ReflectionConverter)) {
+            return false;
+        }
+        SerializationMethodInvoker invoker = new SerializationMethodInvoker();
+        return !invoker.supportsWriteObject(type, true)
+                && !invoker.supportsReadObject(type, true)
+                && findWriteReplace(type) == null;
+    }
+
+    private static Method findWriteReplace(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredMethod("writeReplace");
+            } catch (NoSuchMethodException e) {
+                // continue with the superclass
+            }
+        }
+        return null;
+    }
+
+    private CompiledFieldConverter(Class<?> type, XStream xStream, List<FieldLayout> attributes,
+                                   List<FieldLayout> elements) {
+        this.type = type;
+        this.reflectionProvider = xStream.getReflectionProvider();
+        this.mapper = xStream.getMapper();
+        this.classAttributeName = mapper.aliasForSystemAttribute("class");
+        this.attributeFields = attributes.toArray(new FieldLayout[attributes.size()]);
+        this.elementFields = elements.toArray(new FieldLayout[elements.size()]);
+        for (FieldLayout element : elementFields) {
+            fieldsByElementName.put(element.name, element);
+        }
+    }
+
+    /**
+     * Returns the type this converter was compiled for.
+     *
+     * @return the type this converter was compiled for
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    @SuppressWarnings({"rawtypes"})
+    @Override
+    public boolean canConvert(Class candidate) {
+        return type == candidate;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        for (FieldLayout attribute : attributeFields) {
+            Object value = attribute.get(source);
+            if (value != null) {
+                String stringValue = attribute.attributeConverter.toString(value);
+                if (stringValue != null) {
+                    writer.addAttribute(attribute.name, stringValue);
+                }
+            }
+        }
+        for (FieldLayout element : elementFields) {
+            Object value = element.get(source);
+            if (value != null) {
+                Class<?> actualType = value.getClass();
+                ExtendedHierarchicalStreamWriterHelper.startNode(writer, element.name, actualType);
+                if (!actualType.equals(element.defaultType) && classAttributeName != null) {
+                    String serializedClassName = mapper.serializedClass(actualType);
+                    if (!serializedClassName.equals(element.serializedDefaultType)) {
+                        writer.addAttribute(classAttributeName, serializedClassName);
+                    }
+                }
+                context.convertAnother(value, element.localConverter);
+                writer.endNode();
+            }
+        }
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        Object result = reflectionProvider.newInstance(type);
+        for (FieldLayout attribute : attributeFields) {
+            String stringValue = reader.getAttribute(attribute.name);
+            if (stringValue != null) {
+                attribute.set(result, attribute.attributeConverter.fromString(stringValue));
+            }
+        }
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            String nodeName = reader.getNodeName();
+            FieldLayout element = fieldsByElementName.get(nodeName);
+            if (element != null) {
+                String classAttribute = HierarchicalStreams.readClassAttribute(reader, mapper);
+                Class<?> valueType = classAttribute == null ? element.defaultType : mapper.realClass(classAttribute);
+                element.set(result, context.convertAnother(result, valueType, element.localConverter));
+            } else {
+                throw new ConversionException(String.format("No field [%s] found in class [%s]",
+                                                            nodeName, type.getName()));
+            }
+            reader.moveUp();
+        }
+        return serializationMethodInvoker.callReadResolve(result);
+    }
+
+    private static final class FieldLayout {
+
+        private final Field field;
+        private final String name;
+        private final Class<?> defaultType;
+        private final String serializedDefaultType;
+        private final SingleValueConverter attributeConverter;
+        private final Converter localConverter;
+
+        private FieldLayout(Field field, String name, Class<?> defaultType, String serializedDefaultType,
+                            SingleValueConverter attributeConverter, Converter localConverter) {
+            this.field = field;
+            this.name = name;
+            this.defaultType = defaultType;
+            this.serializedDefaultType = serializedDefaultType;
+            this.attributeConverter = attributeConverter;
+            this.localConverter = localConverter;
+        }
+
+        private Object get(Object instance) {
+            try {
+                return field.get(instance);
+            } catch (IllegalAccessException e) {
+                throw new SerializationException(String.format("Unable to read field [%s] of [%s]",
+                                                               field.getName(), instance.getClass().getName()), e);
+            }
+        }
+
+        private void set(Object instance, Object value) {
+            try {
+                field.set(instance, value);
+            } catch (IllegalAccessException e) {
+                throw new SerializationException(String.format("Unable to write field [%s] of [%s]",
+                                                               field.getName(), instance.getClass().getName()), e);
+            }
+        }
+    }
+}
@@ -194,6 +194,31 @@ public class GenericXStreamSerializer {
         xStream.aliasField(alias, definedIn, fieldName);
     }
 
+    /**
+     * Registers a converter for the given <code>type</code> that is compiled once, instead of inspecting the type
+     * using reflection each time an instance is (de)serialized. The compiled converter produces exactly the same XML
+     * as XStream's default converter, which means that previously serialized instances can still be read, and vice
+     * versa.
+     * <p/>
+     * Compilation uses the current configuration of this serializer. Aliases and attribute definitions that apply to
+     * the given type must be registered before calling this method.
+     * <p/>
+     * Types that need special treatment during serialization, such as classes with custom serialization methods,
+     * cannot be compiled. For those types, this method returns <code>false</code> and XStream's default behavior is
+     * used.
+     *
+     * @param type The concrete type to register a compiled converter for
+     * @return <code>true</code> if a compiled converter was registered, otherwise <code>false</code>
+     */
+    public boolean registerCompiledConverter(Class<?> type) {
+        CompiledFieldConverter converter = CompiledFieldConverter.compile(xStream, type);
+        if (converter == null) {
+            return false;
+        }
+        xStream.registerConverter(converter);
+        return true;
+    }
+
     /**
      * Returns a reference to the underlying {@link com.thoughtworks.xstream.XStream} instance, that does the actual
      * serialization.
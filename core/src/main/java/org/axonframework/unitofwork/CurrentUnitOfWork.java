@@ -82,6 +82,27 @@ public abstract class CurrentUnitOfWork {
         get().commit();
     }
 
+    /**
+     * Runs the given <code>task</code> with the given <code>unitOfWork</code> bound to the current thread. The unit of
+     * work is cleared when the task completes. This allows components that split work over several threads to make the
+     * unit of work of the calling thread available to the other threads. The caller is responsible for waiting for
+     * the task to complete before the unit of work is committed or rolled back.
+     * <p/>
+     * Note that UnitOfWork implementations are not thread safe. A unit of work may only be bound to another thread
+     * while the thread that started it does not use it, unless it is wrapped in a view that does not modify it.
+     *
+     * @param unitOfWork The UnitOfWork to bind to the current thread while the task runs
+     * @param task       The task to run
+     */
+    public static void runWith(UnitOfWork unitOfWork, Runnable task) {
+        set(unitOfWork);
+        try {
+            task.run();
+        } finally {
+            clear(unitOfWork);
+        }
+    }
+
     /**
      * Binds the given <code>unitOfWork</code> to the current thread. If other UnitOfWork instances were bound, they
      * will be marked as inactive until the given UnitOfWork is cleared.
@@ -114,6 +114,28 @@ public class DefaultUnitOfWork extends AbstractUnitOfWork {
         return aggregate;
     }
 
+    /**
+     * Returns the aggregate with the given <code>identifier</code> that has been registered with this UnitOfWork using
+     * the given <code>callback</code>, or <code>null</code> if there is none. Repositories use this to avoid loading an
+     * aggregate that is already part of this UnitOfWork, for example when several commands of a batch target the same
+     * aggregate.
+     *
+     * @param identifier The identifier of the aggregate
+     * @param callback   The callback the aggregate was registered with
+     * @param <T>        The type of aggregate
+     * @return the registered aggregate, or <code>null</code> if no such aggregate has been registered
+     */
+    @SuppressWarnings({"unchecked"})
+    public <T extends AggregateRoot> T getRegisteredAggregate(AggregateIdentifier identifier,
+                                                              SaveAggregateCallback<T> callback) {
+        for (AggregateEntry<?> entry : registeredAggregates.values()) {
+            if (entry.callback == callback && identifier.equals(entry.aggregateRoot.getIdentifier())) {
+                return (T) entry.aggregateRoot;
+            }
+        }
+        return null;
+    }
+
     @SuppressWarnings({"unchecked"})
     private <T extends AggregateRoot> T findSimilarAggregate(Class<T> aggregateType,
                                                              AggregateIdentifier identifier) {
@@ -17,12 +17,12 @@
 package org.axonframework.util;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * Abstract utility class that inspects handler methods.
+ * <p/>
+ * The handler methods of a class are discovered only once, and shared by all inspectors of that class (see {@link
+ * AnnotatedHandlers}). Creating an inspector for a previously inspected class is therefore cheap.
  *
  * @author Allard Buijze
  * @since 0.7
@@ -30,7 +30,7 @@ import java.util.List;
 public abstract class AbstractHandlerInspector {
 
     private final Class<?> targetType;
-    private final List<Handler> handlers = new LinkedList<Handler>();
+    private final AnnotatedHandlers handlers;
 
     /**
      * Initialize an AbstractHandlerInspector, where the given <code>annotationType</code> is used to annotate the
@@ -42,11 +42,7 @@ public abstract class AbstractHandlerInspector {
      */
     protected AbstractHandlerInspector(Class<?> targetType, Class<? extends Annotation> annotationType) {
         this.targetType = targetType;
-        for (Method method : ReflectionUtils.methodsOf(targetType)) {
-            if (method.isAnnotationPresent(annotationType)) {
-                handlers.add(new Handler(method));
-            }
-        }
+        this.handlers = AnnotatedHandlers.forType(targetType, annotationType);
     }
 
     /**
@@ -57,27 +53,16 @@ public abstract class AbstractHandlerInspector {
      * @return the  handler method for the given parameterType
      */
     protected Handler findHandlerMethod(final Class<?> parameterType) {
-        Handler bestHandlerSoFar = null;
-        for (Handler handler : handlers) {
-            Handler foundSoFar = bestHandlerSoFar;
-            Class<?> classUnderInvestigation = handler.getDeclaringClass();
-            boolean bestInClassFound =
-                    foundSoFar != null
-                            && !classUnderInvestigation.equals(foundSoFar.getDeclaringClass())
-                            && classUnderInvestigation.isAssignableFrom(foundSoFar.getDeclaringClass());
-            if (!bestInClassFound && handler.getParameterType().isAssignableFrom(parameterType)) {
-                // method is eligible, but is it the best?
-                if (bestHandlerSoFar == null) {
-                    // if we have none yet, this one is the best
-                    bestHandlerSoFar = handler;
-                } else if (bestHandlerSoFar.getDeclaringClass().equals(handler.getDeclaringClass())
-                        && bestHandlerSoFar.getParameterType().isAssignableFrom(handler.getParameterType())) {
-                    // this one is more specific, so it wins
-                    bestHandlerSoFar = handler;
-                }
-            }
-        }
-        return bestHandlerSoFar;
+        return handlers.findHandlerFor(parameterType);
+    }
+
+    /**
+     * Returns the handlers found on the target type.
+     *
+     * @return the handlers found on the target type
+     */
+    protected AnnotatedHandlers getHandlers() {
+        return handlers;
     }
 
     /**
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable description of the handler methods that a class declares using a specific annotation. The handlers of a
+ * class are discovered once, and shared by all inspectors of that class, so that creating an inspector or invoker
+ * for an instance does not require the class to be scanned again.
+ * <p/>
+ * Instances are obtained using {@link #forType(Class, Class)}.
+ *
+ * @author Allard Buijze
+ * @see AbstractHandlerInspector
+ * @since 1.0
+ */
+public final class AnnotatedHandlers {
+
+    private static final ClassValueCache<ConcurrentMap<Class<? extends Annotation>, AnnotatedHandlers>> CACHE =
+            new ClassValueCache<ConcurrentMap<Class<? extends Annotation>, AnnotatedHandlers>>() {
+                @Override
+                protected ConcurrentMap<Class<? extends Annotation>, AnnotatedHandlers> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<Class<? extends Annotation>, AnnotatedHandlers>();
+                }
+            };
+    private static final Object NO_HANDLER = new Object();
+
+    private final Class<?> targetType;
+    private final Class<? extends Annotation> annotationType;
+    private final List<Handler> handlers;
+    private final ConcurrentMap<Class<?>, Object> resolvedHandlers = new ConcurrentHashMap<Class<?>, Object>();
+
+    private AnnotatedHandlers(Class<?> targetType, Class<? extends Annotation> annotationType) {
+        this.targetType = targetType;
+        this.annotationType = annotationType;
+        List<Handler> found = new ArrayList<Handler>();
+        for (Method method : ReflectionUtils.methodsOf(targetType)) {
+            if (method.isAnnotationPresent(annotationType)) {
+                found.add(new Handler(method));
+            }
+        }
+        this.handlers = Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Returns the handlers annotated with given <code>annotationType</code> on the given <code>targetType</code>. The
+     * class is only inspected the first time this method is invoked for a combination of type and annotation.
+     * Subsequent invocations return the same instance, unless the garbage collector has cleared it from the cache.
+     *
+     * @param targetType     The type to find handler methods on
+     * @param annotationType The annotation demarcating the handler methods
+     * @return the handlers declared on the given type
+     */
+    public static AnnotatedHandlers forType(Class<?> targetType, Class<? extends Annotation> annotationType) {
+        ConcurrentMap<Class<? extends Annotation>, AnnotatedHandlers> handlersOfType = CACHE.get(targetType);
+        AnnotatedHandlers handlers = handlersOfType.get(annotationType);
+        if (handlers == null) {
+            handlers = new AnnotatedHandlers(targetType, annotationType);
+            AnnotatedHandlers existing = handlersOfType.putIfAbsent(annotationType, handlers);
+            if (existing != null) {
+                handlers = existing;
+            }
+        }
+        return handlers;
+    }
+
+    /**
+     * Returns the type declaring the handlers.
+     *
+     * @return the type declaring the handlers
+     */
+    public Class<?> getTargetType() {
+        return targetType;
+    }
+
+    /**
+     * Returns the annotation demarcating the handler methods.
+     *
+     * @return the annotation demarcating the handler methods
+     */
+    public Class<? extends Annotation> getAnnotationType() {
+        return annotationType;
+    }
+
+    /**
+     * Returns an unmodifiable list of the handlers declared on the target type. Handlers declared on a subclass
+     * precede the handlers declared on its superclasses.
+     *
+     * @return the handlers declared on the target type
+     */
+    public List<Handler> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Returns the handler that handles objects of the given <code>parameterType</code>, or <code>null</code> if no
+     * such handler exists. The result is resolved once per parameter type, and cached for subsequent invocations.
+     * <p/>
+     * If several handlers accept the given type, the most specific handler declared on the most specific class wins.
+     *
+     * @param parameterType The parameter type to find a handler for
+     * @return the handler for the given parameterType, or <code>null</code> if no such handler exists
+     */
+    public Handler findHandlerFor(Class<?> parameterType) {
+        Object resolved = resolvedHandlers.get(parameterType);
+        if (resolved == null) {
+            Handler handler = resolveHandler(parameterType);
+            resolved = handler == null ? NO_HANDLER : handler;
+            resolvedHandlers.putIfAbsent(parameterType, resolved);
+        }
+        return resolved == NO_HANDLER ? null : (Handler) resolved;
+    }
+
+    private Handler resolveHandler(Class<?> parameterType) {
+        Handler bestHandlerSoFar = null;
+        for (Handler handler : handlers) {
+            Handler foundSoFar = bestHandlerSoFar;
+            Class<?> classUnderInvestigation = handler.getDeclaringClass();
+            boolean bestInClassFound =
+                    foundSoFar != null
+                            && !classUnderInvestigation.equals(foundSoFar.getDeclaringClass())
+                            && classUnderInvestigation.isAssignableFrom(foundSoFar.getDeclaringClass());
+            if (!bestInClassFound && handler.getParameterType().isAssignableFrom(parameterType)) {
+                // method is eligible, but is it the best?
+                if (bestHandlerSoFar == null) {
+                    // if we have none yet, this one is the best
+                    bestHandlerSoFar = handler;
+                } else if (bestHandlerSoFar.getDeclaringClass().equals(handler.getDeclaringClass())
+                        && bestHandlerSoFar.getParameterType().isAssignableFrom(handler.getParameterType())) {
+                    // this one is more specific, so it wins
+                    bestHandlerSoFar = handler;
+                }
+            }
+        }
+        return bestHandlerSoFar;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of values that are computed once per class. The cache does not prevent classes, or the class loaders that
+ * loaded them, from being garbage collected. Classes are referenced weakly. The cached values are referenced softly,
+ * as they typically reference the class they describe. Values cleared by the garbage collector are computed again
+ * when they are requested.
+ * <p/>
+ * This class is meant for internal use by Axon components that inspect classes.
+ *
+ * @param <V> The type of value cached per class
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public abstract class ClassValueCache<V> {
+
+    private final Map<Class<?>, SoftReference<V>> values = new WeakHashMap<Class<?>, SoftReference<V>>();
+
+    /**
+     * Returns the value for the given <code>type</code>, computing it if it is not cached. When several threads
+     * compute the value for the same type concurrently, all of them receive the value that was cached first.
+     *
+     * @param type The type to return the value for
+     * @return the value for the given type
+     */
+    public V get(Class<?> type) {
+        V value = cachedValue(type);
+        if (value != null) {
+            return value;
+        }
+        value = computeValue(type);
+        synchronized (values) {
+            V existing = cachedValue(type);
+            if (existing != null) {
+                return existing;
+            }
+            values.put(type, new SoftReference<V>(value));
+        }
+        return value;
+    }
+
+    private V cachedValue(Class<?> type) {
+        synchronized (values) {
+            SoftReference<V> reference = values.get(type);
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * Computes the value for the given <code>type</code>. This method is invoked without holding any locks, and may
+     * be invoked more than once for the same type. It must never return <code>null</code>.
+     *
+     * @param type The type to compute the value for
+     * @return the value for the given type
+     */
+    protected abstract V computeValue(Class<?> type);
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2010-2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Utility class that generates invokers for methods, allowing them to be invoked without the overhead of reflection.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public abstract class FastMethodUtils {
+
+    private static final Logger logger = LoggerFactory.getLogger(FastMethodUtils.class);
+
+    private FastMethodUtils() {
+        // utility class
+    }
+
+    /**
+     * Creates a generated invoker for the given <code>method</code>. No invoker can be generated for private methods,
+     * methods declared on classes loaded by the bootstrap class loader, or methods that the generated class cannot
+     * see. In that case, <code>null</code> is returned and the caller should fall back to reflection.
+     *
+     * @param method The method to generate an invoker for
+     * @return the generated invoker, or <code>null</code> if none could be generated
+     */
+    public static FastMethod createFastMethod(Method method) {
+        if (Modifier.isPrivate(method.getModifiers()) || method.getDeclaringClass().getClassLoader() == null) {
+            return null;
+        }
+        try {
+            FastClass fastClass = FastClass.create(method.getDeclaringClass().getClassLoader(),
+                                                   method.getDeclaringClass());
+            if (fastClass.getIndex(method.getName(), method.getParameterTypes()) < 0) {
+                return null;
+            }
+            return fastClass.getMethod(method);
+        } catch (RuntimeException e) {
+            logger.debug("Unable to generate an invoker for method [{}]. Falling back to reflection.",
+                         method.toGenericString());
+            return null;
+        } catch (LinkageError e) {
+            logger.debug("Unable to generate an invoker for method [{}]. Falling back to reflection.",
+                         method.toGenericString());
+            return null;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.axonframework.util;
 
+import net.sf.cglib.reflect.FastMethod;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -23,6 +25,10 @@ import static java.security.AccessController.doPrivileged;
 
 /**
  * Represents a method recognized as a handler by the handler inspector (see {@link AbstractHandlerInspector}).
+ * <p/>
+ * When the handler is created, a class is generated that invokes the handler method directly, without the overhead of
+ * reflection. If such a class cannot be generated, for example because the method is private, the method is invoked
+ * using reflection.
  *
  * @author Allard Buijze
  * @since 1.0
@@ -33,6 +39,7 @@ public class Handler {
     private final Class<?> parameterType;
     private final boolean optionalParameter;
     private final Class<?> declaringClass;
+    private final FastMethod fastMethod;
 
     /**
      * Create a handler instance for the given method. A method is regarded a handler method if it has either 1 or 2
@@ -46,6 +53,19 @@ public class Handler {
         this.parameterType = parameterTypes[0];
         this.optionalParameter = parameterTypes.length > 1;
         this.declaringClass = method.getDeclaringClass();
+        this.fastMethod = FastMethodUtils.createFastMethod(method);
+        if (fastMethod == null && !method.isAccessible()) {
+            doPrivileged(new MethodAccessibilityCallback(method));
+        }
+    }
+
+    /**
+     * Indicates whether this handler is invoked using a generated invoker, instead of reflection.
+     *
+     * @return <code>true</code> if a generated invoker is used, otherwise <code>false</code>
+     */
+    boolean hasGeneratedInvoker() {
+        return fastMethod != null;
     }
 
     /**
@@ -99,8 +119,11 @@ public class Handler {
      */
     public Object invoke(Object target, Object parameter, Object secondHandlerParameter)
             throws IllegalAccessException, InvocationTargetException {
-        if (!method.isAccessible()) {
-            doPrivileged(new MethodAccessibilityCallback(method));
+        if (fastMethod != null) {
+            if (optionalParameter) {
+                return fastMethod.invoke(target, new Object[]{parameter, secondHandlerParameter});
+            }
+            return fastMethod.invoke(target, new Object[]{parameter});
         }
 
         Object retVal;
@@ -0,0 +1,960 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util.io;
+
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+import com.thoughtworks.xstream.core.JVM;
+import org.axonframework.util.SerializationException;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static org.axonframework.util.ReflectionUtils.ensureAccessible;
+
+/**
+ * Compact binary encoding of object graphs, used by the binary serializers of sagas and snapshots. Objects are written
+ * field by field. The fields of each class are resolved once and cached. Primitive fields are written without any type
+ * information, and the names of the fields of a class are written once per object graph. Fields are matched by name
+ * when an object is read: fields that no longer exist are ignored and new fields keep their default value.
+ * <p/>
+ * Common types, such as Strings, UUIDs, Joda DateTimes and the standard collection types, are encoded natively.
+ * Objects of classes that define custom serialization methods (<code>writeObject</code>, <code>readObject</code>,
+ * <code>readResolve</code> or <code>writeReplace</code>), as well as objects of JDK classes that are not encoded
+ * natively, are embedded using Java serialization. Subclasses may encode additional types natively by overriding
+ * {@link #isCustomType(Class)}, {@link #writeCustomValue(Object, ObjectWriter)} and {@link
+ * #readCustomValue(ObjectReader)}.
+ * <p/>
+ * Classes in the shared class dictionary are referred to by a number instead of their name. The dictionary always
+ * contains the natively encoded collection types. Additional classes can be registered using {@link
+ * #setRegisteredClasses(java.util.List)}.
+ * <p/>
+ * The codec only encodes the object graph itself. Version information and other framing are the responsibility of the
+ * serializer using it.
+ * <p/>
+ * This class is meant for internal use, and should be used with care.
+ *
+ * @author Allard Buijze
+ * @since 1.0
+ */
+public class BinaryObjectCodec {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte REFERENCE = 1;
+    private static final byte STRING = 2;
+    private static final byte TRUE = 3;
+    private static final byte FALSE = 4;
+    private static final byte INTEGER = 5;
+    private static final byte LONG = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte SHORT = 9;
+    private static final byte BYTE = 10;
+    private static final byte CHARACTER = 11;
+    private static final byte UUID_VALUE = 12;
+    private static final byte DATE_TIME = 13;
+    private static final byte ENUM = 14;
+    private static final byte ARRAY = 15;
+    private static final byte COLLECTION = 16;
+    private static final byte MAP = 17;
+    private static final byte OBJECT = 18;
+    private static final byte SERIALIZED = 19;
+    private static final byte CUSTOM = 20;
+
+    private static final byte KIND_OBJECT = 0;
+    private static final byte KIND_BOOLEAN = 1;
+    private static final byte KIND_BYTE = 2;
+    private static final byte KIND_CHAR = 3;
+    private static final byte KIND_SHORT = 4;
+    private static final byte KIND_INT = 5;
+    private static final byte KIND_LONG = 6;
+    private static final byte KIND_FLOAT = 7;
+    private static final byte KIND_DOUBLE = 8;
+
+    /**
+     * The classes that are always part of the shared class dictionary. New classes may only be appended to this list.
+     */
+    private static final List<Class<?>> BUILT_IN_CLASSES = Collections.unmodifiableList(Arrays.<Class<?>>asList(
+            ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+            CopyOnWriteArrayList.class, CopyOnWriteArraySet.class,
+            HashMap.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class,
+            Object.class, String.class));
+
+    private static final Collection<Class<?>> COLLECTION_TYPES = BUILT_IN_CLASSES.subList(0, 7);
+    private static final Collection<Class<?>> MAP_TYPES = BUILT_IN_CLASSES.subList(7, 11);
+
+    private final ReflectionProvider reflectionProvider = JVM.newReflectionProvider();
+    private final ConcurrentMap<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<Class<?>, ClassLayout>();
+    private volatile List<Class<?>> dictionary = BUILT_IN_CLASSES;
+    private volatile Map<Class<?>, Integer> dictionaryIndex = indexOf(BUILT_IN_CLASSES);
+
+    /**
+     * Creates a writer that writes a single object graph to the given <code>out</code>put.
+     *
+     * @param out The output to write the object graph to
+     * @return a writer for a single object graph
+     */
+    public ObjectWriter newWriter(DataOutputStream out) {
+        return new ObjectWriter(out);
+    }
+
+    /**
+     * Creates a reader that reads a single object graph, written by a writer of a codec with the same registered
+     * classes, from the given <code>in</code>put.
+     *
+     * @param in The input to read the object graph from
+     * @return a reader for a single object graph
+     */
+    public ObjectReader newReader(DataInputStream in) {
+        return new ObjectReader(in);
+    }
+
+    /**
+     * Sets the classes to add to the shared class dictionary, in addition to the built-in classes. Objects of classes in
+     * the dictionary are serialized without their class name.
+     * <p/>
+     * Note that the order of the classes in the given list is significant. New classes may only be added to the end of
+     * the list, otherwise previously serialized objects can no longer be deserialized.
+     *
+     * @param registeredClasses The classes to add to the shared class dictionary
+     */
+    public void setRegisteredClasses(List<Class<?>> registeredClasses) {
+        List<Class<?>> newDictionary = new ArrayList<Class<?>>(BUILT_IN_CLASSES);
+        newDictionary.addAll(registeredClasses);
+        this.dictionaryIndex = indexOf(newDictionary);
+        this.dictionary = newDictionary;
+    }
+
+    /**
+     * Returns the fields of the given <code>type</code> that are written when an instance of that type is encoded field
+     * by field, in the order in which they are written.
+     *
+     * @param type The type to return the serialized fields for
+     * @return the serialized fields of the given type
+     */
+    public List<Field> getSerializedFields(Class<?> type) {
+        return layoutFor(type).getFieldList();
+    }
+
+    /**
+     * Indicates whether the given <code>type</code> is part of the JDK. Objects of JDK classes that are not encoded
+     * natively are embedded using Java serialization.
+     *
+     * @param type The type to verify
+     * @return <code>true</code> if the type is a JDK class, otherwise <code>false</code>
+     */
+    public static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    /**
+     * Indicates whether objects of the given <code>type</code> are written using {@link #writeCustomValue(Object,
+     * ObjectWriter)}. The standard encoding is used for the natively encoded types, regardless of the value returned by
+     * this method.
+     * <p/>
+     * This implementation returns <code>false</code>.
+     *
+     * @param type The type of object about to be written
+     * @return <code>true</code> if the custom encoding should be used, otherwise <code>false</code>
+     */
+    protected boolean isCustomType(Class<?> type) {
+        return false;
+    }
+
+    /**
+     * Writes the contents of the given <code>value</code>, for which {@link #isCustomType(Class)} returned
+     * <code>true</code>. The contents must be read by {@link #readCustomValue(ObjectReader)}.
+     * <p/>
+     * Note that the value is only available for references from other parts of the object graph after it has been read
+     * completely. The contents written by this method may therefore not refer back to the value itself.
+     * <p/>
+     * This implementation throws a {@link SerializationException}.
+     *
+     * @param value  The value to write
+     * @param writer The writer to write the value's contents with
+     * @throws IOException when an error occurs writing to the underlying output
+     */
+    protected void writeCustomValue(Object value, ObjectWriter writer) throws IOException {
+        throw new SerializationException(String.format("This codec has no custom encoding for [%s]",
+                                                       value.getClass().getName()));
+    }
+
+    /**
+     * Reads the contents of a value that have been written by {@link #writeCustomValue(Object, ObjectWriter)}.
+     * <p/>
+     * This implementation throws a {@link SerializationException}.
+     *
+     * @param reader The reader to read the value's contents with
+     * @return the value read
+     *
+     * @throws IOException            when an error occurs reading from the underlying input
+     * @throws ClassNotFoundException when a class referred to by the value cannot be found
+     */
+    protected Object readCustomValue(ObjectReader reader) throws IOException, ClassNotFoundException {
+        throw new SerializationException("The serialized form contains a custom value that this codec cannot read");
+    }
+
+    /**
+     * Indicates whether the given <code>type</code> declares any custom serialization methods. Objects of classes
+     * that declare them, directly or in any of their super classes, are embedded using Java serialization. Subclasses
+     * may override this method to allow types with serialization methods that only restore transient state to be
+     * encoded field by field.
+     *
+     * @param type The type (not including its super classes) to inspect
+     * @return <code>true</code> if the type declares custom serialization methods, otherwise <code>false</code>
+     */
+    protected boolean hasSerializationMethods(Class<?> type) {
+        for (Method method : type.getDeclaredMethods()) {
+            String name = method.getName();
+            if (!Modifier.isStatic(method.getModifiers())
+                    && ("writeObject".equals(name) || "readObject".equals(name)
+                    || "readResolve".equals(name) || "writeReplace".equals(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the exception to throw when a value read for a field cannot be assigned to that field, which happens when
+     * the type of the field has changed since the object was written.
+     * <p/>
+     * This implementation returns a {@link SerializationException}.
+     *
+     * @param message The message describing the problem
+     * @param cause   The exception that occurred assigning the value
+     * @return the exception to throw
+     */
+    protected SerializationException incompatibleFieldValue(String message, Throwable cause) {
+        return new SerializationException(message, cause);
+    }
+
+    private static Map<Class<?>, Integer> indexOf(List<Class<?>> classes) {
+        Map<Class<?>, Integer> index = new HashMap<Class<?>, Integer>();
+        for (int i = 0; i < classes.size(); i++) {
+            index.put(classes.get(i), i);
+        }
+        return index;
+    }
+
+    private ClassLayout layoutFor(Class<?> type) {
+        ClassLayout layout = layouts.get(type);
+        if (layout == null) {
+            layout = new ClassLayout(type);
+            layouts.putIfAbsent(type, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Writes a single object graph. Tracks the objects and classes that have been written before, so they can be
+     * referred to by number.
+     */
+    public final class ObjectWriter {
+
+        private final DataOutputStream out;
+        private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+        private final Map<Class<?>, Integer> localClasses = new HashMap<Class<?>, Integer>();
+        private final Collection<Class<?>> describedClasses = new HashSet<Class<?>>();
+        private final Map<Class<?>, Integer> registeredClasses = dictionaryIndex;
+
+        private ObjectWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the given <code>value</code>, including all objects it refers to. Objects that have been written
+         * before by this writer are written as a reference to the earlier occurrence.
+         *
+         * @param value The value to write
+         * @throws IOException when an error occurs writing to the underlying output
+         */
+        public void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (!writeBoxedPrimitive(value)) {
+                Integer handle = handles.get(value);
+                if (handle != null) {
+                    out.writeByte(REFERENCE);
+                    writeVarLong(handle);
+                } else {
+                    handles.put(value, handles.size());
+                    writeObject(value);
+                }
+            }
+        }
+
+        /**
+         * Writes the given <code>value</code> as a length prefixed UTF-8 String.
+         *
+         * @param value The String to write
+         * @throws IOException when an error occurs writing to the underlying output
+         */
+        public void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Writes the given <code>value</code> as a variable length number. Small numbers, including small negative
+         * numbers, take less space.
+         *
+         * @param value The number to write
+         * @throws IOException when an error occurs writing to the underlying output
+         */
+        public void writeNumber(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes a single byte.
+         *
+         * @param value The byte to write
+         * @throws IOException when an error occurs writing to the underlying output
+         */
+        public void writeByte(int value) throws IOException {
+            out.writeByte(value);
+        }
+
+        private boolean writeBoxedPrimitive(Object value) throws IOException {
+            Class<?> type = value.getClass();
+            if (type == Integer.class) {
+                out.writeByte(INTEGER);
+                writeNumber((Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                writeNumber((Long) value);
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (type == Float.class) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (type == Short.class) {
+                out.writeByte(SHORT);
+                writeNumber((Short) value);
+            } else if (type == Byte.class) {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            } else if (type == Character.class) {
+                out.writeByte(CHARACTER);
+                out.writeChar((Character) value);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private void writeObject(Object value) throws IOException {
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (type == UUID.class) {
+                out.writeByte(UUID_VALUE);
+                out.writeLong(((UUID) value).getMostSignificantBits());
+                out.writeLong(((UUID) value).getLeastSignificantBits());
+            } else if (type == DateTime.class && isIsoDateTime((DateTime) value)) {
+                out.writeByte(DATE_TIME);
+                writeNumber(((DateTime) value).getMillis());
+                writeString(((DateTime) value).getZone().getID());
+            } else if (value instanceof Enum) {
+                out.writeByte(ENUM);
+                writeClass(((Enum<?>) value).getDeclaringClass());
+                writeString(((Enum<?>) value).name());
+            } else if (COLLECTION_TYPES.contains(type)
+                    && !(value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)) {
+                out.writeByte(COLLECTION);
+                writeClass(type);
+                writeVarLong(((Collection<?>) value).size());
+                for (Object element : (Collection<?>) value) {
+                    writeValue(element);
+                }
+            } else if (MAP_TYPES.contains(type)
+                    && !(value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null)) {
+                out.writeByte(MAP);
+                writeClass(type);
+                writeVarLong(((Map<?, ?>) value).size());
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+                out.writeByte(ARRAY);
+                writeClass(type.getComponentType());
+                int length = Array.getLength(value);
+                writeVarLong(length);
+                for (int i = 0; i < length; i++) {
+                    writeValue(Array.get(value, i));
+                }
+            } else if (isCustomType(type)) {
+                out.writeByte(CUSTOM);
+                writeCustomValue(value, this);
+            } else if (!type.isArray() && layoutFor(type).isFieldSerializable()) {
+                writeFields(value, layoutFor(type));
+            } else {
+                out.writeByte(SERIALIZED);
+                writeSerialized(value);
+            }
+        }
+
+        private boolean isIsoDateTime(DateTime value) {
+            return value.getChronology() == ISOChronology.getInstance(value.getZone());
+        }
+
+        private void writeFields(Object value, ClassLayout layout) throws IOException {
+            out.writeByte(OBJECT);
+            writeClass(layout.getType());
+            FieldLayout[] fields = layout.getFields();
+            if (describedClasses.add(layout.getType())) {
+                writeVarLong(fields.length);
+                for (FieldLayout field : fields) {
+                    writeString(field.getName());
+                    out.writeByte(field.getKind());
+                }
+            }
+            try {
+                for (FieldLayout field : fields) {
+                    writeField(value, field);
+                }
+            } catch (IllegalAccessException e) {
+                throw new SerializationException(String.format("Unable to read the fields of [%s]",
+                                                               layout.getType().getName()), e);
+            }
+        }
+
+        private void writeField(Object instance, FieldLayout field) throws IOException, IllegalAccessException {
+            Field target = field.getField();
+            switch (field.getKind()) {
+                case KIND_BOOLEAN:
+                    out.writeBoolean(target.getBoolean(instance));
+                    break;
+                case KIND_BYTE:
+                    out.writeByte(target.getByte(instance));
+                    break;
+                case KIND_CHAR:
+                    out.writeChar(target.getChar(instance));
+                    break;
+                case KIND_SHORT:
+                    writeNumber(target.getShort(instance));
+                    break;
+                case KIND_INT:
+                    writeNumber(target.getInt(instance));
+                    break;
+                case KIND_LONG:
+                    writeNumber(target.getLong(instance));
+                    break;
+                case KIND_FLOAT:
+                    out.writeFloat(target.getFloat(instance));
+                    break;
+                case KIND_DOUBLE:
+                    out.writeDouble(target.getDouble(instance));
+                    break;
+                default:
+                    writeValue(target.get(instance));
+            }
+        }
+
+        private void writeSerialized(Object value) throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            try {
+                oos.writeObject(value);
+            } finally {
+                oos.close();
+            }
+            byte[] bytes = baos.toByteArray();
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Class references are encoded as a single number. Zero indicates a class name follows, which is then assigned
+         * the next local class number. Odd numbers refer to the shared dictionary, other even numbers to local
+         * classes.
+         */
+        private void writeClass(Class<?> type) throws IOException {
+            Integer registered = registeredClasses.get(type);
+            if (registered != null) {
+                writeVarLong(registered * 2L + 1);
+                return;
+            }
+            Integer local = localClasses.get(type);
+            if (local != null) {
+                writeVarLong(local * 2L + 2);
+            } else {
+                localClasses.put(type, localClasses.size());
+                writeVarLong(0);
+                writeString(type.getName());
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                out.writeByte((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            out.writeByte((int) remaining);
+        }
+    }
+
+    /**
+     * Reads a single object graph written by the {@link ObjectWriter}.
+     */
+    public final class ObjectReader {
+
+        private final DataInputStream in;
+        private final List<Object> handles = new ArrayList<Object>();
+        private final List<Class<?>> localClasses = new ArrayList<Class<?>>();
+        private final Map<Class<?>, FieldDescription[]> classDescriptions =
+                new HashMap<Class<?>, FieldDescription[]>();
+        private final List<Class<?>> registeredClasses = dictionary;
+
+        private ObjectReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads a value written by {@link ObjectWriter#writeValue(Object)}.
+         *
+         * @return the value read
+         *
+         * @throws IOException            when an error occurs reading from the underlying input
+         * @throws ClassNotFoundException when a class referred to by the value cannot be found
+         */
+        @SuppressWarnings({"unchecked"})
+        public Object readValue() throws IOException, ClassNotFoundException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case REFERENCE:
+                    return handles.get((int) readVarLong());
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INTEGER:
+                    return (int) readNumber();
+                case LONG:
+                    return readNumber();
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case SHORT:
+                    return (short) readNumber();
+                case BYTE:
+                    return in.readByte();
+                case CHARACTER:
+                    return in.readChar();
+                case STRING:
+                    return register(readString());
+                case UUID_VALUE:
+                    return register(new UUID(in.readLong(), in.readLong()));
+                case DATE_TIME:
+                    int dateTimeHandle = reserveHandle();
+                    long millis = readNumber();
+                    return replace(dateTimeHandle, new DateTime(millis, DateTimeZone.forID(readString())));
+                case ENUM:
+                    int enumHandle = reserveHandle();
+                    Class<?> enumType = readClass();
+                    return replace(enumHandle, enumConstant(enumType, readString()));
+                case COLLECTION:
+                    int collectionHandle = reserveHandle();
+                    Collection<Object> collection = (Collection<Object>) newInstance(readClass());
+                    replace(collectionHandle, collection);
+                    long elementCount = readVarLong();
+                    for (long i = 0; i < elementCount; i++) {
+                        collection.add(readValue());
+                    }
+                    return collection;
+                case MAP:
+                    int mapHandle = reserveHandle();
+                    Map<Object, Object> map = (Map<Object, Object>) newInstance(readClass());
+                    replace(mapHandle, map);
+                    long entryCount = readVarLong();
+                    for (long i = 0; i < entryCount; i++) {
+                        map.put(readValue(), readValue());
+                    }
+                    return map;
+                case ARRAY:
+                    int arrayHandle = reserveHandle();
+                    Class<?> componentType = readClass();
+                    int length = (int) readVarLong();
+                    Object array = replace(arrayHandle, Array.newInstance(componentType, length));
+                    for (int i = 0; i < length; i++) {
+                        Array.set(array, i, readValue());
+                    }
+                    return array;
+                case OBJECT:
+                    return readFields();
+                case SERIALIZED:
+                    int serializedHandle = reserveHandle();
+                    return replace(serializedHandle, readSerialized());
+                case CUSTOM:
+                    int customHandle = reserveHandle();
+                    return replace(customHandle, readCustomValue(this));
+                default:
+                    throw new SerializationException(String.format("Unknown value type [%s] in serialized form", tag));
+            }
+        }
+
+        /**
+         * Reads a String written by {@link ObjectWriter#writeString(String)}.
+         *
+         * @return the String read
+         *
+         * @throws IOException when an error occurs reading from the underlying input
+         */
+        public String readString() throws IOException {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.readFully(bytes);
+            return new String(bytes, UTF8);
+        }
+
+        /**
+         * Reads a number written by {@link ObjectWriter#writeNumber(long)}.
+         *
+         * @return the number read
+         *
+         * @throws IOException when an error occurs reading from the underlying input
+         */
+        public long readNumber() throws IOException {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a byte written by {@link ObjectWriter#writeByte(int)}.
+         *
+         * @return the byte read
+         *
+         * @throws IOException when an error occurs reading from the underlying input
+         */
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        /**
+         * Loads the class with given <code>className</code>, using the context class loader of the current thread, if
+         * available.
+         *
+         * @param className The fully qualified name of the class to load
+         * @return the loaded class
+         *
+         * @throws ClassNotFoundException if no class with given name can be found
+         */
+        public Class<?> loadClass(String className) throws ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null) {
+                return Class.forName(className);
+            }
+            return Class.forName(className, true, classLoader);
+        }
+
+        private Object readFields() throws IOException, ClassNotFoundException {
+            int handle = reserveHandle();
+            Class<?> type = readClass();
+            ClassLayout layout = layoutFor(type);
+            FieldDescription[] fields = classDescriptions.get(type);
+            if (fields == null) {
+                fields = new FieldDescription[(int) readVarLong()];
+                for (int i = 0; i < fields.length; i++) {
+                    String fieldName = readString();
+                    fields[i] = new FieldDescription(layout.getField(fieldName), in.readByte());
+                }
+                classDescriptions.put(type, fields);
+            }
+            Object instance = replace(handle, reflectionProvider.newInstance(type));
+            for (FieldDescription field : fields) {
+                Object value = readField(field.kind);
+                if (field.target != null) {
+                    try {
+                        field.target.getField().set(instance, value);
+                    } catch (IllegalAccessException e) {
+                        throw new SerializationException(String.format("Unable to write field [%s] of [%s]",
+                                                                       field.target.getName(), type.getName()), e);
+                    } catch (IllegalArgumentException e) {
+                        throw incompatibleFieldValue(String.format("Incompatible value for field [%s] of [%s]",
+                                                                   field.target.getName(), type.getName()), e);
+                    }
+                }
+            }
+            return instance;
+        }
+
+        private Object readField(byte kind) throws IOException, ClassNotFoundException {
+            switch (kind) {
+                case KIND_BOOLEAN:
+                    return in.readBoolean();
+                case KIND_BYTE:
+                    return in.readByte();
+                case KIND_CHAR:
+                    return in.readChar();
+                case KIND_SHORT:
+                    return (short) readNumber();
+                case KIND_INT:
+                    return (int) readNumber();
+                case KIND_LONG:
+                    return readNumber();
+                case KIND_FLOAT:
+                    return in.readFloat();
+                case KIND_DOUBLE:
+                    return in.readDouble();
+                default:
+                    return readValue();
+            }
+        }
+
+        private Object enumConstant(Class<?> enumType, String name) {
+            for (Object constant : enumType.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException(String.format("No enum constant [%s] in [%s]",
+                                                             name, enumType.getName()));
+        }
+
+        private Object readSerialized() throws IOException, ClassNotFoundException {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.readFully(bytes);
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return ois.readObject();
+            } finally {
+                ois.close();
+            }
+        }
+
+        private Class<?> readClass() throws IOException, ClassNotFoundException {
+            long reference = readVarLong();
+            if (reference == 0) {
+                Class<?> type = loadClass(readString());
+                localClasses.add(type);
+                return type;
+            } else if (reference % 2 == 1) {
+                return registeredClasses.get((int) (reference / 2));
+            }
+            return localClasses.get((int) (reference / 2 - 1));
+        }
+
+        private Object newInstance(Class<?> type) {
+            try {
+                return type.newInstance();
+            } catch (InstantiationException e) {
+                throw new SerializationException(String.format("Unable to instantiate [%s]", type.getName()), e);
+            } catch (IllegalAccessException e) {
+                throw new SerializationException(String.format("Unable to instantiate [%s]", type.getName()), e);
+            }
+        }
+
+        private <T> T register(T value) {
+            handles.add(value);
+            return value;
+        }
+
+        private int reserveHandle() {
+            handles.add(null);
+            return handles.size() - 1;
+        }
+
+        private <T> T replace(int handle, T value) {
+            handles.set(handle, value);
+            return value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = in.readByte();
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * Description of a field as found in the serialized form, linked to the field of the current class with the same
+     * name.
+     */
+    private static final class FieldDescription {
+
+        private final FieldLayout target;
+        private final byte kind;
+
+        private FieldDescription(FieldLayout target, byte kind) {
+            this.target = target;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * The serializable fields of a class, resolved once per class.
+     */
+    private final class ClassLayout {
+
+        private final Class<?> type;
+        private final FieldLayout[] fields;
+        private final List<Field> fieldList;
+        private final Map<String, FieldLayout> fieldsByName = new HashMap<String, FieldLayout>();
+        private final boolean fieldSerializable;
+
+        private ClassLayout(Class<?> type) {
+            this.type = type;
+            List<Class<?>> hierarchy = new LinkedList<Class<?>>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            boolean supported = !Externalizable.class.isAssignableFrom(type) && !isJdkClass(type);
+            List<FieldLayout> serializableFields = new ArrayList<FieldLayout>();
+            List<Field> declaredFields = new ArrayList<Field>();
+            for (Class<?> current : hierarchy) {
+                supported &= !hasSerializationMethods(current);
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        FieldLayout fieldLayout = new FieldLayout(field);
+                        supported &= fieldsByName.put(field.getName(), fieldLayout) == null;
+                        serializableFields.add(fieldLayout);
+                        declaredFields.add(field);
+                    }
+                }
+            }
+            this.fieldSerializable = supported;
+            this.fields = serializableFields.toArray(new FieldLayout[serializableFields.size()]);
+            this.fieldList = Collections.unmodifiableList(declaredFields);
+            if (supported) {
+                for (FieldLayout field : fields) {
+                    ensureAccessible(field.getField());
+                }
+            }
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public FieldLayout[] getFields() {
+            return fields;
+        }
+
+        public List<Field> getFieldList() {
+            return fieldList;
+        }
+
+        public FieldLayout getField(String name) {
+            return fieldsByName.get(name);
+        }
+
+        public boolean isFieldSerializable() {
+            return fieldSerializable;
+        }
+    }
+
+    /**
+     * A single serializable field, and the way its value is encoded.
+     */
+    private static final class FieldLayout {
+
+        private final Field field;
+        private final byte kind;
+
+        private FieldLayout(Field field) {
+            this.field = field;
+            this.kind = kindOf(field.getType());
+        }
+
+        private static byte kindOf(Class<?> type) {
+            if (type == boolean.class) {
+                return KIND_BOOLEAN;
+            } else if (type == byte.class) {
+                return KIND_BYTE;
+            } else if (type == char.class) {
+                return KIND_CHAR;
+            } else if (type == short.class) {
+                return KIND_SHORT;
+            } else if (type == int.class) {
+                return KIND_INT;
+            } else if (type == long.class) {
+                return KIND_LONG;
+            } else if (type == float.class) {
+                return KIND_FLOAT;
+            } else if (type == double.class) {
+                return KIND_DOUBLE;
+            }
+            return KIND_OBJECT;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public String getName() {
+            return field.getName();
+        }
+
+        public byte getKind() {
+            return kind;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.commandhandling;
+
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsyncCommandBusTest {
+
+    private ExecutorService executor;
+    private AsyncCommandBus testSubject;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        testSubject = new AsyncCommandBus(executor, 2, false);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCallbackInvokedWithResult() throws Exception {
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand("aggregate", 1), callback);
+
+        assertEquals(1, callback.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCallbackInvokedWithFailure() throws Exception {
+        final RuntimeException failure = new RuntimeException("Mock");
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+                throw failure;
+            }
+        });
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand("aggregate", 1), callback);
+
+        try {
+            callback.get(5, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test(expected = NoHandlerForCommandException.class)
+    public void testMissingHandlerReportedToDispatcher() {
+        testSubject.dispatch(new StubCommand("aggregate", 1));
+    }
+
+    @Test
+    public void testCommandsForSameAggregateProcessedInOrder() throws Exception {
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(200);
+        testSubject.setBatchSize(3);
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+                if ("ordered".equals(command.getAggregateIdentifier())) {
+                    processed.add(command.getSequence());
+                }
+                latch.countDown();
+                return null;
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            testSubject.dispatch(new StubCommand("ordered", i));
+            testSubject.dispatch(new StubCommand("other" + i, i));
+        }
+
+        assertTrue("Commands were not processed in time", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(100, processed.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), processed.get(i));
+        }
+    }
+
+    @Test
+    public void testCommandsForDifferentAggregatesProcessedInParallel() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        testSubject.setAggregateIdentifierResolver(new AggregateIdentifierResolver() {
+            @Override
+            public Object resolveAggregateIdentifier(Object command) {
+                // two identifiers that end up in different lanes
+                return ((StubCommand) command).getSequence();
+            }
+        });
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+                bothStarted.countDown();
+                return bothStarted.await(5, TimeUnit.SECONDS);
+            }
+        });
+        FutureCallback<Object> first = new FutureCallback<Object>();
+        FutureCallback<Object> second = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand("first", 0), first);
+        testSubject.dispatch(new StubCommand("second", 1), second);
+
+        assertEquals(Boolean.TRUE, first.get(10, TimeUnit.SECONDS));
+        assertEquals(Boolean.TRUE, second.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStatisticsReportProcessedCommands() throws Exception {
+        AsyncCommandBusStatistics statistics = new AsyncCommandBusStatistics(testSubject);
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand("aggregate", 1), callback);
+        callback.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, statistics.getLaneCount());
+        assertEquals(2, statistics.getLaneQueueDepths().length);
+    }
+
+    @Test
+    public void testLaneUsableAfterExecutorRejectedIt() throws Exception {
+        ControllableExecutor controllableExecutor = new ControllableExecutor();
+        testSubject = new AsyncCommandBus(controllableExecutor, 1, false);
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        controllableExecutor.rejecting = true;
+        FutureCallback<Object> rejected = new FutureCallback<Object>();
+        try {
+            testSubject.dispatch(new StubCommand("aggregate", 1), rejected);
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertFalse("Callback of a rethrown rejection should not be invoked", rejected.isDone());
+
+        controllableExecutor.rejecting = false;
+        FutureCallback<Object> accepted = new FutureCallback<Object>();
+        testSubject.dispatch(new StubCommand("aggregate", 2), accepted);
+        controllableExecutor.runAll();
+
+        assertEquals(2, accepted.get(5, TimeUnit.SECONDS));
+        assertEquals(0, testSubject.getBusyLaneCount());
+    }
+
+    @Test
+    public void testWaitingCommandsFailedWhenExecutorRejectsLane() throws Exception {
+        ControllableExecutor controllableExecutor = new ControllableExecutor();
+        testSubject = new AsyncCommandBus(controllableExecutor, 1, false);
+        testSubject.setBatchSize(1);
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        FutureCallback<Object> first = new FutureCallback<Object>();
+        FutureCallback<Object> second = new FutureCallback<Object>();
+        testSubject.dispatch(new StubCommand("aggregate", 1), first);
+        testSubject.dispatch(new StubCommand("aggregate", 2), second);
+
+        // the lane processes one command, and is rejected when it hands itself back to the executor
+        controllableExecutor.rejecting = true;
+        controllableExecutor.runAll();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        try {
+            second.get(5, TimeUnit.SECONDS);
+            fail("Expected the waiting command to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, testSubject.getBusyLaneCount());
+        assertEquals(0, testSubject.getLaneQueueDepths()[0]);
+
+        controllableExecutor.rejecting = false;
+        FutureCallback<Object> third = new FutureCallback<Object>();
+        testSubject.dispatch(new StubCommand("aggregate", 3), third);
+        controllableExecutor.runAll();
+        assertEquals(3, third.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBatchSplitIntoBatchesPerLane() {
+        ControllableExecutor controllableExecutor = new ControllableExecutor();
+        testSubject = new AsyncCommandBus(controllableExecutor, 2, false);
+        testSubject.setAggregateIdentifierResolver(new NumericAggregateIdentifierResolver());
+        final List<Integer> processed = new ArrayList<Integer>();
+        testSubject.subscribe(StubCommand.class, new CommandHandler<StubCommand>() {
+            @Override
+            public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+                processed.add(command.getSequence());
+                return command.getSequence();
+            }
+        });
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+
+        // the first command does not target an aggregate, and is handled in the lane of the second one
+        testSubject.dispatchBatch(Arrays.asList(new StubCommand(null, 0), new StubCommand("1", 1),
+                                                new StubCommand("0", 2), new StubCommand("1", 3)), callback);
+
+        assertEquals(2, testSubject.getBusyLaneCount());
+        assertEquals(2, controllableExecutor.tasks.size());
+        assertEquals(1, testSubject.getLaneQueueDepths()[0]);
+        assertEquals(1, testSubject.getLaneQueueDepths()[1]);
+        controllableExecutor.runAll();
+        assertEquals(Arrays.asList(0, 1, 3, 2), processed);
+        assertEquals(4, callback.succeeded.size());
+        assertTrue(callback.failed.isEmpty());
+    }
+
+    @Test
+    public void testBatchWithoutTargetAggregatesHandledByExecutor() {
+        ControllableExecutor controllableExecutor = new ControllableExecutor();
+        testSubject = new AsyncCommandBus(controllableExecutor, 2, false);
+        testSubject.setAggregateIdentifierResolver(new NumericAggregateIdentifierResolver());
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+
+        testSubject.dispatchBatch(Arrays.asList(new StubCommand(null, 0), new StubCommand(null, 1)), callback);
+
+        assertEquals(0, testSubject.getBusyLaneCount());
+        assertEquals(1, controllableExecutor.tasks.size());
+        controllableExecutor.runAll();
+        assertEquals(Arrays.<Object>asList(0, 1), callback.succeeded);
+    }
+
+    @Test
+    public void testRejectedBatchReportedToCallback() {
+        ControllableExecutor controllableExecutor = new ControllableExecutor();
+        testSubject = new AsyncCommandBus(controllableExecutor, 2, false);
+        testSubject.setAggregateIdentifierResolver(new NumericAggregateIdentifierResolver());
+        testSubject.subscribe(StubCommand.class, new EchoingCommandHandler());
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+        controllableExecutor.rejecting = true;
+
+        testSubject.dispatchBatch(Arrays.asList(new StubCommand("0", 0), new StubCommand("1", 1)), callback);
+
+        assertEquals(2, callback.failed.size());
+        assertTrue(callback.failed.get(0) instanceof RejectedExecutionException);
+        assertEquals(0, testSubject.getBusyLaneCount());
+    }
+
+    private static class NumericAggregateIdentifierResolver implements AggregateIdentifierResolver {
+
+        @Override
+        public Object resolveAggregateIdentifier(Object command) {
+            String aggregateIdentifier = ((StubCommand) command).getAggregateIdentifier();
+            // numeric identifiers end up in the lane with the same number
+            return aggregateIdentifier == null ? null : Integer.valueOf(aggregateIdentifier);
+        }
+    }
+
+    private static class RecordingBatchCallback implements BatchCallback {
+
+        private final List<Object> succeeded = new ArrayList<Object>();
+        private final List<Throwable> failed = new ArrayList<Throwable>();
+
+        @Override
+        public void onSuccess(Object command, Object result) {
+            succeeded.add(result);
+        }
+
+        @Override
+        public void onFailure(Object command, Throwable cause) {
+            failed.add(cause);
+        }
+    }
+
+    private static class ControllableExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+        private volatile boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException("Mock rejection");
+            }
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class EchoingCommandHandler implements CommandHandler<StubCommand> {
+
+        @Override
+        public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+            return command.getSequence();
+        }
+    }
+
+    private static class StubCommand {
+
+        @TargetAggregateIdentifier
+        private final String aggregateIdentifier;
+        private final int sequence;
+
+        private StubCommand(String aggregateIdentifier, int sequence) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.sequence = sequence;
+        }
+
+        public String getAggregateIdentifier() {
+            return aggregateIdentifier;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+    }
+}
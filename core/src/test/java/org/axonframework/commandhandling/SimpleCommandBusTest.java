@@ -16,6 +16,15 @@
 
 package org.axonframework.commandhandling;
 
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StubAggregate;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventsourcing.GenericEventSourcingRepository;
+import org.axonframework.eventstore.EventStore;
 import org.axonframework.unitofwork.CurrentUnitOfWork;
 import org.axonframework.unitofwork.DefaultUnitOfWorkFactory;
 import org.axonframework.unitofwork.UnitOfWork;
@@ -25,8 +34,10 @@ import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -280,6 +291,123 @@ public class SimpleCommandBusTest {
 
     }
 
+    @Test
+    public void testDispatchBatch_CommandsHandledInSingleUnitOfWork() {
+        UnitOfWorkFactory spyUnitOfWorkFactory = spy(new DefaultUnitOfWorkFactory());
+        testSubject.setUnitOfWorkFactory(spyUnitOfWorkFactory);
+        final List<UnitOfWork> unitsOfWork = new ArrayList<UnitOfWork>();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                unitsOfWork.add(unitOfWork);
+                return command;
+            }
+        });
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+
+        testSubject.dispatchBatch(Arrays.asList("a", "b", "c"), callback);
+
+        verify(spyUnitOfWorkFactory, times(1)).createUnitOfWork();
+        assertEquals(3, unitsOfWork.size());
+        assertSame(unitsOfWork.get(0), unitsOfWork.get(2));
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), callback.succeeded);
+        assertTrue(callback.failed.isEmpty());
+        assertFalse(CurrentUnitOfWork.isStarted());
+    }
+
+    @Test
+    public void testDispatchBatch_FailingCommandDoesNotPreventOthers() {
+        UnitOfWorkFactory spyUnitOfWorkFactory = spy(new DefaultUnitOfWorkFactory());
+        testSubject.setUnitOfWorkFactory(spyUnitOfWorkFactory);
+        final RuntimeException failure = new RuntimeException("Mock");
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                if ("fail".equals(command)) {
+                    throw failure;
+                }
+                return command;
+            }
+        });
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+
+        testSubject.dispatchBatch(Arrays.asList("a", "fail", "b", "c"), callback);
+
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), callback.succeeded);
+        assertEquals(Arrays.<Object>asList("fail"), callback.failed);
+        assertSame(failure, callback.failures.get(0));
+        // the complete batch, both halves, and both commands of the failing half
+        verify(spyUnitOfWorkFactory, times(5)).createUnitOfWork();
+        assertFalse(CurrentUnitOfWork.isStarted());
+    }
+
+    @Test
+    public void testDispatchBatch_AggregateLoadedAndSavedOncePerBatch() {
+        final AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        EventStore eventStore = mock(EventStore.class);
+        when(eventStore.readEvents("StubAggregate", aggregateIdentifier))
+                .thenReturn(new SimpleDomainEventStream(new StubDomainEvent(aggregateIdentifier, 0)));
+        final GenericEventSourcingRepository<StubAggregate> repository =
+                new GenericEventSourcingRepository<StubAggregate>(StubAggregate.class);
+        repository.setEventStore(eventStore);
+        repository.setEventBus(mock(EventBus.class));
+        final List<StubAggregate> loadedAggregates = new ArrayList<StubAggregate>();
+        testSubject.subscribe(String.class, new CommandHandler<String>() {
+            @Override
+            public Object handle(String command, UnitOfWork unitOfWork) throws Throwable {
+                StubAggregate aggregate = repository.load(aggregateIdentifier);
+                aggregate.doSomething();
+                loadedAggregates.add(aggregate);
+                return command;
+            }
+        });
+        RecordingBatchCallback callback = new RecordingBatchCallback();
+
+        testSubject.dispatchBatch(Arrays.asList("a", "b", "c"), callback);
+
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), callback.succeeded);
+        assertEquals(3, loadedAggregates.size());
+        assertSame(loadedAggregates.get(0), loadedAggregates.get(2));
+        verify(eventStore, times(1)).readEvents("StubAggregate", aggregateIdentifier);
+        verify(eventStore, times(1)).appendEvents(eq("StubAggregate"), isA(DomainEventStream.class));
+        assertEquals(4, loadedAggregates.get(0).getInvocationCount());
+        assertEquals(Long.valueOf(3), loadedAggregates.get(0).getVersion());
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Test
+    public void testDispatchBatch_NoHandlerSubscribed() throws Throwable {
+        CommandHandler<String> mockHandler = mock(CommandHandler.class);
+        testSubject.subscribe(String.class, mockHandler);
+
+        try {
+            testSubject.dispatchBatch(Arrays.asList("a", 1), new RecordingBatchCallback());
+            fail("Expected exception");
+        } catch (NoHandlerForCommandException e) {
+            // expected
+        }
+        verify(mockHandler, never()).handle(anyString(), any(UnitOfWork.class));
+    }
+
+    private static class RecordingBatchCallback implements BatchCallback {
+
+        private final List<Object> succeeded = new ArrayList<Object>();
+        private final List<Object> failed = new ArrayList<Object>();
+        private final List<Throwable> failures = new ArrayList<Throwable>();
+
+        @Override
+        public void onSuccess(Object command, Object result) {
+            assertEquals(command, result);
+            succeeded.add(command);
+        }
+
+        @Override
+        public void onFailure(Object command, Throwable cause) {
+            failed.add(command);
+            failures.add(cause);
+        }
+    }
+
     private static class MyStringCommandHandler implements CommandHandler<String> {
 
         @Override
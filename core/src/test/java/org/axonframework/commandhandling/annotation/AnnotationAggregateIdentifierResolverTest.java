@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.axonframework.commandhandling.annotation;
+
+import org.axonframework.util.AxonConfigurationException;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AnnotationAggregateIdentifierResolverTest {
+
+    private AnnotationAggregateIdentifierResolver testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new AnnotationAggregateIdentifierResolver();
+    }
+
+    @Test
+    public void testIdentifierReadFromField() {
+        assertEquals("field", testSubject.resolveAggregateIdentifier(new FieldCommand("field")));
+        assertEquals("other", testSubject.resolveAggregateIdentifier(new FieldCommand("other")));
+    }
+
+    @Test
+    public void testIdentifierReadFromMethod() {
+        assertEquals("method", testSubject.resolveAggregateIdentifier(new MethodCommand()));
+    }
+
+    @Test
+    public void testIdentifierReadFromSuperclass() {
+        assertEquals("sub", testSubject.resolveAggregateIdentifier(new FieldSubCommand("sub")));
+    }
+
+    @Test
+    public void testNoIdentifierOnUnannotatedCommand() {
+        assertNull(testSubject.resolveAggregateIdentifier("Unannotated"));
+        assertNull(testSubject.resolveAggregateIdentifier("Unannotated"));
+    }
+
+    @Test(expected = AxonConfigurationException.class)
+    public void testMethodWithParametersRejected() {
+        testSubject.resolveAggregateIdentifier(new IllegalCommand());
+    }
+
+    private static class FieldCommand {
+
+        @TargetAggregateIdentifier
+        private final String identifier;
+
+        private FieldCommand(String identifier) {
+            this.identifier = identifier;
+        }
+    }
+
+    private static class FieldSubCommand extends FieldCommand {
+
+        private FieldSubCommand(String identifier) {
+            super(identifier);
+        }
+    }
+
+    private static class MethodCommand {
+
+        @TargetAggregateIdentifier
+        private String identifier() {
+            return "method";
+        }
+    }
+
+    private static class IllegalCommand {
+
+        @TargetAggregateIdentifier
+        public String identifier(String parameter) {
+            return parameter;
+        }
+    }
+}
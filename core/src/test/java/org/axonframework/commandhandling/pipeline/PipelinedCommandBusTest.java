@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.commandhandling.pipeline;
+
+import org.axonframework.commandhandling.BatchCallback;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.NoHandlerForCommandException;
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StringAggregateIdentifier;
+import org.axonframework.domain.StubAggregate;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.EventStoreException;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.repository.Repository;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class PipelinedCommandBusTest {
+
+    private ExecutorService executor;
+    private InMemoryEventStore eventStore;
+    private EventBus eventBus;
+    private PipelinedCommandBus<StubAggregate> testSubject;
+    private AggregateIdentifier aggregateIdentifier;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        eventStore = new InMemoryEventStore();
+        eventBus = mock(EventBus.class);
+        testSubject = new PipelinedCommandBus<StubAggregate>(new GenericAggregateFactory<StubAggregate>(
+                StubAggregate.class), eventStore, eventBus, executor, 16, 2);
+        testSubject.subscribe(StubCommand.class, new StubCommandHandler(testSubject.getRepository()));
+        aggregateIdentifier = new StringAggregateIdentifier("aggregate");
+        StubAggregate aggregate = new StubAggregate(aggregateIdentifier);
+        aggregate.doSomething();
+        eventStore.appendEvents("StubAggregate", aggregate.getUncommittedEvents());
+        testSubject.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        testSubject.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAggregateKeptInMemoryBetweenCommands() throws Exception {
+        FutureCallback<Object> first = new FutureCallback<Object>();
+        FutureCallback<Object> second = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand(aggregateIdentifier), first);
+        testSubject.dispatch(new StubCommand(aggregateIdentifier), second);
+
+        assertEquals(2, first.get(5, TimeUnit.SECONDS));
+        assertEquals(3, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, eventStore.readCount.get());
+        assertEquals(3, eventStore.eventsOf(aggregateIdentifier).size());
+        verify(eventBus, times(2)).publish(isA(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testAggregateReloadedAfterFailingCommand() throws Exception {
+        FutureCallback<Object> failing = new FutureCallback<Object>();
+        FutureCallback<Object> succeeding = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand(aggregateIdentifier, true), failing);
+        testSubject.dispatch(new StubCommand(aggregateIdentifier), succeeding);
+
+        try {
+            failing.get(5, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException e) {
+            assertEquals("Mock", e.getCause().getMessage());
+        }
+        assertEquals(2, succeeding.get(5, TimeUnit.SECONDS));
+        assertEquals(2, eventStore.readCount.get());
+        assertEquals(2, eventStore.eventsOf(aggregateIdentifier).size());
+        verify(eventBus, times(1)).publish(isA(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testAggregateReloadedAfterFailingAppend() throws Exception {
+        eventStore.failNextAppend = true;
+        FutureCallback<Object> failing = new FutureCallback<Object>();
+        FutureCallback<Object> succeeding = new FutureCallback<Object>();
+
+        testSubject.dispatch(new StubCommand(aggregateIdentifier), failing);
+        try {
+            failing.get(5, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EventStoreException);
+        }
+        testSubject.dispatch(new StubCommand(aggregateIdentifier), succeeding);
+
+        assertEquals(2, succeeding.get(5, TimeUnit.SECONDS));
+        assertEquals(2, eventStore.readCount.get());
+        verify(eventBus, times(1)).publish(isA(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testBatchResultsReportedPerCommand() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final List<Object> succeeded = new CopyOnWriteArrayList<Object>();
+        final List<Object> failed = new CopyOnWriteArrayList<Object>();
+        StubCommand failing = new StubCommand(aggregateIdentifier, true);
+
+        testSubject.dispatchBatch(Arrays.asList(new StubCommand(aggregateIdentifier), failing,
+                                                new StubCommand(aggregateIdentifier)), new BatchCallback() {
+            @Override
+            public void onSuccess(Object command, Object result) {
+                succeeded.add(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Object command, Throwable cause) {
+                failed.add(command);
+                latch.countDown();
+            }
+        });
+
+        assertTrue("Batch was not processed in time", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.<Object>asList(2, 3), succeeded);
+        assertEquals(Arrays.<Object>asList(failing), failed);
+    }
+
+    @Test(expected = NoHandlerForCommandException.class)
+    public void testMissingHandlerReportedToDispatcher() {
+        testSubject.dispatch(new Object());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRepositoryCannotBeUsedOutsideHandlingStage() {
+        testSubject.getRepository().load(aggregateIdentifier);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDispatchRejectedAfterStop() throws InterruptedException {
+        testSubject.stop();
+        testSubject.dispatch(new StubCommand(aggregateIdentifier));
+    }
+
+    @Test(timeout = 10000)
+    public void testHandlerDispatchingOnFullBufferIsRejected() throws Exception {
+        testSubject.subscribe(FanOutCommand.class, new CommandHandler<FanOutCommand>() {
+            @Override
+            public Object handle(FanOutCommand command, UnitOfWork unitOfWork) {
+                int rejected = 0;
+                for (int t = 0; t < 20; t++) {
+                    try {
+                        testSubject.dispatch(new StubCommand(aggregateIdentifier));
+                    } catch (IllegalStateException e) {
+                        rejected++;
+                    }
+                }
+                return rejected;
+            }
+        });
+        FutureCallback<Object> callback = new FutureCallback<Object>();
+
+        testSubject.dispatch(new FanOutCommand(), callback);
+
+        // the fan-out command itself holds one of the 16 slots until it has been published
+        assertEquals(5, callback.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 30000)
+    public void testCommandsDispatchedConcurrentlyWithStopAreProcessed() throws Exception {
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final CountDownLatch dispatchersDone = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            testSubject.dispatch(new StubCommand(aggregateIdentifier),
+                                                 new CountingCallback(completed));
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // the command bus has been stopped
+                    } finally {
+                        dispatchersDone.countDown();
+                    }
+                }
+            });
+        }
+        while (accepted.get() < 100) {
+            Thread.sleep(1);
+        }
+
+        testSubject.stop();
+
+        assertTrue(dispatchersDone.await(10, TimeUnit.SECONDS));
+        assertEquals(accepted.get(), completed.get());
+    }
+
+    private static class FanOutCommand {
+
+    }
+
+    private static class CountingCallback implements CommandCallback<Object> {
+
+        private final AtomicInteger counter;
+
+        private CountingCallback(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            counter.incrementAndGet();
+        }
+    }
+
+    private static class StubCommand {
+
+        @TargetAggregateIdentifier
+        private final AggregateIdentifier aggregateIdentifier;
+        private final boolean fail;
+
+        private StubCommand(AggregateIdentifier aggregateIdentifier) {
+            this(aggregateIdentifier, false);
+        }
+
+        private StubCommand(AggregateIdentifier aggregateIdentifier, boolean fail) {
+            this.aggregateIdentifier = aggregateIdentifier;
+            this.fail = fail;
+        }
+    }
+
+    private static class StubCommandHandler implements CommandHandler<StubCommand> {
+
+        private final Repository<StubAggregate> repository;
+
+        private StubCommandHandler(Repository<StubAggregate> repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object handle(StubCommand command, UnitOfWork unitOfWork) throws Throwable {
+            StubAggregate aggregate = repository.load(command.aggregateIdentifier);
+            aggregate.doSomething();
+            if (command.fail) {
+                throw new RuntimeException("Mock");
+            }
+            return aggregate.getInvocationCount();
+        }
+    }
+
+    private static class InMemoryEventStore implements EventStore {
+
+        private final Map<AggregateIdentifier, List<DomainEvent>> events =
+                new ConcurrentHashMap<AggregateIdentifier, List<DomainEvent>>();
+        private final AtomicInteger readCount = new AtomicInteger();
+        private volatile boolean failNextAppend;
+
+        @Override
+        public synchronized void appendEvents(String type, DomainEventStream stream) {
+            if (failNextAppend) {
+                failNextAppend = false;
+                throw new EventStoreException("Mock");
+            }
+            while (stream.hasNext()) {
+                DomainEvent event = stream.next();
+                List<DomainEvent> aggregateEvents = events.get(event.getAggregateIdentifier());
+                if (aggregateEvents == null) {
+                    aggregateEvents = new ArrayList<DomainEvent>();
+                    events.put(event.getAggregateIdentifier(), aggregateEvents);
+                }
+                aggregateEvents.add(event);
+            }
+        }
+
+        @Override
+        public synchronized DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
+            readCount.incrementAndGet();
+            List<DomainEvent> aggregateEvents = events.get(identifier);
+            if (aggregateEvents == null) {
+                throw new EventStreamNotFoundException(type, identifier);
+            }
+            return new SimpleDomainEventStream(new ArrayList<DomainEvent>(aggregateEvents));
+        }
+
+        private synchronized List<DomainEvent> eventsOf(AggregateIdentifier identifier) {
+            return new ArrayList<DomainEvent>(events.get(identifier));
+        }
+    }
+}
@@ -55,6 +55,36 @@ public class EventBaseTest {
         assertFalse(event1.equals(null));
     }
 
+    @Test
+    public void testCachedSerializedFormClearedWhenMetaDataModified() {
+        SimpleEvent event = new SimpleEvent();
+        Object serializer = new Object();
+        event.cacheSerializedForm(serializer, new byte[]{1});
+
+        event.addMetaData("key1", "value1");
+        assertNull(event.getCachedSerializedForm(serializer));
+
+        event.cacheSerializedForm(serializer, new byte[]{2});
+        ((MutableEventMetaData) event.getMetaData()).put("key2", "value2");
+        assertNull(event.getCachedSerializedForm(serializer));
+    }
+
+    @Test
+    public void testCachedSerializedFormClearedWhenDomainEventAssignedToAggregate() {
+        StubDomainEvent event = new StubDomainEvent();
+        Object serializer = new Object();
+        byte[] serializedForm = new byte[]{1};
+        event.cacheSerializedForm(serializer, serializedForm);
+        assertSame(serializedForm, event.getCachedSerializedForm(serializer));
+
+        event.setAggregateIdentifier(new UUIDAggregateIdentifier());
+        assertNull(event.getCachedSerializedForm(serializer));
+
+        event.cacheSerializedForm(serializer, serializedForm);
+        event.setSequenceNumber(1);
+        assertNull(event.getCachedSerializedForm(serializer));
+    }
+
     private static class SimpleEvent extends EventBase {
 
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AdaptiveTransactionSizerTest {
+
+    private AdaptiveTransactionSizer testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new AdaptiveTransactionSizer(100, 1, 1000);
+    }
+
+    @Test
+    public void testInitialTransactionSize() {
+        assertEquals(50, testSubject.getCurrentTransactionSize());
+        assertEquals(100, testSubject.getTargetLatencyMillis());
+        assertEquals("No transactions measured yet", testSubject.getLastDecision());
+    }
+
+    @Test
+    public void testSizeIncreasedWhenFullTransactionIsFast() {
+        testSubject.recordTransaction(50, millis(10), true);
+
+        assertEquals(100, testSubject.getCurrentTransactionSize());
+        assertEquals(1, testSubject.getIncreaseCount());
+        assertEquals(5000, testSubject.getAverageEventsPerSecond(), 0.001);
+        assertTrue(testSubject.getLastDecision().startsWith("FAST_ENOUGH"));
+    }
+
+    @Test
+    public void testSizeIncreaseLimitedByLatencyTarget() {
+        testSubject.recordTransaction(50, millis(70), true);
+
+        assertEquals(71, testSubject.getCurrentTransactionSize());
+    }
+
+    @Test
+    public void testSizeNotIncreasedWhenTransactionNotFull() {
+        testSubject.recordTransaction(10, millis(1), true);
+
+        assertEquals(50, testSubject.getCurrentTransactionSize());
+        assertEquals(0, testSubject.getIncreaseCount());
+        assertTrue(testSubject.getLastDecision().startsWith("WITHIN_TARGET"));
+    }
+
+    @Test
+    public void testSizeDecreasedWhenTransactionIsSlow() {
+        testSubject.recordTransaction(50, millis(250), true);
+
+        assertEquals(20, testSubject.getCurrentTransactionSize());
+        assertEquals(1, testSubject.getDecreaseCount());
+        assertTrue(testSubject.getLastDecision().startsWith("TOO_SLOW"));
+    }
+
+    @Test
+    public void testSizeHalvedWhenTransactionFails() {
+        testSubject.recordTransaction(50, millis(1), false);
+
+        assertEquals(25, testSubject.getCurrentTransactionSize());
+        assertTrue(testSubject.getLastDecision().startsWith("FAILURE"));
+    }
+
+    @Test
+    public void testSizeStaysWithinBounds() {
+        testSubject = new AdaptiveTransactionSizer(100, 10, 80);
+        testSubject.recordTransaction(50, millis(1), true);
+        assertEquals(80, testSubject.getCurrentTransactionSize());
+
+        testSubject.recordTransaction(80, millis(10000), true);
+        assertEquals(10, testSubject.getCurrentTransactionSize());
+    }
+
+    @Test
+    public void testLatencyTargetChangedAtRuntime() {
+        testSubject.setTargetLatencyMillis(10);
+        testSubject.recordTransaction(50, millis(20), true);
+
+        assertEquals(25, testSubject.getCurrentTransactionSize());
+    }
+
+    @Test
+    public void testSchedulerUsesTransactionSize() {
+        final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+        EventProcessingScheduler<Integer> scheduler = new EventProcessingScheduler<Integer>(
+                transactionManager, new DeferredExecutor(), new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(Integer event) {
+            }
+        };
+        scheduler.setTransactionSizer(new AdaptiveTransactionSizer(60000, 2, 2));
+        for (int t = 0; t < 5; t++) {
+            scheduler.scheduleEvent(t);
+        }
+        scheduler.run();
+
+        assertEquals(3, transactionManager.transactionCount);
+        assertEquals(1, transactionManager.lastTransactionSize);
+    }
+
+    private long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static class RecordingTransactionManager implements TransactionManager {
+
+        private int transactionCount;
+        private int lastTransactionSize;
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setYieldPolicy(YieldPolicy.DO_NOT_YIELD);
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+            transactionCount++;
+            lastTransactionSize = transactionStatus.getEventsProcessedInTransaction();
+        }
+    }
+
+    private static class DeferredExecutor implements java.util.concurrent.Executor {
+
+        @Override
+        public void execute(Runnable command) {
+            // the test runs the scheduler explicitly
+        }
+    }
+
+    private static class NullShutdownCallback implements EventProcessingScheduler.ShutdownCallback {
+
+        @Override
+        public void afterShutdown(EventProcessingScheduler scheduler) {
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.deadletter.FileSystemDeadLetterStore;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsynchronousEventHandlerWrapperDeadLetterTest {
+
+    private DeferredExecutor executor;
+    private FailingEventListener eventListener;
+    private FileSystemDeadLetterStore deadLetterStore;
+    private AsynchronousEventHandlerWrapper testSubject;
+
+    @Rule
+    public TemporaryFolder storeDirectory = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        executor = new DeferredExecutor();
+        eventListener = new FailingEventListener();
+        deadLetterStore = new FileSystemDeadLetterStore(storeDirectory.getRoot());
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new RetryingTransactionManager(),
+                                                          new SequentialPerAggregatePolicy(), executor);
+        testSubject.setRetryBackoff(new ExponentialBackoff(0, 0, 1, 0, 3));
+        testSubject.setDeadLetterStore(deadLetterStore);
+    }
+
+    @Test
+    public void testFailedEventAndSuccessorsStoredAsDeadLetters() {
+        AggregateIdentifier failingAggregate = new UUIDAggregateIdentifier();
+        AggregateIdentifier otherAggregate = new UUIDAggregateIdentifier();
+        StubDomainEvent failing = new StubDomainEvent(failingAggregate, 0);
+        StubDomainEvent successor = new StubDomainEvent(failingAggregate, 1);
+        StubDomainEvent other = new StubDomainEvent(otherAggregate, 0);
+        eventListener.failingEvents.add(failing);
+
+        testSubject.handle(failing);
+        executor.runAll();
+        testSubject.handle(successor);
+        testSubject.handle(other);
+        executor.runAll();
+
+        assertEquals(3, eventListener.attempts(failing));
+        assertFalse(eventListener.handledEvents.contains(successor));
+        assertTrue(eventListener.handledEvents.contains(other));
+        assertEquals(2, deadLetterStore.size());
+        assertTrue(deadLetterStore.contains(failingAggregate.toString()));
+        assertFalse(deadLetterStore.contains(otherAggregate.toString()));
+    }
+
+    @Test
+    public void testDeadLettersReplayedInOrder() {
+        AggregateIdentifier aggregate = new UUIDAggregateIdentifier();
+        StubDomainEvent failing = new StubDomainEvent(aggregate, 0);
+        StubDomainEvent successor = new StubDomainEvent(aggregate, 1);
+        eventListener.failingEvents.add(failing);
+        testSubject.handle(failing);
+        executor.runAll();
+        testSubject.handle(successor);
+        executor.runAll();
+        eventListener.failingEvents.clear();
+        eventListener.handledEvents.clear();
+
+        assertEquals(2, testSubject.replayDeadLetters());
+
+        assertEquals(Arrays.<Event>asList(failing, successor), eventListener.handledEvents);
+        assertEquals(0, deadLetterStore.size());
+
+        StubDomainEvent next = new StubDomainEvent(aggregate, 2);
+        testSubject.handle(next);
+        executor.runAll();
+        assertEquals(next, eventListener.handledEvents.get(2));
+    }
+
+    @Test
+    public void testFailedEventDiscardedWithoutDeadLetterStore() {
+        testSubject.setDeadLetterStore(null);
+        StubDomainEvent failing = new StubDomainEvent(new UUIDAggregateIdentifier(), 0);
+        StubDomainEvent successor = new StubDomainEvent(failing.getAggregateIdentifier(), 1);
+        eventListener.failingEvents.add(failing);
+
+        testSubject.handle(failing);
+        testSubject.handle(successor);
+        executor.runAll();
+
+        assertEquals(3, eventListener.attempts(failing));
+        assertTrue(eventListener.handledEvents.contains(successor));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReplayRequiresDeadLetterStore() {
+        testSubject.setDeadLetterStore(null);
+        testSubject.replayDeadLetters();
+    }
+
+    private static class RetryingTransactionManager implements TransactionManager {
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setRetryPolicy(RetryPolicy.RETRY_LAST_EVENT);
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+        }
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class FailingEventListener implements EventListener {
+
+        private final Set<Event> failingEvents = new HashSet<Event>();
+        private final List<Event> handledEvents = new ArrayList<Event>();
+
+        @Override
+        public void handle(Event event) {
+            handledEvents.add(event);
+            if (failingEvents.contains(event)) {
+                throw new RuntimeException("Mock");
+            }
+        }
+
+        public int attempts(Event event) {
+            int attempts = 0;
+            for (Event handledEvent : handledEvents) {
+                if (handledEvent.equals(event)) {
+                    attempts++;
+                }
+            }
+            return attempts;
+        }
+    }
+}
@@ -58,10 +58,38 @@ public class AsynchronousEventHandlerWrapperTest {
 
     @Test
     public void testEventsAreExecutedInOrder() throws InterruptedException {
-        AggregateIdentifier[] groupIds = new AggregateIdentifier[100];
+        AggregateIdentifier[] groupIds = dispatchEvents(100, 100);
+        assertEventsHandledInOrder(groupIds, 100);
+    }
+
+    @Test
+    public void testEventsAreExecutedInOrder_WithLanes() throws InterruptedException {
+        testSubject = new AsynchronousEventHandlerWrapper(mockEventListener, new NoTransactionManager(),
+                                                          new SequentialPerAggregatePolicy(), executorService, 4, 16);
+        AggregateIdentifier[] groupIds = dispatchEvents(100, 100);
+        assertEventsHandledInOrder(groupIds, 100);
+
+        List<LaneStatistics> statistics = testSubject.getLaneStatistics();
+        assertEquals(4, statistics.size());
+        long processedCount = 0;
+        for (LaneStatistics lane : statistics) {
+            assertEquals(0, lane.getQueueDepth());
+            assertEquals(16, lane.getCapacity());
+            assertTrue(lane.getMaxLatencyNanos() >= lane.getAverageLatencyNanos());
+            processedCount += lane.getProcessedCount();
+        }
+        assertEquals(10000, processedCount);
+    }
+
+    @Test
+    public void testNoLaneStatisticsWithoutLanes() {
+        assertTrue(testSubject.getLaneStatistics().isEmpty());
+    }
+
+    private AggregateIdentifier[] dispatchEvents(int groupCount, int eventsPerGroup) throws InterruptedException {
+        AggregateIdentifier[] groupIds = new AggregateIdentifier[groupCount];
         CountDownLatch start = new CountDownLatch(1);
         CountDownLatch finish = new CountDownLatch(groupIds.length);
-        int eventsPerGroup = 100;
         for (int t = 0; t < groupIds.length; t++) {
             groupIds[t] = startEventDispatcher(start, finish, eventsPerGroup);
         }
@@ -69,6 +97,10 @@ public class AsynchronousEventHandlerWrapperTest {
         finish.await();
         executorService.shutdown();
         assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        return groupIds;
+    }
+
+    private void assertEventsHandledInOrder(AggregateIdentifier[] groupIds, int eventsPerGroup) {
         BlockingQueue<Event> actualEventOrder = mockEventListener.events;
         assertEquals("Expected all events to be dispatched", eventsPerGroup * groupIds.length, actualEventOrder.size());
 
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AsynchronousExecutionWrapperOverflowTest {
+
+    private DeferredExecutor executor;
+    private RecordingEventListener eventListener;
+    private AsynchronousEventHandlerWrapper testSubject;
+
+    @Rule
+    public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        executor = new DeferredExecutor();
+        eventListener = new RecordingEventListener();
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new SequentialPolicy(), executor);
+        testSubject.setQueueCapacity(2);
+    }
+
+    @Test
+    public void testBlockPublisherIsDefaultPolicy() {
+        assertEquals(OverflowPolicy.BLOCK_PUBLISHER, testSubject.getOverflowPolicy());
+    }
+
+    @Test
+    public void testFailFastRejectsEventsWhenQueueIsFull() {
+        testSubject.setOverflowPolicy(OverflowPolicy.FAIL_FAST);
+        List<Event> events = createEvents(3);
+        testSubject.handle(events.get(0));
+        testSubject.handle(events.get(1));
+        try {
+            testSubject.handle(events.get(2));
+            fail("Expected EventQueueFullException");
+        } catch (EventQueueFullException e) {
+            assertTrue(e.getMessage().contains("StubDomainEvent"));
+        }
+        assertEquals(1, testSubject.getRejectedTaskCount());
+        assertEquals(2, testSubject.queueCapacity().getQueuedCount());
+
+        executor.runAll();
+
+        assertEquals(events.subList(0, 2), eventListener.events);
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+        assertEquals(2, testSubject.queueCapacity().getHighWaterMark());
+    }
+
+    @Test
+    public void testDropOldestDiscardsOldestEventInSameQueue() {
+        testSubject.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        List<Event> events = createEvents(4);
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+        assertEquals(2, testSubject.getDroppedTaskCount());
+
+        executor.runAll();
+
+        assertEquals(events.subList(2, 4), eventListener.events);
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+    }
+
+    @Test
+    public void testDropOldestDiscardsOldestEventOfAnySequence() {
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new SequentialPerAggregatePolicy(), executor);
+        testSubject.setQueueCapacity(2);
+        testSubject.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        List<Event> events = new ArrayList<Event>();
+        for (int t = 0; t < 4; t++) {
+            events.add(new StubDomainEvent(new UUIDAggregateIdentifier(), 0));
+        }
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+        assertEquals(2, testSubject.getDroppedTaskCount());
+        assertEquals(2, testSubject.queueCapacity().getQueuedCount());
+
+        executor.runAll();
+
+        assertEquals(events.subList(2, 4), eventListener.events);
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+    }
+
+    @Test
+    public void testDropOldestDiscardsOldestEventInProcessingLanes() {
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new NoTransactionManager(),
+                                                          new SequentialPerAggregatePolicy(), executor, 4, 10);
+        testSubject.setQueueCapacity(3);
+        testSubject.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        List<Event> events = new ArrayList<Event>();
+        for (int t = 0; t < 8; t++) {
+            events.add(new StubDomainEvent(new UUIDAggregateIdentifier(), 0));
+        }
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+        assertEquals(5, testSubject.getDroppedTaskCount());
+
+        executor.runAll();
+
+        assertEquals(3, eventListener.events.size());
+        assertTrue(eventListener.events.containsAll(events.subList(5, 8)));
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+    }
+
+    @Test
+    public void testBlockPublisher_ProcessingThreadDoesNotWaitForItself() {
+        final List<Event> republished = createEvents(2);
+        eventListener = new RecordingEventListener() {
+            @Override
+            public void handle(Event event) {
+                super.handle(event);
+                if (events.size() == 1) {
+                    // the queue is full after the first event has been republished
+                    for (Event republishedEvent : republished) {
+                        testSubject.handle(republishedEvent);
+                    }
+                }
+            }
+        };
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new SequentialPolicy(), executor);
+        testSubject.setQueueCapacity(2);
+        List<Event> events = createEvents(2);
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+
+        executor.runAll();
+
+        assertEquals(Arrays.asList(events.get(0), events.get(1), republished.get(0), republished.get(1)),
+                     eventListener.events);
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+        assertEquals(3, testSubject.queueCapacity().getHighWaterMark());
+        // the capacity exceeded by the processing thread is available again
+        assertTrue(testSubject.queueCapacity().tryReserve());
+        assertTrue(testSubject.queueCapacity().tryReserve());
+        assertFalse(testSubject.queueCapacity().tryReserve());
+    }
+
+    @Test
+    public void testFullLaneRejectsTasksFromProcessingThread() {
+        final List<Exception> failures = new ArrayList<Exception>();
+        eventListener = new RecordingEventListener() {
+            @Override
+            public void handle(Event event) {
+                super.handle(event);
+                if (events.size() == 1) {
+                    try {
+                        testSubject.handle(new StubDomainEvent());
+                        testSubject.handle(new StubDomainEvent());
+                    } catch (EventQueueFullException e) {
+                        failures.add(e);
+                    }
+                }
+            }
+        };
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new NoTransactionManager(),
+                                                          new SequentialPolicy(), executor, 1, 1);
+        testSubject.handle(new StubDomainEvent());
+
+        executor.runAll();
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage().contains("lane [0] is full"));
+        assertEquals(2, eventListener.events.size());
+    }
+
+    @Test
+    public void testBlockPublisher_ProcessingThreadOfOtherWrapperWaitsForCapacity() throws Exception {
+        DeferredExecutor downstreamExecutor = new DeferredExecutor();
+        AsynchronousEventHandlerWrapper downstream =
+                new AsynchronousEventHandlerWrapper(eventListener, new SequentialPolicy(), downstreamExecutor);
+        downstream.setQueueCapacity(1);
+
+        assertChainedPublisherWaits(downstream, downstreamExecutor);
+        assertEquals(1, downstream.queueCapacity().getHighWaterMark());
+    }
+
+    @Test
+    public void testFullLaneMakesProcessingThreadOfOtherWrapperWait() throws Exception {
+        DeferredExecutor downstreamExecutor = new DeferredExecutor();
+        AsynchronousEventHandlerWrapper downstream =
+                new AsynchronousEventHandlerWrapper(eventListener, new NoTransactionManager(), new SequentialPolicy(),
+                                                    downstreamExecutor, 1, 1);
+
+        assertChainedPublisherWaits(downstream, downstreamExecutor);
+    }
+
+    /**
+     * Lets a listener of another wrapper publish two events to the given <code>downstream</code> wrapper, which only
+     * has room for one, and verifies that the publishing thread waits until the downstream wrapper made room.
+     */
+    private void assertChainedPublisherWaits(final AsynchronousEventHandlerWrapper downstream,
+                                             DeferredExecutor downstreamExecutor) throws Exception {
+        final List<Event> republished = createEvents(2);
+        final List<Exception> failures = new CopyOnWriteArrayList<Exception>();
+        AsynchronousEventHandlerWrapper upstream = new AsynchronousEventHandlerWrapper(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                try {
+                    for (Event republishedEvent : republished) {
+                        downstream.handle(republishedEvent);
+                    }
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            }
+        }, new SequentialPolicy(), executor);
+        upstream.handle(new StubDomainEvent());
+        Thread upstreamThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                executor.runAll();
+            }
+        });
+        upstreamThread.start();
+
+        upstreamThread.join(200);
+        assertTrue("Upstream processing thread should wait for downstream capacity", upstreamThread.isAlive());
+        while (upstreamThread.isAlive()) {
+            downstreamExecutor.runAll();
+            upstreamThread.join(10);
+        }
+        downstreamExecutor.runAll();
+
+        assertTrue("Upstream listener should not fail: " + failures, failures.isEmpty());
+        assertEquals(republished, eventListener.events);
+    }
+
+    @Test
+    public void testQueuedTasksAreNotCountedWithoutCapacity() {
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new SequentialPolicy(), executor);
+        for (Event event : createEvents(3)) {
+            testSubject.handle(event);
+        }
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+        try {
+            testSubject.setQueueCapacity(2);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        executor.runAll();
+
+        assertEquals(3, eventListener.events.size());
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+    }
+
+    @Test
+    public void testSpillToDiskPreservesOrder() throws Exception {
+        testSubject.setOverflowPolicy(OverflowPolicy.SPILL_TO_DISK);
+        testSubject.setSpillDirectory(spillDirectory.getRoot());
+        List<Event> events = createEvents(10);
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+        assertEquals(8, testSubject.getSpilledTaskCount());
+        assertEquals(8, testSubject.getTasksOnDisk());
+        assertEquals(2, testSubject.queueCapacity().getQueuedCount());
+
+        executor.runAll();
+
+        assertEquals(events, eventListener.events);
+        assertEquals(0, testSubject.getTasksOnDisk());
+        assertEquals(0, testSubject.queueCapacity().getQueuedCount());
+        assertEquals(2, testSubject.queueCapacity().getHighWaterMark());
+        assertEquals(0, spillDirectory.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testIncreasedCapacityAcceptsMoreEvents() {
+        testSubject.setOverflowPolicy(OverflowPolicy.FAIL_FAST);
+        testSubject.setQueueCapacity(3);
+        for (Event event : createEvents(3)) {
+            testSubject.handle(event);
+        }
+        assertEquals(3, testSubject.queueCapacity().getQueuedCount());
+        assertEquals(0, testSubject.getRejectedTaskCount());
+    }
+
+    @Test
+    public void testStatisticsExposeQueueState() {
+        testSubject = new AsynchronousEventHandlerWrapper(eventListener, new NoTransactionManager(),
+                                                          new SequentialPolicy(), executor, 2, 4);
+        testSubject.setQueueCapacity(5);
+        testSubject.setOverflowPolicy(OverflowPolicy.FAIL_FAST);
+        for (Event event : createEvents(3)) {
+            testSubject.handle(event);
+        }
+        AsynchronousExecutionStatistics statistics = new AsynchronousExecutionStatistics(testSubject);
+        assertEquals(5, statistics.getQueueCapacity());
+        assertEquals("FAIL_FAST", statistics.getOverflowPolicy());
+        assertEquals(3, statistics.getQueueDepth());
+        assertEquals(3, statistics.getHighWaterMark());
+        int[] laneDepths = statistics.getLaneQueueDepths();
+        assertEquals(2, laneDepths.length);
+        assertEquals(3, laneDepths[0] + laneDepths[1]);
+
+        executor.runAll();
+        assertEquals(0, statistics.getQueueDepth());
+        assertEquals(3, statistics.getHighWaterMark());
+        statistics.resetHighWaterMark();
+        assertEquals(0, statistics.getHighWaterMark());
+    }
+
+    private List<Event> createEvents(int count) {
+        List<Event> events = new ArrayList<Event>();
+        for (int t = 0; t < count; t++) {
+            events.add(new StubDomainEvent());
+        }
+        return events;
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class RecordingEventListener implements EventListener {
+
+        protected final List<Event> events = new ArrayList<Event>();
+
+        @Override
+        public void handle(Event event) {
+            events.add(event);
+        }
+    }
+}
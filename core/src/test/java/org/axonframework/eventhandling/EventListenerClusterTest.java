@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubAggregateDeletedEvent;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter;
+import org.axonframework.eventhandling.annotation.AsynchronousEventListener;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class EventListenerClusterTest {
+
+    private DeferredExecutor executor;
+    private EventListenerCluster testSubject;
+
+    @Before
+    public void setUp() {
+        executor = new DeferredExecutor();
+        testSubject = new EventListenerCluster(new SequentialPolicy(), executor);
+    }
+
+    @Test
+    public void testEventsScheduledOnceAndDispatchedToAllMembers() {
+        RecordingMember member1 = new RecordingMember();
+        RecordingMember member2 = new RecordingMember();
+        testSubject.subscribe(member1);
+        testSubject.subscribe(member2);
+        List<Event> events = Arrays.<Event>asList(new StubDomainEvent(), new StubDomainEvent(),
+                                                  new StubDomainEvent());
+
+        for (Event event : events) {
+            testSubject.handle(event);
+        }
+        executor.runAll();
+
+        assertEquals(1, executor.executedTasks);
+        assertEquals(events, member1.events);
+        assertEquals(events, member2.events);
+        assertEquals(1, member1.transactionsStarted);
+        assertEquals(1, member2.transactionsStarted);
+        assertEquals(1, member1.transactionsSucceeded);
+    }
+
+    @Test
+    public void testEventsNotHandledByAnyMemberAreNotScheduled() {
+        SelectiveMember member = new SelectiveMember();
+        testSubject.subscribe(member);
+
+        testSubject.publish(new StubAggregateDeletedEvent());
+        testSubject.publish(new StubDomainEvent());
+        executor.runAll();
+
+        assertEquals(1, executor.executedTasks);
+        assertEquals(1, member.events.size());
+        assertTrue(member.events.get(0) instanceof StubDomainEvent);
+    }
+
+    @Test
+    public void testBatchMembersReceiveAllEventsInSingleInvocation() {
+        BatchMember batchMember = new BatchMember();
+        RecordingMember member = new RecordingMember();
+        testSubject.subscribe(batchMember);
+        testSubject.subscribe(member);
+
+        testSubject.handle(new StubDomainEvent());
+        testSubject.handle(new StubDomainEvent());
+        executor.runAll();
+
+        assertEquals(1, batchMember.batches.size());
+        assertEquals(2, batchMember.batches.get(0).size());
+        assertEquals(2, member.events.size());
+    }
+
+    @Test
+    public void testMemberFailureRetriesTransactionForAllMembers() {
+        RecordingMember member = new RecordingMember();
+        RecordingMember failingMember = new RecordingMember();
+        failingMember.failuresRemaining = 1;
+        testSubject.subscribe(member);
+        testSubject.subscribe(failingMember);
+        StubDomainEvent event = new StubDomainEvent();
+
+        testSubject.handle(event);
+        executor.runAll();
+
+        assertEquals(Arrays.<Event>asList(event, event), member.events);
+        assertEquals(2, member.transactionsStarted);
+        assertEquals(1, member.transactionsSucceeded);
+    }
+
+    @Test
+    public void testMembersLeaveCluster() {
+        RecordingMember member = new RecordingMember();
+        testSubject.subscribe(member);
+        testSubject.subscribe(member);
+        assertEquals(1, testSubject.getMembers().size());
+
+        testSubject.unsubscribe(member);
+        testSubject.handle(new StubDomainEvent());
+        executor.runAll();
+
+        assertTrue(testSubject.getMembers().isEmpty());
+        assertEquals(0, executor.executedTasks);
+        assertTrue(member.events.isEmpty());
+    }
+
+    @Test
+    public void testAnnotatedListenerJoinsCluster() {
+        AsynchronousAnnotatedListener annotatedListener = new AsynchronousAnnotatedListener();
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(annotatedListener, testSubject);
+        adapter.subscribe();
+
+        testSubject.publish(new StubDomainEvent());
+        testSubject.publish(new StubAggregateDeletedEvent());
+        executor.runAll();
+
+        assertEquals(Arrays.<EventListener>asList(adapter), testSubject.getMembers());
+        assertEquals(1, executor.executedTasks);
+        assertEquals(1, annotatedListener.invocations);
+    }
+
+    @AsynchronousEventListener
+    private static class AsynchronousAnnotatedListener {
+
+        private int invocations;
+
+        @EventHandler
+        public void handle(StubDomainEvent event) {
+            invocations++;
+        }
+    }
+
+    private static class RecordingMember implements EventListener, TransactionManager {
+
+        private final List<Event> events = new ArrayList<Event>();
+        private int failuresRemaining;
+        private int transactionsStarted;
+        private int transactionsSucceeded;
+
+        @Override
+        public void handle(Event event) {
+            events.add(event);
+            if (failuresRemaining > 0) {
+                failuresRemaining--;
+                throw new RuntimeException("Mock");
+            }
+        }
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setRetryPolicy(RetryPolicy.RETRY_TRANSACTION);
+            transactionStatus.setRetryInterval(0);
+            transactionsStarted++;
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+            if (transactionStatus.isSuccessful()) {
+                transactionsSucceeded++;
+            }
+        }
+    }
+
+    private static class SelectiveMember implements SelectiveEventListener {
+
+        private final List<Event> events = new ArrayList<Event>();
+
+        @Override
+        public boolean canHandle(Class<? extends Event> eventType) {
+            return StubDomainEvent.class.isAssignableFrom(eventType);
+        }
+
+        @Override
+        public void handle(Event event) {
+            events.add(event);
+        }
+    }
+
+    private static class BatchMember implements BatchEventListener {
+
+        private final List<List<Event>> batches = new ArrayList<List<Event>>();
+
+        @Override
+        public void handle(Event event) {
+            handleBatch(Arrays.asList(event));
+        }
+
+        @Override
+        public void handleBatch(List<Event> events) {
+            batches.add(new ArrayList<Event>(events));
+        }
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+        private int executedTasks;
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                executedTasks++;
+                task.run();
+            }
+        }
+    }
+}
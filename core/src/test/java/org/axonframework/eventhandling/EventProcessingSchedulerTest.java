@@ -23,12 +23,22 @@ import org.mockito.*;
 import org.mockito.invocation.*;
 import org.mockito.stubbing.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.AdditionalMatchers.*;
@@ -205,6 +215,385 @@ public class EventProcessingSchedulerTest {
         inOrder.verify(listener).afterTransaction(isA(TransactionStatus.class));
     }
 
+    @Test
+    public void testSchedulerRejectsEventsAfterShutdown() {
+        ExecutorService mockExecutorService = mock(ExecutorService.class);
+        final EventListener listener = mock(EventListener.class);
+        EventProcessingScheduler.ShutdownCallback callback = mock(EventProcessingScheduler.ShutdownCallback.class);
+        testSubject = new EventProcessingScheduler<Event>(new NoTransactionManager(), mockExecutorService, callback) {
+            @Override
+            protected void doHandle(Event event) {
+                listener.handle(event);
+            }
+        };
+
+        assertTrue(testSubject.scheduleEvent(new StubDomainEvent()));
+        assertTrue(testSubject.scheduleEvent(new StubDomainEvent()));
+        // the scheduler is only scheduled once
+        verify(mockExecutorService, times(1)).execute(testSubject);
+
+        testSubject.run();
+
+        verify(listener, times(2)).handle(isA(Event.class));
+        verify(callback, times(1)).afterShutdown(testSubject);
+        assertFalse(testSubject.scheduleEvent(new StubDomainEvent()));
+    }
+
+    @Test(timeout = 10000)
+    public void testEventsFromConcurrentProducersAreAllProcessed() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        final AtomicInteger handledEvents = new AtomicInteger();
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        final EventProcessingScheduler<Event> scheduler = new EventProcessingScheduler<Event>(
+                new NoTransactionManager(), executor, new EventProcessingScheduler.ShutdownCallback() {
+            @Override
+            public void afterShutdown(EventProcessingScheduler scheduler) {
+                shutdown.countDown();
+            }
+        }) {
+            @Override
+            protected void doHandle(Event event) {
+                handledEvents.incrementAndGet();
+            }
+        };
+        final AtomicInteger acceptedEvents = new AtomicInteger();
+        final CountDownLatch producersDone = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        if (scheduler.scheduleEvent(new StubDomainEvent())) {
+                            acceptedEvents.incrementAndGet();
+                        }
+                    }
+                    producersDone.countDown();
+                }
+            }).start();
+        }
+        producersDone.await();
+        shutdown.await();
+        executor.shutdown();
+
+        assertTrue(acceptedEvents.get() > 0);
+        assertEquals(acceptedEvents.get(), handledEvents.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testEventAddedWhileShuttingDown_SchedulerKeepsAcceptingEvents() throws InterruptedException {
+        final EventListener listener = mock(EventListener.class);
+        final StubDomainEvent lateEvent = new StubDomainEvent();
+        final AtomicReference<EventProcessingScheduler<Event>> scheduler =
+                new AtomicReference<EventProcessingScheduler<Event>>();
+        final AtomicBoolean lateEventAccepted = new AtomicBoolean();
+        // the processing thread checks the queue once after processing, and once when deciding to shut down. When it
+        // finds the queue empty for the second time, another thread schedules an event.
+        Queue<Event> queue = new ConcurrentLinkedQueue<Event>() {
+            private int emptyChecks;
+
+            @Override
+            public boolean isEmpty() {
+                boolean empty = super.isEmpty();
+                if (empty && ++emptyChecks == 2) {
+                    Thread producer = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            lateEventAccepted.set(scheduler.get().scheduleEvent(lateEvent));
+                        }
+                    });
+                    producer.start();
+                    try {
+                        producer.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return empty;
+            }
+        };
+        EventProcessingScheduler.ShutdownCallback callback = mock(EventProcessingScheduler.ShutdownCallback.class);
+        scheduler.set(new EventProcessingScheduler<Event>(new NoTransactionManager(), queue, new DeferredExecutor(),
+                                                          callback) {
+            @Override
+            protected void doHandle(Event event) {
+                listener.handle(event);
+            }
+        });
+
+        assertTrue(scheduler.get().scheduleEvent(new StubDomainEvent()));
+        scheduler.get().run();
+
+        assertTrue(lateEventAccepted.get());
+        verify(callback, never()).afterShutdown(scheduler.get());
+        // the scheduler rescheduled itself to process the late event, so it must accept events until it is done
+        assertTrue(scheduler.get().scheduleEvent(new StubDomainEvent()));
+        scheduler.get().run();
+        verify(listener, times(3)).handle(isA(Event.class));
+        verify(callback).afterShutdown(scheduler.get());
+    }
+
+    @Test(timeout = 30000)
+    public void testProducersRacingWithShutdown_NoConcurrentSchedulersForSameSequence()
+            throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicInteger handledEvents = new AtomicInteger();
+        final AtomicInteger activeHandlers = new AtomicInteger();
+        final AtomicInteger concurrentHandling = new AtomicInteger();
+        final AtomicInteger shutdowns = new AtomicInteger();
+        final AtomicReference<EventProcessingScheduler<Event>> currentScheduler =
+                new AtomicReference<EventProcessingScheduler<Event>>();
+        // mimics the way AsynchronousExecutionWrapper replaces a scheduler that refuses events
+        final Runnable replaceScheduler = new Runnable() {
+            @Override
+            public void run() {
+                EventProcessingScheduler<Event> refusing = currentScheduler.get();
+                currentScheduler.compareAndSet(refusing, new EventProcessingScheduler<Event>(
+                        new NoTransactionManager(), executor, new EventProcessingScheduler.ShutdownCallback() {
+                    @Override
+                    public void afterShutdown(EventProcessingScheduler scheduler) {
+                        shutdowns.incrementAndGet();
+                    }
+                }) {
+                    @Override
+                    protected void doHandle(Event event) {
+                        if (activeHandlers.incrementAndGet() > 1) {
+                            concurrentHandling.incrementAndGet();
+                        }
+                        Thread.yield();
+                        handledEvents.incrementAndGet();
+                        activeHandlers.decrementAndGet();
+                    }
+                });
+            }
+        };
+        replaceScheduler.run();
+        final AtomicInteger acceptedEvents = new AtomicInteger();
+        final CountDownLatch producersDone = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        EventProcessingScheduler<Event> scheduler = currentScheduler.get();
+                        while (!scheduler.scheduleEvent(new StubDomainEvent())) {
+                            replaceScheduler.run();
+                            scheduler = currentScheduler.get();
+                        }
+                        acceptedEvents.incrementAndGet();
+                        if (i % 10 == 0) {
+                            // give the scheduler the opportunity to run out of events and shut down
+                            Thread.yield();
+                        }
+                    }
+                    producersDone.countDown();
+                }
+            }).start();
+        }
+        producersDone.await();
+        while (handledEvents.get() < acceptedEvents.get()) {
+            Thread.sleep(10);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(20000, acceptedEvents.get());
+        assertEquals(20000, handledEvents.get());
+        assertEquals(0, concurrentHandling.get());
+        assertTrue("Expected schedulers to shut down while producers were active", shutdowns.get() > 0);
+    }
+
+    @Test
+    public void testBatchProcessing_AllEventsHandledInSingleInvocation() {
+        BatchRecordingListener listener = new BatchRecordingListener(RetryPolicy.RETRY_TRANSACTION);
+        testSubject = createBatchScheduler(listener);
+        List<Event> events = scheduleEvents(3);
+
+        testSubject.run();
+
+        assertEquals(1, listener.batches.size());
+        assertEquals(events, listener.batches.get(0));
+        assertEquals(1, listener.transactionsStarted);
+        assertEquals(1, listener.transactionsSucceeded);
+    }
+
+    @Test
+    public void testBatchProcessing_BatchSizeLimitedByMaxTransactionSize() {
+        BatchRecordingListener listener = new BatchRecordingListener(RetryPolicy.RETRY_TRANSACTION);
+        listener.maxTransactionSize = 2;
+        testSubject = createBatchScheduler(listener);
+        List<Event> events = scheduleEvents(3);
+
+        testSubject.run();
+
+        assertEquals(2, listener.batches.size());
+        assertEquals(events.subList(0, 2), listener.batches.get(0));
+        assertEquals(events.subList(2, 3), listener.batches.get(1));
+        assertEquals(2, listener.transactionsSucceeded);
+    }
+
+    @Test
+    public void testBatchProcessing_FailedBatchRetriedAsWhole() {
+        BatchRecordingListener listener = new BatchRecordingListener(RetryPolicy.RETRY_LAST_EVENT);
+        listener.failOnBatch = 1;
+        testSubject = createBatchScheduler(listener);
+        List<Event> events = scheduleEvents(3);
+
+        testSubject.run();
+        // the executor does not execute the rescheduled task, so we simulate the retry
+        testSubject.run();
+
+        assertEquals(2, listener.batches.size());
+        assertEquals(events, listener.batches.get(0));
+        assertEquals(events, listener.batches.get(1));
+        assertEquals(1, listener.transactionsFailed);
+        assertEquals(1, listener.transactionsSucceeded);
+    }
+
+    @Test
+    public void testBatchProcessing_FailedBatchSkipped() {
+        BatchRecordingListener listener = new BatchRecordingListener(RetryPolicy.SKIP_FAILED_EVENT);
+        listener.failOnBatch = 1;
+        testSubject = createBatchScheduler(listener);
+        scheduleEvents(3);
+
+        testSubject.run();
+        testSubject.run();
+
+        assertEquals(1, listener.batches.size());
+        assertEquals(1, listener.transactionsStarted);
+        assertEquals(1, listener.transactionsFailed);
+    }
+
+    @Test
+    public void testRetryBackoff_FailedEventHandedOverWhenAttemptsExhausted() {
+        final MockEventListener listener = new MockEventListener(RetryPolicy.RETRY_LAST_EVENT);
+        final List<Event> exhaustedEvents = new ArrayList<Event>();
+        testSubject = new EventProcessingScheduler<Event>(listener, new DeferredExecutor(),
+                                                          new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(Event event) {
+                listener.handle(event);
+            }
+
+            @Override
+            protected void onRetriesExhausted(List<Event> events, Exception cause) {
+                exhaustedEvents.addAll(events);
+            }
+        };
+        testSubject.setRetryBackoff(new ExponentialBackoff(0, 0, 1, 0, 3));
+        List<Event> events = scheduleEvents(3);
+        listener.failingEvent = events.get(1);
+
+        for (int t = 0; t < 4; t++) {
+            testSubject.run();
+        }
+
+        assertEquals(Arrays.asList(events.get(1)), exhaustedEvents);
+        assertEquals(Arrays.asList(events.get(0), events.get(1), events.get(1), events.get(1), events.get(2)),
+                     listener.handledEvents);
+        assertEquals(3, listener.transactionsFailed);
+    }
+
+    @Test
+    public void testBatchProcessing_RetryBackoffHandsOverEntireBatch() {
+        BatchRecordingListener listener = new BatchRecordingListener(RetryPolicy.RETRY_TRANSACTION);
+        listener.failOnBatch = -1;
+        final List<Event> exhaustedEvents = new ArrayList<Event>();
+        testSubject = createBatchScheduler(listener, exhaustedEvents);
+        testSubject.setRetryBackoff(new ExponentialBackoff(0, 0, 1, 0, 2));
+        List<Event> events = scheduleEvents(3);
+
+        testSubject.run();
+        testSubject.run();
+        // the exhausted batch is handed over in the next run
+        testSubject.run();
+
+        assertEquals(events, exhaustedEvents);
+        assertEquals(2, listener.transactionsFailed);
+    }
+
+    @Test
+    public void testRetryBackoff_FailedHandOverIsRetriedBeforeOtherEvents() {
+        final MockEventListener listener = new MockEventListener(RetryPolicy.RETRY_LAST_EVENT);
+        final List<Event> exhaustedEvents = new ArrayList<Event>();
+        final List<Integer> openTransactions = new ArrayList<Integer>();
+        testSubject = new EventProcessingScheduler<Event>(listener, new DeferredExecutor(),
+                                                          new NullShutdownCallback()) {
+            private boolean failHandOver = true;
+
+            @Override
+            protected void doHandle(Event event) {
+                listener.handle(event);
+            }
+
+            @Override
+            protected void onRetriesExhausted(List<Event> events, Exception cause) {
+                openTransactions.add(listener.transactionsStarted - listener.transactionsSucceeded
+                                             - listener.transactionsFailed);
+                if (failHandOver) {
+                    failHandOver = false;
+                    throw new RuntimeException("Mock exception");
+                }
+                exhaustedEvents.addAll(events);
+            }
+        };
+        testSubject.setRetryBackoff(new ExponentialBackoff(0, 0, 1, 0, 1));
+        List<Event> events = scheduleEvents(2);
+        listener.failingEvent = events.get(0);
+
+        // the first event fails and its hand-over fails
+        testSubject.run();
+        testSubject.run();
+        assertTrue(exhaustedEvents.isEmpty());
+        assertEquals(Arrays.asList(events.get(0)), listener.handledEvents);
+
+        testSubject.run();
+        assertEquals(Arrays.asList(events.get(0)), exhaustedEvents);
+        assertEquals(Arrays.asList(events.get(0), events.get(1)), listener.handledEvents);
+        // each hand-over was executed inside a transaction
+        assertEquals(Arrays.asList(1, 1), openTransactions);
+    }
+
+    private EventProcessingScheduler<Event> createBatchScheduler(final BatchRecordingListener listener) {
+        return createBatchScheduler(listener, new ArrayList<Event>());
+    }
+
+    private EventProcessingScheduler<Event> createBatchScheduler(final BatchRecordingListener listener,
+                                                                 final List<Event> exhaustedEvents) {
+        return new EventProcessingScheduler<Event>(listener, new DeferredExecutor(), new NullShutdownCallback()) {
+            @Override
+            protected void doHandle(Event event) {
+                listener.handle(event);
+            }
+
+            @Override
+            protected void doHandleBatch(List<Event> events) {
+                listener.handleBatch(events);
+            }
+
+            @Override
+            protected boolean isBatchProcessing() {
+                return true;
+            }
+
+            @Override
+            protected void onRetriesExhausted(List<Event> events, Exception cause) {
+                exhaustedEvents.addAll(events);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private List<Event> scheduleEvents(int count) {
+        List<Event> events = new ArrayList<Event>();
+        for (int t = 0; t < count; t++) {
+            StubDomainEvent event = new StubDomainEvent(t);
+            events.add(event);
+            testSubject.scheduleEvent(event);
+        }
+        return events;
+    }
+
     private MockEventListener executeEventProcessing(RetryPolicy policy) {
         ExecutorService mockExecutorService = mock(ExecutorService.class);
         final MockEventListener listener = new MockEventListener(policy);
@@ -229,6 +618,7 @@ public class EventProcessingSchedulerTest {
     private class MockEventListener implements EventListener, TransactionManager {
 
         private int failOnEvent;
+        private Event failingEvent;
         private List<Event> handledEvents = new LinkedList<Event>();
         private RetryPolicy retryPolicy;
         private int transactionsStarted;
@@ -242,7 +632,7 @@ public class EventProcessingSchedulerTest {
         @Override
         public void handle(Event event) {
             handledEvents.add(event);
-            if (--failOnEvent == 0) {
+            if (event.equals(failingEvent) || --failOnEvent == 0) {
                 throw new RuntimeException("Mock exception");
             }
         }
@@ -256,7 +646,9 @@ public class EventProcessingSchedulerTest {
         @Override
         public void afterTransaction(TransactionStatus transactionStatus) {
             transactionStatus.setRetryInterval(100);
-            assertEquals(failOnEvent != 0, transactionStatus.isSuccessful());
+            if (failingEvent == null) {
+                assertEquals(failOnEvent != 0, transactionStatus.isSuccessful());
+            }
             if (transactionStatus.isSuccessful()) {
                 transactionsSucceeded++;
             } else {
@@ -265,6 +657,61 @@ public class EventProcessingSchedulerTest {
         }
     }
 
+    private static class BatchRecordingListener implements BatchEventListener, TransactionManager {
+
+        private final List<List<Event>> batches = new ArrayList<List<Event>>();
+        private final RetryPolicy retryPolicy;
+        private int maxTransactionSize = Integer.MAX_VALUE;
+        private int failOnBatch;
+        private int transactionsStarted;
+        private int transactionsSucceeded;
+        private int transactionsFailed;
+
+        public BatchRecordingListener(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public void handle(Event event) {
+            handleBatch(Arrays.asList(event));
+        }
+
+        @Override
+        public void handleBatch(List<Event> events) {
+            batches.add(new ArrayList<Event>(events));
+            if (batches.size() == failOnBatch || failOnBatch < 0) {
+                throw new RuntimeException("Mock exception");
+            }
+        }
+
+        @Override
+        public void beforeTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setRetryPolicy(retryPolicy);
+            transactionStatus.setYieldPolicy(YieldPolicy.DO_NOT_YIELD);
+            transactionStatus.setMaxTransactionSize(Math.min(maxTransactionSize,
+                                                             transactionStatus.getMaxTransactionSize()));
+            transactionsStarted++;
+        }
+
+        @Override
+        public void afterTransaction(TransactionStatus transactionStatus) {
+            transactionStatus.setRetryInterval(0);
+            if (transactionStatus.isSuccessful()) {
+                transactionsSucceeded++;
+            } else {
+                transactionsFailed++;
+            }
+        }
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        @Override
+        public void execute(Runnable command) {
+            // tasks are executed explicitly by the test
+        }
+    }
+
     private static class NullShutdownCallback implements EventProcessingScheduler.ShutdownCallback {
 
         @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ExponentialBackoffTest {
+
+    @Test
+    public void testIntervalGrowsExponentially() {
+        ExponentialBackoff testSubject = new ExponentialBackoff(100, 1000, 2, 0, 10);
+
+        assertEquals(100, testSubject.intervalFor(1));
+        assertEquals(200, testSubject.intervalFor(2));
+        assertEquals(400, testSubject.intervalFor(3));
+        assertEquals(800, testSubject.intervalFor(4));
+    }
+
+    @Test
+    public void testIntervalLimitedByMaximum() {
+        ExponentialBackoff testSubject = new ExponentialBackoff(100, 1000, 2, 0, 10);
+
+        assertEquals(1000, testSubject.intervalFor(5));
+        assertEquals(1000, testSubject.intervalFor(9));
+    }
+
+    @Test
+    public void testJitterSpreadsInterval() {
+        ExponentialBackoff testSubject = new ExponentialBackoff(1000, 1000, 2, 0.5, 10);
+        boolean spread = false;
+        for (int t = 0; t < 100; t++) {
+            long interval = testSubject.intervalFor(1);
+            assertTrue("Interval out of range: " + interval, interval >= 500 && interval <= 1500);
+            spread |= interval != 1000;
+        }
+        assertTrue("Expected jitter to change the interval", spread);
+    }
+
+    @Test
+    public void testExhaustedAfterMaxAttempts() {
+        ExponentialBackoff testSubject = new ExponentialBackoff(100, 3);
+
+        assertEquals(3, testSubject.getMaxAttempts());
+        assertFalse(testSubject.isExhausted(2));
+        assertTrue(testSubject.isExhausted(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaximumIntervalMustNotBeSmallerThanInitialInterval() {
+        new ExponentialBackoff(1000, 100, 2, 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJitterFactorMustNotExceedOne() {
+        new ExponentialBackoff(100, 1000, 2, 1.5, 10);
+    }
+}
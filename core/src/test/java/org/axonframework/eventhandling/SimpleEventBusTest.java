@@ -16,9 +16,25 @@
 
 package org.axonframework.eventhandling;
 
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubAggregateDeletedEvent;
 import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.DefaultUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.axonframework.unitofwork.UnitOfWorkListener;
 import org.junit.*;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
 
@@ -62,4 +78,224 @@ public class SimpleEventBusTest {
         verify(listener2, times(2)).handle(isA(StubDomainEvent.class));
         verify(listener3, times(2)).handle(isA(StubDomainEvent.class));
     }
+
+    @Test
+    public void testEventIsOnlyDispatchedToSelectiveListenersThatHandleIt() {
+        SelectiveEventListener selectiveListener = mock(SelectiveEventListener.class);
+        when(selectiveListener.canHandle(StubDomainEvent.class)).thenReturn(true);
+        testSubject.subscribe(listener1);
+        testSubject.subscribe(selectiveListener);
+
+        testSubject.publish(new StubDomainEvent());
+        testSubject.publish(new StubDomainEvent());
+        testSubject.publish(new StubAggregateDeletedEvent());
+
+        verify(listener1, times(3)).handle(isA(Event.class));
+        verify(selectiveListener, times(2)).handle(isA(StubDomainEvent.class));
+        verify(selectiveListener, never()).handle(isA(StubAggregateDeletedEvent.class));
+        // the routing is calculated once per event type
+        verify(selectiveListener, times(1)).canHandle(StubDomainEvent.class);
+        verify(selectiveListener, times(1)).canHandle(StubAggregateDeletedEvent.class);
+    }
+
+    @Test
+    public void testRoutingIsRecalculatedOnSubscription() {
+        SelectiveEventListener selectiveListener = mock(SelectiveEventListener.class);
+        when(selectiveListener.canHandle(StubDomainEvent.class)).thenReturn(true);
+        testSubject.subscribe(listener1);
+        testSubject.publish(new StubDomainEvent());
+
+        testSubject.subscribe(selectiveListener);
+        testSubject.publish(new StubDomainEvent());
+        testSubject.unsubscribe(listener1);
+        testSubject.publish(new StubDomainEvent());
+
+        verify(listener1, times(2)).handle(isA(StubDomainEvent.class));
+        verify(selectiveListener, times(2)).handle(isA(StubDomainEvent.class));
+    }
+
+    @Test(timeout = 10000)
+    public void testIndependentListenersInvokedConcurrently() {
+        SimpleEventBus eventBus = new SimpleEventBus(false);
+        eventBus.setForkJoinPool(new ForkJoinPool(2));
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        LatchedListener independent1 = new LatchedListener(bothStarted);
+        LatchedListener independent2 = new LatchedListener(bothStarted);
+        eventBus.subscribe(independent1);
+        eventBus.subscribe(independent2);
+        eventBus.subscribe(listener1);
+
+        eventBus.publish(new StubDomainEvent());
+
+        assertTrue(independent1.completed);
+        assertTrue(independent2.completed);
+        verify(listener1).handle(isA(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testFailuresOfConcurrentListenersAreAggregated() {
+        SimpleEventBus eventBus = new SimpleEventBus(false);
+        eventBus.setForkJoinPool(new ForkJoinPool(2));
+        eventBus.subscribe(new FailingListener());
+        eventBus.subscribe(new FailingListener());
+        eventBus.subscribe(listener1);
+
+        try {
+            eventBus.publish(new StubDomainEvent());
+            fail("Expected EventPublicationFailedException");
+        } catch (EventPublicationFailedException e) {
+            assertEquals(2, e.getFailures().size());
+            assertSame(e.getFailures().get(0), e.getCause());
+        }
+        verify(listener1).handle(isA(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testSingleFailureOfConcurrentListenersIsRethrown() {
+        SimpleEventBus eventBus = new SimpleEventBus(false);
+        eventBus.setForkJoinPool(new ForkJoinPool(2));
+        eventBus.subscribe(new FailingListener());
+        eventBus.subscribe(new LatchedListener(new CountDownLatch(0)));
+
+        try {
+            eventBus.publish(new StubDomainEvent());
+            fail("Expected MockException");
+        } catch (MockException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWorkerThreadsGetReadOnlyUnitOfWorkAndTransactionStatus() throws Exception {
+        SimpleEventBus eventBus = new SimpleEventBus(false);
+        eventBus.setForkJoinPool(new ForkJoinPool(2));
+        final CountDownLatch independentListenersDone = new CountDownLatch(2);
+        ContextRecordingListener independent1 = new ContextRecordingListener(independentListenersDone);
+        ContextRecordingListener independent2 = new ContextRecordingListener(independentListenersDone);
+        eventBus.subscribe(independent1);
+        eventBus.subscribe(independent2);
+        // keeps the publishing thread busy, so the independent listeners must run in worker threads
+        eventBus.subscribe(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                try {
+                    assertTrue(independentListenersDone.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        TransactionStatus status = new TransactionStatus();
+        TransactionStatus.set(status);
+        UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+        try {
+            eventBus.publish(new StubDomainEvent());
+        } finally {
+            unitOfWork.rollback();
+            TransactionStatus.clear();
+        }
+
+        for (ContextRecordingListener listener : Arrays.asList(independent1, independent2)) {
+            assertNotSame(Thread.currentThread(), listener.thread);
+            assertReadOnlyUnitOfWorkAvailable(listener);
+            assertSame(status, listener.transactionStatus);
+        }
+    }
+
+    @Test
+    public void testPublishingThreadGetsSameUnitOfWorkViewAsWorkerThreads() throws Exception {
+        final SimpleEventBus eventBus = new SimpleEventBus(false);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        eventBus.setForkJoinPool(pool);
+        final ContextRecordingListener independent1 = new ContextRecordingListener(new CountDownLatch(2));
+        final ContextRecordingListener independent2 = new ContextRecordingListener(new CountDownLatch(2));
+        eventBus.subscribe(independent1);
+        eventBus.subscribe(independent2);
+
+        // the only thread of the pool publishes, so it handles the independent listeners itself
+        Thread publishingThread = pool.submit(new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                UnitOfWork unitOfWork = DefaultUnitOfWork.startAndGet();
+                try {
+                    eventBus.publish(new StubDomainEvent());
+                } finally {
+                    unitOfWork.rollback();
+                }
+                return Thread.currentThread();
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        for (ContextRecordingListener listener : Arrays.asList(independent1, independent2)) {
+            assertSame(publishingThread, listener.thread);
+            assertReadOnlyUnitOfWorkAvailable(listener);
+        }
+    }
+
+    private static void assertReadOnlyUnitOfWorkAvailable(ContextRecordingListener listener) {
+        assertTrue("Unit of Work should be visible", listener.unitOfWorkStarted);
+        assertTrue("Unit of Work should not be modifiable", listener.modificationRejected);
+    }
+
+    /**
+     * Records the context in which it handles an event. The given latch is counted down once the event was handled.
+     */
+    private static class ContextRecordingListener implements EventListener, IndependentEventListener {
+
+        private final CountDownLatch done;
+        private volatile Thread thread;
+        private volatile boolean unitOfWorkStarted;
+        private volatile boolean modificationRejected;
+        private volatile TransactionStatus transactionStatus;
+
+        public ContextRecordingListener(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        public void handle(Event event) {
+            thread = Thread.currentThread();
+            transactionStatus = TransactionStatus.current();
+            unitOfWorkStarted = CurrentUnitOfWork.isStarted() && CurrentUnitOfWork.get().isStarted();
+            try {
+                CurrentUnitOfWork.get().registerListener(mock(UnitOfWorkListener.class));
+            } catch (IllegalStateException e) {
+                modificationRejected = true;
+            }
+            done.countDown();
+        }
+    }
+
+    private static class LatchedListener implements EventListener, IndependentEventListener {
+
+        private final CountDownLatch started;
+        private volatile boolean completed;
+
+        public LatchedListener(CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public void handle(Event event) {
+            started.countDown();
+            try {
+                completed = started.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class FailingListener implements EventListener, IndependentEventListener {
+
+        @Override
+        public void handle(Event event) {
+            throw new MockException();
+        }
+    }
+
+    private static class MockException extends RuntimeException {
+
+        private static final long serialVersionUID = -2693372004545040155L;
+    }
 }
@@ -17,12 +17,21 @@
 package org.axonframework.eventhandling.annotation;
 
 import org.axonframework.domain.Event;
+import org.axonframework.domain.StubAggregateDeletedEvent;
 import org.axonframework.domain.StubDomainEvent;
 import org.axonframework.eventhandling.SequencingPolicy;
 import org.axonframework.eventhandling.TransactionStatus;
+import org.axonframework.eventhandling.UnsupportedHandlerMethodException;
 import org.axonframework.util.DirectExecutor;
 import org.junit.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -127,6 +136,71 @@ public class AnnotationEventListenerAdapterTest {
         assertEquals(1, bean.getAfterCalls());
     }
 
+    @Test
+    public void testCanHandleOnlyEventsWithHandlerMethod() {
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(new StubEventOnlyHandler(), null);
+
+        assertTrue(adapter.canHandle(StubDomainEvent.class));
+        assertFalse(adapter.canHandle(StubAggregateDeletedEvent.class));
+        assertFalse(adapter.canHandle(Event.class));
+    }
+
+    @Test
+    public void testBatchEventHandlerReceivesAllEventsOfTransaction() {
+        BatchEventHandlingListener listener = new BatchEventHandlingListener();
+        DeferredExecutor executor = new DeferredExecutor();
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(listener, executor, null);
+
+        StubDomainEvent event1 = new StubDomainEvent();
+        StubDomainEvent event2 = new StubDomainEvent();
+        StubAggregateDeletedEvent event3 = new StubAggregateDeletedEvent();
+        adapter.handle(event1);
+        adapter.handle(event2);
+        adapter.handle(event3);
+        executor.runAll();
+
+        assertEquals(Arrays.<Event>asList(event3), listener.handledEvents);
+        assertEquals(1, listener.stubEventBatches.size());
+        assertEquals(Arrays.asList(event1, event2), listener.stubEventBatches.get(0));
+        assertEquals(1, listener.allEventBatches.size());
+        assertEquals(Arrays.asList(event1, event2, event3), listener.allEventBatches.get(0));
+        assertNotNull(listener.lastTransactionStatus);
+    }
+
+    @Test
+    public void testBatchEventHandlerInvokedForEachEventWhenSynchronous() {
+        SyncBatchEventHandlingListener listener = new SyncBatchEventHandlingListener();
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(listener, null);
+
+        StubDomainEvent event1 = new StubDomainEvent();
+        StubDomainEvent event2 = new StubDomainEvent();
+        adapter.handle(event1);
+        adapter.handle(event2);
+
+        assertEquals(2, listener.batches.size());
+        assertEquals(Arrays.asList(event1), listener.batches.get(0));
+        assertEquals(Arrays.asList(event2), listener.batches.get(1));
+    }
+
+    @Test
+    public void testCanHandleEventsAcceptedByBatchHandler() {
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(
+                new SyncBatchEventHandlingListener(), null);
+
+        assertTrue(adapter.canHandle(StubDomainEvent.class));
+        assertFalse(adapter.canHandle(StubAggregateDeletedEvent.class));
+    }
+
+    @Test
+    public void testBatchEventHandlerMustAcceptList() {
+        try {
+            new AnnotationEventListenerAdapter(new IllegalBatchEventHandlingListener(), null);
+            fail("Expected UnsupportedHandlerMethodException");
+        } catch (UnsupportedHandlerMethodException e) {
+            assertEquals("handleEvents", e.getViolatingMethod().getName());
+        }
+    }
+
     public static class AnnotatedTransactionMethods {
 
         private int beforeCallCount = 0;
@@ -180,6 +254,13 @@ public class AnnotationEventListenerAdapterTest {
         }
     }
 
+    private static class StubEventOnlyHandler {
+
+        @EventHandler
+        public void handleEvent(StubDomainEvent event) {
+        }
+    }
+
     @AsynchronousEventListener
     private static class AsyncAnnotatedEventHandler {
 
@@ -233,6 +314,65 @@ public class AnnotationEventListenerAdapterTest {
         }
     }
 
+    @AsynchronousEventListener
+    private static class BatchEventHandlingListener {
+
+        private final List<Event> handledEvents = new ArrayList<Event>();
+        private final List<List<StubDomainEvent>> stubEventBatches = new ArrayList<List<StubDomainEvent>>();
+        private final List<List<Event>> allEventBatches = new ArrayList<List<Event>>();
+        private TransactionStatus lastTransactionStatus;
+
+        @EventHandler
+        public void handleEvent(StubAggregateDeletedEvent event) {
+            handledEvents.add(event);
+        }
+
+        @BatchEventHandler
+        public void handleStubEvents(List<StubDomainEvent> events) {
+            stubEventBatches.add(new ArrayList<StubDomainEvent>(events));
+        }
+
+        @BatchEventHandler
+        public void handleAllEvents(List<Event> events, TransactionStatus transactionStatus) {
+            allEventBatches.add(new ArrayList<Event>(events));
+            lastTransactionStatus = transactionStatus;
+        }
+    }
+
+    private static class SyncBatchEventHandlingListener {
+
+        private final List<List<StubDomainEvent>> batches = new ArrayList<List<StubDomainEvent>>();
+
+        @BatchEventHandler
+        public void handleEvents(List<? extends StubDomainEvent> events) {
+            batches.add(new ArrayList<StubDomainEvent>(events));
+        }
+    }
+
+    private static class IllegalBatchEventHandlingListener {
+
+        @BatchEventHandler
+        public void handleEvents(StubDomainEvent event) {
+        }
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
     private class WrongPolicy implements SequencingPolicy<Event> {
 
         public WrongPolicy(Object anyParameter) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.annotation;
+
+import org.axonframework.eventhandling.TransactionStatus;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class TransactionCallbacksTest {
+
+    @Test
+    public void testCallbacksAreResolvedOncePerType() {
+        assertSame(TransactionCallbacks.forType(TransactionalListener.class),
+                   TransactionCallbacks.forType(TransactionalListener.class));
+    }
+
+    @Test
+    public void testCallbacksInvoked() {
+        TransactionalListener listener = new TransactionalListener();
+        TransactionStatus status = mock(TransactionStatus.class);
+        TransactionCallbacks callbacks = TransactionCallbacks.forType(TransactionalListener.class);
+
+        assertTrue(callbacks.hasTransactionMethods());
+        callbacks.invokeBeforeTransaction(listener, status);
+        callbacks.invokeAfterTransaction(listener, status);
+        callbacks.invokeAfterTransaction(listener, status);
+
+        assertSame(status, listener.beforeStatus);
+        assertEquals(2, listener.afterCount);
+        assertNull(callbacks.getTransactionManagerField());
+    }
+
+    @Test
+    public void testTypeWithoutCallbacks() throws Exception {
+        TransactionCallbacks callbacks = TransactionCallbacks.forType(ListenerWithManagerField.class);
+
+        assertFalse(callbacks.hasTransactionMethods());
+        callbacks.invokeBeforeTransaction(new ListenerWithManagerField(), mock(TransactionStatus.class));
+        callbacks.invokeAfterTransaction(new ListenerWithManagerField(), mock(TransactionStatus.class));
+        assertEquals("manager", callbacks.getTransactionManagerField().getName());
+        assertNotNull(callbacks.getTransactionManagerField().get(new ListenerWithManagerField()));
+    }
+
+    private static class TransactionalListener {
+
+        private TransactionStatus beforeStatus;
+        private int afterCount;
+
+        @BeforeTransaction
+        public void before(TransactionStatus transactionStatus) {
+            beforeStatus = transactionStatus;
+        }
+
+        @AfterTransaction
+        private void after() {
+            afterCount++;
+        }
+    }
+
+    private static class ListenerWithManagerField {
+
+        @TransactionManager
+        private Object manager = new TransactionalListener();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventhandling.EventListener;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class FileSystemDeadLetterStoreTest {
+
+    private FileSystemDeadLetterStore testSubject;
+
+    @Rule
+    public TemporaryFolder baseDir = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        testSubject = new FileSystemDeadLetterStore(baseDir.getRoot());
+    }
+
+    @Test
+    public void testStoreDeadLetters() {
+        StubDomainEvent event1 = new StubDomainEvent(1);
+        StubDomainEvent event2 = new StubDomainEvent(2);
+        testSubject.store("sequence", event1, new IllegalStateException("Mock"));
+        testSubject.store("sequence", event2, null);
+
+        assertTrue(testSubject.contains("sequence"));
+        assertFalse(testSubject.contains("other"));
+        assertEquals(2, testSubject.size());
+        List<DeadLetter> deadLetters = testSubject.deadLettersFor("sequence");
+        assertEquals(2, deadLetters.size());
+        assertEquals(event1, deadLetters.get(0).getEvent());
+        assertEquals("java.lang.IllegalStateException: Mock", deadLetters.get(0).getCause());
+        assertEquals("sequence", deadLetters.get(0).getSequenceIdentifier());
+        assertNotNull(deadLetters.get(0).getStoredAt());
+        assertEquals(event2, deadLetters.get(1).getEvent());
+        assertTrue(testSubject.deadLettersFor("other").isEmpty());
+    }
+
+    @Test
+    public void testDeadLettersReadFromExistingDirectory() {
+        StubDomainEvent event = new StubDomainEvent(1);
+        testSubject.store("some/sequence:1", event, new RuntimeException("Mock"));
+
+        FileSystemDeadLetterStore reopened = new FileSystemDeadLetterStore(baseDir.getRoot());
+
+        assertTrue(reopened.contains("some/sequence:1"));
+        assertEquals(1, reopened.size());
+        assertEquals(event, reopened.deadLettersFor("some/sequence:1").get(0).getEvent());
+    }
+
+    @Test
+    public void testReplayRemovesProcessedEvents() {
+        StubDomainEvent event1 = new StubDomainEvent(1);
+        StubDomainEvent event2 = new StubDomainEvent(2);
+        StubDomainEvent event3 = new StubDomainEvent(3);
+        testSubject.store("first", event1, new RuntimeException("Mock"));
+        testSubject.store("first", event2, null);
+        testSubject.store("second", event3, new RuntimeException("Mock"));
+        RecordingEventListener listener = new RecordingEventListener();
+
+        assertEquals(3, testSubject.replay(listener));
+
+        assertEquals(3, listener.events.size());
+        assertTrue(listener.events.indexOf(event1) < listener.events.indexOf(event2));
+        assertEquals(0, testSubject.size());
+        assertFalse(testSubject.contains("first"));
+        assertEquals(0, baseDir.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testReplayStopsSequenceOnFailure() {
+        StubDomainEvent event1 = new StubDomainEvent(1);
+        StubDomainEvent event2 = new StubDomainEvent(2);
+        StubDomainEvent event3 = new StubDomainEvent(3);
+        testSubject.store("sequence", event1, new RuntimeException("Mock"));
+        testSubject.store("sequence", event2, null);
+        testSubject.store("sequence", event3, null);
+        RecordingEventListener listener = new RecordingEventListener();
+        listener.failingEvent = event2;
+
+        assertEquals(1, testSubject.replay(listener));
+
+        assertEquals(Arrays.<Event>asList(event1, event2), listener.events);
+        assertEquals(2, testSubject.size());
+        List<DeadLetter> remaining = testSubject.deadLettersFor("sequence");
+        assertEquals(event2, remaining.get(0).getEvent());
+        assertEquals(event3, remaining.get(1).getEvent());
+    }
+
+    private static class RecordingEventListener implements EventListener {
+
+        private final List<Event> events = new ArrayList<Event>();
+        private Event failingEvent;
+
+        @Override
+        public void handle(Event event) {
+            events.add(event);
+            if (event.equals(failingEvent)) {
+                throw new RuntimeException("Mock");
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.deadletter;
+
+import org.axonframework.domain.StubDomainEvent;
+import org.junit.*;
+import org.junit.runner.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "/META-INF/spring/deadletter-store-test.xml")
+@Transactional
+public class JpaDeadLetterStoreTest {
+
+    @Autowired
+    private JpaDeadLetterStore testSubject;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        entityManager.clear();
+        entityManager.createQuery("DELETE FROM DeadLetterEntry").executeUpdate();
+        testSubject.initialize();
+    }
+
+    @Test
+    public void testStoreDeadLetters() {
+        StubDomainEvent event1 = new StubDomainEvent(1);
+        StubDomainEvent event2 = new StubDomainEvent(2);
+        testSubject.store("sequence", event1, new IllegalStateException("Mock"));
+        testSubject.store("sequence", event2, null);
+
+        assertTrue(testSubject.contains("sequence"));
+        assertFalse(testSubject.contains("other"));
+        assertEquals(2, testSubject.size());
+        List<DeadLetter> deadLetters = testSubject.deadLettersFor("sequence");
+        assertEquals(2, deadLetters.size());
+        assertEquals(event1, deadLetters.get(0).getEvent());
+        assertEquals("java.lang.IllegalStateException: Mock", deadLetters.get(0).getCause());
+        assertEquals("sequence", deadLetters.get(0).getSequenceIdentifier());
+        assertNotNull(deadLetters.get(0).getStoredAt());
+        assertEquals(event2, deadLetters.get(1).getEvent());
+        assertTrue(testSubject.deadLettersFor("other").isEmpty());
+    }
+
+    @Test
+    public void testDeadLettersOrderedPerSequence() {
+        StubDomainEvent event1 = new StubDomainEvent(1);
+        StubDomainEvent event2 = new StubDomainEvent(2);
+        StubDomainEvent event3 = new StubDomainEvent(3);
+        StubDomainEvent event4 = new StubDomainEvent(4);
+        testSubject.store("sequence1", event1, new RuntimeException("Mock"));
+        testSubject.store("sequence2", event2, new RuntimeException("Mock"));
+        testSubject.store("sequence1", event3, null);
+        testSubject.store("sequence2", event4, null);
+        entityManager.clear();
+
+        List<DeadLetter> sequence1 = testSubject.deadLettersFor("sequence1");
+        List<DeadLetter> sequence2 = testSubject.deadLettersFor("sequence2");
+
+        assertEquals(4, testSubject.size());
+        assertEquals(2, sequence1.size());
+        assertEquals(event1, sequence1.get(0).getEvent());
+        assertEquals(event3, sequence1.get(1).getEvent());
+        assertEquals(2, sequence2.size());
+        assertEquals(event2, sequence2.get(0).getEvent());
+        assertEquals(event4, sequence2.get(1).getEvent());
+    }
+
+    @Test
+    public void testSequencesLoadedOnInitialize() {
+        StubDomainEvent event = new StubDomainEvent(1);
+        testSubject.store("sequence", event, new RuntimeException("Mock"));
+
+        JpaDeadLetterStore reopened = new JpaDeadLetterStore();
+        reopened.setEntityManager(entityManager);
+        assertFalse(reopened.contains("sequence"));
+        reopened.initialize();
+
+        assertTrue(reopened.contains("sequence"));
+        assertEquals(event, reopened.deadLettersFor("sequence").get(0).getEvent());
+    }
+
+    @Test
+    public void testRolledBackStoreIsNotContained() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                testSubject.store("sequence", new StubDomainEvent(1), new RuntimeException("Mock"));
+                assertTrue(testSubject.contains("sequence"));
+                status.setRollbackOnly();
+            }
+        });
+
+        assertFalse(testSubject.contains("sequence"));
+        assertEquals(0, testSubject.size());
+        assertTrue(testSubject.deadLettersFor("sequence").isEmpty());
+    }
+}
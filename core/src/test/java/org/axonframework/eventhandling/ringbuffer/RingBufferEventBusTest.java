@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventhandling.ringbuffer;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SequentialPerAggregatePolicy;
+import org.junit.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class RingBufferEventBusTest {
+
+    private ExecutorService executor;
+    private RingBufferEventBus testSubject;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (testSubject != null) {
+            testSubject.stop();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEventsDeliveredToAllGroups() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 16, new BlockingWaitStrategy());
+        ConsumerGroup group = testSubject.createConsumerGroup("group", 2, new SequentialPerAggregatePolicy());
+        RecordingListener defaultListener = new RecordingListener();
+        RecordingListener groupListener = new RecordingListener();
+        testSubject.subscribe(defaultListener);
+        group.subscribe(groupListener);
+        testSubject.start();
+
+        for (int t = 0; t < 100; t++) {
+            testSubject.publish(new StubDomainEvent(new UUIDAggregateIdentifier(), t));
+        }
+        testSubject.stop();
+
+        assertEquals(100, defaultListener.events.size());
+        assertEquals(100, groupListener.events.size());
+        assertEquals(99, testSubject.getCursor());
+        assertEquals(99, group.getSequence());
+    }
+
+    @Test
+    public void testEventsOfSameAggregateHandledSequentially() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 64, new YieldingWaitStrategy());
+        ConsumerGroup group = testSubject.createConsumerGroup("group", 4, new SequentialPerAggregatePolicy());
+        RecordingListener listener = new RecordingListener();
+        group.subscribe(listener);
+        testSubject.start();
+
+        AggregateIdentifier[] aggregates = new AggregateIdentifier[10];
+        for (int t = 0; t < aggregates.length; t++) {
+            aggregates[t] = new UUIDAggregateIdentifier();
+        }
+        for (int sequence = 0; sequence < 100; sequence++) {
+            for (AggregateIdentifier aggregate : aggregates) {
+                testSubject.publish(new StubDomainEvent(aggregate, sequence));
+            }
+        }
+        testSubject.stop();
+
+        assertEquals(1000, listener.events.size());
+        for (AggregateIdentifier aggregate : aggregates) {
+            long expectedSequence = 0;
+            for (Event event : listener.events) {
+                DomainEvent domainEvent = (DomainEvent) event;
+                if (aggregate.equals(domainEvent.getAggregateIdentifier())) {
+                    assertEquals(expectedSequence++, (long) domainEvent.getSequenceNumber());
+                }
+            }
+            assertEquals(100, expectedSequence);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testTryPublishFailsWhenBufferFull() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 4, new SleepingWaitStrategy());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        testSubject.start();
+
+        testSubject.publish(new StubDomainEvent());
+        blocked.await();
+        for (int t = 0; t < 3; t++) {
+            assertTrue(testSubject.tryPublish(new StubDomainEvent()));
+        }
+        assertEquals(0, testSubject.getRemainingCapacity());
+        assertFalse(testSubject.tryPublish(new StubDomainEvent()));
+
+        release.countDown();
+        testSubject.publish(new StubDomainEvent());
+        testSubject.stop();
+        assertEquals(4, testSubject.getDefaultConsumerGroup().getSequence());
+    }
+
+    @Test(timeout = 10000)
+    public void testWaitingPublisherReleasedWhenBusStops() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 4, new SleepingWaitStrategy());
+        final CountDownLatch release = new CountDownLatch(1);
+        testSubject.subscribe(new BlockingListener(release));
+        testSubject.start();
+        for (int t = 0; t < 4; t++) {
+            testSubject.publish(new StubDomainEvent());
+        }
+
+        final AtomicReference<RuntimeException> publishFailure = new AtomicReference<RuntimeException>();
+        final CountDownLatch publisherDone = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    testSubject.publish(new StubDomainEvent());
+                } catch (RuntimeException e) {
+                    publishFailure.set(e);
+                } finally {
+                    publisherDone.countDown();
+                }
+            }
+        });
+        assertFalse("Publisher should wait for capacity", publisherDone.await(200, TimeUnit.MILLISECONDS));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    testSubject.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertTrue("Publisher was not released by stop()", publisherDone.await(5, TimeUnit.SECONDS));
+        assertTrue(publishFailure.get() instanceof IllegalStateException);
+        release.countDown();
+        testSubject.stop();
+        assertEquals(3, testSubject.getCursor());
+        assertEquals(3, testSubject.getDefaultConsumerGroup().getSequence());
+    }
+
+    @Test(timeout = 10000)
+    public void testConsumerPublishingOnFullBufferIsRejected() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 2, new SleepingWaitStrategy());
+        final List<RuntimeException> failures = new CopyOnWriteArrayList<RuntimeException>();
+        final CountDownLatch published = new CountDownLatch(1);
+        final RecordingListener listener = new RecordingListener();
+        testSubject.subscribe(listener);
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                if (listener.events.size() > 1) {
+                    return;
+                }
+                // the event being handled still occupies its slot, so only one of these fits
+                for (int t = 0; t < 2; t++) {
+                    try {
+                        testSubject.publish(new StubDomainEvent());
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+                published.countDown();
+            }
+        });
+        testSubject.start();
+
+        testSubject.publish(new StubDomainEvent());
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        testSubject.stop();
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0) instanceof IllegalStateException);
+        assertEquals(2, listener.events.size());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopProcessing() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor);
+        RecordingListener listener = new RecordingListener();
+        testSubject.subscribe(new EventListener() {
+            @Override
+            public void handle(Event event) {
+                throw new RuntimeException("Mock");
+            }
+        });
+        testSubject.subscribe(listener);
+        testSubject.start();
+
+        testSubject.publish(new StubDomainEvent());
+        testSubject.publish(new StubDomainEvent());
+        testSubject.stop();
+
+        assertEquals(2, listener.events.size());
+    }
+
+    @Test
+    public void testPublishRejectedWhenNotStarted() {
+        testSubject = new RingBufferEventBus(executor);
+        try {
+            testSubject.publish(new StubDomainEvent());
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("not running"));
+        }
+    }
+
+    @Test
+    public void testConsumerGroupsCannotBeAddedAfterStart() {
+        testSubject = new RingBufferEventBus(executor);
+        testSubject.start();
+        try {
+            testSubject.createConsumerGroup("late", 1, new SequentialPerAggregatePolicy());
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentPublishers() throws InterruptedException {
+        testSubject = new RingBufferEventBus(executor, 32, new YieldingWaitStrategy());
+        RecordingListener listener = new RecordingListener();
+        testSubject.subscribe(listener);
+        testSubject.start();
+
+        final CountDownLatch finished = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        testSubject.publish(new StubDomainEvent());
+                    }
+                    finished.countDown();
+                }
+            });
+        }
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        testSubject.stop();
+
+        assertEquals(4000, listener.events.size());
+    }
+
+    private static class BlockingListener implements EventListener {
+
+        private final CountDownLatch release;
+
+        private BlockingListener(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void handle(Event event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class RecordingListener implements EventListener {
+
+        private final List<Event> events = new CopyOnWriteArrayList<Event>();
+
+        @Override
+        public void handle(Event event) {
+            events.add(event);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.StubAggregate;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventsourcing.annotation.AbstractAnnotatedEntity;
+import org.axonframework.eventstore.EventSerializer;
+import org.axonframework.eventstore.IncompatibleSnapshotException;
+import org.axonframework.eventstore.XStreamEventSerializer;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AggregateSnapshotSerializerTest {
+
+    private AggregateSnapshotSerializer testSubject;
+    private XStreamEventSerializer delegate;
+
+    @Before
+    public void setUp() {
+        delegate = new XStreamEventSerializer();
+        testSubject = new AggregateSnapshotSerializer(delegate);
+    }
+
+    @Test
+    public void testRegularEventsUseDelegate() {
+        EventSerializer mockDelegate = mock(EventSerializer.class);
+        testSubject = new AggregateSnapshotSerializer(mockDelegate);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] bytes = "<event/>".getBytes();
+        when(mockDelegate.serialize(event)).thenReturn(bytes);
+        when(mockDelegate.deserialize(bytes)).thenReturn(event);
+
+        assertSame(bytes, testSubject.serialize(event));
+        assertSame(event, testSubject.deserialize(bytes));
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Test
+    public void testSerializeAndDeserializeSnapshot() {
+        StubOrder order = new StubOrder(new UUIDAggregateIdentifier());
+        order.addLine("product-1", 2);
+        order.addLine("product-2", 3);
+        order.commitEvents();
+        AggregateSnapshot<StubOrder> snapshot = new AggregateSnapshot<StubOrder>(order);
+
+        byte[] serialized = testSubject.serialize(snapshot);
+        assertEquals(AggregateSnapshotSerializer.MARKER, serialized[0]);
+        assertTrue(serialized.length < delegate.serialize(snapshot).length);
+
+        AggregateSnapshot<StubOrder> actual = (AggregateSnapshot<StubOrder>) testSubject.deserialize(serialized);
+        assertEquals(snapshot.getEventIdentifier(), actual.getEventIdentifier());
+        assertEquals(snapshot.getTimestamp(), actual.getTimestamp());
+        assertEquals(snapshot.getSequenceNumber(), actual.getSequenceNumber());
+        assertEquals(order.getIdentifier(), actual.getAggregate().getIdentifier());
+        assertEquals(order.getVersion(), actual.getAggregate().getVersion());
+        assertEquals(5, actual.getAggregate().total);
+        assertEquals(2, actual.getAggregate().lines.size());
+        assertEquals("product-2", actual.getAggregate().lines.get(1).product);
+
+        StubOrder restored = actual.getAggregate();
+        restored.addLine("product-3", 1);
+        assertEquals(6, restored.total);
+        assertEquals(2, restored.lines.get(0).linesAddedAfter);
+    }
+
+    @Test
+    public void testReadSnapshotCreatedByDelegate() {
+        StubAggregate aggregate = new StubAggregate();
+        aggregate.doSomething();
+        aggregate.commitEvents();
+        AggregateSnapshot<StubAggregate> snapshot = new AggregateSnapshot<StubAggregate>(aggregate);
+
+        DomainEvent actual = testSubject.deserialize(delegate.serialize(snapshot));
+        assertEquals(snapshot.getEventIdentifier(), actual.getEventIdentifier());
+    }
+
+    @Test
+    public void testSnapshotWithChangedSchemaIsIncompatible() {
+        StubAggregate aggregate = new StubAggregate();
+        aggregate.doSomething();
+        aggregate.commitEvents();
+        byte[] serialized = testSubject.serialize(new AggregateSnapshot<StubAggregate>(aggregate));
+        // the schema hash follows the marker, format version and length prefixed aggregate class name
+        int hashOffset = 3 + StubAggregate.class.getName().length();
+        serialized[hashOffset + 7] ^= 1;
+
+        try {
+            testSubject.deserialize(serialized);
+            fail("Expected IncompatibleSnapshotException");
+        } catch (IncompatibleSnapshotException e) {
+            assertTrue(e.getMessage().contains(StubAggregate.class.getName()));
+        }
+
+        testSubject.setSchemaValidation(false);
+        AggregateSnapshot actual = (AggregateSnapshot) testSubject.deserialize(serialized);
+        assertEquals(1, ((StubAggregate) actual.getAggregate()).getInvocationCount());
+    }
+
+    @Test
+    public void testSchemaHashCoversReferencedClasses() {
+        assertFalse(testSubject.schemaHashOf(StubOrder.class) == testSubject.schemaHashOf(StubAggregate.class));
+        assertEquals(testSubject.schemaHashOf(StubOrder.class),
+                     new AggregateSnapshotSerializer().schemaHashOf(StubOrder.class));
+    }
+
+    public static class StubOrder extends AbstractAnnotatedAggregateRoot {
+
+        private List<StubOrderLine> lines = new ArrayList<StubOrderLine>();
+        private long total;
+
+        public StubOrder(AggregateIdentifier identifier) {
+            super(identifier);
+        }
+
+        public void addLine(String product, int quantity) {
+            apply(new LineAddedEvent(product, quantity));
+        }
+
+        @EventHandler
+        public void onLineAdded(LineAddedEvent event) {
+            lines.add(new StubOrderLine(event.product));
+            total += event.quantity;
+        }
+
+        @Override
+        protected Collection<AbstractEventSourcedEntity> getChildEntities() {
+            return new ArrayList<AbstractEventSourcedEntity>(lines);
+        }
+    }
+
+    public static class StubOrderLine extends AbstractAnnotatedEntity {
+
+        private final String product;
+        private int linesAddedAfter;
+
+        public StubOrderLine(String product) {
+            this.product = product;
+        }
+
+        @EventHandler
+        public void onLineAdded(LineAddedEvent event) {
+            if (!product.equals(event.product)) {
+                linesAddedAfter++;
+            }
+        }
+    }
+
+    public static class LineAddedEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 2512964578716539124L;
+
+        private final String product;
+        private final int quantity;
+
+        public LineAddedEvent(String product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventsourcing;
+
+import org.axonframework.domain.DomainEvent;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ChildEntityAccessorTest {
+
+    @Test
+    public void testAccessorIsCreatedOncePerType() {
+        assertSame(ChildEntityAccessor.forType(CompositeEntity.class),
+                   ChildEntityAccessor.forType(CompositeEntity.class));
+    }
+
+    @Test
+    public void testTypeWithoutEntityFieldsIsEmpty() {
+        ChildEntityAccessor accessor = ChildEntityAccessor.forType(EntityWithoutChildren.class);
+
+        assertTrue(accessor.isEmpty());
+        assertTrue(accessor.childEntitiesOf(new EntityWithoutChildren()).isEmpty());
+    }
+
+    @Test
+    public void testChildEntitiesFoundInFieldsCollectionsAndMaps() {
+        CompositeEntity composite = new CompositeEntity();
+        StubEntity direct = new StubEntity();
+        StubEntity inList = new StubEntity();
+        StubEntity mapKey = new StubEntity();
+        StubEntity mapValue = new StubEntity();
+        composite.child = direct;
+        composite.children.add(inList);
+        composite.children.add(direct);
+        composite.childrenMap.put(mapKey, mapValue);
+
+        ChildEntityAccessor accessor = ChildEntityAccessor.forType(CompositeEntity.class);
+        Collection<AbstractEventSourcedEntity> children = accessor.childEntitiesOf(composite);
+
+        assertFalse(accessor.isEmpty());
+        assertEquals(4, children.size());
+        assertTrue(children.contains(direct));
+        assertTrue(children.contains(inList));
+        assertTrue(children.contains(mapKey));
+        assertTrue(children.contains(mapValue));
+    }
+
+    @Test
+    public void testSingleEntityField() {
+        SingleChildEntity entity = new SingleChildEntity();
+        ChildEntityAccessor accessor = ChildEntityAccessor.forType(SingleChildEntity.class);
+
+        assertTrue(accessor.childEntitiesOf(entity).isEmpty());
+
+        entity.child = new StubEntity();
+        assertEquals(1, accessor.childEntitiesOf(entity).size());
+        assertSame(entity.child, accessor.childEntitiesOf(entity).iterator().next());
+    }
+
+    @Test
+    public void testRawCollectionsAreInspected() {
+        RawCollectionEntity entity = new RawCollectionEntity();
+        entity.children.add("not an entity");
+        entity.children.add(new StubEntity());
+
+        assertEquals(1, ChildEntityAccessor.forType(RawCollectionEntity.class).childEntitiesOf(entity).size());
+    }
+
+    private static class StubEntity extends AbstractEventSourcedEntity {
+
+        @Override
+        protected void handle(DomainEvent event) {
+        }
+    }
+
+    private static class EntityWithoutChildren extends StubEntity {
+
+        private String name = "name";
+        private List<String> names = new ArrayList<String>();
+        private Map<String, Long> counts = new HashMap<String, Long>();
+    }
+
+    private static class SingleChildEntity extends StubEntity {
+
+        private String name = "name";
+        private StubEntity child;
+    }
+
+    private static class CompositeEntity extends StubEntity {
+
+        private StubEntity child;
+        private List<StubEntity> children = new ArrayList<StubEntity>();
+        private Map<StubEntity, AbstractEventSourcedEntity> childrenMap =
+                new HashMap<StubEntity, AbstractEventSourcedEntity>();
+        private List<String> names = new ArrayList<String>();
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private static class RawCollectionEntity extends StubEntity {
+
+        private List children = new ArrayList();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventstore.fs.FileSystemEventStore;
+import org.junit.*;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class CachingEventSerializerTest {
+
+    private CachingEventSerializer testSubject;
+    private EventSerializer delegate;
+
+    @Before
+    public void setUp() {
+        delegate = spy(new XStreamEventSerializer());
+        testSubject = new CachingEventSerializer(delegate);
+    }
+
+    @Test
+    public void testEventSerializedOnlyOnce() {
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] first = testSubject.serialize(event);
+        byte[] second = testSubject.serialize(event);
+
+        assertSame(first, second);
+        verify(delegate, times(1)).serialize(event);
+    }
+
+    @Test
+    public void testCacheIsSharedBetweenInstancesWithSameDelegate() {
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] first = testSubject.serialize(event);
+        byte[] second = new CachingEventSerializer(delegate).serialize(event);
+
+        assertSame(first, second);
+        verify(delegate, times(1)).serialize(event);
+    }
+
+    @Test
+    public void testCacheIsKeyedBySerializer() {
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        EventSerializer otherDelegate = mock(EventSerializer.class);
+        byte[] otherBytes = new byte[]{1, 2, 3};
+        when(otherDelegate.serialize(event)).thenReturn(otherBytes);
+
+        byte[] first = testSubject.serialize(event);
+        byte[] second = new CachingEventSerializer(otherDelegate).serialize(event);
+
+        assertNotSame(first, second);
+        assertSame(otherBytes, second);
+        verify(delegate).serialize(event);
+        verify(otherDelegate).serialize(event);
+    }
+
+    @Test
+    public void testDeserializedEventCarriesSourceBytes() {
+        byte[] bytes = delegate.serialize(new StubDomainEvent(new UUIDAggregateIdentifier(), 1));
+        reset(delegate);
+
+        DomainEvent deserialized = testSubject.deserialize(bytes);
+        assertSame(bytes, testSubject.serialize(deserialized));
+        verify(delegate, never()).serialize(isA(DomainEvent.class));
+    }
+
+    @Test
+    public void testCachedFormNotSerializedWithEvent() {
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] bytes = testSubject.serialize(event);
+
+        DomainEvent deserialized = delegate.deserialize(bytes);
+        assertNull(deserialized.getCachedSerializedForm(delegate));
+    }
+
+    @Test
+    public void testSnapshotSerializedOnceForAllStores() {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        StubDomainEvent event = new StubDomainEvent(aggregateIdentifier, 0);
+        StubDomainEvent snapshot = new StubDomainEvent(aggregateIdentifier, 0);
+        FileSystemEventStore[] eventStores = new FileSystemEventStore[2];
+        for (int i = 0; i < eventStores.length; i++) {
+            eventStores[i] = new FileSystemEventStore(testSubject);
+            eventStores[i].setBaseDir(new File("target/caching-serializer-" + i));
+            eventStores[i].appendEvents("test", new SimpleDomainEventStream(event));
+        }
+
+        for (FileSystemEventStore eventStore : eventStores) {
+            eventStore.appendSnapshotEvent("test", snapshot);
+        }
+
+        verify(delegate, times(1)).serialize(event);
+        verify(delegate, times(1)).serialize(snapshot);
+    }
+}
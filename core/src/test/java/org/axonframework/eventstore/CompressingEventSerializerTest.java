@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.eventstore;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.util.SerializationException;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class CompressingEventSerializerTest {
+
+    private XStreamEventSerializer delegate;
+    private CompressionDictionary dictionary;
+
+    @Before
+    public void setUp() {
+        delegate = new XStreamEventSerializer();
+        List<byte[]> samples = new ArrayList<byte[]>();
+        for (int t = 0; t < 10; t++) {
+            samples.add(delegate.serialize(new StubDomainEvent(new UUIDAggregateIdentifier(), t)));
+        }
+        dictionary = CompressionDictionary.train(1, samples, 4096);
+    }
+
+    @Test
+    public void testCompressWithoutDictionary() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+
+        byte[] uncompressed = delegate.serialize(event);
+        byte[] compressed = testSubject.serialize(event);
+
+        assertEquals(CompressingEventSerializer.MARKER, compressed[0]);
+        assertEquals(CompressingEventSerializer.CODEC_DEFLATE, compressed[1]);
+        assertTrue(compressed.length < uncompressed.length);
+        assertEquals(event, testSubject.deserialize(compressed));
+    }
+
+    @Test
+    public void testCompressWithDictionary() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate, dictionary);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+
+        byte[] withoutDictionary = new CompressingEventSerializer(delegate).serialize(event);
+        byte[] compressed = testSubject.serialize(event);
+
+        assertEquals(CompressingEventSerializer.CODEC_DEFLATE_DICTIONARY, compressed[1]);
+        assertTrue(compressed.length < withoutDictionary.length);
+        DomainEvent actual = testSubject.deserialize(compressed);
+        assertEquals(event, actual);
+        assertEquals(event.getSequenceNumber(), actual.getSequenceNumber());
+    }
+
+    @Test
+    public void testSmallEventsAreNotCompressed() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate, dictionary);
+        testSubject.setCompressionThreshold(Integer.MAX_VALUE);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+
+        byte[] serialized = testSubject.serialize(event);
+
+        assertEquals(CompressingEventSerializer.CODEC_NONE, serialized[1]);
+        byte[] uncompressed = delegate.serialize(event);
+        assertArrayEquals(uncompressed, Arrays.copyOfRange(serialized, 2, serialized.length));
+        assertEquals(event, testSubject.deserialize(serialized));
+    }
+
+    @Test
+    public void testReadUncompressedEvents() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate, dictionary);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+
+        assertEquals(event, testSubject.deserialize(delegate.serialize(event)));
+    }
+
+    @Test
+    public void testReadEventsCompressedWithPreviousDictionary() {
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] compressed = new CompressingEventSerializer(delegate, dictionary).serialize(event);
+
+        CompressionDictionary newDictionary = new CompressionDictionary(2, "<some-other-dictionary/>".getBytes());
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate, newDictionary);
+        try {
+            testSubject.deserialize(compressed);
+            fail("Expected SerializationException");
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().contains("[1]"));
+        }
+
+        testSubject.setDictionaries(Arrays.asList(dictionary));
+        assertEquals(event, testSubject.deserialize(compressed));
+    }
+
+    @Test
+    public void testTrainedDictionaryContainsFrequentTokens() {
+        String contents = new String(dictionary.getBytes());
+        assertTrue(contents.contains(StubDomainEvent.class.getSimpleName()));
+        assertTrue(dictionary.getBytes().length <= 4096);
+    }
+
+    @Test
+    public void testCorruptEventSizeIsRejected() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate);
+        byte[] compressed = testSubject.serialize(new StubDomainEvent(new UUIDAggregateIdentifier(), 1));
+
+        byte[] negativeSize = compressed.clone();
+        negativeSize[2] = (byte) 0x80;
+        assertRejected(testSubject, negativeSize);
+
+        byte[] hugeSize = compressed.clone();
+        hugeSize[2] = (byte) 0x7F;
+        assertRejected(testSubject, hugeSize);
+
+        testSubject.setMaxEventSize(16);
+        assertRejected(testSubject, compressed);
+
+        assertRejected(testSubject, Arrays.copyOf(compressed, 4));
+    }
+
+    @Test
+    public void testSerializerUsableAfterClose() {
+        CompressingEventSerializer testSubject = new CompressingEventSerializer(delegate, dictionary);
+        StubDomainEvent event = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        byte[] compressed = testSubject.serialize(event);
+        assertEquals(event, testSubject.deserialize(compressed));
+
+        testSubject.close();
+
+        assertArrayEquals(compressed, testSubject.serialize(event));
+        assertEquals(event, testSubject.deserialize(compressed));
+    }
+
+    private void assertRejected(CompressingEventSerializer testSubject, byte[] serializedEvent) {
+        try {
+            testSubject.deserialize(serializedEvent);
+            fail("Expected SerializationException");
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().startsWith("Unable to decompress event."));
+        }
+    }
+}
@@ -24,6 +24,8 @@ import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.junit.*;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.UnsupportedCharsetException;
 
@@ -96,6 +98,57 @@ public class XStreamEventSerializerTest {
         assertEquals(new Long(1), deserialized.getSequenceNumber());
     }
 
+    @Test
+    public void testCompiledConverterProducesIdenticalXml() throws UnsupportedEncodingException {
+        testSubject.addAlias("stub", StubDomainEvent.class);
+        XStreamEventSerializer compiledSerializer = new XStreamEventSerializer();
+        compiledSerializer.addAlias("stub", StubDomainEvent.class);
+        assertTrue(compiledSerializer.registerCompiledConverter(StubDomainEvent.class));
+        assertTrue(compiledSerializer.registerCompiledConverter(TestEvent.class));
+
+        StubDomainEvent stubEvent = new StubDomainEvent(new UUIDAggregateIdentifier(), 1);
+        TestEvent testEvent = new TestEvent("Henk");
+        assertEquals(new String(testSubject.serialize(stubEvent), "UTF-8"),
+                     new String(compiledSerializer.serialize(stubEvent), "UTF-8"));
+        assertEquals(new String(testSubject.serialize(testEvent), "UTF-8"),
+                     new String(compiledSerializer.serialize(testEvent), "UTF-8"));
+    }
+
+    @Test
+    public void testCompiledConverterReadsDefaultXml() {
+        XStreamEventSerializer compiledSerializer = new XStreamEventSerializer();
+        compiledSerializer.registerCompiledConverter(TestEvent.class);
+        TestEvent original = new TestEvent("Henk");
+
+        TestEvent actualEvent = (TestEvent) compiledSerializer.deserialize(testSubject.serialize(original));
+        assertEquals(original, actualEvent);
+        assertEquals("Henk", actualEvent.getName());
+        assertEquals(original.getAggregateIdentifier(), actualEvent.getAggregateIdentifier());
+        assertEquals(original.getSequenceNumber(), actualEvent.getSequenceNumber());
+        assertEquals("someValue", actualEvent.getMetaDataValue("someMetaData"));
+    }
+
+    @Test
+    public void testCompiledConverterNotRegisteredForCustomSerialization() {
+        assertFalse(testSubject.registerCompiledConverter(CustomSerializationEvent.class));
+
+        byte[] bytes = testSubject.serialize(new CustomSerializationEvent());
+        assertTrue(testSubject.deserialize(bytes) instanceof CustomSerializationEvent);
+    }
+
+    public static class CustomSerializationEvent extends DomainEvent {
+
+        private static final long serialVersionUID = -4018323813471929426L;
+
+        public CustomSerializationEvent() {
+            super(0, new UUIDAggregateIdentifier());
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+        }
+    }
+
     public static class TestEvent extends DomainEvent {
 
         private static final long serialVersionUID = 1657550542124835062L;
@@ -22,7 +22,11 @@ import org.axonframework.domain.UUIDAggregateIdentifier;
 import org.junit.*;
 
 import java.lang.reflect.Field;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -66,4 +70,85 @@ public class PessimisticLockManagerTest {
         manager.releaseLock(identifier);
         assertFalse(manager.validateLock(aggregateRoot));
     }
+
+    @Test(timeout = 30000)
+    public void testConcurrentLockingOfSameAggregate() throws InterruptedException {
+        final PessimisticLockManager manager = new PessimisticLockManager();
+        final AggregateIdentifier identifier = new UUIDAggregateIdentifier();
+        final List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        final AtomicInteger holders = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            manager.obtainLock(identifier);
+                            try {
+                                assertEquals("Lock held by more than one thread", 1, holders.incrementAndGet());
+                            } finally {
+                                holders.decrementAndGet();
+                                manager.releaseLock(identifier);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals("Unexpected failures: " + failures, 0, failures.size());
+    }
+
+    @Test
+    public void testObtainLockWhenLockIsDisposedRightAfterCreation() throws Exception {
+        PessimisticLockManager manager = new PessimisticLockManager();
+        AggregateIdentifier identifier = new UUIDAggregateIdentifier();
+        AggregateRoot aggregateRoot = mock(AggregateRoot.class);
+        when(aggregateRoot.getIdentifier()).thenReturn(identifier);
+        DisposingMap locks = new DisposingMap();
+        Field locksField = manager.getClass().getDeclaredField("locks");
+        locksField.setAccessible(true);
+        locksField.set(manager, locks);
+
+        locks.disposeCreatedLock = true;
+        manager.obtainLock(identifier);
+        locks.disposeCreatedLock = false;
+
+        assertTrue(manager.validateLock(aggregateRoot));
+        manager.releaseLock(identifier);
+        assertEquals(0, locks.size());
+    }
+
+    /**
+     * Map that simulates another thread disposing of a newly created lock before it is looked up.
+     */
+    private static class DisposingMap extends ConcurrentHashMap<Object, Object> {
+
+        private static final long serialVersionUID = -3206316468423367893L;
+        private boolean disposeCreatedLock;
+        private boolean created;
+
+        @Override
+        public Object putIfAbsent(Object key, Object value) {
+            Object existing = super.putIfAbsent(key, value);
+            created = existing == null;
+            return existing;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (disposeCreatedLock && created) {
+                created = false;
+                remove(key);
+            }
+            return super.get(key);
+        }
+    }
 }
@@ -31,6 +31,7 @@ import java.util.Set;
 
 import static org.axonframework.util.TestUtils.setOf;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Allard Buijze
@@ -110,6 +111,22 @@ public class AnnotatedSagaManagerTest {
         assertEquals(0, repositoryContents("12").size());
     }
 
+    @Test
+    public void testCanHandleOnlyEventsHandledBySagas() {
+        AnnotatedSagaManager sagaManager = (AnnotatedSagaManager) manager;
+        assertTrue(sagaManager.canHandle(StartingEvent.class));
+        assertTrue(sagaManager.canHandle(MiddleEvent.class));
+        assertFalse(sagaManager.canHandle(StubDomainEvent.class));
+    }
+
+    @Test
+    public void testIgnoredEventDoesNotReachRepository() {
+        SagaRepository mockRepository = mock(SagaRepository.class);
+        manager = new AnnotatedSagaManager(mockRepository, new SimpleEventBus(), MyTestSaga.class);
+        manager.handle(new StubDomainEvent());
+        verifyZeroInteractions(mockRepository);
+    }
+
     private Set<MyTestSaga> repositoryContents(String lookupValue) {
         return sagaRepository.find(MyTestSaga.class, setOf(new AssociationValue("myIdentifier", lookupValue)));
     }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.annotation;
+
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.annotation.AnnotatedSagaManagerTest.EndingEvent;
+import org.axonframework.saga.annotation.AnnotatedSagaManagerTest.ForcingStartEvent;
+import org.axonframework.saga.annotation.AnnotatedSagaManagerTest.MyTestSaga;
+import org.axonframework.saga.annotation.AnnotatedSagaManagerTest.StartingEvent;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class SagaAnnotationInspectorTest {
+
+    private SagaAnnotationInspector<MyTestSaga> testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new SagaAnnotationInspector<MyTestSaga>(MyTestSaga.class);
+    }
+
+    @Test
+    public void testAssociationValueReadForEachEvent() {
+        HandlerConfiguration first = testSubject.findHandlerConfiguration(new StartingEvent("1"));
+        HandlerConfiguration second = testSubject.findHandlerConfiguration(new StartingEvent("2"));
+
+        assertTrue(first.isHandlerAvailable());
+        assertEquals(SagaCreationPolicy.IF_NONE_FOUND, first.getCreationPolicy());
+        assertFalse(first.isDestructorHandler());
+        assertEquals(new AssociationValue("myIdentifier", "1"), first.getAssociationValue());
+        assertEquals(new AssociationValue("myIdentifier", "2"), second.getAssociationValue());
+    }
+
+    @Test
+    public void testHandlerSettingsResolvedPerEventClass() {
+        HandlerConfiguration forced = testSubject.findHandlerConfiguration(new ForcingStartEvent("1"));
+        HandlerConfiguration ending = testSubject.findHandlerConfiguration(new EndingEvent("1"));
+
+        assertEquals(SagaCreationPolicy.ALWAYS, forced.getCreationPolicy());
+        assertEquals(SagaCreationPolicy.NONE, ending.getCreationPolicy());
+        assertTrue(ending.isDestructorHandler());
+    }
+
+    @Test
+    public void testNoHandlerForUnknownEventClass() {
+        assertSame(HandlerConfiguration.noHandler(), testSubject.findHandlerConfiguration(new StubDomainEvent()));
+        assertSame(HandlerConfiguration.noHandler(), testSubject.findHandlerConfiguration(new StubDomainEvent()));
+    }
+}
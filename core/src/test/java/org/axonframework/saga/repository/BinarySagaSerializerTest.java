@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.saga.repository;
+
+import org.axonframework.saga.AssociationValue;
+import org.axonframework.saga.Saga;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BinarySagaSerializerTest {
+
+    private BinarySagaSerializer testSubject;
+    private ComplexSaga saga;
+
+    @Before
+    public void setUp() {
+        testSubject = new BinarySagaSerializer();
+        saga = new ComplexSaga("123");
+    }
+
+    @Test
+    public void testSerializeAndDeserializeSaga() {
+        ComplexSaga result = (ComplexSaga) testSubject.deserialize(testSubject.serialize(saga));
+
+        assertEquals("123", result.getSagaIdentifier());
+        assertTrue(result.isActive());
+        assertEquals(saga.getAssociationValues(), result.getAssociationValues());
+        assertEquals(saga.counter, result.counter);
+        assertEquals(saga.name, result.name);
+        // the last item is the list itself, which is verified by testObjectIdentityIsPreserved
+        assertEquals(saga.items.subList(0, 2), result.items.subList(0, 2));
+        assertEquals(saga.values, result.values);
+        assertEquals(saga.unit, result.unit);
+        assertEquals(saga.date, result.date);
+        assertTrue(Arrays.equals(saga.numbers, result.numbers));
+        assertEquals(saga.factor, result.factor, 0);
+        assertNull(result.nothing);
+    }
+
+    @Test
+    public void testObjectIdentityIsPreserved() {
+        ComplexSaga result = (ComplexSaga) testSubject.deserialize(testSubject.serialize(saga));
+
+        assertSame(result, result.self);
+        assertSame(result.items, result.items.get(result.items.size() - 1));
+        assertSame(result.getSagaIdentifier(), result.name);
+    }
+
+    @Test
+    public void testDeserializedAssociationValuesAcceptChanges() {
+        ComplexSaga result = (ComplexSaga) testSubject.deserialize(testSubject.serialize(saga));
+
+        result.getAssociationValues().add(new AssociationValue("key", "value"));
+        assertTrue(result.getAssociationValues().contains(new AssociationValue("key", "value")));
+    }
+
+    @Test
+    public void testSerializedFormIsSmallerThanJavaSerialization() {
+        JavaSagaSerializer javaSagaSerializer = new JavaSagaSerializer();
+        assertTrue(testSubject.serialize(saga).length < javaSagaSerializer.serialize(saga).length / 2);
+    }
+
+    @Test
+    public void testRegisteredClassesAreNotSerializedByName() {
+        int sizeBefore = testSubject.serialize(saga).length;
+        testSubject.setRegisteredClasses(Arrays.<Class<?>>asList(ComplexSaga.class));
+        byte[] serializedSaga = testSubject.serialize(saga);
+
+        assertTrue(serializedSaga.length < sizeBefore - ComplexSaga.class.getName().length());
+        assertEquals(saga.counter, ((ComplexSaga) testSubject.deserialize(serializedSaga)).counter);
+    }
+
+    @Test
+    public void testDeserializeJavaSerializedSaga() {
+        Saga result = testSubject.deserialize(new JavaSagaSerializer().serialize(saga));
+
+        assertEquals(saga.getSagaIdentifier(), result.getSagaIdentifier());
+        assertEquals(saga.counter, ((ComplexSaga) result).counter);
+    }
+
+    public static class ComplexSaga extends AbstractAnnotatedSaga {
+
+        private static final long serialVersionUID = 3224386049426584577L;
+
+        private int counter;
+        private String name;
+        private List<Object> items = new ArrayList<Object>();
+        private Map<String, Long> values = new HashMap<String, Long>();
+        private TimeUnit unit = TimeUnit.SECONDS;
+        private Date date = new Date();
+        private int[] numbers = new int[]{1, 2, 3};
+        private double factor = 1.5;
+        private String nothing;
+        private ComplexSaga self;
+
+        public ComplexSaga(String identifier) {
+            super(identifier);
+            this.counter = (int) (100 * Math.random());
+            this.name = identifier;
+            this.self = this;
+            items.add("item");
+            items.add(UUID.randomUUID());
+            items.add(items);
+            values.put("key", 42L);
+            associateWith("orderId", "order-" + counter);
+            associateWith("customerId", UUID.randomUUID());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import org.axonframework.commandhandling.annotation.CommandHandler;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.StubDomainEvent;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.junit.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class AnnotatedHandlersTest {
+
+    @Test
+    public void testHandlersOfTypeAreInspectedOnce() {
+        AnnotatedHandlers first = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class);
+        AnnotatedHandlers second = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class);
+
+        assertSame(first, second);
+        assertEquals(HandlingSubclass.class, first.getTargetType());
+        assertEquals(EventHandler.class, first.getAnnotationType());
+    }
+
+    @Test
+    public void testHandlersAreSeparatedByAnnotation() {
+        AnnotatedHandlers eventHandlers = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class);
+        AnnotatedHandlers commandHandlers = AnnotatedHandlers.forType(HandlingSubclass.class, CommandHandler.class);
+
+        assertNotSame(eventHandlers, commandHandlers);
+        assertEquals(3, eventHandlers.getHandlers().size());
+        assertEquals(1, commandHandlers.getHandlers().size());
+        assertEquals("handleCommand", commandHandlers.getHandlers().get(0).getMethod().getName());
+    }
+
+    @Test
+    public void testHandlersOfSubclassPrecedeHandlersOfSuperclass() {
+        List<Handler> handlers = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class).getHandlers();
+
+        assertEquals(HandlingSubclass.class, handlers.get(0).getDeclaringClass());
+        assertEquals(HandlingSuperclass.class, handlers.get(1).getDeclaringClass());
+        assertEquals(HandlingSuperclass.class, handlers.get(2).getDeclaringClass());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testHandlersCannotBeModified() {
+        AnnotatedHandlers.forType(HandlingSuperclass.class, EventHandler.class).getHandlers().clear();
+    }
+
+    @Test
+    public void testInspectorsShareHandlersOfType() {
+        StubInspector first = new StubInspector(HandlingSubclass.class);
+        StubInspector second = new StubInspector(HandlingSubclass.class);
+
+        assertSame(first.getHandlers(), second.getHandlers());
+        assertSame(first.findHandlerMethod(StubEvent.class), second.findHandlerMethod(StubEvent.class));
+    }
+
+    @Test
+    public void testResolvedHandlerIsCachedPerParameterType() {
+        AnnotatedHandlers handlers = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class);
+
+        Handler stubHandler = handlers.findHandlerFor(StubEvent.class);
+        assertEquals("handleStub", stubHandler.getMethod().getName());
+        assertSame(stubHandler, handlers.findHandlerFor(StubEvent.class));
+        assertEquals("handleOther", handlers.findHandlerFor(OtherEvent.class).getMethod().getName());
+        assertEquals("handle", handlers.findHandlerFor(StubDomainEvent.class).getMethod().getName());
+    }
+
+    @Test
+    public void testMissingHandlerIsCachedPerParameterType() {
+        AnnotatedHandlers handlers = AnnotatedHandlers.forType(HandlingSubclass.class, EventHandler.class);
+
+        assertNull(handlers.findHandlerFor(String.class));
+        assertNull(handlers.findHandlerFor(String.class));
+    }
+
+    private static class StubInspector extends AbstractHandlerInspector {
+
+        public StubInspector(Class<?> targetType) {
+            super(targetType, EventHandler.class);
+        }
+    }
+
+    private static class HandlingSuperclass {
+
+        @EventHandler
+        public void handle(Event event) {
+        }
+
+        @EventHandler
+        public void handleOther(OtherEvent event) {
+        }
+    }
+
+    private static class HandlingSubclass extends HandlingSuperclass {
+
+        @EventHandler
+        public void handleStub(StubEvent event) {
+        }
+
+        @CommandHandler
+        public void handleCommand(String command) {
+        }
+    }
+
+    private static class StubEvent extends OtherEvent {
+
+    }
+
+    private static class OtherEvent extends StubDomainEvent {
+
+    }
+}
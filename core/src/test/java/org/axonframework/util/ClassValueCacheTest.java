@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import org.junit.*;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class ClassValueCacheTest {
+
+    private AtomicInteger computations;
+    private ClassValueCache<String> testSubject;
+
+    @Before
+    public void setUp() {
+        computations = new AtomicInteger();
+        testSubject = new ClassValueCache<String>() {
+            @Override
+            protected String computeValue(Class<?> type) {
+                computations.incrementAndGet();
+                return type.getName();
+            }
+        };
+    }
+
+    @Test
+    public void testValueComputedOncePerType() {
+        String first = testSubject.get(StubType.class);
+        String second = testSubject.get(StubType.class);
+        String other = testSubject.get(String.class);
+
+        assertEquals(StubType.class.getName(), first);
+        assertSame(first, second);
+        assertEquals("java.lang.String", other);
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    public void testCacheDoesNotPreventClassLoaderFromBeingCollected() throws Exception {
+        URL location = StubType.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader classLoader = new URLClassLoader(new URL[]{location}, null);
+        Class<?> type = classLoader.loadClass(StubType.class.getName());
+        assertNotSame(StubType.class, type);
+        assertEquals(StubType.class.getName(), testSubject.get(type));
+
+        WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>(classLoader);
+        classLoader = null;
+        type = null;
+        for (int t = 0; t < 50 && classLoaderReference.get() != null; t++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull("Class loader should have been garbage collected", classLoaderReference.get());
+    }
+
+    public static class StubType {
+
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util;
+
+import org.junit.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class HandlerTest {
+
+    @Test
+    public void testPublicMethodInvokedUsingGeneratedInvoker() throws Exception {
+        Handler testSubject = new Handler(PublicTarget.class.getMethod("handle", String.class));
+
+        assertTrue(testSubject.hasGeneratedInvoker());
+        assertEquals("handled:value", testSubject.invoke(new PublicTarget(), "value", null));
+    }
+
+    @Test
+    public void testSecondParameterPassedToGeneratedInvoker() throws Exception {
+        Handler testSubject = new Handler(PublicTarget.class.getMethod("handle", String.class, Integer.class));
+
+        assertTrue(testSubject.hasGeneratedInvoker());
+        assertTrue(testSubject.hasOptionalParameter());
+        assertEquals("handled:value:2", testSubject.invoke(new PublicTarget(), "value", 2));
+    }
+
+    @Test
+    public void testPackagePrivateMethodInvokedUsingGeneratedInvoker() throws Exception {
+        Handler testSubject = new Handler(PackageTarget.class.getDeclaredMethod("handle", String.class));
+
+        assertTrue(testSubject.hasGeneratedInvoker());
+        assertEquals("package:value", testSubject.invoke(new PackageTarget(), "value", null));
+    }
+
+    @Test
+    public void testPrivateMethodInvokedUsingReflection() throws Exception {
+        Handler testSubject = new Handler(PackageTarget.class.getDeclaredMethod("handlePrivately", String.class));
+
+        assertFalse(testSubject.hasGeneratedInvoker());
+        assertEquals("private:value", testSubject.invoke(new PackageTarget(), "value", null));
+    }
+
+    @Test
+    public void testMethodOfPrivateClassInvokedUsingGeneratedInvoker() throws Exception {
+        Handler testSubject = new Handler(PrivateTarget.class.getDeclaredMethod("handle", String.class));
+
+        assertTrue(testSubject.hasGeneratedInvoker());
+        assertEquals("private class:value", testSubject.invoke(new PrivateTarget(), "value", null));
+    }
+
+    @Test
+    public void testExceptionWrappedInInvocationTargetException() throws Exception {
+        Handler testSubject = new Handler(PublicTarget.class.getMethod("fail", String.class));
+
+        assertTrue(testSubject.hasGeneratedInvoker());
+        try {
+            testSubject.invoke(new PublicTarget(), "value", null);
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("value", e.getCause().getMessage());
+        }
+    }
+
+    public static class PublicTarget {
+
+        public String handle(String value) {
+            return "handled:" + value;
+        }
+
+        public String handle(String value, Integer count) {
+            return "handled:" + value + ":" + count;
+        }
+
+        public void fail(String value) {
+            throw new IllegalStateException(value);
+        }
+    }
+
+    static class PackageTarget {
+
+        String handle(String value) {
+            return "package:" + value;
+        }
+
+        @SuppressWarnings({"UnusedDeclaration"})
+        private String handlePrivately(String value) {
+            return "private:" + value;
+        }
+    }
+
+    private static class PrivateTarget {
+
+        public String handle(String value) {
+            return "private class:" + value;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.util.io;
+
+import org.joda.time.DateTime;
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Allard Buijze
+ */
+public class BinaryObjectCodecTest {
+
+    private BinaryObjectCodec testSubject;
+
+    @Before
+    public void setUp() {
+        testSubject = new BinaryObjectCodec();
+    }
+
+    @Test
+    public void testNativeTypesSurviveRoundTrip() throws Exception {
+        DateTime now = new DateTime();
+        Object[] values = new Object[]{"text", 42, -7L, 1.5d, 2.5f, (short) -3, (byte) 4, 'c', true, null,
+                TimeUnit.SECONDS, now, Arrays.asList("a", "b")};
+
+        Object[] result = (Object[]) roundTrip(values);
+
+        assertEquals(Arrays.asList(values), Arrays.asList(result));
+    }
+
+    @Test
+    public void testFieldsAreWrittenByNameAndIdentityIsPreserved() throws Exception {
+        StubValue value = new StubValue(12, "name");
+        value.self = value;
+
+        StubValue result = (StubValue) roundTrip(value);
+
+        assertEquals(12, result.count);
+        assertEquals("name", result.name);
+        assertSame(result, result.self);
+        assertEquals(Arrays.asList("count", "name", "self", "ignored"),
+                     Arrays.asList(fieldNames(testSubject.getSerializedFields(StubValue.class))));
+    }
+
+    @Test
+    public void testSortedSetWithComparatorIsJavaSerialized() throws Exception {
+        TreeSet<String> values = new TreeSet<String>(Collections.reverseOrder());
+        values.addAll(Arrays.asList("a", "b", "c"));
+
+        @SuppressWarnings({"unchecked"})
+        TreeSet<String> result = (TreeSet<String>) roundTrip(values);
+
+        assertEquals(Arrays.asList("c", "b", "a"), Arrays.asList(result.toArray()));
+    }
+
+    @Test
+    public void testCustomValuesUseSubclassEncoding() throws Exception {
+        testSubject = new BinaryObjectCodec() {
+            @Override
+            protected boolean isCustomType(Class<?> type) {
+                return type == StubValue.class;
+            }
+
+            @Override
+            protected void writeCustomValue(Object value, ObjectWriter writer) throws IOException {
+                writer.writeNumber(((StubValue) value).count);
+            }
+
+            @Override
+            protected Object readCustomValue(ObjectReader reader) throws IOException {
+                return new StubValue((int) reader.readNumber(), "custom");
+            }
+        };
+        StubValue value = new StubValue(-5, "name");
+
+        Object[] result = (Object[]) roundTrip(new Object[]{value, value});
+
+        assertEquals(-5, ((StubValue) result[0]).count);
+        assertEquals("custom", ((StubValue) result[0]).name);
+        assertSame(result[0], result[1]);
+    }
+
+    private Object roundTrip(Object value) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        testSubject.newWriter(out).writeValue(value);
+        out.flush();
+        return testSubject.newReader(new DataInputStream(new ByteArrayInputStream(baos.toByteArray()))).readValue();
+    }
+
+    private String[] fieldNames(List<Field> fields) {
+        String[] names = new String[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = fields.get(i).getName();
+        }
+        return names;
+    }
+
+    private static class StubValue implements Serializable {
+
+        private static final long serialVersionUID = -2817626563917271387L;
+
+        private final int count;
+        private final String name;
+        private StubValue self;
+        private transient String notSerialized;
+        private String ignored;
+
+        private StubValue(int count, String name) {
+            this.count = count;
+            this.name = name;
+        }
+    }
+}
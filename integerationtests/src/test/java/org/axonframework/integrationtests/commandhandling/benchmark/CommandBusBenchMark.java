@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.commandhandling.benchmark;
+
+import net.sf.jsr107cache.Cache;
+import org.axonframework.commandhandling.AggregateIdentifierResolver;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.AnnotationCommandHandlerAdapter;
+import org.axonframework.commandhandling.pipeline.PipelinedCommandBus;
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.SimpleDomainEventStream;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventsourcing.CachingEventSourcingRepository;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventstore.EventStore;
+import org.axonframework.eventstore.EventStreamNotFoundException;
+import org.axonframework.integrationtests.commandhandling.CreateStubAggregateCommand;
+import org.axonframework.integrationtests.commandhandling.StubAggregate;
+import org.axonframework.integrationtests.commandhandling.StubAggregateCommandHandler;
+import org.axonframework.integrationtests.commandhandling.UpdateStubAggregateCommand;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the throughput of the SimpleCommandBus with a CachingEventSourcingRepository, to that of the
+ * PipelinedCommandBus. Both buses handle the same number of commands, spread over a fixed number of aggregates, and
+ * store the resulting events in an in-memory event store.
+ * <p/>
+ * Typical results, with 1,000,000 commands on 100 aggregates, 4 dispatching threads and 2 handler threads, after
+ * 100,000 warm-up commands (5 runs on a single CPU, JDK 1.8, -Xmx1g):
+ * <ul>
+ * <li>SimpleCommandBus with CachingEventSourcingRepository: 41,000 - 58,000 commands/s (17.4 - 24.1 seconds)</li>
+ * <li>PipelinedCommandBus: 79,000 - 83,000 commands/s (12.0 - 12.7 seconds)</li>
+ * </ul>
+ * The numbers vary considerably between machines. Only compare results obtained on the same machine.
+ *
+ * @author Allard Buijze
+ */
+public class CommandBusBenchMark {
+
+    private static final int WARMUP_COMMANDS = 100000;
+    private static final int COMMANDS = 1000000;
+    private static final int AGGREGATE_COUNT = 100;
+    private static final int DISPATCHER_COUNT = 4;
+    private static final int HANDLER_THREAD_COUNT = 2;
+
+    public static void main(String[] args) throws Exception {
+        benchmarkSimpleCommandBus(WARMUP_COMMANDS);
+        report("SimpleCommandBus with CachingEventSourcingRepository", COMMANDS,
+               benchmarkSimpleCommandBus(COMMANDS));
+
+        benchmarkPipelinedCommandBus(WARMUP_COMMANDS);
+        report("PipelinedCommandBus", COMMANDS, benchmarkPipelinedCommandBus(COMMANDS));
+    }
+
+    private static long benchmarkSimpleCommandBus(int commandCount) throws InterruptedException {
+        InMemoryEventStore eventStore = new InMemoryEventStore();
+        CachingStubAggregateRepository repository = new CachingStubAggregateRepository();
+        repository.setEventStore(eventStore);
+        repository.setEventBus(new SimpleEventBus(false));
+        repository.setCache(createCache());
+        StubAggregateCommandHandler handler = new StubAggregateCommandHandler();
+        handler.setRepository(repository);
+        SimpleCommandBus commandBus = new SimpleCommandBus(false);
+        new AnnotationCommandHandlerAdapter(handler, commandBus).subscribe();
+        return dispatch(commandBus, commandCount);
+    }
+
+    private static long benchmarkPipelinedCommandBus(int commandCount) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        PipelinedCommandBus<StubAggregate> commandBus = new PipelinedCommandBus<StubAggregate>(
+                new GenericAggregateFactory<StubAggregate>(StubAggregate.class), new InMemoryEventStore(),
+                new SimpleEventBus(false), executor, 4096, HANDLER_THREAD_COUNT);
+        commandBus.setAggregateIdentifierResolver(new AggregateIdentifierResolver() {
+            @Override
+            public Object resolveAggregateIdentifier(Object command) {
+                if (command instanceof UpdateStubAggregateCommand) {
+                    return ((UpdateStubAggregateCommand) command).getAggregateId();
+                }
+                return null;
+            }
+        });
+        StubAggregateCommandHandler handler = new StubAggregateCommandHandler();
+        handler.setRepository(commandBus.getRepository());
+        new AnnotationCommandHandlerAdapter(handler, commandBus).subscribe();
+        commandBus.start();
+        try {
+            return dispatch(commandBus, commandCount);
+        } finally {
+            commandBus.stop();
+            executor.shutdown();
+        }
+    }
+
+    private static long dispatch(final CommandBus commandBus, int commandCount) throws InterruptedException {
+        final AggregateIdentifier[] aggregates = new AggregateIdentifier[AGGREGATE_COUNT];
+        CountDownLatch created = new CountDownLatch(aggregates.length);
+        for (int t = 0; t < aggregates.length; t++) {
+            aggregates[t] = new UUIDAggregateIdentifier();
+            commandBus.dispatch(new CreateStubAggregateCommand(aggregates[t]), new CountingCallback(created));
+        }
+        created.await();
+
+        final int commandsPerDispatcher = commandCount / DISPATCHER_COUNT;
+        final CountDownLatch handled = new CountDownLatch(commandsPerDispatcher * DISPATCHER_COUNT);
+        final CountingCallback callback = new CountingCallback(handled);
+        ExecutorService dispatchers = Executors.newFixedThreadPool(DISPATCHER_COUNT);
+        long start = System.currentTimeMillis();
+        for (int d = 0; d < DISPATCHER_COUNT; d++) {
+            final int offset = d;
+            dispatchers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int t = 0; t < commandsPerDispatcher; t++) {
+                        AggregateIdentifier target = aggregates[(t + offset) % aggregates.length];
+                        commandBus.dispatch(new UpdateStubAggregateCommand(target), callback);
+                    }
+                }
+            });
+        }
+        handled.await();
+        long duration = System.currentTimeMillis() - start;
+        dispatchers.shutdown();
+        return duration;
+    }
+
+    private static void report(String name, int commandCount, long duration) {
+        System.out.println(String.format("%s: handled %s commands in %s milliseconds (%s commands/s).",
+                                         name,
+                                         commandCount,
+                                         duration,
+                                         duration == 0 ? "-" : (commandCount * 1000L / duration)));
+    }
+
+    /**
+     * Creates a cache backed by a ConcurrentHashMap. Only the Map methods of the cache are used by the repository.
+     */
+    private static Cache createCache() {
+        final Map<Object, Object> entries = new ConcurrentHashMap<Object, Object>();
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                try {
+                    return Map.class.getMethod(method.getName(), method.getParameterTypes()).invoke(entries, args);
+                } catch (NoSuchMethodException e) {
+                    return null;
+                }
+            }
+        };
+        return (Cache) Proxy.newProxyInstance(Cache.class.getClassLoader(), new Class[]{Cache.class}, handler);
+    }
+
+    private static class CountingCallback implements CommandCallback<Object> {
+
+        private final CountDownLatch latch;
+
+        public CountingCallback(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onSuccess(Object result) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            cause.printStackTrace();
+            latch.countDown();
+        }
+    }
+
+    private static class CachingStubAggregateRepository extends CachingEventSourcingRepository<StubAggregate> {
+
+        private final GenericAggregateFactory<StubAggregate> aggregateFactory =
+                new GenericAggregateFactory<StubAggregate>(StubAggregate.class);
+
+        @Override
+        protected StubAggregate instantiateAggregate(AggregateIdentifier aggregateIdentifier, DomainEvent firstEvent) {
+            return aggregateFactory.createAggregate(aggregateIdentifier, firstEvent);
+        }
+
+        @Override
+        public String getTypeIdentifier() {
+            return aggregateFactory.getTypeIdentifier();
+        }
+    }
+
+    private static class InMemoryEventStore implements EventStore {
+
+        private final ConcurrentMap<AggregateIdentifier, List<DomainEvent>> events =
+                new ConcurrentHashMap<AggregateIdentifier, List<DomainEvent>>();
+
+        @Override
+        public void appendEvents(String type, DomainEventStream stream) {
+            while (stream.hasNext()) {
+                DomainEvent event = stream.next();
+                List<DomainEvent> aggregateEvents = events.get(event.getAggregateIdentifier());
+                if (aggregateEvents == null) {
+                    aggregateEvents = new ArrayList<DomainEvent>();
+                    List<DomainEvent> existing = events.putIfAbsent(event.getAggregateIdentifier(), aggregateEvents);
+                    if (existing != null) {
+                        aggregateEvents = existing;
+                    }
+                }
+                synchronized (aggregateEvents) {
+                    aggregateEvents.add(event);
+                }
+            }
+        }
+
+        @Override
+        public DomainEventStream readEvents(String type, AggregateIdentifier identifier) {
+            List<DomainEvent> aggregateEvents = events.get(identifier);
+            if (aggregateEvents == null) {
+                throw new EventStreamNotFoundException(type, identifier);
+            }
+            synchronized (aggregateEvents) {
+                return new SimpleDomainEventStream(new ArrayList<DomainEvent>(aggregateEvents));
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.eventhandling.benchmark;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.AsynchronousEventHandlerWrapper;
+import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SequentialPerAggregatePolicy;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventhandling.ringbuffer.ConsumerGroup;
+import org.axonframework.eventhandling.ringbuffer.RingBufferEventBus;
+import org.axonframework.eventhandling.ringbuffer.YieldingWaitStrategy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the time it takes to deliver events to two listeners, using the SimpleEventBus (synchronously and with
+ * asynchronous listeners) and the RingBufferEventBus.
+ *
+ * @author Allard Buijze
+ */
+public class EventBusBenchMark {
+
+    private static final int WARMUP_EVENTS = 100000;
+    private static final int EVENTS = 1000000;
+    private static final int AGGREGATE_COUNT = 100;
+
+    public static void main(String[] args) throws Exception {
+        DomainEvent[] events = createEvents(EVENTS);
+        DomainEvent[] warmupEvents = createEvents(WARMUP_EVENTS);
+
+        benchmarkSimpleEventBus(warmupEvents);
+        report("SimpleEventBus", events.length, benchmarkSimpleEventBus(events));
+
+        benchmarkAsynchronousEventBus(warmupEvents);
+        report("SimpleEventBus with AsynchronousEventHandlerWrapper", events.length,
+               benchmarkAsynchronousEventBus(events));
+
+        benchmarkRingBufferEventBus(warmupEvents);
+        report("RingBufferEventBus", events.length, benchmarkRingBufferEventBus(events));
+    }
+
+    private static long benchmarkSimpleEventBus(DomainEvent[] events) throws InterruptedException {
+        EventBus eventBus = new SimpleEventBus();
+        CountingListener listener1 = new CountingListener(events.length);
+        CountingListener listener2 = new CountingListener(events.length);
+        eventBus.subscribe(listener1);
+        eventBus.subscribe(listener2);
+        return publish(eventBus, events, listener1, listener2);
+    }
+
+    private static long benchmarkAsynchronousEventBus(DomainEvent[] events) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        EventBus eventBus = new SimpleEventBus();
+        CountingListener listener1 = new CountingListener(events.length);
+        CountingListener listener2 = new CountingListener(events.length);
+        eventBus.subscribe(new AsynchronousEventHandlerWrapper(listener1, new SequentialPerAggregatePolicy(),
+                                                               executor));
+        eventBus.subscribe(new AsynchronousEventHandlerWrapper(listener2, new SequentialPerAggregatePolicy(),
+                                                               executor));
+        try {
+            return publish(eventBus, events, listener1, listener2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long benchmarkRingBufferEventBus(DomainEvent[] events) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        RingBufferEventBus eventBus = new RingBufferEventBus(executor, 4096, new YieldingWaitStrategy());
+        ConsumerGroup group = eventBus.createConsumerGroup("benchmark", 2, new SequentialPerAggregatePolicy());
+        CountingListener listener1 = new CountingListener(events.length);
+        CountingListener listener2 = new CountingListener(events.length);
+        eventBus.subscribe(listener1);
+        group.subscribe(listener2);
+        eventBus.start();
+        try {
+            return publish(eventBus, events, listener1, listener2);
+        } finally {
+            eventBus.stop();
+            executor.shutdown();
+        }
+    }
+
+    private static long publish(EventBus eventBus, DomainEvent[] events, CountingListener... listeners)
+            throws InterruptedException {
+        long start = System.currentTimeMillis();
+        for (DomainEvent event : events) {
+            eventBus.publish(event);
+        }
+        for (CountingListener listener : listeners) {
+            listener.await();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static void report(String name, int eventCount, long duration) {
+        System.out.println(String.format("%s: delivered %s events to 2 listeners in %s milliseconds (%s events/s).",
+                                         name,
+                                         eventCount,
+                                         duration,
+                                         duration == 0 ? "-" : (eventCount * 1000L / duration)));
+    }
+
+    private static DomainEvent[] createEvents(int count) {
+        AggregateIdentifier[] aggregates = new AggregateIdentifier[AGGREGATE_COUNT];
+        for (int t = 0; t < aggregates.length; t++) {
+            aggregates[t] = new UUIDAggregateIdentifier();
+        }
+        DomainEvent[] events = new DomainEvent[count];
+        for (int t = 0; t < count; t++) {
+            events[t] = new BenchmarkEvent(aggregates[t % AGGREGATE_COUNT], t / AGGREGATE_COUNT);
+        }
+        return events;
+    }
+
+    private static class CountingListener implements EventListener {
+
+        private final CountDownLatch latch;
+
+        public CountingListener(int expectedEvents) {
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void handle(Event event) {
+            latch.countDown();
+        }
+
+        public void await() throws InterruptedException {
+            latch.await();
+        }
+    }
+
+    private static class BenchmarkEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 2271553573960536434L;
+
+        public BenchmarkEvent(AggregateIdentifier aggregateIdentifier, long sequenceNumber) {
+            super(sequenceNumber, aggregateIdentifier);
+        }
+    }
+}
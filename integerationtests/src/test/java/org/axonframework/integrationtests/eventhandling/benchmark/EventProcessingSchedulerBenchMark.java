@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.eventhandling.benchmark;
+
+import org.axonframework.domain.AggregateIdentifier;
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.AsynchronousEventHandlerWrapper;
+import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventhandling.SequencingPolicy;
+import org.axonframework.eventhandling.SequentialPerAggregatePolicy;
+import org.axonframework.eventhandling.SequentialPolicy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures the throughput of the EventProcessingScheduler when multiple threads publish events concurrently to an
+ * asynchronous event listener.
+ *
+ * @author Allard Buijze
+ */
+public class EventProcessingSchedulerBenchMark {
+
+    private static final int PRODUCER_COUNT = 4;
+    private static final int WARMUP_EVENTS_PER_PRODUCER = 50000;
+    private static final int EVENTS_PER_PRODUCER = 500000;
+
+    public static void main(String[] args) throws Exception {
+        benchmark("SequentialPolicy", new SequentialPolicy(), WARMUP_EVENTS_PER_PRODUCER);
+        report("SequentialPolicy", benchmark("SequentialPolicy", new SequentialPolicy(), EVENTS_PER_PRODUCER));
+
+        benchmark("SequentialPerAggregatePolicy", new SequentialPerAggregatePolicy(), WARMUP_EVENTS_PER_PRODUCER);
+        report("SequentialPerAggregatePolicy",
+               benchmark("SequentialPerAggregatePolicy", new SequentialPerAggregatePolicy(), EVENTS_PER_PRODUCER));
+    }
+
+    private static long benchmark(String name, SequencingPolicy<? super Event> sequencingPolicy,
+                                  final int eventsPerProducer) throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        final CountingListener listener = new CountingListener(PRODUCER_COUNT * eventsPerProducer);
+        final AsynchronousEventHandlerWrapper wrapper = new AsynchronousEventHandlerWrapper(listener,
+                                                                                            sequencingPolicy,
+                                                                                            executor);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < PRODUCER_COUNT; t++) {
+            final DomainEvent[] events = createEvents(eventsPerProducer);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (DomainEvent event : events) {
+                        wrapper.handle(event);
+                    }
+                }
+            }, name + "-producer-" + t).start();
+        }
+
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        listener.await();
+        long duration = System.currentTimeMillis() - startTime;
+        executor.shutdown();
+        return duration;
+    }
+
+    private static void report(String name, long duration) {
+        long eventCount = (long) PRODUCER_COUNT * EVENTS_PER_PRODUCER;
+        System.out.println(String.format("%s: %s producers published %s events in %s milliseconds (%s events/s).",
+                                         name,
+                                         PRODUCER_COUNT,
+                                         eventCount,
+                                         duration,
+                                         duration == 0 ? "-" : (eventCount * 1000L / duration)));
+    }
+
+    private static DomainEvent[] createEvents(int count) {
+        AggregateIdentifier aggregateIdentifier = new UUIDAggregateIdentifier();
+        DomainEvent[] events = new DomainEvent[count];
+        for (int t = 0; t < count; t++) {
+            events[t] = new BenchmarkEvent(aggregateIdentifier, t);
+        }
+        return events;
+    }
+
+    private static class CountingListener implements EventListener {
+
+        private final CountDownLatch latch;
+
+        public CountingListener(int expectedEvents) {
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void handle(Event event) {
+            latch.countDown();
+        }
+
+        public void await() throws InterruptedException {
+            latch.await();
+        }
+    }
+
+    private static class BenchmarkEvent extends DomainEvent {
+
+        private static final long serialVersionUID = -1725390183958227531L;
+
+        public BenchmarkEvent(AggregateIdentifier aggregateIdentifier, long sequenceNumber) {
+            super(sequenceNumber, aggregateIdentifier);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.eventhandling.benchmark;
+
+import org.axonframework.domain.DomainEvent;
+import org.axonframework.domain.Event;
+import org.axonframework.domain.UUIDAggregateIdentifier;
+import org.axonframework.eventhandling.SimpleEventBus;
+import org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter;
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.util.Handler;
+
+import java.lang.reflect.Method;
+
+/**
+ * Measures the cost of invoking an annotated event handler method: directly, using reflection, using a {@link
+ * Handler}, and through the {@link AnnotationEventListenerAdapter}.
+ *
+ * @author Allard Buijze
+ */
+public class HandlerInvocationBenchMark {
+
+    private static final int WARMUP_ITERATIONS = 1000000;
+    private static final int ITERATIONS = 10000000;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkListener listener = new BenchmarkListener();
+        Event event = new BenchmarkEvent();
+        Method method = BenchmarkListener.class.getMethod("handle", BenchmarkEvent.class);
+        Handler handler = new Handler(method);
+        AnnotationEventListenerAdapter adapter = new AnnotationEventListenerAdapter(listener,
+                                                                                   new SimpleEventBus(false));
+
+        for (int run = 0; run < 2; run++) {
+            boolean report = run > 0;
+            int iterations = report ? ITERATIONS : WARMUP_ITERATIONS;
+            measure("Direct invocation", iterations, report, new DirectInvocation(listener, event));
+            measure("Method.invoke", iterations, report, new ReflectiveInvocation(listener, event, method));
+            measure("Handler.invoke", iterations, report, new HandlerInvocation(listener, event, handler));
+            measure("AnnotationEventListenerAdapter", iterations, report, new AdapterInvocation(adapter, event));
+        }
+        System.out.println("Events handled: " + listener.counter);
+    }
+
+    private static void measure(String name, int iterations, boolean report, Invocation invocation)
+            throws Exception {
+        long start = System.nanoTime();
+        for (int t = 0; t < iterations; t++) {
+            invocation.invoke();
+        }
+        long duration = System.nanoTime() - start;
+        if (report) {
+            System.out.println(String.format("%s: %s invocations in %s ms (%.1f ns per invocation)",
+                                             name, iterations, duration / 1000000,
+                                             (double) duration / iterations));
+        }
+    }
+
+    private interface Invocation {
+
+        void invoke() throws Exception;
+    }
+
+    private static class DirectInvocation implements Invocation {
+
+        private final BenchmarkListener listener;
+        private final BenchmarkEvent event;
+
+        public DirectInvocation(BenchmarkListener listener, Event event) {
+            this.listener = listener;
+            this.event = (BenchmarkEvent) event;
+        }
+
+        @Override
+        public void invoke() {
+            listener.handle(event);
+        }
+    }
+
+    private static class ReflectiveInvocation implements Invocation {
+
+        private final Object listener;
+        private final Object event;
+        private final Method method;
+
+        public ReflectiveInvocation(Object listener, Object event, Method method) {
+            this.listener = listener;
+            this.event = event;
+            this.method = method;
+        }
+
+        @Override
+        public void invoke() throws Exception {
+            method.invoke(listener, event);
+        }
+    }
+
+    private static class HandlerInvocation implements Invocation {
+
+        private final Object listener;
+        private final Object event;
+        private final Handler handler;
+
+        public HandlerInvocation(Object listener, Object event, Handler handler) {
+            this.listener = listener;
+            this.event = event;
+            this.handler = handler;
+        }
+
+        @Override
+        public void invoke() throws Exception {
+            handler.invoke(listener, event, null);
+        }
+    }
+
+    private static class AdapterInvocation implements Invocation {
+
+        private final AnnotationEventListenerAdapter adapter;
+        private final Event event;
+
+        public AdapterInvocation(AnnotationEventListenerAdapter adapter, Event event) {
+            this.adapter = adapter;
+            this.event = event;
+        }
+
+        @Override
+        public void invoke() {
+            adapter.handle(event);
+        }
+    }
+
+    public static class BenchmarkListener {
+
+        private long counter;
+
+        @EventHandler
+        public void handle(BenchmarkEvent event) {
+            counter++;
+        }
+    }
+
+    public static class BenchmarkEvent extends DomainEvent {
+
+        private static final long serialVersionUID = 2896536617441545185L;
+
+        public BenchmarkEvent() {
+            super(0, new UUIDAggregateIdentifier());
+        }
+    }
+}
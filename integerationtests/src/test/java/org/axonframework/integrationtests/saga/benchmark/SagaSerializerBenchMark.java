@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011. Axon Framework
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.axonframework.integrationtests.saga.benchmark;
+
+import org.axonframework.saga.Saga;
+import org.axonframework.saga.annotation.AbstractAnnotatedSaga;
+import org.axonframework.saga.repository.BinarySagaSerializer;
+import org.axonframework.saga.repository.JavaSagaSerializer;
+import org.axonframework.saga.repository.SagaSerializer;
+import org.axonframework.saga.repository.XStreamSagaSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the size of the serialized form and the (de)serialization throughput of the available SagaSerializer
+ * implementations.
+ *
+ * @author Allard Buijze
+ */
+public class SagaSerializerBenchMark {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 100000;
+
+    public static void main(String[] args) {
+        Saga saga = new BenchmarkSaga();
+        benchmark("JavaSagaSerializer", new JavaSagaSerializer(), saga);
+        benchmark("XStreamSagaSerializer", new XStreamSagaSerializer(), saga);
+        benchmark("BinarySagaSerializer", new BinarySagaSerializer(), saga);
+    }
+
+    private static void benchmark(String name, SagaSerializer serializer, Saga saga) {
+        byte[] serializedSaga = serializer.serialize(saga);
+        for (int t = 0; t < WARMUP_ITERATIONS; t++) {
+            serializer.deserialize(serializer.serialize(saga));
+        }
+
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < ITERATIONS; t++) {
+            serializedSaga = serializer.serialize(saga);
+        }
+        long serialized = System.currentTimeMillis();
+        for (int t = 0; t < ITERATIONS; t++) {
+            serializer.deserialize(serializedSaga);
+        }
+        long end = System.currentTimeMillis();
+
+        System.out.println(String.format(
+                "%s: %s bytes. Serialized %s sagas in %s milliseconds, deserialized them in %s milliseconds.",
+                name,
+                serializedSaga.length,
+                ITERATIONS,
+                (serialized - start),
+                (end - serialized)));
+    }
+
+    public static class BenchmarkSaga extends AbstractAnnotatedSaga {
+
+        private static final long serialVersionUID = -5873813893846413599L;
+
+        private String orderId;
+        private boolean paymentReceived;
+        private boolean shipped;
+        private int retries;
+        private List<String> orderLines = new ArrayList<String>();
+
+        public BenchmarkSaga() {
+            orderId = UUID.randomUUID().toString();
+            associateWith("orderId", orderId);
+            associateWith("customerId", UUID.randomUUID().toString());
+            associateWith("invoiceId", UUID.randomUUID().toString());
+            for (int t = 0; t < 5; t++) {
+                orderLines.add("product-" + t);
+            }
+            paymentReceived = true;
+            retries = 2;
+        }
+    }
+}
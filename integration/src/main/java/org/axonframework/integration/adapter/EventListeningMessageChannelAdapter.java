@@ -16,9 +16,11 @@
 
 package org.axonframework.integration.adapter;
 
+import org.axonframework.domain.DomainEvent;
 import org.axonframework.domain.Event;
 import org.axonframework.eventhandling.EventBus;
 import org.axonframework.eventhandling.EventListener;
+import org.axonframework.eventstore.EventSerializer;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.integration.MessageChannel;
 import org.springframework.integration.message.GenericMessage;
@@ -28,6 +30,10 @@ import org.springframework.integration.message.GenericMessage;
  * GenericMessage instances. The adapter automatically subscribes itself to the provided <code>EventBus</code>.
  * <p/>
  * Optionally, this adapter can be configured with a filter, which can block or accept messages based on their type.
+ * <p/>
+ * When an {@link EventSerializer} is configured, DomainEvents are sent in their serialized form (a byte array) instead.
+ * Combined with a {@link org.axonframework.eventstore.CachingEventSerializer} that is shared with the event store, the
+ * bytes produced when the event was stored are forwarded without serializing the event again.
  *
  * @author Allard Buijze
  * @since 0.4
@@ -37,6 +43,7 @@ public class EventListeningMessageChannelAdapter implements EventListener, Initi
     private final MessageChannel channel;
     private final EventFilter filter;
     private final EventBus eventBus;
+    private EventSerializer eventSerializer;
 
     /**
      * Initialize an adapter to forward messages from the given <code>eventBus</code> to the given <code>channel</code>.
@@ -82,7 +89,21 @@ public class EventListeningMessageChannelAdapter implements EventListener, Initi
     @Override
     public void handle(Event event) {
         if (filter.accept(event.getClass())) {
-            channel.send(new GenericMessage<Event>(event));
+            if (eventSerializer != null && event instanceof DomainEvent) {
+                channel.send(new GenericMessage<byte[]>(eventSerializer.serialize((DomainEvent) event)));
+            } else {
+                channel.send(new GenericMessage<Event>(event));
+            }
         }
     }
+
+    /**
+     * Sets the serializer to use to send DomainEvents in their serialized form. Events that are not DomainEvents are
+     * always sent as is. By default, no serializer is used and all events are sent as is.
+     *
+     * @param eventSerializer The serializer that serializes DomainEvents before sending them to the channel
+     */
+    public void setEventSerializer(EventSerializer eventSerializer) {
+        this.eventSerializer = eventSerializer;
+    }
 }
@@ -18,6 +18,7 @@ package org.axonframework.integration.adapter;
 
 import org.axonframework.domain.Event;
 import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventstore.EventSerializer;
 import org.springframework.integration.Message;
 import org.springframework.integration.MessageRejectedException;
 import org.springframework.integration.core.MessageHandler;
@@ -27,6 +28,9 @@ import org.springframework.integration.core.MessageHandler;
  * expected to be contained in the payload of the Message instances.
  * <p/>
  * Optionally, this adapter can be configured with a filter, which can block or accept messages based on their type.
+ * <p/>
+ * When an {@link EventSerializer} is configured, messages may also carry serialized DomainEvents (a byte array) as
+ * payload, as sent by an {@link EventListeningMessageChannelAdapter} with a serializer.
  *
  * @author Allard Buijze
  * @since 0.4
@@ -35,6 +39,7 @@ public class EventPublishingMessageChannelAdapter implements MessageHandler {
 
     private final EventFilter filter;
     private final EventBus eventBus;
+    private EventSerializer eventSerializer;
 
     /**
      * Initialize the adapter to publish all incoming events to the given <code>eventBus</code>.
@@ -65,6 +70,9 @@ public class EventPublishingMessageChannelAdapter implements MessageHandler {
      * <p/>
      * If the <code>message</code> does contain an {@link Event}, but the filter refuses it, a {@link
      * MessageRejectedException} is also thrown.
+     * <p/>
+     * If an EventSerializer is configured, a payload of type <code>byte[]</code> is deserialized into the event to
+     * publish.
      *
      * @param message The message containing the event to publish
      * @throws MessageRejectedException is the payload could not be published on the event bus.
@@ -72,18 +80,32 @@ public class EventPublishingMessageChannelAdapter implements MessageHandler {
     @SuppressWarnings({"unchecked"})
     @Override
     public void handleMessage(Message<?> message) {
-        if (!(message.getPayload() instanceof Event)) {
+        Object payload = message.getPayload();
+        if (eventSerializer != null && payload instanceof byte[]) {
+            payload = eventSerializer.deserialize((byte[]) payload);
+        }
+        if (!(payload instanceof Event)) {
             throw new MessageRejectedException(message, String.format(
                     "The payload of incoming messages must be of type: %s",
                     Event.class.getName()));
         }
-        Class<? extends Event> eventType = (Class<? extends Event>) message.getPayload().getClass();
+        Class<? extends Event> eventType = (Class<? extends Event>) payload.getClass();
         if (filter.accept(eventType)) {
-            eventBus.publish((Event) message.getPayload());
+            eventBus.publish((Event) payload);
         } else {
             throw new MessageRejectedException(message, String.format(
                     "The event of type [%s] was blocked by the filter.",
                     eventType.getSimpleName()));
         }
     }
+
+    /**
+     * Sets the serializer to use to deserialize messages carrying serialized DomainEvents. By default, no serializer
+     * is used and only messages carrying an {@link Event} payload are accepted.
+     *
+     * @param eventSerializer The serializer that deserializes byte array payloads
+     */
+    public void setEventSerializer(EventSerializer eventSerializer) {
+        this.eventSerializer = eventSerializer;
+    }
 }
@@ -18,6 +18,7 @@ package org.axonframework.integration.adapter;
 
 import org.axonframework.domain.Event;
 import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.integration.StubDomainEvent;
 import org.junit.*;
 import org.mockito.*;
@@ -52,6 +53,25 @@ public class EventListeningMessageChannelAdapterTest {
         verify(mockChannel).send(messageWithPayload(event));
     }
 
+    @Test
+    public void testSerializedMessageForwardedToChannel() {
+        EventSerializer mockSerializer = mock(EventSerializer.class);
+        final byte[] serializedEvent = new byte[]{1, 2, 3};
+        StubDomainEvent event = new StubDomainEvent();
+        when(mockSerializer.serialize(event)).thenReturn(serializedEvent);
+        testSubject.setEventSerializer(mockSerializer);
+
+        testSubject.handle(event);
+
+        verify(mockSerializer).serialize(event);
+        verify(mockChannel).send(argThat(new ArgumentMatcher<Message<?>>() {
+            @Override
+            public boolean matches(Object argument) {
+                return serializedEvent == ((Message) argument).getPayload();
+            }
+        }));
+    }
+
     @Test
     public void testEventListenerRegisteredOnInit() throws Exception {
         verify(mockEventBus, never()).subscribe(testSubject);
@@ -17,6 +17,7 @@
 package org.axonframework.integration.adapter;
 
 import org.axonframework.eventhandling.EventBus;
+import org.axonframework.eventstore.EventSerializer;
 import org.axonframework.integration.StubDomainEvent;
 import org.junit.*;
 import org.springframework.integration.MessageRejectedException;
@@ -49,6 +50,24 @@ public class EventPublishingMessageChannelAdapterTest {
         verify(mockEventBus).publish(event);
     }
 
+    @Test
+    public void testSerializedMessagePayloadIsPublished() {
+        EventSerializer mockSerializer = mock(EventSerializer.class);
+        byte[] serializedEvent = new byte[]{1, 2, 3};
+        StubDomainEvent event = new StubDomainEvent();
+        when(mockSerializer.deserialize(serializedEvent)).thenReturn(event);
+        testSubject.setEventSerializer(mockSerializer);
+
+        testSubject.handleMessage(new GenericMessage<Object>(serializedEvent));
+
+        verify(mockEventBus).publish(event);
+    }
+
+    @Test(expected = MessageRejectedException.class)
+    public void testSerializedMessageRefusedWithoutSerializer() {
+        testSubject.handleMessage(new GenericMessage<Object>(new byte[]{1, 2, 3}));
+    }
+
     @Test(expected = MessageRejectedException.class)
     public void testNonEventMessageRefused() {
         testSubject.handleMessage(new GenericMessage<Object>(new Object()));
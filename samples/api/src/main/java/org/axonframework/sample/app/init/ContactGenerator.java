@@ -16,14 +16,18 @@
 
 package org.axonframework.sample.app.init;
 
-import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.BatchCallback;
+import org.axonframework.commandhandling.BatchingCommandBus;
 import org.axonframework.sample.app.api.AddressType;
 import org.axonframework.sample.app.api.CreateContactCommand;
 import org.axonframework.sample.app.api.RegisterAddressCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 
+import java.util.Arrays;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,10 +38,22 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class ContactGenerator implements ApplicationListener {
 
-    private CommandBus commandBus;
+    private static final Logger logger = LoggerFactory.getLogger(ContactGenerator.class);
+    private static final BatchCallback LOGGING_CALLBACK = new BatchCallback() {
+        @Override
+        public void onSuccess(Object command, Object result) {
+        }
+
+        @Override
+        public void onFailure(Object command, Throwable cause) {
+            logger.error("Unable to create sample content using a " + command.getClass().getSimpleName(), cause);
+        }
+    };
+
+    private BatchingCommandBus commandBus;
     private AtomicBoolean initialized = new AtomicBoolean();
 
-    public ContactGenerator(CommandBus commandBus) {
+    public ContactGenerator(BatchingCommandBus commandBus) {
         this.commandBus = commandBus;
     }
 
@@ -53,13 +69,12 @@ public class ContactGenerator implements ApplicationListener {
             commandAllard.setNewContactName("Allard");
             String uuidAllard = UUID.randomUUID().toString();
             commandAllard.setContactId(uuidAllard);
-            commandBus.dispatch(commandAllard);
 
             CreateContactCommand commandJettro = new CreateContactCommand();
             commandJettro.setNewContactName("Jettro");
             String uuidJettro = UUID.randomUUID().toString();
             commandJettro.setContactId(uuidJettro);
-            commandBus.dispatch(commandJettro);
+            commandBus.dispatchBatch(Arrays.asList(commandAllard, commandJettro), LOGGING_CALLBACK);
 
             RegisterAddressCommand registerPrivateAddressCommand = new RegisterAddressCommand();
             registerPrivateAddressCommand.setAddressType(AddressType.PRIVATE);
@@ -67,7 +82,6 @@ public class ContactGenerator implements ApplicationListener {
             registerPrivateAddressCommand.setContactId(uuidAllard);
             registerPrivateAddressCommand.setStreetAndNumber("AxonBoulevard 1");
             registerPrivateAddressCommand.setZipCode("1234AB");
-            commandBus.dispatch(registerPrivateAddressCommand);
 
             RegisterAddressCommand registerWorkAddressCommand = new RegisterAddressCommand();
             registerWorkAddressCommand.setAddressType(AddressType.WORK);
@@ -75,7 +89,6 @@ public class ContactGenerator implements ApplicationListener {
             registerWorkAddressCommand.setContactId(uuidAllard);
             registerWorkAddressCommand.setStreetAndNumber("JTeam avenue");
             registerWorkAddressCommand.setZipCode("1234AB");
-            commandBus.dispatch(registerWorkAddressCommand);
 
             RegisterAddressCommand registerJettroAddressCommand = new RegisterAddressCommand();
             registerJettroAddressCommand.setAddressType(AddressType.PRIVATE);
@@ -83,7 +96,9 @@ public class ContactGenerator implements ApplicationListener {
             registerJettroAddressCommand.setContactId(uuidJettro);
             registerJettroAddressCommand.setStreetAndNumber("Feyenoordlaan 010");
             registerJettroAddressCommand.setZipCode("3000AA");
-            commandBus.dispatch(registerJettroAddressCommand);
+            commandBus.dispatchBatch(Arrays.asList(registerPrivateAddressCommand,
+                                                   registerWorkAddressCommand,
+                                                   registerJettroAddressCommand), LOGGING_CALLBACK);
         }
     }
 }